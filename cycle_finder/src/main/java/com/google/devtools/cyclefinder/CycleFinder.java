@@ -17,18 +17,16 @@ package com.google.devtools.cyclefinder;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.file.InputFile;
 import com.google.devtools.j2objc.file.RegularInputFile;
 import com.google.devtools.j2objc.translate.LambdaTypeElementAdder;
 import com.google.devtools.j2objc.translate.OuterReferenceResolver;
 import com.google.devtools.j2objc.util.ErrorUtil;
-import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.Parser;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -108,31 +106,31 @@ public class CycleFinder {
     return NameList.createFromFiles(restrictToFiles, options.fileEncoding());
   }
 
-  private File stripIncompatible(
-      List<String> sourceFileNames, Parser parser) throws IOException {
-    File strippedDir = null;
-    for (int i = 0; i < sourceFileNames.size(); i++) {
-      String fileName = sourceFileNames.get(i);
-      RegularInputFile file = new RegularInputFile(fileName);
+  private void stripIncompatible(List<String> sourceFileNames, Parser parser) throws IOException {
+    List<InputFile> files = new ArrayList<>();
+    List<String> sources = new ArrayList<>();
+    for (String sourceFileName : sourceFileNames) {
+      RegularInputFile file = new RegularInputFile(sourceFileName);
       String source = j2objcOptions.fileUtil().readFile(file);
-      if (!source.contains("J2ObjCIncompatible")) {
-        continue;
+      if (source.contains("J2ObjCIncompatible")) {
+        files.add(file);
+        sources.add(source);
       }
-      if (strippedDir == null) {
-        strippedDir = Files.createTempDir();
-        parser.prependSourcepathEntry(strippedDir.getPath());
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    List<Parser.ParseResult> parseResults = parser.parseWithoutBindings(files, sources);
+    for (int i = 0; i < files.size(); i++) {
+      Parser.ParseResult parseResult = parseResults.get(i);
+      if (parseResult == null) {
+        // Parse errors were reported.
+        continue;
       }
-      Parser.ParseResult parseResult = parser.parseWithoutBindings(file, source);
       String qualifiedName = parseResult.mainTypeName();
       parseResult.stripIncompatibleSource();
-      String relativePath = qualifiedName.replace('.', File.separatorChar) + ".java";
-      File strippedFile = new File(strippedDir, relativePath);
-      Files.createParentDirs(strippedFile);
-      Files.asCharSink(strippedFile, Charset.forName(options.fileEncoding()))
-          .write(parseResult.getSource());
-      sourceFileNames.set(i, strippedFile.getPath());
+      parser.replaceSource(files.get(i).getAbsolutePath(), qualifiedName, parseResult.getSource());
     }
-    return strippedDir;
   }
 
   public void constructGraph() throws IOException {
@@ -143,7 +141,7 @@ public class CycleFinder {
         new GraphBuilder(suppressList, options.externalAnnotations());
 
     List<String> sourceFiles = options.getSourceFiles();
-    File strippedDir = stripIncompatible(sourceFiles, parser);
+    stripIncompatible(sourceFiles, parser);
 
     Parser.Handler handler = new Parser.Handler() {
       @Override
@@ -155,7 +153,6 @@ public class CycleFinder {
     };
     parser.parseFiles(sourceFiles, handler, options.sourceVersion());
 
-    FileUtil.deleteTempDir(strippedDir);
     parser.close();
 
     if (ErrorUtil.errorCount() > 0) {
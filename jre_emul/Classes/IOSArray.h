@@ -72,6 +72,15 @@ __attribute__((always_inline)) inline void IOSArray_checkIndex(jint size, jint i
   }
 }
 
+/**
+ * Checks an index into a C array of the specified size, such as a primitive
+ * array the translator allocated on the stack, and returns it.
+ */
+__attribute__((always_inline)) inline jint IOSArray_checkedIndex(jint size, jint index) {
+  IOSArray_checkIndex(size, index);
+  return index;
+}
+
 /** Implements the IOSArray |checkRange| method as a C function. */
 __attribute__((always_inline)) inline void IOSArray_checkRange(
     jint size, jint offset, jint length) {
@@ -159,6 +159,22 @@ void JreStrictFieldRetainedWithRelease(id parent, id *pVar);
 
 NSString *JreStrcat(const char *types, ...);
 
+/*!
+ * Enters and exits an object's monitor, for synchronized statements and
+ * methods translated with -Xlightweight-monitors. Unlike @synchronized, these
+ * don't set up an exception handler, so the translator only adds a try/finally
+ * statement when the synchronized code can throw.
+ */
+void JreMonitorEnter(id obj);
+void JreMonitorExit(id obj);
+
+/*!
+ * Returns true if obj's class uses cls's implementation of sel. Methods
+ * translated with --monomorphic-methods call the implementation's function
+ * directly when this is true, and send the message otherwise.
+ */
+jboolean JreUsesImplementation(id obj, Class cls, SEL sel);
+
 jboolean JreAnnotationEquals(id a1, id a2);
 jint JreAnnotationHashCode(id a);
 
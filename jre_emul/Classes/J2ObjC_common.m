@@ -29,11 +29,13 @@
 #import "java/lang/ArithmeticException.h"
 #import "java/lang/AssertionError.h"
 #import "java/lang/ClassCastException.h"
+#import "java/lang/IllegalMonitorStateException.h"
 #import "java/lang/Iterable.h"
 #import "java/lang/NullPointerException.h"
 #import "java/lang/Throwable.h"
 #import "java/util/logging/Level.h"
 #import "java/util/logging/Logger.h"
+#import "objc-sync.h"
 #import "objc/runtime.h"
 #import "os/lock.h"
 
@@ -61,6 +63,25 @@ void JreThrowAssertionError(id __unsafe_unretained msg) {
   @throw [[[JavaLangAssertionError alloc] initWithId:[msg description]] autorelease];  // NOLINT
 }
 
+void JreMonitorEnter(id obj) {
+  objc_sync_enter(nil_chk(obj));
+}
+
+void JreMonitorExit(id obj) {
+  if (objc_sync_exit(obj) != OBJC_SYNC_SUCCESS) {
+    @throw create_JavaLangIllegalMonitorStateException_init();  // NOLINT
+  }
+}
+
+jboolean JreUsesImplementation(id obj, Class cls, SEL sel) {
+  if (!obj) {
+    return false;
+  }
+  Class objCls = object_getClass(obj);
+  return objCls == cls
+      || class_getMethodImplementation(objCls, sel) == class_getMethodImplementation(cls, sel);
+}
+
 void JreFinalize(id self) {
   @try {
     [self java_finalize];
@@ -102,6 +102,13 @@ typedef struct J2ObjcResourceDefinition {
   const jint name_hash;
 } J2ObjcResourceDefinition;
 
+/*!
+ * Returns the linked resource with the specified name, or NULL if there isn't
+ * one. The resource data is in the binary's data segment, so callers can read
+ * it in place instead of copying it.
+ */
+FOUNDATION_EXPORT const J2ObjcResourceDefinition *JreFindLinkedResource(NSString *name);
+
 // Preprocessor trick to add quotes to a macro arg:
 // https://stackoverflow.com/questions/3419332/c-preprocessor-stringify-the-result-of-a-macro
 #define Q(x) #x
@@ -25,7 +25,7 @@
 #include "java/util/Collections.h"
 #include "jni.h"
 
-static IOSByteArray *GetLinkedResource(NSString *name) {
+const J2ObjcResourceDefinition *JreFindLinkedResource(NSString *name) {
   if ([name characterAtIndex:0] != '/') {
     name = [NSString stringWithFormat:@"/%@", name];
   }
@@ -41,11 +41,16 @@ static IOSByteArray *GetLinkedResource(NSString *name) {
   for (long i = 0; i < nResources; i++) {
     J2ObjcResourceDefinition *resource = (&start_resource_section) + i;
     if (strcmp(resourceName, resource->full_name) == 0) {
-      return [IOSByteArray arrayWithBytes:(const jbyte *)resource->data
-                                    count:(NSUInteger)resource->length];
+      return resource;
     }
   }
-  return nil;
+  return NULL;
+}
+
+static IOSByteArray *GetLinkedResource(NSString *name) {
+  const J2ObjcResourceDefinition *resource = JreFindLinkedResource(name);
+  return resource ? [IOSByteArray arrayWithBytes:resource->data
+                                           count:(NSUInteger)resource->length] : nil;
 }
 
 static JavaNetURL *CreateResourceURL(NSString *name, IOSByteArray *data) {
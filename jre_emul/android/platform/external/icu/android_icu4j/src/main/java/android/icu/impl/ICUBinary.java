@@ -16,17 +16,26 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.MissingResourceException;
 import java.util.Set;
+import java.util.zip.ZipEntry;
 
 import android.icu.util.ICUUncheckedIOException;
 import android.icu.util.VersionInfo;
 
+/*-[
+#include "java/nio/DirectByteBuffer.h"
+]-*/
+
 /**
  * @hide Only a subset of ICU is exposed in Android
  */
@@ -258,26 +267,58 @@ public final class ICUBinary {
     }
 
     private static final class PackageDataFile extends DataFile {
+        private static final ByteBuffer INVALID_PACKAGE = ByteBuffer.allocate(0);
+
+        private final File path;
+
         /**
-         * .dat package bytes, or null if not a .dat package.
+         * .dat package bytes, or null until the package is first used,
+         * or INVALID_PACKAGE if it could not be mapped or is not a .dat package.
          * position() is after the header.
          * Do not modify the position or other state, for thread safety.
          */
-        private final ByteBuffer pkgBytes;
+        private volatile ByteBuffer pkgBytes;
 
-        PackageDataFile(String item, ByteBuffer bytes) {
+        // J2ObjC: map and validate the package on first use rather than in ICUBinary's
+        // static initializer, so that apps which never need its items don't pay for it.
+        PackageDataFile(String item, File path) {
             super(item);
-            pkgBytes = bytes;
+            this.path = path;
+        }
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+
+        private ByteBuffer getPackageBytes() {
+            ByteBuffer bytes = pkgBytes;
+            if (bytes == null) {
+                synchronized (this) {
+                    bytes = pkgBytes;
+                    if (bytes == null) {
+                        bytes = mapFile(path);
+                        if (bytes == null || !DatPackageReader.validate(bytes)) {
+                            bytes = INVALID_PACKAGE;
+                        }
+                        pkgBytes = bytes;
+                    }
+                }
+            }
+            return bytes != INVALID_PACKAGE ? bytes : null;
         }
 
         @Override
         ByteBuffer getData(String requestedPath) {
-            return DatPackageReader.getData(pkgBytes, requestedPath);
+            ByteBuffer bytes = getPackageBytes();
+            return bytes != null ? DatPackageReader.getData(bytes, requestedPath) : null;
         }
 
         @Override
         void addBaseNamesInFolder(String folder, String suffix, Set<String> names) {
-            DatPackageReader.addBaseNamesInFolder(pkgBytes, folder, suffix, names);
+            ByteBuffer bytes = getPackageBytes();
+            if (bytes != null) {
+                DatPackageReader.addBaseNamesInFolder(bytes, folder, suffix, names);
+            }
         }
     }
 
@@ -344,10 +385,7 @@ public final class ICUBinary {
                 // TODO: Within a folder, put all single files before all .dat packages?
                 addDataFilesFromFolder(file, itemPath, dataFiles);
             } else if (fileName.endsWith(".dat")) {
-                ByteBuffer pkgBytes = mapFile(file);
-                if (pkgBytes != null && DatPackageReader.validate(pkgBytes)) {
-                    dataFiles.add(new PackageDataFile(itemPath.toString(), pkgBytes));
-                }
+                dataFiles.add(new PackageDataFile(itemPath.toString(), file));
             } else {
                 dataFiles.add(new SingleDataFile(itemPath.toString(), file));
             }
@@ -493,6 +531,10 @@ public final class ICUBinary {
         if (resourceName == null) {
             resourceName = ICUData.ICU_BASE_NAME + '/' + itemPath;
         }
+        bytes = getDataFromResource(loader, resourceName);
+        if (bytes != null) {
+            return bytes;
+        }
         ByteBuffer buffer = null;
         try {
             @SuppressWarnings("resource")  // Closed by getByteBufferFromInputStreamAndCloseStream().
@@ -517,6 +559,121 @@ public final class ICUBinary {
         return null;
     }
 
+    /**
+     * J2ObjC: returns the resource's data without copying it through an InputStream,
+     * or null if the resource can only be read as a stream.
+     * Linked resources are wrapped in place in the binary's data segment;
+     * resources in plain files, such as app bundle resources, are memory-mapped,
+     * as are uncompressed (stored) jar entries.
+     */
+    private static ByteBuffer getDataFromResource(ClassLoader loader, String resourceName) {
+        // The linked data is checked first, since the class loader's URL for a linked
+        // resource holds a copy of it.
+        ByteBuffer bytes = getLinkedData(resourceName);
+        if (bytes != null) {
+            return bytes;
+        }
+        URL url = loader.getResource(resourceName);
+        if (url == null) {
+            return null;
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return mapFile(new File(url.toURI()));
+            }
+            if ("jar".equals(url.getProtocol())) {
+                JarURLConnection connection = (JarURLConnection) url.openConnection();
+                URL jarFileURL = connection.getJarFileURL();
+                if ("file".equals(jarFileURL.getProtocol())) {
+                    return mapStoredJarEntry(new File(jarFileURL.toURI()),
+                            connection.getEntryName());
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException ignored) {
+            // Fall back to reading the resource stream.
+        }
+        return null;
+    }
+
+    private static native ByteBuffer getLinkedData(String resourceName) /*-[
+      const J2ObjcResourceDefinition *resource = JreFindLinkedResource(resourceName);
+      if (!resource) {
+        return nil;
+      }
+      JavaNioByteBuffer *bytes = create_JavaNioDirectByteBuffer_initWithLong_withInt_(
+          (jlong)resource->data, resource->length);
+      return [bytes asReadOnlyBuffer];
+    ]-*/;
+
+    private static final int ZIP_END_HEADER = 0x06054b50;
+    private static final int ZIP_CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP_LOCAL_HEADER = 0x04034b50;
+
+    /**
+     * Maps the data of a jar entry that is stored without compression,
+     * by finding its local header through the jar's central directory.
+     * Returns null for compressed entries, for zip64 archives and for archives
+     * that are truncated or otherwise malformed.
+     */
+    static ByteBuffer mapStoredJarEntry(File jar, String entryName) {
+        ByteBuffer jarBytes = mapFile(jar);
+        if (jarBytes == null) {
+            return null;
+        }
+        ByteBuffer zip = jarBytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = zip.limit() - 22;
+        // The end header is followed by a comment of up to 64k bytes, which may itself
+        // contain the header's signature, so the comment must reach the end of the file.
+        int minEnd = Math.max(0, end - 0xffff);
+        while (end >= minEnd && (zip.getInt(end) != ZIP_END_HEADER
+                || (zip.getShort(end + 20) & 0xffff) != zip.limit() - end - 22)) {
+            --end;
+        }
+        if (end < minEnd) {
+            return null;
+        }
+        int count = zip.getShort(end + 10) & 0xffff;
+        int header = zip.getInt(end + 16);
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < count && header >= 0 && header + 46 <= end; ++i) {
+            if (zip.getInt(header) != ZIP_CENTRAL_HEADER) {
+                return null;
+            }
+            int nameLength = zip.getShort(header + 28) & 0xffff;
+            int extraLength = zip.getShort(header + 30) & 0xffff;
+            int commentLength = zip.getShort(header + 32) & 0xffff;
+            if (nameLength == name.length && header + 46 + nameLength <= end
+                    && regionMatches(zip, header + 46, name)) {
+                int method = zip.getShort(header + 10) & 0xffff;
+                int size = zip.getInt(header + 20);
+                int local = zip.getInt(header + 42);
+                if (method != ZipEntry.STORED || size < 0 || local < 0 || local + 30 > end
+                        || zip.getInt(local) != ZIP_LOCAL_HEADER) {
+                    return null;
+                }
+                int start = local + 30 + (zip.getShort(local + 26) & 0xffff)
+                        + (zip.getShort(local + 28) & 0xffff);
+                if (size > zip.limit() - start) {
+                    return null;
+                }
+                zip.limit(start + size);
+                zip.position(start);
+                return zip.slice();  // slice() is big-endian, like the stream data.
+            }
+            header += 46 + nameLength + extraLength + commentLength;
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(ByteBuffer bytes, int offset, byte[] region) {
+        for (int i = 0; i < region.length; ++i) {
+            if (bytes.get(offset + i) != region[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @SuppressWarnings("resource")  // Closing a file closes its channel.
     private static ByteBuffer mapFile(File path) {
         FileInputStream file;
@@ -15,46 +15,118 @@
  */
 package okio;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * A collection of unused segments, necessary to avoid GC churn and zero-fill.
  * This pool is a thread-safe static singleton.
+ *
+ * <p>The pool is striped: each thread takes and recycles segments in the stripe selected by its
+ * thread ID, so threads rarely touch the same stripe. Each stripe is a singly-linked list whose
+ * head is swapped out with {@link #LOCK} while it is being modified, so neither operation blocks.
+ * A thread that finds its stripe locked by another thread simply allocates (or drops) a segment.
  */
 final class SegmentPool {
-  /** The maximum number of bytes to pool. */
-  // TODO: Is 64 KiB a good maximum size? Do we ever have that many idle segments?
-  static final long MAX_SIZE = 64 * 1024; // 64 KiB.
+  /**
+   * The maximum number of bytes to pool per stripe. This can be changed with the {@code
+   * okio.SegmentPool.maxSize} system property; the pool holds at most {@code MAX_SIZE} times the
+   * number of stripes.
+   */
+  static final long MAX_SIZE =
+      Math.min(Long.getLong("okio.SegmentPool.maxSize", 64 * 1024), Integer.MAX_VALUE);
+
+  /**
+   * The number of stripes: the processor count rounded up to a power of two, so a thread ID can be
+   * masked to a stripe index. With 4 processors there are 4 stripes, and with 6 there are 8, so the
+   * pool holds less than twice {@code MAX_SIZE} per processor.
+   */
+  static final int STRIPE_COUNT =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+  /**
+   * A sentinel segment that marks a stripe as in use. It is never handed out, and as it has no
+   * capacity it can't be written to by mistake.
+   */
+  private static final Segment LOCK = new Segment(new byte[0], 0, 0);
 
-  /** Singly-linked list of segments. */
-  static Segment next;
+  /**
+   * The head of each stripe's singly-linked list of segments. A head's {@code limit} is the total
+   * number of bytes in its stripe.
+   */
+  private static final AtomicReferenceArray<Segment> stripes =
+      new AtomicReferenceArray<Segment>(STRIPE_COUNT);
 
-  /** Total bytes in this pool. */
-  static long byteCount;
+  /** Calls to {@link #take} satisfied by the pool. */
+  private static final LongAdder hitCount = new LongAdder();
+
+  /** Calls to {@link #take} that had to allocate a new segment. */
+  private static final LongAdder missCount = new LongAdder();
 
   private SegmentPool() {
   }
 
   static Segment take() {
-    synchronized (SegmentPool.class) {
-      if (next != null) {
-        Segment result = next;
-        next = result.next;
-        result.next = null;
-        byteCount -= Segment.SIZE;
-        return result;
-      }
+    int stripe = stripe();
+    Segment first = stripes.getAndSet(stripe, LOCK);
+    if (first == LOCK) {
+      // We didn't acquire the lock. Don't take a pooled segment.
+      missCount.increment();
+      return new Segment();
+    }
+    if (first == null) {
+      // We acquired the lock but the pool was empty. Unlock and return a new segment.
+      stripes.set(stripe, null);
+      missCount.increment();
+      return new Segment();
     }
-    return new Segment(); // Pool is empty. Don't zero-fill while holding a lock.
+    // We acquired the lock and the pool was not empty. Pop the first element and return it.
+    stripes.set(stripe, first.next);
+    first.next = null;
+    first.limit = 0;
+    hitCount.increment();
+    return first;
   }
 
   static void recycle(Segment segment) {
     if (segment.next != null || segment.prev != null) throw new IllegalArgumentException();
     if (segment.shared) return; // This segment cannot be recycled.
-    synchronized (SegmentPool.class) {
-      if (byteCount + Segment.SIZE > MAX_SIZE) return; // Pool is full.
-      byteCount += Segment.SIZE;
-      segment.next = next;
-      segment.pos = segment.limit = 0;
-      next = segment;
+
+    int stripe = stripe();
+    Segment first = stripes.getAndSet(stripe, LOCK);
+    if (first == LOCK) return; // A take() is currently in progress.
+    int firstLimit = first != null ? first.limit : 0;
+    if (firstLimit + Segment.SIZE > MAX_SIZE) {
+      stripes.set(stripe, first); // Pool is full.
+      return;
     }
+
+    segment.next = first;
+    segment.pos = 0;
+    segment.limit = firstLimit + Segment.SIZE;
+    stripes.set(stripe, segment);
+  }
+
+  /**
+   * Returns the number of bytes pooled in the current thread's stripe. This is 0 if another thread
+   * is modifying that stripe.
+   */
+  static long byteCount() {
+    Segment first = stripes.get(stripe());
+    return first != null && first != LOCK ? first.limit : 0;
+  }
+
+  /** Returns the number of segments that {@link #take} returned from the pool. */
+  static long hitCount() {
+    return hitCount.sum();
+  }
+
+  /** Returns the number of segments that {@link #take} had to allocate. */
+  static long missCount() {
+    return missCount.sum();
+  }
+
+  private static int stripe() {
+    return (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okio;
+
+import java.io.IOException;
+
+/**
+ * Reads from many {@link RealBufferedSource}s concurrently, reporting throughput and how often
+ * {@link SegmentPool} could satisfy a segment request.
+ */
+final class SegmentPoolBenchmark {
+  private static final long BYTES_PER_READER = 64L * 1024 * 1024;
+
+  public static void main(String[] args) throws Exception {
+    int processors = Runtime.getRuntime().availableProcessors();
+    System.out.println("SegmentPool: " + SegmentPool.STRIPE_COUNT + " stripes of "
+        + SegmentPool.MAX_SIZE + " bytes");
+    for (int readers = 1; readers <= processors * 4; readers *= 2) {
+      run(readers);
+    }
+  }
+
+  private static void run(int readerCount) throws Exception {
+    long hits = SegmentPool.hitCount();
+    long misses = SegmentPool.missCount();
+    Thread[] readers = new Thread[readerCount];
+    for (int i = 0; i < readerCount; i++) {
+      readers[i] = new Thread() {
+        @Override public void run() {
+          try {
+            BufferedSource source = new RealBufferedSource(new ZeroSource(BYTES_PER_READER));
+            byte[] sink = new byte[1500];
+            while (source.read(sink) != -1) {
+            }
+          } catch (IOException e) {
+            throw new AssertionError(e);
+          }
+        }
+      };
+    }
+    long start = System.nanoTime();
+    for (Thread reader : readers) {
+      reader.start();
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    long takes = SegmentPool.hitCount() - hits + SegmentPool.missCount() - misses;
+    System.out.printf("%3d readers: %6d MB/s, %5.1f%% pool hits%n", readerCount,
+        BYTES_PER_READER * readerCount * 1000 / elapsedNanos,
+        takes == 0 ? 0.0 : (SegmentPool.hitCount() - hits) * 100.0 / takes);
+  }
+
+  /** A source of zeros that writes one segment at a time, like a socket would. */
+  private static final class ZeroSource implements Source {
+    private long remaining;
+
+    ZeroSource(long byteCount) {
+      this.remaining = byteCount;
+    }
+
+    @Override public long read(Buffer sink, long byteCount) {
+      if (remaining == 0) return -1;
+      int toWrite = (int) Math.min(Math.min(byteCount, remaining), Segment.SIZE);
+      Segment tail = sink.writableSegment(1);
+      toWrite = Math.min(toWrite, Segment.SIZE - tail.limit);
+      tail.limit += toWrite;
+      sink.size += toWrite;
+      remaining -= toWrite;
+      return toWrite;
+    }
+
+    @Override public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @Override public void close() {
+    }
+  }
+}
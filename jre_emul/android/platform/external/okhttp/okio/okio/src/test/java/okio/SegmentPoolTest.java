@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okio;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class SegmentPoolTest {
+  @Test public void takeReturnsRecycledSegment() throws Exception {
+    Segment segment = SegmentPool.take();
+    segment.limit = 100;
+    segment.pos = 10;
+    long hits = SegmentPool.hitCount();
+    SegmentPool.recycle(segment);
+
+    Segment taken = SegmentPool.take();
+    assertSame(segment, taken);
+    assertEquals(0, taken.pos);
+    assertEquals(0, taken.limit);
+    assertNull(taken.next);
+    assertEquals(hits + 1, SegmentPool.hitCount());
+  }
+
+  @Test public void stripeCountIsProcessorCountRoundedUp() throws Exception {
+    int processors = Runtime.getRuntime().availableProcessors();
+    assertEquals(1, Integer.bitCount(SegmentPool.STRIPE_COUNT));
+    assertTrue(SegmentPool.STRIPE_COUNT >= processors);
+    assertTrue(SegmentPool.STRIPE_COUNT < processors * 2);
+  }
+
+  @Test public void missesAreCounted() throws Exception {
+    List<Segment> segments = new ArrayList<Segment>();
+    while (SegmentPool.byteCount() > 0) {
+      segments.add(SegmentPool.take());
+    }
+    long misses = SegmentPool.missCount();
+    segments.add(SegmentPool.take());
+    assertEquals(misses + 1, SegmentPool.missCount());
+  }
+
+  @Test public void sharedSegmentsAreNotRecycled() throws Exception {
+    Segment segment = SegmentPool.take();
+    Segment shared = new Segment(segment);
+    long byteCount = SegmentPool.byteCount();
+    SegmentPool.recycle(shared);
+    SegmentPool.recycle(segment);
+    assertEquals(byteCount, SegmentPool.byteCount());
+  }
+
+  /** No segment may be handed to two threads at once, however the stripes are shared. */
+  @Test public void concurrentTakeAndRecycle() throws Exception {
+    final Map<Segment, Thread> owners = new IdentityHashMap<Segment, Thread>();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    Thread[] threads = new Thread[SegmentPool.STRIPE_COUNT * 4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override public void run() {
+          try {
+            List<Segment> held = new ArrayList<Segment>();
+            for (int i = 0; i < 10000; i++) {
+              Segment segment = SegmentPool.take();
+              synchronized (owners) {
+                assertNull(owners.put(segment, this));
+              }
+              held.add(segment);
+              if (held.size() > 4 || i % 3 == 0) {
+                Segment recycled = held.remove(0);
+                synchronized (owners) {
+                  assertSame(this, owners.remove(recycled));
+                }
+                SegmentPool.recycle(recycled);
+              }
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) throw new AssertionError(failure.get());
+    assertTrue(SegmentPool.byteCount() <= SegmentPool.MAX_SIZE);
+  }
+
+  @Test public void poolIsStriped() throws Exception {
+    if (SegmentPool.STRIPE_COUNT == 1) return; // Every thread shares the one stripe.
+    Segment segment = SegmentPool.take();
+    SegmentPool.recycle(segment);
+
+    // Confirm that a thread using a different stripe doesn't see our segment.
+    long mask = SegmentPool.STRIPE_COUNT - 1;
+    final AtomicReference<Segment> taken = new AtomicReference<Segment>();
+    Thread thread;
+    do {
+      thread = new Thread() {
+        @Override public void run() {
+          taken.set(SegmentPool.take());
+        }
+      };
+    } while ((thread.getId() & mask) == (Thread.currentThread().getId() & mask));
+    thread.start();
+    thread.join();
+    assertNotSame(segment, taken.get());
+  }
+}
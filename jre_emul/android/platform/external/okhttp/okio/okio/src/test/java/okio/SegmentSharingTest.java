@@ -78,13 +78,11 @@ public final class SegmentSharingTest {
     ByteString snapshot = buffer.snapshot();
     assertEquals(xs + ys + zs, snapshot.utf8());
 
-    // While locking the pool, confirm that clearing the buffer doesn't release its segments.
-    synchronized (SegmentPool.class) {
-      SegmentPool.next = null;
-      SegmentPool.byteCount = 0L;
-      buffer.clear();
-      assertEquals(null, SegmentPool.next);
-    }
+    // After draining this thread's pool, confirm that clearing the buffer doesn't release its
+    // segments.
+    drainPool();
+    buffer.clear();
+    assertEquals(0, SegmentPool.byteCount());
   }
 
   /**
@@ -95,15 +93,13 @@ public final class SegmentSharingTest {
     Buffer buffer = concatenateBuffers(xs, ys, zs);
     Buffer clone = buffer.clone();
 
-    // While locking the pool, confirm that clearing the buffer doesn't release its segments.
-    synchronized (SegmentPool.class) {
-      SegmentPool.next = null;
-      SegmentPool.byteCount = 0L;
-      buffer.clear();
-      assertEquals(null, SegmentPool.next);
-      clone.clear();
-      assertEquals(null, SegmentPool.next);
-    }
+    // After draining this thread's pool, confirm that clearing the buffer doesn't release its
+    // segments.
+    drainPool();
+    buffer.clear();
+    assertEquals(0, SegmentPool.byteCount());
+    clone.clear();
+    assertEquals(0, SegmentPool.byteCount());
   }
 
   @Test public void snapshotJavaSerialization() throws Exception {
@@ -190,4 +186,11 @@ public final class SegmentSharingTest {
     }
     return result;
   }
+
+  /** Takes segments from the current thread's stripe of the pool until it is empty. */
+  private static void drainPool() {
+    while (SegmentPool.byteCount() > 0) {
+      SegmentPool.take();
+    }
+  }
 }
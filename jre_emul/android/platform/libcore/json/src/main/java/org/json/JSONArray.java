@@ -17,6 +17,7 @@
 package org.json;
 
 //import dalvik.annotation.compat.UnsupportedAppUsage;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -99,6 +100,24 @@ public class JSONArray {
         }
     }
 
+    /**
+     * Creates a new {@code JSONArray} with values from the next array in the
+     * parser.
+     *
+     * @param readFrom a parser whose nextValue() method will yield a
+     *     {@code JSONArray}.
+     * @throws JSONException if the parse fails or doesn't yield a
+     *     {@code JSONArray}.
+     */
+    public JSONArray(JSONPullParser readFrom) throws JSONException {
+        Object object = readFrom.nextValue();
+        if (object instanceof JSONArray) {
+            values = ((JSONArray) object).values;
+        } else {
+            throw JSON.typeMismatch(object, "JSONArray");
+        }
+    }
+
     /**
      * Creates a new {@code JSONArray} with values from the JSON string.
      *
@@ -609,6 +628,20 @@ public class JSONArray {
         return stringer.toString();
     }
 
+    /**
+     * Encodes this array as a compact JSON string directly to {@code writer},
+     * without building the complete string in memory.
+     *
+     * @return the writer.
+     * @throws JSONException if the writer fails.
+     */
+    public Writer write(Writer writer) throws JSONException {
+        JSONStringer stringer = new JSONStringer(writer);
+        writeTo(stringer);
+        stringer.flush();
+        return writer;
+    }
+
     @UnsupportedAppUsage
     void writeTo(JSONStringer stringer) throws JSONException {
         stringer.array();
@@ -21,6 +21,7 @@ package org.json;
 // import android.annotation.SystemApi;
 // import android.compat.annotation.UnsupportedAppUsage;
 
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -173,6 +174,24 @@ public class JSONObject {
         }
     }
 
+    /**
+     * Creates a new {@code JSONObject} with name/value mappings from the next
+     * object in the parser.
+     *
+     * @param readFrom a parser whose nextValue() method will yield a
+     *     {@code JSONObject}.
+     * @throws JSONException if the parse fails or doesn't yield a
+     *     {@code JSONObject}.
+     */
+    public JSONObject(@NonNull JSONPullParser readFrom) throws JSONException {
+        Object object = readFrom.nextValue();
+        if (object instanceof JSONObject) {
+            this.nameValuePairs = ((JSONObject) object).nameValuePairs;
+        } else {
+            throw JSON.typeMismatch(object, "JSONObject");
+        }
+    }
+
     /**
      * Creates a new {@code JSONObject} with name/value mappings from the JSON
      * string.
@@ -729,6 +748,20 @@ public class JSONObject {
         return stringer.toString();
     }
 
+    /**
+     * Encodes this object as a compact JSON string directly to {@code writer},
+     * without building the complete string in memory.
+     *
+     * @return the writer.
+     * @throws JSONException if the writer fails.
+     */
+    @NonNull public Writer write(@NonNull Writer writer) throws JSONException {
+        JSONStringer stringer = new JSONStringer(writer);
+        writeTo(stringer);
+        stringer.flush();
+        return writer;
+    }
+
     @UnsupportedAppUsage
     void writeTo(JSONStringer stringer) throws JSONException {
         stringer.object();
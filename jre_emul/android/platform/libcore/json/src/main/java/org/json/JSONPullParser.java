@@ -0,0 +1,727 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a JSON (<a href="http://www.ietf.org/rfc/rfc4627.txt">RFC 4627</a>)
+ * encoded value from a {@link Reader} as a stream of events. Unlike
+ * {@link JSONTokener}, the input is never materialized as a whole: characters
+ * are read through a fixed-size buffer, and callers decide which values are
+ * converted into {@link JSONObject JSONObjects} and {@link JSONArray
+ * JSONArrays}. Example usage: <pre>
+ * JSONPullParser parser = new JSONPullParser(reader);
+ * parser.next(); // START_OBJECT
+ * while (parser.next() == JSONPullParser.Event.NAME) {
+ *   if (parser.getString().equals("locations")) {
+ *     JSONArray locations = (JSONArray) parser.nextValue();
+ *   } else {
+ *     parser.skipValue();
+ *   }
+ * }</pre>
+ *
+ * <p>This parser accepts the same lenient syntax as {@link JSONTokener}, and
+ * {@link #nextValue} yields the same values that {@link
+ * JSONTokener#nextValue} would for the same input.
+ *
+ * <p>Each parser may be used to parse a single top level value. Instances of
+ * this class are not thread safe.
+ */
+public class JSONPullParser implements Closeable {
+
+    /** The type of the current parse event. */
+    public enum Event {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+
+        /** An object member name. {@link #getString} returns the name. */
+        NAME,
+
+        /** A quoted or unquoted string value. */
+        STRING,
+
+        /** An Integer, Long or Double value. */
+        NUMBER,
+
+        BOOLEAN,
+
+        /**
+         * A {@code null} literal, or an array element omitted between
+         * separators.
+         */
+        NULL,
+
+        END_DOCUMENT,
+    }
+
+    /*
+     * Lexical scopes, used to decide which events may follow the current one.
+     * These mirror the scopes used by JSONStringer.
+     */
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int ARRAY_AFTER_SEPARATOR = 4;
+    private static final int EMPTY_OBJECT = 5;
+    private static final int DANGLING_NAME = 6;
+    private static final int NONEMPTY_OBJECT = 7;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Characters that terminate an unquoted literal, besides newlines. */
+    private static final String LITERAL_TERMINATORS = "{}[]/\\:,=;# \t\f";
+
+    private final Reader in;
+
+    /**
+     * Input characters in {@code [pos, limit)} have been read but not yet
+     * consumed. The character before {@code pos} is retained when the buffer
+     * is refilled, so a single character can always be pushed back.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    /** The input offset of {@code buffer[0]}, used for error messages. */
+    private long bufferStart;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+
+    /** Scratch space for strings that span buffer refills or have escapes. */
+    private final StringBuilder builder = new StringBuilder();
+
+    private Event event;
+
+    /** The name, or the String, Number, Boolean or null value of the event. */
+    private Object value;
+
+    /** Set when an omitted trailing array element precedes the array's end. */
+    private boolean pendingEndArray;
+
+    /**
+     * @param in the JSON encoded input. It is read lazily, and is closed by
+     *     {@link #close}.
+     */
+    public JSONPullParser(Reader in) {
+        if (in == null) {
+            throw new NullPointerException("in == null");
+        }
+        this.in = in;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Advances to the next event and returns it. Once the top level value has
+     * been read, this returns {@link Event#END_DOCUMENT}; any input that
+     * follows it is ignored.
+     *
+     * @throws JSONException if the input is malformed or cannot be read.
+     */
+    public Event next() throws JSONException {
+        if (pendingEndArray) {
+            pendingEndArray = false;
+            stackSize--;
+            return event = Event.END_ARRAY;
+        }
+
+        int c;
+        switch (stack[stackSize - 1]) {
+            case EMPTY_DOCUMENT:
+                // consume an optional byte order mark (BOM) if it exists
+                if ((pos < limit || fill(1)) && buffer[pos] == '\ufeff') {
+                    pos++;
+                }
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return event = readValue(nextCleanInternal());
+
+            case NONEMPTY_DOCUMENT:
+                return event = Event.END_DOCUMENT;
+
+            case EMPTY_ARRAY:
+                c = nextCleanInternal();
+                switch (c) {
+                    case -1:
+                        throw syntaxError("Unterminated array");
+                    case ']':
+                        stackSize--;
+                        return event = Event.END_ARRAY;
+                    case ',':
+                    case ';':
+                        /* A separator without a value first means "null". */
+                        stack[stackSize - 1] = ARRAY_AFTER_SEPARATOR;
+                        value = null;
+                        return event = Event.NULL;
+                    default:
+                        stack[stackSize - 1] = NONEMPTY_ARRAY;
+                        return event = readValue(c);
+                }
+
+            case ARRAY_AFTER_SEPARATOR:
+                c = nextCleanInternal();
+                switch (c) {
+                    case -1:
+                        throw syntaxError("Unterminated array");
+                    case ']':
+                        /* to cover input that ends with ",]". */
+                        pendingEndArray = true;
+                        value = null;
+                        return event = Event.NULL;
+                    case ',':
+                    case ';':
+                        value = null;
+                        return event = Event.NULL;
+                    default:
+                        stack[stackSize - 1] = NONEMPTY_ARRAY;
+                        return event = readValue(c);
+                }
+
+            case NONEMPTY_ARRAY:
+                switch (nextCleanInternal()) {
+                    case ']':
+                        stackSize--;
+                        return event = Event.END_ARRAY;
+                    case ',':
+                    case ';':
+                        stack[stackSize - 1] = ARRAY_AFTER_SEPARATOR;
+                        return next();
+                    default:
+                        throw syntaxError("Unterminated array");
+                }
+
+            case EMPTY_OBJECT:
+                c = nextCleanInternal();
+                if (c == '}') {
+                    stackSize--;
+                    return event = Event.END_OBJECT;
+                }
+                stack[stackSize - 1] = DANGLING_NAME;
+                return event = readName(c);
+
+            case DANGLING_NAME:
+                /*
+                 * Expect the name/value separator to be either a colon ':', an
+                 * equals sign '=', or an arrow "=>". The last two are bogus but
+                 * JSONTokener accepts them too.
+                 */
+                String name = (String) value;
+                int separator = nextCleanInternal();
+                if (separator != ':' && separator != '=') {
+                    throw syntaxError("Expected ':' after " + name);
+                }
+                if ((pos < limit || fill(1)) && buffer[pos] == '>') {
+                    pos++;
+                }
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                return event = readValue(nextCleanInternal());
+
+            case NONEMPTY_OBJECT:
+                switch (nextCleanInternal()) {
+                    case '}':
+                        stackSize--;
+                        return event = Event.END_OBJECT;
+                    case ';':
+                    case ',':
+                        stack[stackSize - 1] = DANGLING_NAME;
+                        return event = readName(nextCleanInternal());
+                    default:
+                        throw syntaxError("Unterminated object");
+                }
+
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Returns the current event, or null if {@link #next} hasn't been called.
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the number of objects and arrays that enclose the current
+     * position. This is incremented by {@link Event#START_OBJECT} and {@link
+     * Event#START_ARRAY} events and decremented by the matching end events.
+     */
+    public int getDepth() {
+        return stackSize - 1;
+    }
+
+    /**
+     * Returns the member name of a {@link Event#NAME} event or the value of a
+     * {@link Event#STRING} event.
+     */
+    public String getString() {
+        if (event != Event.NAME && event != Event.STRING) {
+            throw new IllegalStateException("Expected NAME or STRING but was " + event);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Returns the Integer, Long or Double value of a {@link Event#NUMBER}
+     * event.
+     */
+    public Number getNumber() {
+        if (event != Event.NUMBER) {
+            throw new IllegalStateException("Expected NUMBER but was " + event);
+        }
+        return (Number) value;
+    }
+
+    /**
+     * Returns the value of a {@link Event#BOOLEAN} event.
+     */
+    public boolean getBoolean() {
+        if (event != Event.BOOLEAN) {
+            throw new IllegalStateException("Expected BOOLEAN but was " + event);
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * Reads the next value and returns it fully materialized. If the next
+     * event is a member name, it is consumed and the value following it is
+     * returned.
+     *
+     * @return a {@link JSONObject}, {@link JSONArray}, String, Boolean,
+     *     Integer, Long, Double, {@link JSONObject#NULL} or null for an array
+     *     element omitted between separators.
+     * @throws JSONException if the input is malformed or if the next event
+     *     ends an object, array or the document.
+     */
+    public Object nextValue() throws JSONException {
+        Event next = next();
+        if (next == Event.NAME) {
+            next = next();
+        }
+        return readTree(next);
+    }
+
+    /**
+     * Skips the next value, including any nested objects and arrays, without
+     * materializing it. If the next event is a member name, both the name and
+     * its value are skipped.
+     *
+     * @throws JSONException if the input is malformed or if the next event
+     *     ends an object, array or the document.
+     */
+    public void skipValue() throws JSONException {
+        Event next = next();
+        if (next == Event.NAME) {
+            next = next();
+        }
+        int depth;
+        switch (next) {
+            case START_OBJECT:
+            case START_ARRAY:
+                depth = 1;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+            case END_DOCUMENT:
+                throw syntaxError("Expected a value but was " + next);
+            default:
+                return;
+        }
+        while (depth > 0) {
+            switch (next()) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying reader.
+     */
+    @Override public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Returns an exception containing the given message plus the current
+     * position.
+     */
+    public JSONException syntaxError(String message) {
+        return new JSONException(message + this);
+    }
+
+    /**
+     * Returns the current position in the input.
+     */
+    @Override public String toString() {
+        // consistent with JSONTokener, minus the input which isn't retained
+        return " at character " + (bufferStart + pos);
+    }
+
+    /**
+     * Builds the value that starts with {@code first}, consuming the events of
+     * any nested members or elements.
+     */
+    private Object readTree(Event first) throws JSONException {
+        switch (first) {
+            case START_OBJECT:
+                JSONObject object = new JSONObject();
+                while (next() == Event.NAME) {
+                    String name = (String) value;
+                    object.put(name, readTree(next()));
+                }
+                return object;
+
+            case START_ARRAY:
+                JSONArray array = new JSONArray();
+                for (Event element = next(); element != Event.END_ARRAY; element = next()) {
+                    array.put(readTree(element));
+                }
+                return array;
+
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+            case NULL:
+                return value;
+
+            default:
+                throw syntaxError("Expected a value but was " + first);
+        }
+    }
+
+    /**
+     * Returns the event for the value that starts with {@code c}, pushing a
+     * new scope for objects and arrays.
+     */
+    private Event readValue(int c) throws JSONException {
+        switch (c) {
+            case -1:
+                throw syntaxError("End of input");
+
+            case '{':
+                push(EMPTY_OBJECT);
+                return Event.START_OBJECT;
+
+            case '[':
+                push(EMPTY_ARRAY);
+                return Event.START_ARRAY;
+
+            case '\'':
+            case '"':
+                value = nextString((char) c);
+                return Event.STRING;
+
+            default:
+                pos--;
+                value = readLiteral();
+                if (value == JSONObject.NULL) {
+                    return Event.NULL;
+                } else if (value instanceof Boolean) {
+                    return Event.BOOLEAN;
+                } else if (value instanceof Number) {
+                    return Event.NUMBER;
+                } else {
+                    return Event.STRING;
+                }
+        }
+    }
+
+    /**
+     * Returns the event for the object member name that starts with {@code c}.
+     */
+    private Event readName(int c) throws JSONException {
+        switch (c) {
+            case -1:
+                throw syntaxError("End of input");
+
+            case '\'':
+            case '"':
+                value = nextString((char) c);
+                return Event.NAME;
+
+            case '{':
+            case '[':
+                throw syntaxError("Names must be strings, but found '" + (char) c + "'");
+
+            default:
+                pos--;
+                Object name = readLiteral();
+                if (!(name instanceof String)) {
+                    throw syntaxError("Names must be strings, but " + name
+                            + " is of type " + name.getClass().getName());
+                }
+                value = name;
+                return Event.NAME;
+        }
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stackSize * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Ensures that at least {@code minimum} unconsumed characters are
+     * buffered, reading more input if necessary. Returns false if the input is
+     * exhausted first.
+     */
+    private boolean fill(int minimum) throws JSONException {
+        if (limit - pos >= minimum) {
+            return true;
+        }
+        // Keep the most recently consumed character so it can be pushed back.
+        if (pos > 1) {
+            int keep = pos - 1;
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            limit -= keep;
+            pos -= keep;
+            bufferStart += keep;
+        }
+        try {
+            while (limit - pos < minimum) {
+                int count = in.read(buffer, limit, buffer.length - limit);
+                if (count == -1) {
+                    return false;
+                }
+                limit += count;
+            }
+        } catch (IOException e) {
+            throw new JSONException("Failed to read JSON input" + this, e);
+        }
+        return true;
+    }
+
+    private int nextCleanInternal() throws JSONException {
+        while (pos < limit || fill(1)) {
+            int c = buffer[pos++];
+            switch (c) {
+                case '\t':
+                case ' ':
+                case '\n':
+                case '\r':
+                    continue;
+
+                case '/':
+                    if (pos == limit && !fill(1)) {
+                        return c;
+                    }
+
+                    char peek = buffer[pos];
+                    switch (peek) {
+                        case '*':
+                            // skip a /* c-style comment */
+                            pos++;
+                            while (true) {
+                                if (limit - pos < 2 && !fill(2)) {
+                                    throw syntaxError("Unterminated comment");
+                                }
+                                if (buffer[pos] == '*' && buffer[pos + 1] == '/') {
+                                    pos += 2;
+                                    break;
+                                }
+                                pos++;
+                            }
+                            continue;
+
+                        case '/':
+                            // skip a // end-of-line comment
+                            pos++;
+                            skipToEndOfLine();
+                            continue;
+
+                        default:
+                            return c;
+                    }
+
+                case '#':
+                    // Skip a # hash end-of-line comment, as JSONTokener does.
+                    skipToEndOfLine();
+                    continue;
+
+                default:
+                    return c;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Advances the position until after the next newline character.
+     */
+    private void skipToEndOfLine() throws JSONException {
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos++];
+            if (c == '\r' || c == '\n') {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the string up to but not including {@code quote}, unescaping any
+     * character escape sequences encountered along the way. The opening quote
+     * should have already been read.
+     */
+    private String nextString(char quote) throws JSONException {
+        /*
+         * Strings that are free of escape sequences and don't span a buffer
+         * refill are copied straight out of the buffer. Otherwise the builder
+         * is used to compose the result.
+         */
+        boolean building = false;
+
+        /* the index of the first character not yet appended to the builder. */
+        int start = pos;
+
+        while (true) {
+            if (pos == limit) {
+                if (!building) {
+                    builder.setLength(0);
+                    building = true;
+                }
+                builder.append(buffer, start, pos - start);
+                if (!fill(1)) {
+                    throw syntaxError("Unterminated string");
+                }
+                start = pos;
+            }
+
+            char c = buffer[pos++];
+            if (c == quote) {
+                if (!building) {
+                    return new String(buffer, start, pos - 1 - start);
+                } else {
+                    builder.append(buffer, start, pos - 1 - start);
+                    return builder.toString();
+                }
+            }
+
+            if (c == '\\') {
+                if (!building) {
+                    builder.setLength(0);
+                    building = true;
+                }
+                builder.append(buffer, start, pos - 1 - start);
+                builder.append(readEscapeCharacter());
+                start = pos;
+            }
+        }
+    }
+
+    /**
+     * Unescapes the character identified by the character or characters that
+     * immediately follow a backslash. The backslash '\' should have already
+     * been read.
+     */
+    private char readEscapeCharacter() throws JSONException {
+        if (pos == limit && !fill(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char escaped = buffer[pos++];
+        switch (escaped) {
+            case 'u':
+                if (limit - pos < 4 && !fill(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                String hex = new String(buffer, pos, 4);
+                pos += 4;
+                try {
+                    return (char) Integer.parseInt(hex, 16);
+                } catch (NumberFormatException nfe) {
+                    throw syntaxError("Invalid escape sequence: " + hex);
+                }
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '\'':
+            case '"':
+            case '\\':
+            default:
+                return escaped;
+        }
+    }
+
+    /**
+     * Reads a null, boolean, numeric or unquoted string literal value.
+     */
+    private Object readLiteral() throws JSONException {
+        boolean building = false;
+        int start = pos;
+        String literal;
+        while (true) {
+            if (pos == limit) {
+                if (!building) {
+                    builder.setLength(0);
+                    building = true;
+                }
+                builder.append(buffer, start, pos - start);
+                if (!fill(1)) {
+                    literal = builder.toString();
+                    break;
+                }
+                start = pos;
+            }
+            char c = buffer[pos];
+            if (c == '\r' || c == '\n' || LITERAL_TERMINATORS.indexOf(c) != -1) {
+                if (!building) {
+                    literal = new String(buffer, start, pos - start);
+                } else {
+                    literal = builder.append(buffer, start, pos - start).toString();
+                }
+                break;
+            }
+            pos++;
+        }
+
+        if (literal.length() == 0) {
+            throw syntaxError("Expected literal value");
+        }
+        return JSONTokener.parseLiteral(literal);
+    }
+}
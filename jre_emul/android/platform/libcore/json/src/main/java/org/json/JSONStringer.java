@@ -17,6 +17,8 @@
 package org.json;
 
 // import dalvik.annotation.compat.UnsupportedAppUsage;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -52,6 +54,10 @@ import java.util.List;
  * Attempts to create more than 20 levels of nesting may fail with a {@link
  * JSONException}.
  *
+ * <p>Stringers created with {@link #JSONStringer(Writer)} stream their output
+ * to a writer as it is produced instead of accumulating the complete document
+ * in memory.
+ *
  * <p>Each stringer may be used to encode a single top level value. Instances of
  * this class are not thread safe. Although this class is nonfinal, it was not
  * designed for inheritance and should not be subclassed. In particular,
@@ -65,6 +71,25 @@ public class JSONStringer {
     @UnsupportedAppUsage
     final StringBuilder out = new StringBuilder();
 
+    /**
+     * The number of buffered characters after which output is written through
+     * to {@link #writer}.
+     */
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    /**
+     * The destination of the output, or null if the output is only buffered
+     * in {@link #out}. When non-null, {@code out} holds output that hasn't been
+     * written yet.
+     */
+    private final Writer writer;
+
+    /** Scratch space used to copy buffered output to {@link #writer}. */
+    private char[] writeBuffer;
+
+    /** True if any output has been written through to {@link #writer}. */
+    private boolean written;
+
     /**
      * Lexical scoping elements within this stringer, necessary to insert the
      * appropriate separator characters (ie. commas and colons) and to detect
@@ -126,6 +151,23 @@ public class JSONStringer {
 
     public JSONStringer() {
         indent = null;
+        writer = null;
+    }
+
+    /**
+     * Creates a stringer that writes its output to {@code writer}. Output is
+     * buffered and written in chunks; call {@link #flush} once the top level
+     * value is complete to ensure it has all been written.
+     *
+     * @param writer the destination of the encoded JSON. Null is not
+     *     permitted.
+     */
+    public JSONStringer(Writer writer) {
+        if (writer == null) {
+            throw new NullPointerException("writer == null");
+        }
+        indent = null;
+        this.writer = writer;
     }
 
     @UnsupportedAppUsage
@@ -133,6 +175,7 @@ public class JSONStringer {
         char[] indentChars = new char[indentSpaces];
         Arrays.fill(indentChars, ' ');
         indent = new String(indentChars);
+        writer = null;
     }
 
     /**
@@ -179,7 +222,7 @@ public class JSONStringer {
      */
     @UnsupportedAppUsage
     JSONStringer open(Scope empty, String openBracket) throws JSONException {
-        if (stack.isEmpty() && out.length() > 0) {
+        if (stack.isEmpty() && (out.length() > 0 || written)) {
             throw new JSONException("Nesting problem: multiple top-level roots");
         }
         beforeValue();
@@ -204,6 +247,9 @@ public class JSONStringer {
             newline();
         }
         out.append(closeBracket);
+        if (writer != null && stack.isEmpty()) {
+            writeBuffered();
+        }
         return this;
     }
 
@@ -427,6 +473,9 @@ public class JSONStringer {
      */
     @UnsupportedAppUsage
     private void beforeKey() throws JSONException {
+        if (writer != null && out.length() >= FLUSH_THRESHOLD) {
+            writeBuffered();
+        }
         Scope context = peek();
         if (context == Scope.NONEMPTY_OBJECT) { // first in object
             out.append(',');
@@ -447,6 +496,9 @@ public class JSONStringer {
         if (stack.isEmpty()) {
             return;
         }
+        if (writer != null && out.length() >= FLUSH_THRESHOLD) {
+            writeBuffered();
+        }
 
         Scope context = peek();
         if (context == Scope.EMPTY_ARRAY) { // first in array
@@ -463,6 +515,49 @@ public class JSONStringer {
         }
     }
 
+    /**
+     * Writes any buffered output to the writer and flushes it. This does
+     * nothing for stringers that aren't writing to a writer.
+     *
+     * @throws JSONException if the writer fails.
+     */
+    public void flush() throws JSONException {
+        if (writer == null) {
+            return;
+        }
+        writeBuffered();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new JSONException("Failed to write JSON", e);
+        }
+    }
+
+    /**
+     * Moves the buffered output to the writer, without copying it to an
+     * intermediate string.
+     */
+    private void writeBuffered() throws JSONException {
+        int length = out.length();
+        if (length == 0) {
+            return;
+        }
+        if (writeBuffer == null) {
+            writeBuffer = new char[FLUSH_THRESHOLD];
+        }
+        try {
+            for (int start = 0; start < length; start += writeBuffer.length) {
+                int end = Math.min(length, start + writeBuffer.length);
+                out.getChars(start, end, writeBuffer, 0);
+                writer.write(writeBuffer, 0, end - start);
+            }
+        } catch (IOException e) {
+            throw new JSONException("Failed to write JSON", e);
+        }
+        out.setLength(0);
+        written = true;
+    }
+
     /**
      * Returns the encoded JSON string.
      *
@@ -471,9 +566,10 @@ public class JSONStringer {
      *
      * <p><strong>Warning:</strong> although it contradicts the general contract
      * of {@link Object#toString}, this method returns null if the stringer
-     * contains no data.
+     * contains no data. It also returns null for stringers created with
+     * {@link #JSONStringer(Writer)}, whose output is in the writer.
      */
     @Override public String toString() {
-        return out.length() == 0 ? null : out.toString();
+        return writer != null || out.length() == 0 ? null : out.toString();
     }
 }
@@ -290,7 +290,17 @@ public class JSONTokener {
 
         if (literal.length() == 0) {
             throw syntaxError("Expected literal value");
-        } else if ("null".equalsIgnoreCase(literal)) {
+        }
+        return parseLiteral(literal);
+    }
+
+    /**
+     * Converts a non-empty literal to a null, boolean, numeric or unquoted
+     * string value. This is shared with {@link JSONPullParser} so that both
+     * parsers accept exactly the same lenient literal syntax.
+     */
+    static Object parseLiteral(String literal) {
+        if ("null".equalsIgnoreCase(literal)) {
             return JSONObject.NULL;
         } else if ("true".equalsIgnoreCase(literal)) {
             return Boolean.TRUE;
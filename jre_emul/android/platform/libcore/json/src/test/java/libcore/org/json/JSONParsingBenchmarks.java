@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.org.json;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONPullParser;
+import org.json.JSONTokener;
+
+/**
+ * Compares the string based {@link JSONTokener} with the streaming {@link
+ * JSONPullParser}, reporting the time and the heap growth of each.
+ */
+class JSONParsingBenchmarks {
+
+    private static final String DOCUMENT = createDocument(20000);
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Running JSON parsing benchmarks on " + DOCUMENT.length() + " chars...");
+        Method[] methods = JSONParsingBenchmarks.class.getDeclaredMethods();
+        for (Method method : methods) {
+            if (method.getName().startsWith("test")) {
+                Runtime runtime = Runtime.getRuntime();
+                System.gc();
+                long startMemory = runtime.totalMemory() - runtime.freeMemory();
+                long startTime = System.currentTimeMillis();
+                Object result = method.invoke(null);
+                long endTime = System.currentTimeMillis();
+                long endMemory = runtime.totalMemory() - runtime.freeMemory();
+                System.out.println(method.getName() + ": " + (endTime - startTime) + "ms, "
+                        + ((endMemory - startMemory) / 1024) + "KB retained by "
+                        + result.getClass().getName());
+            }
+        }
+    }
+
+    private static Object testTokenerNextValue() throws Exception {
+        Object result = null;
+        for (int i = 0; i < 10; i++) {
+            result = new JSONTokener(DOCUMENT).nextValue();
+        }
+        return result;
+    }
+
+    private static Object testPullParserNextValue() throws Exception {
+        Object result = null;
+        for (int i = 0; i < 10; i++) {
+            result = new JSONPullParser(new StringReader(DOCUMENT)).nextValue();
+        }
+        return result;
+    }
+
+    /** Reads one field of each record without building the document tree. */
+    private static Object testPullParserEvents() throws Exception {
+        long sum = 0;
+        for (int i = 0; i < 10; i++) {
+            JSONPullParser parser = new JSONPullParser(new StringReader(DOCUMENT));
+            while (parser.next() != JSONPullParser.Event.END_DOCUMENT) {
+                if (parser.getEvent() == JSONPullParser.Event.NAME && parser.getString().equals("id")) {
+                    parser.next();
+                    sum += parser.getNumber().longValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static Object testObjectToString() throws Exception {
+        JSONObject object = new JSONObject(DOCUMENT);
+        String result = null;
+        for (int i = 0; i < 10; i++) {
+            result = object.toString();
+        }
+        return result;
+    }
+
+    private static Object testObjectWrite() throws Exception {
+        JSONObject object = new JSONObject(DOCUMENT);
+        StringWriter writer = null;
+        for (int i = 0; i < 10; i++) {
+            writer = new StringWriter(DOCUMENT.length());
+            object.write(writer);
+        }
+        return writer;
+    }
+
+    private static String createDocument(int records) {
+        try {
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < records; i++) {
+                JSONObject record = new JSONObject();
+                record.put("id", i);
+                record.put("name", "record \"" + i + "\"");
+                record.put("score", i * 0.25);
+                record.put("active", i % 2 == 0);
+                record.put("tags", new JSONArray().put("a").put("b").put("c"));
+                array.put(record);
+            }
+            return new JSONObject().put("records", array).toString();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.org.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import junit.framework.TestCase;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONPullParser;
+import org.json.JSONPullParser.Event;
+import org.json.JSONStringer;
+import org.json.JSONTokener;
+
+public class JSONPullParserTest extends TestCase {
+
+    public void testEvents() throws JSONException {
+        JSONPullParser parser = parser("{\"a\":[1,\"b\"],\"c\":{\"d\":true},\"e\":null}");
+        assertEquals(Event.START_OBJECT, parser.next());
+        assertEquals(1, parser.getDepth());
+        assertEquals(Event.NAME, parser.next());
+        assertEquals("a", parser.getString());
+        assertEquals(Event.START_ARRAY, parser.next());
+        assertEquals(2, parser.getDepth());
+        assertEquals(Event.NUMBER, parser.next());
+        assertEquals(1, parser.getNumber());
+        assertEquals(Event.STRING, parser.next());
+        assertEquals("b", parser.getString());
+        assertEquals(Event.END_ARRAY, parser.next());
+        assertEquals(1, parser.getDepth());
+        assertEquals(Event.NAME, parser.next());
+        assertEquals("c", parser.getString());
+        assertEquals(Event.START_OBJECT, parser.next());
+        assertEquals(Event.NAME, parser.next());
+        assertEquals("d", parser.getString());
+        assertEquals(Event.BOOLEAN, parser.next());
+        assertTrue(parser.getBoolean());
+        assertEquals(Event.END_OBJECT, parser.next());
+        assertEquals(Event.NAME, parser.next());
+        assertEquals("e", parser.getString());
+        assertEquals(Event.NULL, parser.next());
+        assertEquals(Event.END_OBJECT, parser.next());
+        assertEquals(0, parser.getDepth());
+        assertEquals(Event.END_DOCUMENT, parser.next());
+        assertEquals(Event.END_DOCUMENT, parser.next());
+    }
+
+    public void testAccessorsCheckEvent() throws JSONException {
+        JSONPullParser parser = parser("[1]");
+        parser.next();
+        try {
+            parser.getString();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        parser.next();
+        try {
+            parser.getBoolean();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testSkipValue() throws JSONException {
+        JSONPullParser parser = parser("{\"skip\":{\"x\":[1,[2,{}]]},\"keep\":[3]}");
+        assertEquals(Event.START_OBJECT, parser.next());
+        parser.skipValue();
+        assertEquals(Event.NAME, parser.next());
+        assertEquals("keep", parser.getString());
+        assertEquals(new JSONArray("[3]").toString(), parser.nextValue().toString());
+        assertEquals(Event.END_OBJECT, parser.next());
+    }
+
+    public void testNextValueMatchesTokener() throws JSONException {
+        String[] inputs = {
+            "{}",
+            "[]",
+            "[,]",
+            "[1,]",
+            "[,1]",
+            "[1,,2]",
+            "[1;2]",
+            "{a:1;b=2,c=>3}",
+            "\ufeff{\"x\":1}",
+            " // comment\n /* comment */ # comment\n [true, FALSE, Null, 0x1F, 012, 1e5,"
+                    + " 1.5, 9999999999, 99999999999999999999, abc, 'q\\'s', \"\\u0041\\n\"]",
+        };
+        for (String input : inputs) {
+            Object expected = new JSONTokener(input).nextValue();
+            assertEquals(input, expected.toString(), parser(input).nextValue().toString());
+            assertEquals(input, expected.toString(),
+                    new JSONPullParser(new OneCharReader(input)).nextValue().toString());
+        }
+    }
+
+    public void testOmittedArrayElementsAreNull() throws JSONException {
+        JSONArray array = new JSONArray(parser("[1,,null]"));
+        assertEquals(3, array.length());
+        assertTrue(array.isNull(1));
+        assertNull(array.opt(1));
+        assertSame(JSONObject.NULL, array.opt(2));
+    }
+
+    public void testValuesSpanningBufferRefills() throws JSONException {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longString.append((char) ('a' + i % 26));
+        }
+        JSONObject object = new JSONObject();
+        object.put("plain", longString.toString());
+        object.put("escaped", longString + "\t\"" + longString);
+        JSONArray numbers = new JSONArray();
+        for (int i = 0; i < 5000; i++) {
+            numbers.put(i * 1000003L);
+        }
+        object.put("numbers", numbers);
+        String json = object.toString();
+        assertEquals(json, new JSONObject(parser(json)).toString());
+        assertEquals(json, new JSONObject(new JSONPullParser(new OneCharReader(json))).toString());
+    }
+
+    public void testSyntaxErrors() {
+        String[] inputs = {
+            "", "[", "{", "{\"a\"", "{\"a\":1", "[1 2]", "{a b}", "{1:2}", "{[]:1}", "/* x",
+            "\"abc", "\"\\u12", "[1,}", "{\"a\":1,}",
+        };
+        for (String input : inputs) {
+            try {
+                parser(input).nextValue();
+                fail(input);
+            } catch (JSONException expected) {
+            }
+        }
+    }
+
+    public void testTypeMismatch() throws JSONException {
+        try {
+            new JSONObject(parser("[]"));
+            fail();
+        } catch (JSONException expected) {
+        }
+        try {
+            new JSONArray(parser("{}"));
+            fail();
+        } catch (JSONException expected) {
+        }
+    }
+
+    public void testReaderFailure() {
+        Reader failing = new Reader() {
+            @Override public int read(char[] buffer, int offset, int count) throws IOException {
+                throw new IOException("boom");
+            }
+            @Override public void close() {
+            }
+        };
+        try {
+            new JSONPullParser(failing).next();
+            fail();
+        } catch (JSONException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+
+    public void testStringerWritesToWriter() throws JSONException {
+        JSONObject object = new JSONObject();
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 5000; i++) {
+            array.put("item" + i);
+        }
+        object.put("array", array);
+        object.put("nested", new JSONObject().put("a", 5));
+
+        StringWriter writer = new StringWriter();
+        assertSame(writer, object.write(writer));
+        assertEquals(object.toString(), writer.toString());
+
+        writer = new StringWriter();
+        array.write(writer);
+        assertEquals(array.toString(), writer.toString());
+    }
+
+    public void testStringerWithWriterRejectsMultipleRoots() throws JSONException {
+        StringWriter writer = new StringWriter();
+        JSONStringer stringer = new JSONStringer(writer);
+        stringer.array().value(1).endArray();
+        assertEquals("[1]", writer.toString());
+        assertNull(stringer.toString());
+        try {
+            stringer.array();
+            fail();
+        } catch (JSONException expected) {
+        }
+    }
+
+    private static JSONPullParser parser(String json) {
+        return new JSONPullParser(new StringReader(json));
+    }
+
+    /** Returns input one character at a time, to exercise buffer refills. */
+    private static class OneCharReader extends Reader {
+        private final String input;
+        private int pos;
+
+        OneCharReader(String input) {
+            this.input = input;
+        }
+
+        @Override public int read(char[] buffer, int offset, int count) {
+            if (pos == input.length()) {
+                return -1;
+            }
+            buffer[offset] = input.charAt(pos++);
+            return 1;
+        }
+
+        @Override public void close() {
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class SmallTests extends TestSuite {
   private static final Class<?>[] smallTestClasses = new Class[] {
     JSONArrayTest.class,
     JSONObjectTest.class,
+    JSONPullParserTest.class,
     JSONStringerTest.class,
     JSONTokenerTest.class,
     ParsingTest.class,
@@ -19,31 +19,64 @@ package libcore.util;
 import dalvik.annotation.compat.UnsupportedAppUsage;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A minimal least-recently-used cache for libcore. Prefer {@code
  * android.util.LruCache} where that is available.
+ *
+ * <p>Lookups don't take a lock: a cache hit only reads a concurrent map and
+ * marks the entry as accessed. Writes and evictions are serialized on the
+ * cache. Eviction uses the CLOCK approximation of LRU: entries are queued in
+ * insertion order, and an entry that was accessed since it last reached the
+ * head of the queue is given a second chance at the tail instead of being
+ * evicted.
  * @hide
  */
 public class BasicLruCache<K, V> {
     @UnsupportedAppUsage
-    private final LinkedHashMap<K, V> map;
+    private final ConcurrentHashMap<K, Node<K, V>> map;
     private final int maxSize;
 
+    /**
+     * The sentinel of the circular eviction queue, least recently inserted or
+     * second-chanced entry first. Guarded by {@code this}.
+     */
+    private final Node<K, V> queue = new Node<K, V>(null, null);
+    private int size;
+
+    /**
+     * The number of hit counters, a power of two. Hits are counted in the
+     * counter picked by the thread's ID so that readers on different threads
+     * rarely write to the same counter.
+     */
+    private static final int HIT_COUNT_STRIPES =
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicLong[] hitCounts = new AtomicLong[HIT_COUNT_STRIPES];
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
     @UnsupportedAppUsage
     public BasicLruCache(int maxSize) {
         if (maxSize <= 0) {
             throw new IllegalArgumentException("maxSize <= 0");
         }
         this.maxSize = maxSize;
-        this.map = new LinkedHashMap<K, V>(0, 0.75f, true);
+        this.map = new ConcurrentHashMap<K, Node<K, V>>();
+        queue.prev = queue;
+        queue.next = queue;
+        for (int i = 0; i < HIT_COUNT_STRIPES; i++) {
+            hitCounts[i] = new AtomicLong();
+        }
     }
 
     /**
      * Returns the value for {@code key} if it exists in the cache or can be
-     * created by {@code #create}. If a value was returned, it is moved to the
-     * head of the queue. This returns null if a value is not cached and cannot
-     * be created.
+     * created by {@code #create}. If a value was returned, it is marked as
+     * recently used. This returns null if a value is not cached and cannot be
+     * created.
      */
     @UnsupportedAppUsage
     public final V get(K key) {
@@ -51,26 +84,28 @@ public class BasicLruCache<K, V> {
             throw new NullPointerException("key == null");
         }
 
-        V result;
-        synchronized (this) {
-            result = map.get(key);
-            if (result != null) {
-                return result;
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+            // Only write the flag if needed so that hot entries aren't
+            // dirtied on every read.
+            if (!node.accessed) {
+                node.accessed = true;
             }
+            hitCounts[(int) Thread.currentThread().getId() & (HIT_COUNT_STRIPES - 1)]
+                    .incrementAndGet();
+            return node.value;
         }
+        missCount.incrementAndGet();
 
         // Don't hold any locks while calling create.
-        result = create(key);
-
-        synchronized (this) {
-            // NOTE: Another thread might have already inserted a value for |key| into the map.
-            // This shouldn't be an observable change as long as create creates equal values for
-            // equal keys. We will however attempt to trim the map twice, but that shouldn't be
-            // a big deal since uses of this class aren't heavily contended (and this class
-            // isn't design for such usage anyway).
-            if (result != null) {
-                map.put(key, result);
-                trimToSize(maxSize);
+        V result = create(key);
+
+        // NOTE: Another thread might have already inserted a value for |key| into the map.
+        // This shouldn't be an observable change as long as create creates equal values for
+        // equal keys.
+        if (result != null) {
+            synchronized (this) {
+                putLocked(key, result);
             }
         }
 
@@ -92,20 +127,45 @@ public class BasicLruCache<K, V> {
             throw new NullPointerException("value == null");
         }
 
-        V previous = map.put(key, value);
-        trimToSize(maxSize);
-        return previous;
+        return putLocked(key, value);
+    }
+
+    private V putLocked(K key, V value) {
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+            V previous = node.value;
+            node.value = value;
+            node.accessed = false;
+            node.unlink();
+            node.linkBefore(queue);
+            return previous;
+        }
+
+        // Make room first, so that second-chanced entries stay behind the new one.
+        trimToSize(maxSize - 1);
+        node = new Node<K, V>(key, value);
+        map.put(key, node);
+        size++;
+        node.linkBefore(queue);
+        return null;
     }
 
     private void trimToSize(int maxSize) {
-        while (map.size() > maxSize) {
-            Map.Entry<K, V> toEvict = (map.isEmpty()) ? null : map.entrySet().iterator().next();
+        while (size > maxSize) {
+            Node<K, V> toEvict = queue.next;
+            toEvict.unlink();
+            if (toEvict.accessed) {
+                // Give recently used entries a second chance.
+                toEvict.accessed = false;
+                toEvict.linkBefore(queue);
+                continue;
+            }
 
-            K key = toEvict.getKey();
-            V value = toEvict.getValue();
-            map.remove(key);
+            map.remove(toEvict.key);
+            size--;
+            evictionCount.incrementAndGet();
 
-            entryEvicted(key, value);
+            entryEvicted(toEvict.key, toEvict.value);
         }
     }
 
@@ -126,10 +186,22 @@ public class BasicLruCache<K, V> {
 
     /**
      * Returns a copy of the current contents of the cache, ordered from least
-     * recently accessed to most recently accessed.
+     * recently accessed to most recently accessed. This is the order in which
+     * entries would be evicted.
      */
     public synchronized final Map<K, V> snapshot() {
-        return new LinkedHashMap<K, V>(map);
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (Node<K, V> node = queue.next; node != queue; node = node.next) {
+            if (!node.accessed) {
+                result.put(node.key, node.value);
+            }
+        }
+        for (Node<K, V> node = queue.next; node != queue; node = node.next) {
+            if (node.accessed) {
+                result.put(node.key, node.value);
+            }
+        }
+        return result;
     }
 
     /**
@@ -139,4 +211,72 @@ public class BasicLruCache<K, V> {
     public synchronized final void evictAll() {
         trimToSize(0);
     }
+
+    /**
+     * Returns the number of times {@link #get} returned a cached value.
+     */
+    public final long hitCount() {
+        long sum = 0;
+        for (AtomicLong hitCount : hitCounts) {
+            sum += hitCount.get();
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of times {@link #get} didn't find a cached value and
+     * called {@link #create}.
+     */
+    public final long missCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of entries that have been passed to {@link
+     * #entryEvicted}.
+     */
+    public final long evictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override public String toString() {
+        long hits = hitCount();
+        long accesses = hits + missCount();
+        int hitPercent = accesses != 0 ? (int) (100 * hits / accesses) : 0;
+        return "BasicLruCache[maxSize=" + maxSize + ",hits=" + hits + ",misses="
+                + (accesses - hits) + ",evictions=" + evictionCount() + ",hitRate="
+                + hitPercent + "%]";
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+
+        /**
+         * Set by {@link #get} without holding a lock, and cleared when the
+         * entry is given its second chance.
+         */
+        volatile boolean accessed;
+
+        /** Guarded by the cache. */
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+        }
+
+        void linkBefore(Node<K, V> successor) {
+            prev = successor.prev;
+            next = successor;
+            prev.next = this;
+            successor.prev = this;
+        }
+    }
 }
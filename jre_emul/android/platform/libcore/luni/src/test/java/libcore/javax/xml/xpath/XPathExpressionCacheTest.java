@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.javax.xml.xpath;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFunction;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+import junit.framework.TestCase;
+import org.apache.xpath.jaxp.XPathExpressionCache;
+import org.apache.xpath.jaxp.XPathFactoryImpl;
+import org.apache.xpath.jaxp.XPathImpl;
+
+/**
+ * Tests for the compiled expression cache of {@link XPathImpl}.
+ */
+public class XPathExpressionCacheTest extends TestCase {
+
+    private XPathImpl xpath;
+    private XPathExpressionCache cache;
+
+    @Override
+    protected void setUp() {
+        xpath = (XPathImpl) new XPathFactoryImpl().newXPath();
+        cache = xpath.getExpressionCache();
+    }
+
+    private double evaluate(String expression) throws Exception {
+        Object result = xpath.evaluate(expression, (Object) null, XPathConstants.NUMBER);
+        return ((Double) result).doubleValue();
+    }
+
+    public void testRepeatedExpressionIsReused() throws Exception {
+        assertEquals(2.0, evaluate("1 + 1"));
+        assertEquals(2.0, evaluate("1 + 1"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        cache.setMaxSize(2);
+        evaluate("1");
+        evaluate("2");
+        evaluate("1");
+        evaluate("3");
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+
+        // "2" was evicted, "1" was kept.
+        evaluate("1");
+        assertEquals(2, cache.getHitCount());
+        evaluate("2");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    public void testShrinkingEvicts() throws Exception {
+        evaluate("1");
+        evaluate("2");
+        evaluate("3");
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    public void testZeroSizeDisablesCache() throws Exception {
+        cache.setMaxSize(0);
+        evaluate("1 + 1");
+        evaluate("1 + 1");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    public void testKeyedByFunctionResolver() throws Exception {
+        evaluate("1 + 1");
+        xpath.setXPathFunctionResolver(new XPathFunctionResolver() {
+            public XPathFunction resolveFunction(QName functionName, int arity) {
+                return null;
+            }
+        });
+        evaluate("1 + 1");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        evaluate("1 + 1");
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testKeyedByVariableResolver() throws Exception {
+        xpath.setXPathVariableResolver(new XPathVariableResolver() {
+            public Object resolveVariable(QName variableName) {
+                return Double.valueOf(1);
+            }
+        });
+        assertEquals(2.0, evaluate("$x + 1"));
+        xpath.setXPathVariableResolver(new XPathVariableResolver() {
+            public Object resolveVariable(QName variableName) {
+                return Double.valueOf(2);
+            }
+        });
+        assertEquals(3.0, evaluate("$x + 1"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testKeyedByNamespaceContext() throws Exception {
+        evaluate("1 + 1");
+        xpath.setNamespaceContext(new NamespaceContext() {
+            public String getNamespaceURI(String prefix) {
+                return "urn:test";
+            }
+
+            public String getPrefix(String namespaceURI) {
+                return "t";
+            }
+
+            public Iterator getPrefixes(String namespaceURI) {
+                List<String> prefixes = Collections.singletonList("t");
+                return prefixes.iterator();
+            }
+        });
+        evaluate("1 + 1");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testEachXPathHasItsOwnCache() throws Exception {
+        evaluate("1 + 1");
+        XPathImpl other = (XPathImpl) new XPathFactoryImpl().newXPath();
+        other.evaluate("1 + 1", (Object) null, XPathConstants.NUMBER);
+        assertNotSame(cache, other.getExpressionCache());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, other.getExpressionCache().getMissCount());
+        assertEquals(0, other.getExpressionCache().getHitCount());
+    }
+
+    public void testResetClearsCache() throws Exception {
+        evaluate("1 + 1");
+        xpath.reset();
+        assertEquals(0, cache.size());
+    }
+}
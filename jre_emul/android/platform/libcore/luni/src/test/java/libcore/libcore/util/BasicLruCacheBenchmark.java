@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.libcore.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import libcore.util.BasicLruCache;
+
+/**
+ * Compares {@link BasicLruCache} with a cache that locks around an
+ * access-ordered LinkedHashMap, as BasicLruCache used to, under a read-heavy
+ * load from several threads.
+ */
+class BasicLruCacheBenchmark {
+
+    private static final int CACHE_SIZE = 64;
+    private static final int KEY_COUNT = 80;
+    private static final int READS_PER_THREAD = 2000000;
+
+    private interface Cache {
+        String get(String key);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String[] keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "key" + i;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors * 2; threads *= 2) {
+            final BasicLruCache<String, String> basic = new BasicLruCache<String, String>(
+                    CACHE_SIZE) {
+                @Override protected String create(String key) {
+                    return key.toUpperCase();
+                }
+            };
+            final LockedLinkedHashMapCache locked = new LockedLinkedHashMapCache();
+            long basicMillis = run(threads, keys, new Cache() {
+                @Override public String get(String key) {
+                    return basic.get(key);
+                }
+            });
+            long lockedMillis = run(threads, keys, new Cache() {
+                @Override public String get(String key) {
+                    return locked.get(key);
+                }
+            });
+            System.out.println(threads + " threads: BasicLruCache " + basicMillis
+                    + "ms, locked LinkedHashMap " + lockedMillis + "ms, " + basic);
+        }
+    }
+
+    private static long run(int threadCount, final String[] keys, final Cache cache)
+            throws InterruptedException {
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    // Mostly read a hot set that fits, sometimes a key that doesn't.
+                    int next = seed;
+                    for (int i = 0; i < READS_PER_THREAD; i++) {
+                        next = next * 1103515245 + 12345;
+                        int hot = (next >>> 16) % (CACHE_SIZE / 2);
+                        int any = (next >>> 8) % KEY_COUNT;
+                        cache.get(keys[(next >>> 24) % 100 < 95 ? hot : any]);
+                    }
+                }
+            };
+        }
+        long start = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /** The previous implementation of BasicLruCache.get(). */
+    private static final class LockedLinkedHashMapCache {
+        private final LinkedHashMap<String, String> map =
+                new LinkedHashMap<String, String>(0, 0.75f, true);
+
+        String get(String key) {
+            synchronized (this) {
+                String result = map.get(key);
+                if (result != null) {
+                    return result;
+                }
+            }
+            String result = key.toUpperCase();
+            synchronized (this) {
+                map.put(key, result);
+                while (map.size() > CACHE_SIZE) {
+                    Map.Entry<String, String> toEvict = map.entrySet().iterator().next();
+                    map.remove(toEvict.getKey());
+                }
+            }
+            return result;
+        }
+    }
+}
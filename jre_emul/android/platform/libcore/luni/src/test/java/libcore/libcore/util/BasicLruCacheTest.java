@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import junit.framework.TestCase;
 
 import libcore.util.BasicLruCache;
@@ -127,6 +128,75 @@ public final class BasicLruCacheTest extends TestCase {
         assertEquals(Arrays.asList("a=A", "b=B", "c=C"), evictionLog);
     }
 
+    public void testRecentlyReadEntryIsEvictedLast() {
+        final List<String> evictionLog = new ArrayList<String>();
+        BasicLruCache<String, String> cache = new BasicLruCache<String, String>(3) {
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals("A", cache.get("a"));
+        assertSnapshot(cache, "b", "B", "c", "C", "a", "A");
+
+        cache.put("d", "D");
+        assertEquals(Arrays.asList("b=B"), evictionLog);
+        assertSnapshot(cache, "c", "C", "a", "A", "d", "D");
+    }
+
+    public void testStatistics() {
+        BasicLruCache<String, String> cache = newCreatingCache();
+        assertEquals("BasicLruCache[maxSize=3,hits=0,misses=0,evictions=0,hitRate=0%]",
+                cache.toString());
+        cache.get("aa");
+        cache.get("aa");
+        cache.get("b");
+        cache.get("bb");
+        cache.get("cc");
+        cache.get("dd");
+        assertEquals(1, cache.hitCount());
+        assertEquals(5, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+        assertEquals("BasicLruCache[maxSize=3,hits=1,misses=5,evictions=1,hitRate=16%]",
+                cache.toString());
+    }
+
+    public void testConcurrentReads() throws Exception {
+        final BasicLruCache<String, String> cache = new BasicLruCache<String, String>(16) {
+            @Override protected String create(String key) {
+                return "created-" + key;
+            }
+        };
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            String key = String.valueOf(i % 24);
+                            assertEquals("created-" + key, cache.get(key));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(80000, cache.hitCount() + cache.missCount());
+        assertEquals(16, cache.snapshot().size());
+    }
+
     private BasicLruCache<String, String> newCreatingCache() {
         return new BasicLruCache<String, String>(3) {
             @Override protected String create(String key) {
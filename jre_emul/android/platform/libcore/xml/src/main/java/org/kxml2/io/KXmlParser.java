@@ -45,6 +45,17 @@ public class KXmlParser implements XmlPullParser, Closeable {
     private static final String PROPERTY_LOCATION = "http://xmlpull.org/v1/doc/properties.html#location";
     private static final String FEATURE_RELAXED = "http://xmlpull.org/v1/doc/features.html#relaxed";
 
+    /**
+     * The size of the read buffer, as an Integer. Larger buffers mean fewer
+     * refills and let more text and attribute values be returned without
+     * copying. The new size takes effect with the next call to setInput().
+     */
+    public static final String PROPERTY_BUFFER_SIZE
+            = "http://xmlpull.org/v1/doc/properties.html#buffer-size";
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MIN_BUFFER_SIZE = 1024;
+
     private static final Map<String, String> DEFAULT_ENTITIES = new HashMap<String, String>();
     static {
         DEFAULT_ENTITIES.put("lt", "<");
@@ -110,10 +121,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
     private boolean keepNamespaceAttributes;
 
     /**
-     * If non-null, the contents of the read buffer must be copied into this
-     * string builder before the read buffer is overwritten. This is used to
-     * capture the raw DTD text while parsing the DTD.
+     * If not -1, the contents of the read buffer from this index onward must
+     * be copied into {@link #bufferCapture} before the read buffer is
+     * overwritten. This is used to capture the raw DTD text while parsing the
+     * DTD. The builder is only created if the DTD spans a buffer refill.
      */
+    private int bufferCaptureStart = -1;
     private StringBuilder bufferCapture;
 
     /**
@@ -139,7 +152,8 @@ public class KXmlParser implements XmlPullParser, Closeable {
     private Reader reader;
     private String encoding;
     private ContentSource nextContentSource;
-    private char[] buffer = new char[8192];
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
     private int position = 0;
     private int limit = 0;
 
@@ -160,6 +174,16 @@ public class KXmlParser implements XmlPullParser, Closeable {
     private String name;
     private String text;
 
+    /**
+     * True if the current text is the {@code textLength} characters of the
+     * read buffer starting at {@code textStart}, and {@link #text} hasn't been
+     * created for it yet. Such text is only copied into a String if the caller
+     * asks for it or the read buffer is about to be overwritten.
+     */
+    private boolean lazyText;
+    private int textStart;
+    private int textLength;
+
     private boolean degenerated;
     private int attributeCount;
 
@@ -175,6 +199,17 @@ public class KXmlParser implements XmlPullParser, Closeable {
      */
     private String[] attributes = new String[16];
 
+    /*
+     * The location in the read buffer of attribute values that haven't been
+     * created yet, arranged in groups of 2 per attribute:
+     * i + 0 = start of the value
+     * i + 1 = length of the value
+     * The attribute's value slot in {@link #attributes} is null until the
+     * value is created by {@link #attributeValue}.
+     */
+    private int[] attributeValueSlices = new int[8];
+    private int lazyAttributeCount;
+
     private String error;
 
     private boolean unresolved;
@@ -216,7 +251,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
 
                 nspStack = ensureCapacity(nspStack, j + 2);
                 nspStack[j] = attrName;
-                nspStack[j + 1] = attributes[i + 3];
+                nspStack[j + 1] = attributeValue(i);
 
                 if (attrName != null && attributes[i + 3].isEmpty()) {
                     checkRelaxed("illegal empty namespace");
@@ -234,6 +269,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
                             attributes,
                             i,
                             ((--attributeCount) << 2) - i);
+                    System.arraycopy(
+                            attributeValueSlices,
+                            (i >> 1) + 2,
+                            attributeValueSlices,
+                            i >> 1,
+                            (attributeCount << 1) - (i >> 1));
 
                     i -= 4;
                 }
@@ -291,6 +332,19 @@ public class KXmlParser implements XmlPullParser, Closeable {
         return any;
     }
 
+    /**
+     * Grows {@link #attributes} and {@link #attributeValueSlices} together so
+     * that attributes can be moved in both arrays at once.
+     */
+    private void ensureAttributeCapacity(int required) {
+        attributes = ensureCapacity(attributes, required);
+        if (attributeValueSlices.length < attributes.length >> 1) {
+            int[] bigger = new int[attributes.length >> 1];
+            System.arraycopy(attributeValueSlices, 0, bigger, 0, attributeValueSlices.length);
+            attributeValueSlices = bigger;
+        }
+    }
+
     private String[] ensureCapacity(String[] arr, int required) {
         if (arr.length >= required) {
             return arr;
@@ -326,6 +380,9 @@ public class KXmlParser implements XmlPullParser, Closeable {
             depth--;
         }
 
+        // The previous event's text is no longer reachable.
+        lazyText = false;
+
         // degenerated needs to be handled before error because of possible
         // processor expectations(!)
 
@@ -359,6 +416,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
         name = null;
         namespace = null;
         attributeCount = -1;
+        lazyAttributeCount = 0;
         boolean throwOnResolveFailure = !justOneToken;
 
         while (true) {
@@ -390,7 +448,13 @@ public class KXmlParser implements XmlPullParser, Closeable {
                 }
                 // fall-through
             case TEXT:
-                text = readValue('<', !justOneToken, throwOnResolveFailure, ValueContext.TEXT);
+                text = readValue('<', !justOneToken, throwOnResolveFailure, ValueContext.TEXT,
+                        true);
+                if (text == null) {
+                    lazyText = true;
+                    textStart = lazyValueStart;
+                    textLength = position - lazyValueStart;
+                }
                 if (depth == 0 && isWhitespace) {
                     type = IGNORABLE_WHITESPACE;
                 }
@@ -438,6 +502,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
 
             if (type == IGNORABLE_WHITESPACE) {
                 text = null;
+                lazyText = false;
             }
 
             /*
@@ -446,7 +511,8 @@ public class KXmlParser implements XmlPullParser, Closeable {
              * reference.
              */
             int peek = peekType(false);
-            if (text != null && !text.isEmpty() && peek < TEXT) {
+            boolean hasText = lazyText ? textLength > 0 : text != null && !text.isEmpty();
+            if (hasText && peek < TEXT) {
                 type = TEXT;
                 return type;
             }
@@ -467,6 +533,9 @@ public class KXmlParser implements XmlPullParser, Closeable {
         int start = position;
         StringBuilder result = null;
 
+        if (returnText) {
+            materializeText();
+        }
         if (returnText && text != null) {
             result = new StringBuilder();
             result.append(text);
@@ -529,17 +598,17 @@ public class KXmlParser implements XmlPullParser, Closeable {
             checkRelaxed("version expected");
         }
 
-        version = attributes[3];
+        version = attributeValue(0);
 
         int pos = 1;
 
         if (pos < attributeCount && "encoding".equals(attributes[2 + 4])) {
-            encoding = attributes[3 + 4];
+            encoding = attributeValue(4);
             pos++;
         }
 
         if (pos < attributeCount && "standalone".equals(attributes[4 * pos + 2])) {
-            String st = attributes[3 + 4 * pos];
+            String st = attributeValue(4 * pos);
             if ("yes".equals(st)) {
                 standalone = Boolean.TRUE;
             } else if ("no".equals(st)) {
@@ -580,10 +649,8 @@ public class KXmlParser implements XmlPullParser, Closeable {
     private void readDoctype(boolean saveDtdText) throws IOException, XmlPullParserException {
         read(START_DOCTYPE);
 
-        int startPosition = -1;
         if (saveDtdText) {
-            bufferCapture = new StringBuilder();
-            startPosition = position;
+            bufferCaptureStart = position;
         }
         try {
             skip();
@@ -596,10 +663,14 @@ public class KXmlParser implements XmlPullParser, Closeable {
             skip();
         } finally {
             if (saveDtdText) {
-                bufferCapture.append(buffer, 0, position);
-                bufferCapture.delete(0, startPosition);
-                text = bufferCapture.toString();
-                bufferCapture = null;
+                if (bufferCapture == null) {
+                    text = new String(buffer, bufferCaptureStart, position - bufferCaptureStart);
+                } else {
+                    bufferCapture.append(buffer, bufferCaptureStart, position - bufferCaptureStart);
+                    text = bufferCapture.toString();
+                    bufferCapture = null;
+                }
+                bufferCaptureStart = -1;
             }
         }
 
@@ -866,7 +937,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
             if (c == '"' || c == '\'') {
                 position++;
                 // TODO: does this do escaping correctly?
-                String value = readValue((char) c, true, true, ValueContext.ATTRIBUTE);
+                String value = readValue((char) c, true, true, ValueContext.ATTRIBUTE, false);
                 if (peekCharacter() == c) {
                     position++;
                 }
@@ -918,7 +989,8 @@ public class KXmlParser implements XmlPullParser, Closeable {
         String entityValue;
         if (quote == '"' || quote == '\'') {
             position++;
-            entityValue = readValue((char) quote, true, false, ValueContext.ENTITY_DECLARATION);
+            entityValue = readValue((char) quote, true, false, ValueContext.ENTITY_DECLARATION,
+                    false);
             if (peekCharacter() == quote) {
                 position++;
             }
@@ -1058,6 +1130,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
         }
         name = readName();
         attributeCount = 0;
+        lazyAttributeCount = 0;
 
         while (true) {
             skip();
@@ -1091,10 +1164,11 @@ public class KXmlParser implements XmlPullParser, Closeable {
             String attrName = readName();
 
             int i = (attributeCount++) * 4;
-            attributes = ensureCapacity(attributes, i + 4);
+            ensureAttributeCapacity(i + 4);
             attributes[i] = "";
             attributes[i + 1] = null;
             attributes[i + 2] = attrName;
+            attributes[i + 3] = "";
 
             skip();
             if (position >= limit && !fillBuffer(1)) {
@@ -1120,8 +1194,14 @@ public class KXmlParser implements XmlPullParser, Closeable {
                     throw new XmlPullParserException("attr value delimiter missing!", this, null);
                 }
 
-                attributes[i + 3] = readValue(delimiter, true, throwOnResolveFailure,
-                        ValueContext.ATTRIBUTE);
+                String value = readValue(delimiter, true, throwOnResolveFailure,
+                        ValueContext.ATTRIBUTE, true);
+                if (value == null) {
+                    attributeValueSlices[i >> 1] = lazyValueStart;
+                    attributeValueSlices[(i >> 1) + 1] = position - lazyValueStart;
+                    lazyAttributeCount++;
+                }
+                attributes[i + 3] = value;
 
                 if (delimiter != ' ' && peekCharacter() == delimiter) {
                     position++; // end quote
@@ -1165,7 +1245,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
                     }
 
                     int i = (attributeCount++) * 4;
-                    attributes = ensureCapacity(attributes, i + 4);
+                    ensureAttributeCapacity(i + 4);
                     attributes[i] = "";
                     attributes[i + 1] = null;
                     attributes[i + 2] = entry.getKey();
@@ -1298,6 +1378,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
         ENTITY_DECLARATION
     }
 
+    /**
+     * The start of the value most recently returned as null by {@link
+     * #readValue}. The value ends at the current position.
+     */
+    private int lazyValueStart;
+
     /**
      * Returns the current text or attribute value. This also has the side
      * effect of setting isWhitespace to false if a non-whitespace character is
@@ -1305,9 +1391,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
      *
      * @param delimiter {@code <} for text, {@code "} and {@code '} for quoted
      *     attributes, or a space for unquoted attributes.
+     * @param lazy true to return null instead of creating a String if the
+     *     value is a single unmodified slice of the read buffer. The slice
+     *     starts at {@link #lazyValueStart} and ends at the current position.
      */
     private String readValue(char delimiter, boolean resolveEntities, boolean throwOnResolveFailure,
-            ValueContext valueContext) throws IOException, XmlPullParserException {
+            ValueContext valueContext, boolean lazy) throws IOException, XmlPullParserException {
 
         /*
          * This method returns all of the characters from the current position
@@ -1335,6 +1424,9 @@ public class KXmlParser implements XmlPullParser, Closeable {
         StringBuilder result = null;
 
         // if a text section was already started, prefix the start
+        if (valueContext == ValueContext.TEXT) {
+            materializeText();
+        }
         if (valueContext == ValueContext.TEXT && text != null) {
             result = new StringBuilder();
             result.append(text);
@@ -1430,6 +1522,10 @@ public class KXmlParser implements XmlPullParser, Closeable {
         }
 
         if (result == null) {
+            if (lazy) {
+                lazyValueStart = start;
+                return null;
+            }
             return stringPool.get(buffer, start, position - start);
         } else {
             result.append(buffer, start, position - start);
@@ -1437,6 +1533,47 @@ public class KXmlParser implements XmlPullParser, Closeable {
         }
     }
 
+    /**
+     * Creates the String for the current text if it is still only in the read
+     * buffer.
+     */
+    private void materializeText() {
+        if (lazyText) {
+            text = stringPool.get(buffer, textStart, textLength);
+            lazyText = false;
+        }
+    }
+
+    /**
+     * Returns the value of the attribute whose group in {@link #attributes}
+     * starts at {@code i}, creating its String if it is still only in the read
+     * buffer.
+     */
+    private String attributeValue(int i) {
+        String value = attributes[i + 3];
+        if (value == null) {
+            int slice = i >> 1;
+            value = stringPool.get(
+                    buffer, attributeValueSlices[slice], attributeValueSlices[slice + 1]);
+            attributes[i + 3] = value;
+            lazyAttributeCount--;
+        }
+        return value;
+    }
+
+    /**
+     * Creates the Strings for all text and attribute values that are still
+     * only in the read buffer. This must be called before the read buffer is
+     * overwritten or replaced.
+     */
+    private void materializeLazyValues() {
+        materializeText();
+        for (int i = 0; lazyAttributeCount > 0 && i < attributeCount << 2; i += 4) {
+            attributeValue(i);
+        }
+        lazyAttributeCount = 0;
+    }
+
     private void read(char expected) throws IOException, XmlPullParserException {
         int c = peekCharacter();
         if (c != expected) {
@@ -1479,6 +1616,10 @@ public class KXmlParser implements XmlPullParser, Closeable {
      * false.
      */
     private boolean fillBuffer(int minimum) throws IOException, XmlPullParserException {
+        if (lazyText || lazyAttributeCount > 0) {
+            materializeLazyValues();
+        }
+
         // If we've exhausted the current content source, remove it
         while (nextContentSource != null) {
             if (position < limit) {
@@ -1500,8 +1641,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
             }
         }
 
-        if (bufferCapture != null) {
-            bufferCapture.append(buffer, 0, position);
+        if (bufferCaptureStart != -1) {
+            if (bufferCapture == null) {
+                bufferCapture = new StringBuilder();
+            }
+            bufferCapture.append(buffer, bufferCaptureStart, position - bufferCaptureStart);
+            bufferCaptureStart = 0;
         }
 
         if (limit != position) {
@@ -1619,6 +1764,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
             return;
         }
 
+        allocateBuffer();
         position = 0;
         limit = 0;
         bufferStartLine = 0;
@@ -1628,6 +1774,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
     }
 
     public void setInput(InputStream is, String charset) throws XmlPullParserException {
+        allocateBuffer();
         position = 0;
         limit = 0;
         boolean detectCharset = (charset == null);
@@ -1752,6 +1899,18 @@ public class KXmlParser implements XmlPullParser, Closeable {
         }
     }
 
+    /**
+     * Replaces the read buffer if a different size was requested with
+     * {@link #PROPERTY_BUFFER_SIZE}.
+     */
+    private void allocateBuffer() {
+        lazyText = false;
+        lazyAttributeCount = 0;
+        if (buffer.length != bufferSize && nextContentSource == null) {
+            buffer = new char[bufferSize];
+        }
+    }
+
     public void close() throws IOException {
         if (reader != null) {
             reader.close();
@@ -1797,6 +1956,8 @@ public class KXmlParser implements XmlPullParser, Closeable {
             return standalone;
         } else if (property.equals(PROPERTY_LOCATION)) {
             return location != null ? location : reader.toString();
+        } else if (property.equals(PROPERTY_BUFFER_SIZE)) {
+            return bufferSize;
         } else {
             return null;
         }
@@ -1889,7 +2050,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
                 if (attributes[i + 1] != null) {
                     buf.append("{" + attributes[i] + "}" + attributes[i + 1] + ":");
                 }
-                buf.append(attributes[i + 2] + "='" + attributes[i + 3] + "'");
+                buf.append(attributes[i + 2] + "='" + attributeValue(i) + "'");
             }
 
             buf.append('>');
@@ -1950,14 +2111,27 @@ public class KXmlParser implements XmlPullParser, Closeable {
     public String getText() {
         if (type < TEXT || (type == ENTITY_REF && unresolved)) {
             return null;
-        } else if (text == null) {
+        }
+        materializeText();
+        if (text == null) {
             return "";
         } else {
             return text;
         }
     }
 
+    /**
+     * Returns the current text without copying it if it is still in the read
+     * buffer. In that case the returned array is the read buffer itself, and
+     * its contents are only valid until the next call to {@link #next} or
+     * {@link #nextToken}.
+     */
     public char[] getTextCharacters(int[] poslen) {
+        if (lazyText && type >= TEXT) {
+            poslen[0] = textStart;
+            poslen[1] = textLength;
+            return buffer;
+        }
         String text = getText();
         if (text == null) {
             poslen[0] = -1;
@@ -2026,14 +2200,14 @@ public class KXmlParser implements XmlPullParser, Closeable {
         if (index >= attributeCount) {
             throw new IndexOutOfBoundsException();
         }
-        return attributes[(index * 4) + 3];
+        return attributeValue(index * 4);
     }
 
     public String getAttributeValue(String namespace, String name) {
         for (int i = (attributeCount * 4) - 4; i >= 0; i -= 4) {
             if (attributes[i + 2].equals(name)
                     && (namespace == null || attributes[i].equals(namespace))) {
-                return attributes[i + 3];
+                return attributeValue(i);
             }
         }
 
@@ -2106,6 +2280,12 @@ public class KXmlParser implements XmlPullParser, Closeable {
     public void setProperty(String property, Object value) throws XmlPullParserException {
         if (property.equals(PROPERTY_LOCATION)) {
             location = String.valueOf(value);
+        } else if (property.equals(PROPERTY_BUFFER_SIZE)) {
+            if (!(value instanceof Integer) || (Integer) value < MIN_BUFFER_SIZE) {
+                throw new XmlPullParserException(
+                        "buffer size must be an Integer of at least " + MIN_BUFFER_SIZE);
+            }
+            bufferSize = (Integer) value;
         } else {
             throw new XmlPullParserException("unsupported property: " + property);
         }
@@ -2160,6 +2340,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
      * current buffer.
      */
     private void pushContentSource(char[] newBuffer) {
+        materializeLazyValues();
         nextContentSource = new ContentSource(nextContentSource, buffer, position, limit);
         buffer = newBuffer;
         position = 0;
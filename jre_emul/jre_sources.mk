@@ -2306,6 +2306,7 @@ JSON_PUBLIC_SOURCES = \
   org/json/JSONArray.java \
   org/json/JSONException.java \
   org/json/JSONObject.java \
+  org/json/JSONPullParser.java \
   org/json/JSONStringer.java \
   org/json/JSONTokener.java
 
@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.icu.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+
+/**
+ * Tests for ICUBinary's mapping of stored jar entries.
+ */
+public class ICUBinaryTest extends TestCase {
+
+  private static final String ENTRY = "android/icu/impl/data/test.res";
+  private static final byte[] DATA = makeData();
+
+  private File jar;
+
+  @Override
+  protected void setUp() throws IOException {
+    jar = File.createTempFile("ICUBinaryTest", ".jar");
+  }
+
+  @Override
+  protected void tearDown() {
+    jar.delete();
+  }
+
+  private static byte[] makeData() {
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+    return data;
+  }
+
+  private void writeJar(int method, String comment) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("META-INF/"));
+      out.closeEntry();
+      ZipEntry entry = new ZipEntry(ENTRY);
+      entry.setMethod(method);
+      if (method == ZipEntry.STORED) {
+        CRC32 crc = new CRC32();
+        crc.update(DATA);
+        entry.setCrc(crc.getValue());
+        entry.setSize(DATA.length);
+        entry.setCompressedSize(DATA.length);
+      }
+      out.putNextEntry(entry);
+      out.write(DATA);
+      out.closeEntry();
+      if (comment != null) {
+        out.setComment(comment);
+      }
+    }
+  }
+
+  private static void assertData(ByteBuffer bytes) {
+    assertNotNull(bytes);
+    assertEquals(ByteOrder.BIG_ENDIAN, bytes.order());
+    assertEquals(DATA.length, bytes.remaining());
+    byte[] actual = new byte[DATA.length];
+    bytes.get(actual);
+    for (int i = 0; i < DATA.length; i++) {
+      assertEquals("byte " + i, DATA[i], actual[i]);
+    }
+  }
+
+  public void testStoredEntryMapped() throws IOException {
+    writeJar(ZipEntry.STORED, null);
+    ByteBuffer bytes = ICUBinary.mapStoredJarEntry(jar, ENTRY);
+    assertTrue(bytes.isDirect());
+    assertData(bytes);
+  }
+
+  public void testDeflatedEntryNotMapped() throws IOException {
+    writeJar(ZipEntry.DEFLATED, null);
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+  }
+
+  public void testEndHeaderFollowedByComment() throws IOException {
+    writeJar(ZipEntry.STORED, "PK\u0005\u0006 is the signature of the end header");
+    assertData(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+  }
+
+  public void testMissingEntry() throws IOException {
+    writeJar(ZipEntry.STORED, null);
+    assertNull(ICUBinary.mapStoredJarEntry(jar, "android/icu/impl/data/missing.res"));
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY.substring(0, ENTRY.length() - 1)));
+  }
+
+  public void testTruncatedFile() throws IOException {
+    writeJar(ZipEntry.STORED, null);
+    long length = jar.length();
+    try (RandomAccessFile file = new RandomAccessFile(jar, "rw")) {
+      file.setLength(length / 2);
+    }
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+    try (RandomAccessFile file = new RandomAccessFile(jar, "rw")) {
+      file.setLength(10);
+    }
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+  }
+
+  public void testEntryDataCutShort() throws IOException {
+    // Drops part of the entry's data but keeps the directory, whose offsets
+    // then point past the end of the file.
+    writeJar(ZipEntry.STORED, null);
+    byte[] zip = new byte[(int) jar.length()];
+    try (RandomAccessFile file = new RandomAccessFile(jar, "r")) {
+      file.readFully(zip);
+    }
+    int cut = DATA.length / 2;
+    int directory = zip.length - 22 - ByteBuffer.wrap(zip, zip.length - 10, 4)
+        .order(ByteOrder.LITTLE_ENDIAN).getInt();
+    try (FileOutputStream out = new FileOutputStream(jar)) {
+      out.write(zip, 0, directory - cut);
+      out.write(zip, directory, zip.length - directory);
+    }
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+  }
+
+  public void testMissingFile() {
+    jar.delete();
+    assertNull(ICUBinary.mapStoredJarEntry(jar, ENTRY));
+  }
+}
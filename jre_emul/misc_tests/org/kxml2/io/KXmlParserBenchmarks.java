@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kxml2.io;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Parses a multi-megabyte feed with KXmlParser, reporting the time and the
+ * heap growth of reading it through the String and the char[] accessors.
+ */
+class KXmlParserBenchmarks {
+
+  private static final String FEED = createFeed(20000);
+
+  public static void main(String[] args) throws Exception {
+    System.out.println("Running KXmlParser benchmarks on " + FEED.length() + " chars...");
+    Method[] methods = KXmlParserBenchmarks.class.getDeclaredMethods();
+    for (Method method : methods) {
+      if (method.getName().startsWith("test")) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long startMemory = runtime.totalMemory() - runtime.freeMemory();
+        long startTime = System.currentTimeMillis();
+        Object result = method.invoke(null);
+        long endTime = System.currentTimeMillis();
+        long endMemory = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println(method.getName() + ": " + (endTime - startTime) + "ms, "
+            + ((endMemory - startMemory) / 1024) + "KB heap growth, result " + result);
+      }
+    }
+  }
+
+  private static Object testGetText() throws Exception {
+    long length = 0;
+    for (int i = 0; i < 10; i++) {
+      XmlPullParser parser = parser();
+      for (int type = parser.next(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+        if (type == XmlPullParser.TEXT) {
+          length += parser.getText().length();
+        }
+      }
+    }
+    return length;
+  }
+
+  private static Object testGetTextCharacters() throws Exception {
+    long length = 0;
+    int[] poslen = new int[2];
+    for (int i = 0; i < 10; i++) {
+      XmlPullParser parser = parser();
+      for (int type = parser.next(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+        if (type == XmlPullParser.TEXT) {
+          parser.getTextCharacters(poslen);
+          length += poslen[1];
+        }
+      }
+    }
+    return length;
+  }
+
+  /** Reads one attribute of each entry and skips the rest. */
+  private static Object testOneAttribute() throws Exception {
+    long sum = 0;
+    for (int i = 0; i < 10; i++) {
+      XmlPullParser parser = parser();
+      for (int type = parser.next(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+        if (type == XmlPullParser.START_TAG && parser.getName().equals("entry")) {
+          sum += Integer.parseInt(parser.getAttributeValue(null, "id"));
+        }
+      }
+    }
+    return sum;
+  }
+
+  private static Object testLargeBuffer() throws Exception {
+    long length = 0;
+    int[] poslen = new int[2];
+    for (int i = 0; i < 10; i++) {
+      KXmlParser parser = new KXmlParser();
+      parser.setProperty(KXmlParser.PROPERTY_BUFFER_SIZE, 65536);
+      parser.setInput(new StringReader(FEED));
+      for (int type = parser.next(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+        if (type == XmlPullParser.TEXT) {
+          parser.getTextCharacters(poslen);
+          length += poslen[1];
+        }
+      }
+    }
+    return length;
+  }
+
+  private static XmlPullParser parser() throws Exception {
+    KXmlParser parser = new KXmlParser();
+    parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+    parser.setInput(new StringReader(FEED));
+    return parser;
+  }
+
+  private static String createFeed(int entries) {
+    StringBuilder feed = new StringBuilder(
+        "<?xml version='1.0' encoding='UTF-8'?>\n<feed xmlns='http://www.w3.org/2005/Atom'>\n");
+    for (int i = 0; i < entries; i++) {
+      feed.append("  <entry id='").append(i).append("' lang='en' rel=\"alternate\">\n")
+          .append("    <title>Entry number ").append(i).append("</title>\n")
+          .append("    <link href='http://example.com/entries/").append(i).append("'/>\n")
+          .append("    <summary>The summary of entry ").append(i)
+          .append(", which is long enough to be worth not copying.</summary>\n")
+          .append("  </entry>\n");
+    }
+    return feed.append("</feed>\n").toString();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kxml2.io;
+
+import java.io.Reader;
+import java.io.StringReader;
+import junit.framework.TestCase;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Verify that KXmlParser's buffer-backed text and attribute values are the
+ * same as the Strings it used to create eagerly.
+ */
+public class KXmlParserTest extends TestCase {
+
+  public void testTextCharactersWithoutCopy() throws Exception {
+    KXmlParser parser = parser("<a>hello</a>");
+    assertEquals(XmlPullParser.START_TAG, parser.next());
+    assertEquals(XmlPullParser.TEXT, parser.next());
+    int[] poslen = new int[2];
+    char[] chars = parser.getTextCharacters(poslen);
+    assertEquals("hello", new String(chars, poslen[0], poslen[1]));
+    assertSame(chars, parser.getTextCharacters(poslen));
+    assertEquals("hello", parser.getText());
+    assertEquals(XmlPullParser.END_TAG, parser.next());
+  }
+
+  public void testTextJoinedAcrossTokens() throws Exception {
+    KXmlParser parser = parser("<a>x&amp;y<![CDATA[<z>]]><!-- c -->w</a>");
+    parser.next();
+    assertEquals(XmlPullParser.TEXT, parser.next());
+    assertEquals("x&y<z>w", parser.getText());
+    int[] poslen = new int[2];
+    char[] chars = parser.getTextCharacters(poslen);
+    assertEquals("x&y<z>w", new String(chars, poslen[0], poslen[1]));
+  }
+
+  public void testAttributeValues() throws Exception {
+    KXmlParser parser = parser("<a xmlns='urn:a' x='1' xmlns:p='urn:p' p:y=\"2\" z='&lt;3'/>");
+    parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+    assertEquals(XmlPullParser.START_TAG, parser.next());
+    assertEquals("urn:a", parser.getNamespace());
+    assertEquals(3, parser.getAttributeCount());
+    assertEquals("x", parser.getAttributeName(0));
+    assertEquals("1", parser.getAttributeValue(0));
+    assertEquals("2", parser.getAttributeValue("urn:p", "y"));
+    assertEquals("<3", parser.getAttributeValue(null, "z"));
+    assertEquals("1", parser.getAttributeValue(null, "x"));
+  }
+
+  public void testValuesSurviveBufferRefills() throws Exception {
+    StringBuilder xml = new StringBuilder("<!DOCTYPE root [<!ENTITY e 'v'>]><root>");
+    for (int i = 0; i < 2000; i++) {
+      xml.append("<item id='").append(i).append("' name=\"item").append(i).append("\">text")
+          .append(i).append("</item>");
+    }
+    xml.append("</root>");
+    String input = xml.toString();
+
+    KXmlParser parser = new KXmlParser();
+    parser.setInput(new OneCharReader(input));
+    assertEquals(XmlPullParser.DOCDECL, parser.nextToken());
+    assertEquals(" root [<!ENTITY e 'v'>]", parser.getText());
+
+    parser.setInput(new OneCharReader(input));
+    parser.require(XmlPullParser.START_DOCUMENT, null, null);
+    parser.nextTag();
+    for (int i = 0; i < 2000; i++) {
+      assertEquals(XmlPullParser.START_TAG, parser.next());
+      assertEquals(XmlPullParser.TEXT, parser.next());
+      assertEquals(XmlPullParser.END_TAG, parser.next());
+    }
+
+    parser.setInput(new StringReader(input));
+    parser.nextTag();
+    for (int i = 0; i < 2000; i++) {
+      assertEquals(XmlPullParser.START_TAG, parser.next());
+      // Read the values after the buffer may have moved on.
+      String text = parser.nextText();
+      assertEquals("text" + i, text);
+    }
+
+    parser.setInput(new OneCharReader(input));
+    parser.nextTag();
+    for (int i = 0; i < 2000; i++) {
+      parser.nextTag();
+      assertEquals(String.valueOf(i), parser.getAttributeValue(null, "id"));
+      assertEquals("item" + i, parser.getAttributeValue(1));
+      assertEquals("text" + i, parser.nextText());
+    }
+  }
+
+  public void testBufferSizeProperty() throws Exception {
+    KXmlParser parser = new KXmlParser();
+    assertEquals(8192, parser.getProperty(KXmlParser.PROPERTY_BUFFER_SIZE));
+    parser.setProperty(KXmlParser.PROPERTY_BUFFER_SIZE, 65536);
+    assertEquals(65536, parser.getProperty(KXmlParser.PROPERTY_BUFFER_SIZE));
+    parser.setInput(new StringReader("<a b='c'>d</a>"));
+    parser.next();
+    assertEquals("c", parser.getAttributeValue(0));
+    assertEquals("d", parser.nextText());
+    try {
+      parser.setProperty(KXmlParser.PROPERTY_BUFFER_SIZE, 10);
+      fail();
+    } catch (XmlPullParserException expected) {
+    }
+    try {
+      parser.setProperty(KXmlParser.PROPERTY_BUFFER_SIZE, "65536");
+      fail();
+    } catch (XmlPullParserException expected) {
+    }
+  }
+
+  private static KXmlParser parser(String xml) throws XmlPullParserException {
+    KXmlParser parser = new KXmlParser();
+    parser.setInput(new StringReader(xml));
+    return parser;
+  }
+
+  /** Returns input one character at a time, to exercise buffer refills. */
+  private static class OneCharReader extends Reader {
+    private final String input;
+    private int pos;
+
+    OneCharReader(String input) {
+      this.input = input;
+    }
+
+    @Override public int read(char[] buffer, int offset, int count) {
+      if (pos == input.length()) {
+        return -1;
+      }
+      buffer[offset] = input.charAt(pos++);
+      return 1;
+    }
+
+    @Override public void close() {
+    }
+  }
+}
@@ -280,6 +280,7 @@ TEST_SOURCES := \
     android/icu/dev/test/timezone/TimeZoneOffsetLocalTest.java \
     android/icu/dev/test/timezone/TimeZoneRegressionTest.java \
     android/icu/dev/test/timezone/TimeZoneRuleTest.java \
+    android/icu/impl/ICUBinaryTest.java \
     com/google/j2objc/ArrayTest.java \
     com/google/j2objc/AssertTest.java \
     com/google/j2objc/ClassTest.java \
@@ -740,6 +741,7 @@ TEST_SOURCES := \
     libcore/javax/xml/validation/ValidatorHandlerTest.java \
     libcore/javax/xml/validation/ValidatorTest.java \
     libcore/javax/xml/xpath/XPathExceptionTest.java \
+    libcore/javax/xml/xpath/XPathExpressionCacheTest.java \
     libcore/javax/xml/xpath/XPathExpressionExceptionTest.java \
     libcore/javax/xml/xpath/XPathFactoryConfigurationExceptionTest.java \
     libcore/javax/xml/xpath/XPathFactoryTest.java \
@@ -1233,6 +1235,7 @@ TEST_SOURCES := \
     org/apache/harmony/tests/org/xml/sax/helpers/XMLFilterImplTest.java \
     org/apache/harmony/tests/org/xml/sax/helpers/XMLReaderAdapterTest.java \
     org/apache/harmony/tests/org/xml/sax/helpers/XMLReaderFactoryTest.java \
+    org/kxml2/io/KXmlParserTest.java \
     org/xmlpull/v1/XmlPullParserFactoryTest.java \
     sun/misc/UnsafeTest.java \
     tck/java/time/format/TCKZoneIdPrinterParser.java \
@@ -1479,6 +1482,7 @@ COPIED_ARC_TEST_SOURCES = \
 JSON_TEST_SOURCES = \
     libcore/org/json/JSONArrayTest.java \
     libcore/org/json/JSONObjectTest.java \
+    libcore/org/json/JSONPullParserTest.java \
     libcore/org/json/JSONStringerTest.java \
     libcore/org/json/JSONTokenerTest.java \
     libcore/org/json/ParsingTest.java \
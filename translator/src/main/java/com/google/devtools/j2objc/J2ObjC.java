@@ -79,7 +79,16 @@ public class J2ObjC {
   }
 
   private static CodeReferenceMap loadDeadCodeMap(Options options) {
-    return ProGuardUsageParser.parseDeadCodeFile(options.getProGuardUsageFile());
+    List<CodeReferenceMap> maps = Lists.newArrayList();
+    CodeReferenceMap textReports =
+        ProGuardUsageParser.parseDeadCodeFile(options.getProGuardUsageFile());
+    if (textReports != null) {
+      maps.add(textReports);
+    }
+    for (File report : options.getBinaryDeadCodeReports()) {
+      maps.add(ProGuardUsageParser.parseDeadCodeFile(report));
+    }
+    return maps.isEmpty() ? null : CodeReferenceMap.union(maps);
   }
 
   /**
@@ -88,7 +97,6 @@ public class J2ObjC {
    */
   public static void run(List<String> fileArgs, Options options) {
     File preProcessorTempDir = null;
-    File strippedSourcesDir = null;
     Parser parser = null;
     try {
       List<ProcessingContext> inputs = Lists.newArrayList();
@@ -116,14 +124,14 @@ public class J2ObjC {
       if (ErrorUtil.errorCount() > 0) {
         return;
       }
-      strippedSourcesDir = inputFilePreprocessor.getStrippedSourcesDir();
-      if (strippedSourcesDir != null) {
-        parser.prependSourcepathEntry(strippedSourcesDir.getPath());
-      }
 
       options.getHeaderMap().loadMappings();
-      TranslationProcessor translationProcessor =
-          new TranslationProcessor(parser, loadDeadCodeMap(options));
+      CodeReferenceMap deadCodeMap = loadDeadCodeMap(options);
+      if (!options.dumpAST()) {
+        // Dumped ASTs include dead code, since they're dumped before it's eliminated.
+        parser.setDeadCodeMap(deadCodeMap);
+      }
+      TranslationProcessor translationProcessor = new TranslationProcessor(parser, deadCodeMap);
       translationProcessor.processInputs(inputs);
       if (ErrorUtil.errorCount() > 0) {
         return;
@@ -144,7 +152,6 @@ public class J2ObjC {
         FileUtil.deleteTempDir(new File(dir));
       }
       FileUtil.deleteTempDir(preProcessorTempDir);
-      FileUtil.deleteTempDir(strippedSourcesDir);
     }
   }
 
@@ -26,6 +26,10 @@ import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import com.google.devtools.j2objc.gen.GenerationUnit;
+import com.google.devtools.j2objc.gen.OutputFileWriter;
+import com.google.devtools.j2objc.util.ClasspathNameMemo;
+import com.google.devtools.j2objc.util.CodeReferenceMap;
+import com.google.devtools.j2objc.util.CodeReferenceMapFile;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.ExternalAnnotations;
 import com.google.devtools.j2objc.util.FileUtil;
@@ -34,7 +38,9 @@ import com.google.devtools.j2objc.util.Mappings;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.PackageInfoLookup;
 import com.google.devtools.j2objc.util.PackagePrefixes;
+import com.google.devtools.j2objc.util.ProGuardUsageParser;
 import com.google.devtools.j2objc.util.SourceVersion;
+import com.google.devtools.j2objc.util.TranslationStatistics;
 import com.google.devtools.j2objc.util.Version;
 import java.io.File;
 import java.io.FileFilter;
@@ -85,10 +91,14 @@ public class Options {
           MetadataSupport.FULL, MetadataSupport.ENUM_CONSTANTS, MetadataSupport.NAME_MAPPING);
   private boolean emitWrapperMethods = true;
   private boolean extractUnsequencedModifications = true;
+  private boolean escapeAnalysis = false;
+  private boolean hoistLoopInvariants = false;
+  private boolean lightweightMonitors = false;
   private boolean docCommentsEnabled = false;
   private boolean staticAccessorMethods = false;
   private boolean classProperties = false;
   private String processors = null;
+  private boolean singlePassProcessing = false;
   private boolean disallowInheritedConstructors = true;
   private boolean nullability = false;
   private boolean swiftEnums = true;
@@ -115,17 +125,25 @@ public class Options {
   private boolean linkProtocols = false;
   private boolean addTextSegmentAttribute = false;
   private boolean suppressHeaderClangTidyWarnings = false;
+  private int batchTranslateMax = 0;
+  private long batchHeapBudget = 0;
+  private int stackArrayMaxBytes = 0;
 
   private Mappings mappings = new Mappings();
   private FileUtil fileUtil = new FileUtil();
   private PackageInfoLookup packageInfoLookup = new PackageInfoLookup(fileUtil);
   private PackagePrefixes packagePrefixes = new PackagePrefixes(packageInfoLookup);
   private final ExternalAnnotations externalAnnotations = new ExternalAnnotations();
+  private final TranslationStatistics statistics = new TranslationStatistics();
+  private final ClasspathNameMemo classpathNameMemo = new ClasspathNameMemo(statistics);
+  private final OutputFileWriter outputFileWriter = new OutputFileWriter(statistics);
   private final List<String> entryClasses = new ArrayList<>();
 
   private SourceVersion sourceVersion = null;
 
   private File proGuardUsageFile = null;
+  private final List<File> binaryDeadCodeReports = new ArrayList<>();
+  private CodeReferenceMap monomorphicMethods = null;
 
   private static final String FILE_HEADER;
   private static final String FILE_HEADER_KEY = "file-header";
@@ -157,6 +175,8 @@ public class Options {
     "-Xforce-incomplete-java8"
   );
   private static final String BATCH_PROCESSING_MAX_FLAG = "--batch-translate-max=";
+  private static final String BATCH_HEAP_BUDGET_FLAG = "-Xbatch-heap-budget=";
+  private static final String STACK_ARRAY_MAX_BYTES_FLAG = "-Xstack-array-max-bytes=";
 
   /**
    * Types of memory management to be used by translated code.
@@ -368,6 +388,19 @@ public class Options {
       return args.next();
     }
 
+    private int parsePositiveInt(String value, String arg) {
+      try {
+        int result = Integer.parseInt(value);
+        if (result > 0) {
+          return result;
+        }
+      } catch (NumberFormatException e) {
+        // Fall-through.
+      }
+      usage("invalid " + arg.substring(0, arg.indexOf('=')) + " argument: " + value);
+      return 0;
+    }
+
     private void processArg(Iterator<String> args) throws IOException {
       String arg = args.next();
       if (arg.isEmpty()) {
@@ -391,6 +424,9 @@ public class Options {
         headerMap.setOutputMappingFile(new File(getArgValue(args, arg)));
       } else if (arg.equals("--dead-code-report")) {
         addDeadCodeReport(getArgValue(args, arg));
+      } else if (arg.equals("--monomorphic-methods")) {
+        monomorphicMethods =
+            ProGuardUsageParser.parseDeadCodeFile(new File(getArgValue(args, arg)));
       } else if (arg.equals("--prefix")) {
         addPrefixOption(getArgValue(args, arg));
       } else if (arg.equals("--prefixes")) {
@@ -597,6 +633,14 @@ public class Options {
         lintArgument = arg;
       } else if (arg.equals("-Xtranslate-bootclasspath")) {
         translateBootclasspath = true;
+      } else if (arg.equals("-Xescape-analysis")) {
+        escapeAnalysis = true;
+      } else if (arg.equals("-Xhoist-loop-invariants")) {
+        hoistLoopInvariants = true;
+      } else if (arg.equals("-Xsingle-pass-processing")) {
+        singlePassProcessing = true;
+      } else if (arg.equals("-Xlightweight-monitors")) {
+        lightweightMonitors = true;
       } else if (arg.equals("-Xdump-ast")) {
         dumpAST = true;
       } else if (arg.equals("-Xtranslate-classfiles")) {
@@ -646,7 +690,15 @@ public class Options {
       } else if (arg.equals("--enable-preview")) {
         addPlatformModuleSystemOptions(arg);
       } else if (arg.startsWith(BATCH_PROCESSING_MAX_FLAG)) {
-        // Ignore, batch processing isn't used with javac front-end.
+        batchTranslateMax =
+            parsePositiveInt(arg.substring(BATCH_PROCESSING_MAX_FLAG.length()), arg);
+      } else if (arg.startsWith(BATCH_HEAP_BUDGET_FLAG)) {
+        // The budget is specified in megabytes.
+        batchHeapBudget =
+            parsePositiveInt(arg.substring(BATCH_HEAP_BUDGET_FLAG.length()), arg) * 1024L * 1024L;
+      } else if (arg.startsWith(STACK_ARRAY_MAX_BYTES_FLAG)) {
+        stackArrayMaxBytes =
+            parsePositiveInt(arg.substring(STACK_ARRAY_MAX_BYTES_FLAG.length()), arg);
       } else if (obsoleteFlags.contains(arg)) {
         // also ignore
       } else if (arg.startsWith("-")) {
@@ -977,6 +1029,18 @@ public class Options {
     return headerMap;
   }
 
+  public TranslationStatistics statistics() {
+    return statistics;
+  }
+
+  public ClasspathNameMemo classpathNameMemo() {
+    return classpathNameMemo;
+  }
+
+  public OutputFileWriter outputFileWriter() {
+    return outputFileWriter;
+  }
+
   public static String getUsageMessage() {
     return USAGE_MESSAGE;
   }
@@ -998,18 +1062,41 @@ public class Options {
   }
 
   /**
-   * Appends a dead code report to the proGuardUsageFile. If that file
-   * doesn't exist, it's created first.
+   * Adds a dead code report. A binary report is kept by path, so that it is
+   * memory-mapped when it's loaded. A text report is appended to the
+   * proGuardUsageFile; if that file doesn't exist, it's created first.
    */
   public void addDeadCodeReport(String path) throws IOException {
+    File f = new File(path);
+    if (CodeReferenceMapFile.isBinary(f)) {
+      binaryDeadCodeReports.add(f);
+      return;
+    }
     if (proGuardUsageFile == null) {
       proGuardUsageFile = File.createTempFile("dead_code_report", "cfg");
     }
-    File f = new File(path);
     String newReport = Files.asCharSource(f, UTF_8).read();
     Files.asCharSink(proGuardUsageFile, UTF_8, APPEND).write(newReport);
   }
 
+  /** Returns the binary dead code reports, in the order they were added. */
+  public List<File> getBinaryDeadCodeReports() {
+    return binaryDeadCodeReports;
+  }
+
+  /**
+   * Returns the methods that a whole-program class hierarchy analysis found
+   * to have a single implementation, or null if no such report was specified.
+   */
+  public CodeReferenceMap monomorphicMethods() {
+    return monomorphicMethods;
+  }
+
+  @VisibleForTesting
+  public void setMonomorphicMethods(CodeReferenceMap methods) {
+    monomorphicMethods = methods;
+  }
+
   public List<String> getBootClasspath() {
     return getPathArgument(bootclasspath, false, false);
   }
@@ -1134,6 +1221,46 @@ public class Options {
     extractUnsequencedModifications = true;
   }
 
+  public boolean escapeAnalysis() {
+    return escapeAnalysis;
+  }
+
+  @VisibleForTesting
+  public void setEscapeAnalysis(boolean b) {
+    escapeAnalysis = b;
+  }
+
+  public boolean hoistLoopInvariants() {
+    return hoistLoopInvariants;
+  }
+
+  @VisibleForTesting
+  public void setHoistLoopInvariants(boolean b) {
+    hoistLoopInvariants = b;
+  }
+
+  /**
+   * Returns the size, in bytes, of the largest local primitive array that is
+   * allocated on the stack, or 0 if none are.
+   */
+  public int stackArrayMaxBytes() {
+    return stackArrayMaxBytes;
+  }
+
+  @VisibleForTesting
+  public void setStackArrayMaxBytes(int maxBytes) {
+    stackArrayMaxBytes = maxBytes;
+  }
+
+  public boolean lightweightMonitors() {
+    return lightweightMonitors;
+  }
+
+  @VisibleForTesting
+  public void setLightweightMonitors(boolean b) {
+    lightweightMonitors = b;
+  }
+
 
   public SourceVersion getSourceVersion(){
     return sourceVersion;
@@ -1173,6 +1300,15 @@ public class Options {
     this.processors = processors;
   }
 
+  public boolean singlePassProcessing() {
+    return singlePassProcessing;
+  }
+
+  @VisibleForTesting
+  public void setSinglePassProcessing(boolean b) {
+    singlePassProcessing = b;
+  }
+
   public boolean disallowInheritedConstructors() {
     return disallowInheritedConstructors;
   }
@@ -1233,6 +1369,32 @@ public class Options {
     return timingLevel;
   }
 
+  /**
+   * Returns the maximum number of source files parsed together by javac, or
+   * 0 if the number isn't limited. Only used with a batch heap budget.
+   */
+  public int batchTranslateMax() {
+    return batchTranslateMax;
+  }
+
+  @VisibleForTesting
+  public void setBatchTranslateMax(int max) {
+    batchTranslateMax = max;
+  }
+
+  /**
+   * Returns the estimated heap, in bytes, that one javac batch may use, or 0
+   * if batches aren't limited by size.
+   */
+  public long batchHeapBudget() {
+    return batchHeapBudget;
+  }
+
+  @VisibleForTesting
+  public void setBatchHeapBudget(long budget) {
+    batchHeapBudget = budget;
+  }
+
   public boolean dumpAST() {
     return dumpAST;
   }
@@ -24,6 +24,8 @@ public class ArrayAccess extends Expression {
 
   private final ChildLink<Expression> array = ChildLink.create(Expression.class, this);
   private final ChildLink<Expression> index = ChildLink.create(Expression.class, this);
+  // True if the array is a C array that ArrayRewriter allocated on the stack.
+  private boolean isStackArrayAccess = false;
 
   public ArrayAccess() {}
 
@@ -31,6 +33,7 @@ public class ArrayAccess extends Expression {
     super(other);
     array.copyFrom(other.getArray());
     index.copyFrom(other.getIndex());
+    isStackArrayAccess = other.isStackArrayAccess();
   }
 
   @Override
@@ -63,6 +66,15 @@ public class ArrayAccess extends Expression {
     return this;
   }
 
+  public boolean isStackArrayAccess() {
+    return isStackArrayAccess;
+  }
+
+  public ArrayAccess setIsStackArrayAccess(boolean value) {
+    isStackArrayAccess = value;
+    return this;
+  }
+
   @Override
   protected void acceptInner(TreeVisitor visitor) {
     if (visitor.visit(this)) {
@@ -16,12 +16,9 @@
 
 package com.google.devtools.j2objc.gen;
 
-import com.google.common.io.Files;
 import com.google.devtools.j2objc.types.Import;
 import com.google.devtools.j2objc.util.ErrorUtil;
-import com.google.devtools.j2objc.util.UnicodeUtils;
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -91,23 +88,8 @@ public abstract class ObjectiveCSourceFileGenerator extends AbstractSourceGenera
 
   protected void save(String path, File outputDirectory) {
     try {
-      File outputFile = new File(outputDirectory, path);
-      File dir = outputFile.getParentFile();
-      if (dir != null && !dir.exists()) {
-        if (!dir.mkdirs()) {
-          ErrorUtil.warning("cannot create output directory: " + outputDirectory);
-        }
-      }
-      String source = getBuilder().toString();
-
-      // Make sure file ends with a new-line.
-      if (!source.endsWith("\n")) {
-        source += '\n';
-      }
-
-      Files.asCharSink(outputFile, unit.options().fileUtil().getCharset()).write(source);
-    } catch (IOException e) {
-      ErrorUtil.error(e.getMessage());
+      unit.options().outputFileWriter().write(new File(outputDirectory, path),
+          getBuilder().toString(), unit.options().fileUtil().getCharset());
     } finally {
       reset();
     }
@@ -151,18 +133,18 @@ public abstract class ObjectiveCSourceFileGenerator extends AbstractSourceGenera
       if (imp.getForwardDeclaration().isEmpty()) {
         return "";
       } else {
-        return UnicodeUtils.format("%s;", imp.getForwardDeclaration());
+        return SourceBuilder.format("%s;", imp.getForwardDeclaration());
       }
     } else if (imp.isInterface()) {
       // Obj-C protocols do not support parameters.
-      return UnicodeUtils.format("@protocol %s;", imp.getTypeName());
+      return SourceBuilder.format("@protocol %s;", imp.getTypeName());
     } else {
       String params = "";
       if ((unit.options().asObjCGenericDecl() || imp.hasGenerateObjectiveCGenerics())
           && !imp.getParameterNamesForObjectiveCGenerics().isEmpty()) {
         params = "<" + String.join(", ", imp.getParameterNamesForObjectiveCGenerics()) + ">";
       }
-      return UnicodeUtils.format("@class %s%s;", imp.getTypeName(), params);
+      return SourceBuilder.format("@class %s%s;", imp.getTypeName(), params);
     }
   }
 
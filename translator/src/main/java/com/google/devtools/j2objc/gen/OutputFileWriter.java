@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.gen;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.devtools.j2objc.Options.TimingLevel;
+import com.google.devtools.j2objc.util.ErrorUtil;
+import com.google.devtools.j2objc.util.TranslationStatistics;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Writes generated files. Between {@link #start} and {@link #finish}, files
+ * are encoded and written by a pool of threads while the next units are
+ * generated, with at most {@link #MAX_PENDING_FILES} files waiting to be
+ * written; otherwise they're written as they're saved. Write errors are
+ * reported through ErrorUtil, on the thread that saved the file or that
+ * finishes the writer.
+ */
+public class OutputFileWriter {
+
+  private static final Logger logger = Logger.getLogger(OutputFileWriter.class.getName());
+
+  /** The most generated files that are held in memory waiting to be written. */
+  private static final int MAX_PENDING_FILES = 64;
+
+  private final TranslationStatistics statistics;
+  private final Set<File> createdDirectories = ConcurrentHashMap.newKeySet();
+
+  private ExecutorService executor;
+  private Semaphore pendingFiles;
+  private final List<Future<WriteResult>> writes = new ArrayList<>();
+  private long startTime;
+
+  public OutputFileWriter(TranslationStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /** Starts writing files in the background. */
+  public void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("output-writer-%d").setDaemon(true).build());
+    pendingFiles = new Semaphore(MAX_PENDING_FILES);
+    startTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Writes a file, adding a trailing newline if the source doesn't have one.
+   * If the writer was started, this returns once the file is queued, which
+   * blocks while the queue is full.
+   */
+  public void write(File outputFile, String source, Charset charset) {
+    if (executor == null) {
+      report(writeFile(outputFile, source, charset));
+      return;
+    }
+    if (!pendingFiles.tryAcquire()) {
+      statistics.increment("OutputFileWriter: queue stalls");
+      pendingFiles.acquireUninterruptibly();
+    }
+    writes.add(executor.submit(() -> {
+      try {
+        return writeFile(outputFile, source, charset);
+      } finally {
+        pendingFiles.release();
+      }
+    }));
+  }
+
+  /**
+   * Waits for the queued files to be written, reports any errors in the order
+   * the files were saved and stops the writer's threads.
+   */
+  public void finish(TimingLevel timingLevel) {
+    if (executor == null) {
+      return;
+    }
+    long bytes = 0;
+    try {
+      for (Future<WriteResult> write : writes) {
+        try {
+          WriteResult result = write.get();
+          bytes += result.bytes;
+          report(result);
+        } catch (ExecutionException e) {
+          ErrorUtil.fatalError(e.getCause(), "output writer");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ErrorUtil.fatalError(e, "output writer");
+    } finally {
+      executor.shutdownNow();
+      executor = null;
+    }
+    long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+    String summary = String.format("Wrote %d files, %d KB in %d ms (%d KB/sec)",
+        writes.size(), bytes / 1024, elapsed, bytes * 1000 / 1024 / elapsed);
+    writes.clear();
+    logger.fine(summary);
+    if (timingLevel == TimingLevel.TOTAL || timingLevel == TimingLevel.ALL) {
+      System.out.println(summary);
+    }
+  }
+
+  private WriteResult writeFile(File outputFile, String source, Charset charset) {
+    WriteResult result = new WriteResult();
+    File dir = outputFile.getParentFile();
+    if (dir != null && !createdDirectories.contains(dir)) {
+      if (dir.exists() || dir.mkdirs() || dir.isDirectory()) {
+        createdDirectories.add(dir);
+      } else {
+        result.warning = "cannot create output directory: " + dir;
+      }
+    }
+
+    // Make sure file ends with a new-line.
+    if (!source.endsWith("\n")) {
+      source += '\n';
+    }
+    byte[] bytes = source.getBytes(charset);
+    try {
+      Files.write(bytes, outputFile);
+      result.bytes = bytes.length;
+      statistics.increment("OutputFileWriter: files written");
+      statistics.add("OutputFileWriter: bytes written", bytes.length);
+    } catch (IOException e) {
+      result.error = e.getMessage();
+    }
+    return result;
+  }
+
+  private static void report(WriteResult result) {
+    if (result.warning != null) {
+      ErrorUtil.warning(result.warning);
+    }
+    if (result.error != null) {
+      ErrorUtil.error(result.error);
+    }
+  }
+
+  private static class WriteResult {
+    private long bytes;
+    private String warning;
+    private String error;
+  }
+}
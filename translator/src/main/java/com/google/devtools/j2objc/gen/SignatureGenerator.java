@@ -14,6 +14,7 @@
 
 package com.google.devtools.j2objc.gen;
 
+import com.google.devtools.j2objc.util.ClasspathNameMemo;
 import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
 import com.google.devtools.j2objc.util.UnicodeUtils;
@@ -48,10 +49,12 @@ public class SignatureGenerator {
 
   private final ElementUtil elementUtil;
   private final TypeUtil typeUtil;
+  private final ClasspathNameMemo memo;
 
-  public SignatureGenerator(TypeUtil typeUtil) {
+  public SignatureGenerator(TypeUtil typeUtil, ClasspathNameMemo memo) {
     elementUtil = typeUtil.elementUtil();
     this.typeUtil = typeUtil;
+    this.memo = memo;
   }
 
   /**
@@ -71,6 +74,11 @@ public class SignatureGenerator {
    * @return the signature if class is generic, else null.
    */
   public String createClassSignature(TypeElement type) {
+    return memo.get(ClasspathNameMemo.Kind.CLASS_SIGNATURE, type,
+        () -> createClassSignatureInner(type));
+  }
+
+  private String createClassSignatureInner(TypeElement type) {
     if (!hasGenericSignature(type)) {
       return null;
     }
@@ -85,6 +93,11 @@ public class SignatureGenerator {
    * @return the signature if field type is a type variable, else null.
    */
   public String createFieldTypeSignature(VariableElement variable) {
+    return memo.get(ClasspathNameMemo.Kind.FIELD_SIGNATURE, variable,
+        () -> createFieldTypeSignatureInner(variable));
+  }
+
+  private String createFieldTypeSignatureInner(VariableElement variable) {
     if (!hasGenericSignature(variable.asType())) {
       return null;
     }
@@ -99,6 +112,11 @@ public class SignatureGenerator {
    * @return the signature if method is generic or use type variables, else null.
    */
   public String createMethodTypeSignature(ExecutableElement method) {
+    return memo.get(ClasspathNameMemo.Kind.METHOD_SIGNATURE, method, typeUtil,
+        () -> createMethodTypeSignatureInner(method));
+  }
+
+  private String createMethodTypeSignatureInner(ExecutableElement method) {
     if (!hasGenericSignature(method)) {
       return null;
     }
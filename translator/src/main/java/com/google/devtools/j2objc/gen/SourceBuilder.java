@@ -22,6 +22,13 @@ import com.google.devtools.j2objc.ast.TreeNode;
 import com.google.devtools.j2objc.util.UnicodeUtils;
 import java.io.IOException;
 import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IllegalFormatConversionException;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Builds source text.  This is similar to a StringBuilder, but tracks line
@@ -96,8 +103,28 @@ public class SourceBuilder {
     buffer.append(i);
   }
 
+  /**
+   * Formats the arguments like {@link UnicodeUtils#format}, using a cached
+   * {@link Template} for the format string.
+   */
   public void printf(String format, Object... args) {
-    print(UnicodeUtils.format(format, args));
+    int start = buffer.length();
+    Template.of(format).appendTo(buffer, args);
+    for (int i = start; i < buffer.length(); i++) {
+      if (buffer.charAt(i) == '\n') {
+        currentLine++;
+      }
+    }
+  }
+
+  /**
+   * Formats the arguments like {@link UnicodeUtils#format}, but using a
+   * cached {@link Template} for the format string.
+   */
+  public static String format(String format, Object... args) {
+    StringBuilder sb = new StringBuilder(format.length() + 16 * args.length);
+    Template.of(format).appendTo(sb, args);
+    return sb.toString();
   }
 
   public void println(String s) {
@@ -186,7 +213,7 @@ public class SourceBuilder {
     if (emitLineDirectives) {
       int sourceLine = node.getLineNumber();
       if (sourceLine > 0 && currentLine != sourceLine) {
-        buffer.append(UnicodeUtils.format("\n#line %d\n", sourceLine));
+        buffer.append("\n#line ").append(sourceLine).append('\n');
         currentLine = sourceLine;
       }
     }
@@ -201,7 +228,7 @@ public class SourceBuilder {
       if (!fileName.equals(currentFile)) {
         currentLine = BEGINNING_OF_FILE;
         // C11 spec. (6.10.4) requires a line number between 1 and 2147483647.
-        buffer.append(UnicodeUtils.format("\n#line 1 \"%s\"\n", fileName));
+        buffer.append("\n#line 1 \"").append(fileName).append("\"\n");
       }
     }
     currentFile = fileName;
@@ -256,4 +283,130 @@ public class SourceBuilder {
   public int getCurrentLine() {
     return currentLine;
   }
+
+  /**
+   * A format string that is parsed once into its literal text and argument
+   * slots, so emitting it only appends strings. The %s, %d, %c, %n and %%
+   * conversions without flags, width or precision are supported, and give
+   * the same output as {@link UnicodeUtils#format}; any other format string
+   * falls back to it.
+   */
+  static final class Template {
+
+    // Format strings passed to printf() are almost always constants, but
+    // bound the cache in case one isn't.
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    private static final Map<String, Template> cache = new ConcurrentHashMap<>();
+
+    private final String format;
+    // The text before each argument, followed by the text after the last
+    // one; null if the format string isn't supported.
+    private final String[] literals;
+    private final char[] conversions;
+
+    private Template(String format, String[] literals, char[] conversions) {
+      this.format = format;
+      this.literals = literals;
+      this.conversions = conversions;
+    }
+
+    /**
+     * Returns the template for a format string, compiling it if it hasn't
+     * been used before.
+     */
+    static Template of(String format) {
+      Template template = cache.get(format);
+      if (template == null) {
+        template = compile(format);
+        if (cache.size() < MAX_CACHED_TEMPLATES) {
+          cache.putIfAbsent(format, template);
+        }
+      }
+      return template;
+    }
+
+    static Template compile(String format) {
+      List<String> literals = new ArrayList<>();
+      StringBuilder conversions = new StringBuilder();
+      StringBuilder literal = new StringBuilder();
+      int length = format.length();
+      for (int i = 0; i < length; i++) {
+        char c = format.charAt(i);
+        if (c != '%') {
+          literal.append(c);
+          continue;
+        }
+        char conversion = ++i < length ? format.charAt(i) : 0;
+        switch (conversion) {
+          case '%':
+            literal.append('%');
+            break;
+          case 'n':
+            literal.append(System.lineSeparator());
+            break;
+          case 's':
+          case 'd':
+          case 'c':
+            literals.add(literal.toString());
+            literal.setLength(0);
+            conversions.append(conversion);
+            break;
+          default:
+            return new Template(format, null, null);
+        }
+      }
+      literals.add(literal.toString());
+      return new Template(
+          format, literals.toArray(new String[0]), conversions.toString().toCharArray());
+    }
+
+    String format(Object... args) {
+      StringBuilder sb = new StringBuilder(format.length() + 16 * args.length);
+      appendTo(sb, args);
+      return sb.toString();
+    }
+
+    void appendTo(StringBuilder sb, Object[] args) {
+      if (literals == null) {
+        sb.append(UnicodeUtils.format(format, args));
+        return;
+      }
+      if (args.length < conversions.length) {
+        throw new MissingFormatArgumentException("%" + conversions[args.length]);
+      }
+      for (int i = 0; i < conversions.length; i++) {
+        sb.append(literals[i]);
+        Object arg = args[i];
+        switch (conversions[i]) {
+          case 's':
+            sb.append(arg);
+            break;
+          case 'd':
+            if (arg != null && !(arg instanceof Integer || arg instanceof Long
+                || arg instanceof Short || arg instanceof Byte || arg instanceof BigInteger)) {
+              throw new IllegalFormatConversionException('d', arg.getClass());
+            }
+            sb.append(arg);
+            break;
+          case 'c':
+            if (arg instanceof Integer) {
+              sb.appendCodePoint((Integer) arg);
+            } else if (arg == null || arg instanceof Character) {
+              sb.append(arg);
+            } else {
+              throw new IllegalFormatConversionException('c', arg.getClass());
+            }
+            break;
+          default:
+            throw new AssertionError(conversions[i]);
+        }
+      }
+      sb.append(literals[conversions.length]);
+    }
+
+    @Override
+    public String toString() {
+      return format;
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.devtools.j2objc.gen;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableSet;
 import com.google.devtools.j2objc.ast.ArrayAccess;
 import com.google.devtools.j2objc.ast.ArrayCreation;
 import com.google.devtools.j2objc.ast.ArrayInitializer;
@@ -117,6 +118,16 @@ import javax.lang.model.type.TypeMirror;
 public class StatementGenerator extends UnitTreeVisitor {
 
   private final SourceBuilder buffer;
+  private int monitorCount = 0;
+
+  /** Runtime functions that can't throw, so don't need a try block when holding a monitor. */
+  private static final ImmutableSet<String> NON_THROWING_FUNCTIONS = ImmutableSet.of(
+      "JreAssignVolatileBoolean", "JreAssignVolatileChar", "JreAssignVolatileDouble",
+      "JreAssignVolatileFloat", "JreAssignVolatileInt", "JreAssignVolatileLong",
+      "JreAssignVolatileShort", "JreAssignVolatileByte", "JreLoadVolatileBoolean",
+      "JreLoadVolatileChar", "JreLoadVolatileDouble", "JreLoadVolatileFloat",
+      "JreLoadVolatileInt", "JreLoadVolatileLong", "JreLoadVolatileShort", "JreLoadVolatileByte",
+      "JreObjectEqualsEquals", "JreStrongAssign", "JreStrongAssignAndConsume");
 
   public static String generate(TreeNode node, int currentLine) {
     StatementGenerator generator = new StatementGenerator(node, currentLine);
@@ -164,7 +175,15 @@ public class StatementGenerator extends UnitTreeVisitor {
 
   @Override
   public boolean visit(ArrayAccess node) {
-    throw new AssertionError("ArrayAccess nodes are rewritten by ArrayRewriter.");
+    if (!node.isStackArrayAccess()) {
+      throw new AssertionError("ArrayAccess nodes are rewritten by ArrayRewriter.");
+    }
+    // Arrays allocated on the stack are C arrays.
+    node.getArray().accept(this);
+    buffer.append('[');
+    node.getIndex().accept(this);
+    buffer.append(']');
+    return false;
   }
 
   @Override
@@ -176,7 +195,7 @@ public class StatementGenerator extends UnitTreeVisitor {
   public boolean visit(ArrayInitializer node) {
     javax.lang.model.type.ArrayType type = (javax.lang.model.type.ArrayType) node.getTypeMirror();
     TypeMirror componentType = type.getComponentType();
-    buffer.append(UnicodeUtils.format("(%s[]){ ", NameTable.getPrimitiveObjCType(componentType)));
+    buffer.append(SourceBuilder.format("(%s[]){ ", NameTable.getPrimitiveObjCType(componentType)));
     for (Iterator<Expression> it = node.getExpressions().iterator(); it.hasNext(); ) {
       it.next().accept(this);
       if (it.hasNext()) {
@@ -489,7 +508,7 @@ public class StatementGenerator extends UnitTreeVisitor {
     TypeElement type = TypeUtil.asTypeElement(node.getRightOperand().getTypeMirror());
     if (type != null && type.getKind().isInterface()) {
       // Our version of "isInstance" is faster than "conformsToProtocol".
-      buffer.append(UnicodeUtils.format("[%s_class_() isInstance:", nameTable.getFullName(type)));
+      buffer.append(SourceBuilder.format("[%s_class_() isInstance:", nameTable.getFullName(type)));
       node.getLeftOperand().accept(this);
       buffer.append(']');
     } else {
@@ -770,6 +789,10 @@ public class StatementGenerator extends UnitTreeVisitor {
 
   @Override
   public boolean visit(SynchronizedStatement node) {
+    if (options.lightweightMonitors()) {
+      printMonitorStatement(node);
+      return false;
+    }
     buffer.append("@synchronized(");
     node.getExpression().accept(this);
     buffer.append(") ");
@@ -777,6 +800,110 @@ public class StatementGenerator extends UnitTreeVisitor {
     return false;
   }
 
+  /**
+   * Prints a synchronized statement as calls to the runtime's monitor functions
+   * instead of an @synchronized block. The body is only wrapped in a try/finally
+   * statement if it can throw or leave the block other than by a final return.
+   */
+  private void printMonitorStatement(SynchronizedStatement node) {
+    int id = ++monitorCount;
+    String lock = "self";
+    buffer.append("{\n");
+    if (!(node.getExpression() instanceof ThisExpression)) {
+      lock = "sync$" + id;
+      buffer.append("id ").append(lock).append(" = ");
+      node.getExpression().accept(this);
+      buffer.append(";\n");
+    }
+    buffer.append("JreMonitorEnter(").append(lock).append(");\n");
+
+    Block body = node.getBody();
+    List<Statement> stmts = body.getStatements();
+    ReturnStatement lastReturn = null;
+    if (!stmts.isEmpty() && stmts.get(stmts.size() - 1) instanceof ReturnStatement) {
+      lastReturn = (ReturnStatement) stmts.get(stmts.size() - 1);
+      stmts = stmts.subList(0, stmts.size() - 1);
+    }
+    Expression result = lastReturn != null ? lastReturn.getExpression() : null;
+    TypeMirror resultType = result != null ? TreeUtil.getOwningReturnType(lastReturn) : null;
+    if (body.hasAutoreleasePool() || canThrowOrExit(stmts)
+        || (result != null && (!resultType.getKind().isPrimitive() || canThrowOrExit(result)))) {
+      buffer.append("@try ");
+      body.accept(this);
+      buffer.append("@finally {\n");
+      buffer.append("JreMonitorExit(").append(lock).append(");\n");
+      buffer.append("}\n");
+    } else {
+      printStatements(stmts);
+      if (result != null) {
+        // Evaluate the result while holding the lock.
+        buffer.append(nameTable.getObjCType(resultType)).append(" syncResult$").append(id)
+            .append(" = ");
+        result.accept(this);
+        buffer.append(";\n");
+      }
+      buffer.append("JreMonitorExit(").append(lock).append(");\n");
+      if (result != null) {
+        buffer.append("return syncResult$").append(id).append(";\n");
+      } else if (lastReturn != null) {
+        buffer.append("return;\n");
+      }
+    }
+    buffer.append("}\n");
+  }
+
+  private static boolean canThrowOrExit(List<Statement> stmts) {
+    for (Statement stmt : stmts) {
+      if (canThrowOrExit(stmt)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true unless the node only contains simple statements and
+   * expressions that don't call into other code and can't throw, like local
+   * and field accesses, assignments, arithmetic without division, and
+   * branches.
+   */
+  private static boolean canThrowOrExit(TreeNode node) {
+    boolean[] result = new boolean[1];
+    node.accept(new TreeVisitor() {
+      @Override
+      public boolean preVisit(TreeNode node) {
+        switch (node.getKind()) {
+          case FUNCTION_INVOCATION:
+            if (NON_THROWING_FUNCTIONS.contains(
+                ((FunctionInvocation) node).getFunctionElement().getName())) {
+              return true;
+            }
+            // Fall through.
+          case ARRAY_ACCESS:
+          case ARRAY_CREATION:
+          case ASSERT_STATEMENT:
+          case BREAK_STATEMENT:
+          case CLASS_INSTANCE_CREATION:
+          case CONTINUE_STATEMENT:
+          case LAMBDA_EXPRESSION:
+          case METHOD_INVOCATION:
+          case NATIVE_EXPRESSION:
+          case NATIVE_STATEMENT:
+          case RETURN_STATEMENT:
+          case SUPER_METHOD_INVOCATION:
+          case SYNCHRONIZED_STATEMENT:
+          case THROW_STATEMENT:
+          case TRY_STATEMENT:
+            result[0] = true;
+            return false;
+          default:
+            return !result[0];
+        }
+      }
+    });
+    return result[0];
+  }
+
   @Override
   public boolean visit(ThisExpression node) {
     buffer.append("self");
@@ -849,7 +976,7 @@ public class StatementGenerator extends UnitTreeVisitor {
       }
       buffer.append(arrayDimensions).append(")");
     } else if (type.getKind().isPrimitive() || TypeUtil.isVoid(type)) {
-      buffer.append(UnicodeUtils.format("[IOSClass %sClass]", TypeUtil.getName(type)));
+      buffer.append(SourceBuilder.format("[IOSClass %sClass]", TypeUtil.getName(type)));
     } else {
       buffer.append(nameTable.getFullName(TypeUtil.asTypeElement(type))).append("_class_()");
     }
@@ -36,7 +36,6 @@ import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TranslationUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
-import com.google.devtools.j2objc.util.UnicodeUtils;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
 import java.util.Comparator;
@@ -205,7 +204,7 @@ public class TypeDeclarationGenerator extends TypeGenerator {
       for (EnumConstantDeclaration constant : constants) {
         String nativeConstantName = nameTable.getNativeEnumConstantName(typeElement, constant);
         String caseName = nameTable.getVariableBaseName(constant.getVariableElement());
-        String compatibilityConstantName = UnicodeUtils.format("%s_Enum_%s", typeName, caseName);
+        String compatibilityConstantName = SourceBuilder.format("%s_Enum_%s", typeName, caseName);
         if (!nativeConstantName.equals(compatibilityConstantName)) {
           printf("#define %s %s\n", compatibilityConstantName, nativeConstantName);
         }
@@ -517,7 +516,7 @@ public class TypeDeclarationGenerator extends TypeGenerator {
       String fieldName = nameTable.getVariableShortName(var);
       String isVolatile = ElementUtil.isVolatile(var) ? "_VOLATILE" : "";
       println(
-          UnicodeUtils.format(
+          SourceBuilder.format(
               "J2OBJC%s_FIELD_SETTER(%s, %s, %s)",
               isVolatile, typeName, fieldName, objcTypePadded));
     }
@@ -569,7 +568,7 @@ public class TypeDeclarationGenerator extends TypeGenerator {
       printf("#define %s_%s %s\n", typeName, name, LiteralGenerator.generate(value));
     } else {
       printStaticFieldDeclaration(
-          fragment, UnicodeUtils.format("%s%s_%s", declType, typeName, name));
+          fragment, SourceBuilder.format("%s%s_%s", declType, typeName, name));
     }
     printf(
         "J2OBJC_STATIC_FIELD%s(%s, %s, %s)\n", qualifiers, typeName, name, objcTypePadded.trim());
@@ -586,7 +585,7 @@ public class TypeDeclarationGenerator extends TypeGenerator {
       printf("#define %s_%s %s\n", typeName, name, LiteralGenerator.generate(value));
     } else {
       println("FOUNDATION_EXPORT "
-          + UnicodeUtils.format("%s%s_%s", declType, typeName, name) + ";");
+          + SourceBuilder.format("%s%s_%s", declType, typeName, name) + ";");
     }
   }
 
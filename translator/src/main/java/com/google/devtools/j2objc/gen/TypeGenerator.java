@@ -36,7 +36,6 @@ import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TranslationEnvironment;
 import com.google.devtools.j2objc.util.TypeUtil;
-import com.google.devtools.j2objc.util.UnicodeUtils;
 import com.google.j2objc.annotations.ObjectiveCName;
 import java.lang.reflect.Modifier;
 import java.util.Iterator;
@@ -345,7 +344,7 @@ public abstract class TypeGenerator extends AbstractSourceGenerator {
     String returnNullability =
         returnTypeNullability.isEmpty() ? methodReturnNullability : returnTypeNullability;
     sb.append(
-        UnicodeUtils.format(
+        SourceBuilder.format(
             "%c (%s%s%s)",
             prefix, returnType, returnNullability.isEmpty() ? "" : " ", returnNullability));
 
@@ -374,7 +373,7 @@ public abstract class TypeGenerator extends AbstractSourceGenerator {
                 typeElement);
         String varNullability = nullability(var);
         sb.append(
-            UnicodeUtils.format(
+            SourceBuilder.format(
                 "%s:(%s%s%s)%s",
                 selParts[i],
                 typeName,
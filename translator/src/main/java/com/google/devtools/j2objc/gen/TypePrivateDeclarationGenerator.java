@@ -21,7 +21,6 @@ import com.google.devtools.j2objc.ast.Expression;
 import com.google.devtools.j2objc.ast.FunctionDeclaration;
 import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
 import com.google.devtools.j2objc.util.ElementUtil;
-import com.google.devtools.j2objc.util.UnicodeUtils;
 import java.lang.reflect.Modifier;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.VariableElement;
@@ -111,7 +110,7 @@ public class TypePrivateDeclarationGenerator extends TypeDeclarationGenerator {
     if (ElementUtil.isPrimitiveConstant(var)) {
       printf("#define %s_%s %s\n", typeName, name, LiteralGenerator.generate(value));
     } else {
-      print("static " + UnicodeUtils.format("%s%s_%s", declType, typeName, name));
+      print("static " + SourceBuilder.format("%s%s_%s", declType, typeName, name));
       Expression initializer = fragment.getInitializer();
       if (initializer != null) {
         print(" = " + generateExpression(initializer));
@@ -15,6 +15,7 @@
 package com.google.devtools.j2objc.javac;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.devtools.j2objc.Options;
 import com.google.devtools.j2objc.ast.CompilationUnit;
 import com.google.devtools.j2objc.file.InputFile;
@@ -28,6 +29,8 @@ import com.google.devtools.j2objc.util.SourceVersion;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -40,6 +43,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.processing.Processor;
@@ -59,7 +66,18 @@ import javax.tools.ToolProvider;
  */
 public class JavacParser extends Parser {
 
+  // The file manager is shared by all compiler tasks, so the class, source and boot class
+  // paths are only indexed once per run. It's updated if the parser's paths change.
   private StandardJavaFileManager fileManager;
+  private List<String> fileManagerClasspath;
+  private List<String> fileManagerSourcepath;
+  private JavacSyntaxParser syntaxParser;
+  // Serves sources replaced in memory, such as stripped sources; null if there are none.
+  private MemorySourceFileManager memorySources;
+
+  // True if annotation processors run in the javac tasks that parse files for translation,
+  // rather than in a separate processAnnotations() pass.
+  private boolean processAnnotationsWhileParsing = false;
 
   public JavacParser(Options options) {
     super(options);
@@ -121,31 +139,67 @@ public class JavacParser extends Parser {
       CompilationUnitTree unit = it.next();
       task.analyze();
       processDiagnostics(parserEnv.diagnostics());
-      return TreeConverter.convertCompilationUnit(options, parserEnv, unit);
+      return TreeConverter.convertCompilationUnit(options, parserEnv, unit, deadCodeMap);
     } catch (IOException e) {
       ErrorUtil.fatalError(e, path);
     }
     return null;
   }
 
-  private StandardJavaFileManager getFileManager(JavaCompiler compiler,
-      DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
-    fileManager =
-        compiler.getStandardFileManager(diagnostics, null, options.fileUtil().getCharset());
-    addPaths(StandardLocation.CLASS_PATH, classpathEntries, fileManager);
-    addPaths(StandardLocation.SOURCE_PATH, sourcepathEntries, fileManager);
-    addPaths(StandardLocation.PLATFORM_CLASS_PATH, options.getBootClasspath(), fileManager);
-    List<String> processorPathEntries = options.getProcessorPathEntries();
-    if (!processorPathEntries.isEmpty()) {
-      addPaths(StandardLocation.ANNOTATION_PROCESSOR_PATH, processorPathEntries, fileManager);
-    }
-    fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
-        Lists.newArrayList(options.fileUtil().getOutputDirectory()));
-    fileManager.setLocation(StandardLocation.SOURCE_OUTPUT,
-        Lists.newArrayList(FileUtil.createTempDir("annotations")));
+  private synchronized StandardJavaFileManager getFileManager(JavaCompiler compiler)
+      throws IOException {
+    if (fileManager == null) {
+      fileManager = compiler.getStandardFileManager(
+          diagnostic -> ErrorUtil.parserDiagnostic(diagnostic), null,
+          options.fileUtil().getCharset());
+      addPaths(StandardLocation.PLATFORM_CLASS_PATH, options.getBootClasspath(), fileManager);
+      List<String> processorPathEntries = options.getProcessorPathEntries();
+      if (!processorPathEntries.isEmpty()) {
+        addPaths(StandardLocation.ANNOTATION_PROCESSOR_PATH, processorPathEntries, fileManager);
+      }
+      fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
+          Lists.newArrayList(options.fileUtil().getOutputDirectory()));
+      fileManager.setLocation(StandardLocation.SOURCE_OUTPUT,
+          Lists.newArrayList(FileUtil.createTempDir("annotations")));
+    }
+    if (!classpathEntries.equals(fileManagerClasspath)) {
+      addPaths(StandardLocation.CLASS_PATH, classpathEntries, fileManager);
+      fileManagerClasspath = new ArrayList<>(classpathEntries);
+    }
+    if (!sourcepathEntries.equals(fileManagerSourcepath)) {
+      addPaths(StandardLocation.SOURCE_PATH, sourcepathEntries, fileManager);
+      fileManagerSourcepath = new ArrayList<>(sourcepathEntries);
+    }
     return fileManager;
   }
 
+  private synchronized JavacSyntaxParser getSyntaxParser() throws IOException {
+    if (syntaxParser == null) {
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      syntaxParser = new JavacSyntaxParser(
+          compiler, getFileManager(compiler), getJavacOptions(false));
+    }
+    return syntaxParser;
+  }
+
+  private synchronized MemorySourceFileManager getMemorySources(boolean create)
+      throws IOException {
+    if (memorySources == null && create) {
+      memorySources =
+          new MemorySourceFileManager(getFileManager(ToolProvider.getSystemJavaCompiler()));
+    }
+    return memorySources;
+  }
+
+  @Override
+  public void replaceSource(String path, String mainTypeName, String source) {
+    try {
+      getMemorySources(true).addSource(new File(path), mainTypeName, source);
+    } catch (IOException e) {
+      ErrorUtil.fatalError(e, "javac file manager error");
+    }
+  }
+
   private void addPaths(Location location, List<String> paths, StandardJavaFileManager fileManager)
       throws IOException {
     List<File> filePaths = new ArrayList<>();
@@ -178,10 +232,10 @@ public class JavacParser extends Parser {
       javacOptions.add("-processor");
       javacOptions.add(explicitProcessors);
     }
-    if (processAnnotations) {
-      javacOptions.add("-proc:only");
-    } else {
+    if (!processAnnotations) {
       javacOptions.add("-proc:none");
+    } else if (!processAnnotationsWhileParsing) {
+      javacOptions.add("-proc:only");
     }
     // Disable javac warnings, as all sources j2objc transpiles are separately compiled by javac.
     if (options.javacWarnings()) {
@@ -198,18 +252,25 @@ public class JavacParser extends Parser {
       files.add(new File(path));
     }
     try {
-      JavacEnvironment env = createEnvironment(files, null, false);
+      JavacEnvironment env = createEnvironment(files, null, processAnnotationsWhileParsing);
       List<CompilationUnitTree> units = new ArrayList<>();
       for (CompilationUnitTree unit : env.task().parse()) {
         units.add(unit);
       }
+      if (processAnnotationsWhileParsing) {
+        // Sources generated by annotation processors are parsed during analysis, and
+        // are translated along with the input files.
+        File sourceOutputDirectory =
+            env.fileManager().getLocation(StandardLocation.SOURCE_OUTPUT).iterator().next();
+        env.task().addTaskListener(new GeneratedSourceCollector(sourceOutputDirectory, units));
+      }
       env.task().analyze();
       processDiagnostics(env.diagnostics());
 
       if (ErrorUtil.errorCount() == 0) {
         for (CompilationUnitTree ast : units) {
           com.google.devtools.j2objc.ast.CompilationUnit unit = TreeConverter
-              .convertCompilationUnit(options, env, ast);
+              .convertCompilationUnit(options, env, ast, deadCodeMap);
           processDiagnostics(env.diagnostics());
           handler.handleParsedUnit(unit.getSourceFilePath(), unit);
         }
@@ -261,15 +322,20 @@ public class JavacParser extends Parser {
       boolean processAnnotations) throws IOException {
     JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
     DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-    StandardJavaFileManager fileManager = getFileManager(compiler, diagnostics);
+    StandardJavaFileManager fileManager = getFileManager(compiler);
     List<String> javacOptions = getJavacOptions(processAnnotations);
     if (fileObjects == null) {
       fileObjects = new ArrayList<>();
     }
+    MemorySourceFileManager memoryFileManager = getMemorySources(false);
     for (JavaFileObject jfo : fileManager.getJavaFileObjectsFromFiles(files)) {
+      if (memoryFileManager != null) {
+        jfo = memoryFileManager.getSource(jfo);
+      }
       fileObjects.add(filterJavaFileObject(jfo));
     }
-    JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics,
+    JavacTask task = (JavacTask) compiler.getTask(null,
+        memoryFileManager != null ? memoryFileManager : fileManager, diagnostics,
         javacOptions, null, fileObjects);
     return new JavacEnvironment(task, fileManager, diagnostics);
   }
@@ -282,20 +348,63 @@ public class JavacParser extends Parser {
 
   @Override
   public Parser.ParseResult parseWithoutBindings(InputFile file, String source) {
-    String path = file.getUnitName();
+    return parseWithoutBindings(
+        Collections.singletonList(file), Collections.singletonList(source)).get(0);
+  }
+
+  @Override
+  public List<Parser.ParseResult> parseWithoutBindings(
+      List<InputFile> files, List<String> sources) {
+    List<Parser.ParseResult> results = new ArrayList<>();
+    JavacSyntaxParser parser;
     try {
-      JavacEnvironment parserEnv = createEnvironment(path, source);
-      JavacTask task = parserEnv.task();
-      CompilationUnitTree unit = task.parse().iterator().next();
-      processDiagnostics(parserEnv.diagnostics());
-      return new JavacParseResult(
-          file, source, unit, parserEnv.treeUtilities().getSourcePositions());
+      parser = getSyntaxParser();
     } catch (IOException e) {
-      ErrorUtil.fatalError(e, path);
+      ErrorUtil.fatalError(e, "javac file manager error");
+      return new ArrayList<>(Collections.nCopies(files.size(), null));
     }
-    return null;
+    int nThreads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = nThreads > 1
+        ? Executors.newFixedThreadPool(nThreads) : MoreExecutors.newDirectExecutorService();
+    try {
+      List<Future<JavacSyntaxParser.Result>> futures = new ArrayList<>();
+      for (int i = 0; i < files.size(); i++) {
+        JavaFileObject fileObject = filterJavaFileObject(
+            MemoryFileObject.createJavaFile(files.get(i).getUnitName(), sources.get(i)));
+        futures.add(executor.submit(
+            () -> parser.parse(fileObject, fileObject.getCharContent(true))));
+      }
+      // Report diagnostics in input order, so output doesn't depend on thread timing.
+      for (int i = 0; i < futures.size(); i++) {
+        InputFile file = files.get(i);
+        try {
+          JavacSyntaxParser.Result result = futures.get(i).get();
+          for (Diagnostic<? extends JavaFileObject> diagnostic : result.diagnostics) {
+            ErrorUtil.parserDiagnostic(diagnostic);
+          }
+          results.add(result.unit == null ? null
+              : new JavacParseResult(file, sources.get(i), result.unit, result.sourcePositions));
+        } catch (ExecutionException e) {
+          ErrorUtil.fatalError(e.getCause(), file.getUnitName());
+          results.add(null);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ErrorUtil.fatalError(e, "javac parser error");
+      while (results.size() < files.size()) {
+        results.add(null);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
   }
 
+  @Override
+  public boolean processesAnnotationsWhileParsing() {
+    return processAnnotationsWhileParsing;
+  }
 
   @Override
   public ProcessingResult processAnnotations(Iterable<String> fileArgs,
@@ -305,6 +414,19 @@ public class JavacParser extends Parser {
     loader.addPaths(options.getProcessorPathEntries());
     Iterator<Processor> serviceIterator = ServiceLoader.load(Processor.class, loader).iterator();
     if (serviceIterator.hasNext() || options.getProcessors() != null) {
+      // Generated sources can't be header mapped or stripped when they're created in the
+      // translation task, and a build closure's later batches would be processed again.
+      if (options.singlePassProcessing() && !options.buildClosure()
+          && !options.getHeaderMap().useSourceDirectories()) {
+        processAnnotationsWhileParsing = true;
+        try {
+          File sourceOutputDirectory = getFileManager(ToolProvider.getSystemJavaCompiler())
+              .getLocation(StandardLocation.SOURCE_OUTPUT).iterator().next();
+          return new JavacProcessingResult(generatedInputs, sourceOutputDirectory);
+        } catch (IOException e) {
+          ErrorUtil.fatalError(e, "javac file manager error");
+        }
+      }
       List<File> inputFiles = new ArrayList<>();
       for (ProcessingContext input : inputs) {
         inputFiles.add(new File(input.getFile().getAbsolutePath()));
@@ -329,6 +451,10 @@ public class JavacParser extends Parser {
 
   @Override
   public void close() throws IOException {
+    syntaxParser = null;
+    memorySources = null;
+    fileManagerClasspath = null;
+    fileManagerSourcepath = null;
     if (fileManager != null) {
       try {
         fileManager.close();
@@ -437,6 +563,30 @@ public class JavacParser extends Parser {
     }
   }
 
+  /**
+   * Collects the trees of sources that annotation processors generate while a
+   * task is analyzed. Other sources parsed during analysis, such as sourcepath
+   * files that inputs depend on, aren't collected.
+   */
+  private static class GeneratedSourceCollector implements TaskListener {
+    private final String sourceOutputPath;
+    private final List<CompilationUnitTree> units;
+
+    GeneratedSourceCollector(File sourceOutputDirectory, List<CompilationUnitTree> units) {
+      this.sourceOutputPath = sourceOutputDirectory.getAbsolutePath() + File.separatorChar;
+      this.units = units;
+    }
+
+    @Override
+    public void finished(TaskEvent e) {
+      if (e.getKind() == TaskEvent.Kind.PARSE
+          && e.getSourceFile().toUri().getScheme().equals("file")
+          && new File(e.getSourceFile().toUri()).getAbsolutePath().startsWith(sourceOutputPath)) {
+        units.add(e.getCompilationUnit());
+      }
+    }
+  }
+
   private static class JavacProcessingResult implements Parser.ProcessingResult {
     private final List<ProcessingContext> generatedSources;
     private final File sourceOutputDirectory;
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.javac;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.parser.ParserFactory;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Parses sources into javac trees without attribution. Rather than creating
+ * a compiler task for each source, parsers are reused, one per thread, so
+ * many sources can be parsed in parallel for little more than the cost of
+ * scanning them.
+ */
+class JavacSyntaxParser {
+
+  private final JavaCompiler compiler;
+  private final StandardJavaFileManager fileManager;
+  private final List<String> javacOptions;
+  private final ConcurrentLinkedQueue<ParserContext> idleContexts = new ConcurrentLinkedQueue<>();
+
+  JavacSyntaxParser(
+      JavaCompiler compiler, StandardJavaFileManager fileManager, List<String> javacOptions) {
+    this.compiler = compiler;
+    this.fileManager = fileManager;
+    this.javacOptions = javacOptions;
+  }
+
+  /**
+   * The result of parsing one source: its tree, or null if there were
+   * errors, and the diagnostics to report.
+   */
+  static class Result {
+    final CompilationUnitTree unit;
+    final SourcePositions sourcePositions;
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+    private Result(CompilationUnitTree unit, SourcePositions sourcePositions,
+        List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+      this.unit = unit;
+      this.sourcePositions = sourcePositions;
+      this.diagnostics = diagnostics;
+    }
+  }
+
+  /**
+   * Parses a source. This can be called from several threads at once.
+   */
+  Result parse(JavaFileObject file, CharSequence source) {
+    ParserContext context = idleContexts.poll();
+    if (context == null) {
+      context = new ParserContext();
+    }
+    try {
+      return context.parse(file, source);
+    } finally {
+      idleContexts.add(context);
+    }
+  }
+
+  /**
+   * A javac context for parsing on one thread at a time. The context's task is
+   * never run; it only provides the parser, its options and a log.
+   */
+  private class ParserContext implements DiagnosticListener<JavaFileObject> {
+    private final ParserFactory parserFactory;
+    private final Log log;
+    private final SourcePositions sourcePositions;
+    private List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+
+    ParserContext() {
+      JavacTask task;
+      // Creating a task sets options in the shared file manager.
+      synchronized (fileManager) {
+        task = (JavacTask) compiler.getTask(
+            null, fileManager, this, javacOptions, null, Collections.emptyList());
+      }
+      Context context = ((BasicJavacTask) task).getContext();
+      parserFactory = ParserFactory.instance(context);
+      log = Log.instance(context);
+      sourcePositions = Trees.instance(task).getSourcePositions();
+    }
+
+    @Override
+    public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+      diagnostics.add(diagnostic);
+    }
+
+    Result parse(JavaFileObject file, CharSequence source) {
+      JavaFileObject previousSource = log.useSource(file);
+      int previousErrors = log.nerrors;
+      try {
+        JCCompilationUnit unit =
+            parserFactory.newParser(source, false, true, true).parseCompilationUnit();
+        unit.sourcefile = file;
+        List<Diagnostic<? extends JavaFileObject>> unitDiagnostics = diagnostics;
+        diagnostics = new ArrayList<>();
+        return new Result(
+            log.nerrors > previousErrors ? null : unit, sourcePositions, unitDiagnostics);
+      } finally {
+        log.useSource(previousSource);
+        // Don't let errors in earlier sources count towards javac's error limit.
+        log.nerrors = previousErrors;
+      }
+    }
+  }
+}
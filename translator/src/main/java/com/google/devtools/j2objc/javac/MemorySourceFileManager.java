@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.javac;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager that replaces source files with content held in memory,
+ * such as sources stripped of J2ObjCIncompatible code. A replaced file is
+ * served both when it's compiled and when javac looks up its type on the
+ * source path, so the replacement never needs to be written to disk.
+ */
+class MemorySourceFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+    implements StandardJavaFileManager {
+
+  // Replacement sources, by the URI path of the file each replaces.
+  private final Map<String, MemorySource> sourcesByPath = new HashMap<>();
+  // Replacement sources by package name, then by binary name.
+  private final Map<String, Map<String, MemorySource>> sourcesByPackage = new HashMap<>();
+
+  MemorySourceFileManager(StandardJavaFileManager fileManager) {
+    super(fileManager);
+  }
+
+  /**
+   * Replaces a source file, whose main type has the specified qualified
+   * name, with the specified source.
+   */
+  void addSource(File file, String mainTypeName, String source) {
+    MemorySource memorySource = new MemorySource(file, mainTypeName, source);
+    sourcesByPath.put(memorySource.toUri().getPath(), memorySource);
+    int lastDot = mainTypeName.lastIndexOf('.');
+    String packageName = lastDot < 0 ? "" : mainTypeName.substring(0, lastDot);
+    sourcesByPackage.computeIfAbsent(packageName, k -> new LinkedHashMap<>())
+        .put(mainTypeName, memorySource);
+  }
+
+  /**
+   * Returns the in-memory replacement of a file, or the file itself if it
+   * wasn't replaced.
+   */
+  JavaFileObject getSource(JavaFileObject file) {
+    MemorySource memorySource = sourcesByPath.get(file.toUri().getPath());
+    return memorySource != null ? memorySource : file;
+  }
+
+  // javac searches the class path for sources when there is no source path.
+  private boolean isSourceLocation(Location location) {
+    return location == StandardLocation.SOURCE_PATH
+        || (location == StandardLocation.CLASS_PATH
+            && !hasLocation(StandardLocation.SOURCE_PATH));
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(
+      Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse)
+      throws IOException {
+    Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+    if (!kinds.contains(JavaFileObject.Kind.SOURCE) || !isSourceLocation(location)) {
+      return files;
+    }
+    Map<String, MemorySource> replacements = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<String, MemorySource>> entry : sourcesByPackage.entrySet()) {
+      String name = entry.getKey();
+      if (name.equals(packageName) || (recurse
+          && (packageName.isEmpty() || name.startsWith(packageName + ".")))) {
+        replacements.putAll(entry.getValue());
+      }
+    }
+    if (replacements.isEmpty()) {
+      return files;
+    }
+    // List the replacements in place of the files they replace.
+    List<JavaFileObject> result = new ArrayList<>(replacements.values());
+    for (JavaFileObject file : files) {
+      if (file.getKind() != JavaFileObject.Kind.SOURCE
+          || !replacements.containsKey(super.inferBinaryName(location, file))) {
+        result.add(file);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof MemorySource) {
+      return ((MemorySource) file).binaryName;
+    }
+    return super.inferBinaryName(location, file);
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForInput(
+      Location location, String className, JavaFileObject.Kind kind) throws IOException {
+    if (kind == JavaFileObject.Kind.SOURCE && isSourceLocation(location)) {
+      int lastDot = className.lastIndexOf('.');
+      Map<String, MemorySource> sources =
+          sourcesByPackage.get(lastDot < 0 ? "" : className.substring(0, lastDot));
+      if (sources != null && sources.containsKey(className)) {
+        return sources.get(className);
+      }
+    }
+    return super.getJavaFileForInput(location, className, kind);
+  }
+
+  @Override
+  public boolean contains(Location location, FileObject file) throws IOException {
+    if (file instanceof MemorySource) {
+      return isSourceLocation(location);
+    }
+    return super.contains(location, file);
+  }
+
+  @Override
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof MemorySource || b instanceof MemorySource) {
+      return a == b;
+    }
+    return super.isSameFile(a, b);
+  }
+
+  @Override
+  public Iterable<? extends JavaFileObject> getJavaFileObjectsFromFiles(
+      Iterable<? extends File> files) {
+    return fileManager.getJavaFileObjectsFromFiles(files);
+  }
+
+  @Override
+  public Iterable<? extends JavaFileObject> getJavaFileObjects(File... files) {
+    return fileManager.getJavaFileObjects(files);
+  }
+
+  @Override
+  public Iterable<? extends JavaFileObject> getJavaFileObjectsFromStrings(Iterable<String> names) {
+    return fileManager.getJavaFileObjectsFromStrings(names);
+  }
+
+  @Override
+  public Iterable<? extends JavaFileObject> getJavaFileObjects(String... names) {
+    return fileManager.getJavaFileObjects(names);
+  }
+
+  @Override
+  public void setLocation(Location location, Iterable<? extends File> files) throws IOException {
+    fileManager.setLocation(location, files);
+  }
+
+  @Override
+  public Iterable<? extends File> getLocation(Location location) {
+    return fileManager.getLocation(location);
+  }
+
+  @Override
+  public Path asPath(FileObject file) {
+    return fileManager.asPath(file);
+  }
+
+  /**
+   * A source file's replacement. Its URI is the replaced file's, so javac
+   * and the tree converter report the original path.
+   */
+  private static class MemorySource extends SimpleJavaFileObject {
+    private final String binaryName;
+    private final String source;
+
+    MemorySource(File file, String binaryName, String source) {
+      super(file.getAbsoluteFile().toURI(), JavaFileObject.Kind.SOURCE);
+      this.binaryName = binaryName;
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
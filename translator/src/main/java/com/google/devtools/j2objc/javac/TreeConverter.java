@@ -115,10 +115,13 @@ import com.google.devtools.j2objc.types.ExecutablePair;
 import com.google.devtools.j2objc.types.GeneratedExecutableElement;
 import com.google.devtools.j2objc.types.GeneratedPackageElement;
 import com.google.devtools.j2objc.types.GeneratedTypeElement;
+import com.google.devtools.j2objc.util.AnnotationIndex;
+import com.google.devtools.j2objc.util.CodeReferenceMap;
 import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.TranslationEnvironment;
+import com.google.devtools.j2objc.util.TypeUtil;
 import com.google.j2objc.annotations.Property;
 import com.sun.source.tree.AnnotatedTypeTree;
 import com.sun.source.tree.AnnotationTree;
@@ -217,19 +220,31 @@ public class TreeConverter {
   private CompilationUnit newUnit;
   private final Trees trees;
   private final SourcePositions sourcePositions;
+  private final CodeReferenceMap deadCodeMap;
 
   // Note: due to new constants added to the Tree.Kind and ElementKind enums between supported
   // JDK versions, we need to reference those constants by name.
 
   public static CompilationUnit convertCompilationUnit(
       Options options, JavacEnvironment env, CompilationUnitTree javacUnit) {
+    return convertCompilationUnit(options, env, javacUnit, null);
+  }
+
+  /**
+   * Converts a compilation unit, skipping the bodies and initializers of the
+   * classes, methods and fields in a dead code report. The DeadCodeEliminator
+   * must be run with the same report, since it removes their declarations.
+   */
+  public static CompilationUnit convertCompilationUnit(Options options, JavacEnvironment env,
+      CompilationUnitTree javacUnit, CodeReferenceMap deadCodeMap) {
     String sourceFilePath = getPath(javacUnit.getSourceFile());
     try {
-      TreeConverter converter = new TreeConverter(javacUnit, env);
+      TreeConverter converter = new TreeConverter(javacUnit, env, deadCodeMap);
       JavaFileObject sourceFile = javacUnit.getSourceFile();
       String source = sourceFile.getCharContent(false).toString();
       String mainTypeName = FileUtil.getMainTypeName(sourceFile);
       TranslationEnvironment translationEnv = new TranslationEnvironment(options, env);
+      translationEnv.annotationIndex().activate();
       converter.newUnit = new CompilationUnit(translationEnv, sourceFilePath, mainTypeName, source);
       TreePath path = new TreePath(javacUnit);
       converter.newUnit.setPackage(converter.convertPackage(path));
@@ -252,14 +267,54 @@ public class TreeConverter {
     } catch (Throwable e) {
       ErrorUtil.fatalError(e, sourceFilePath);
       return null;
+    } finally {
+      AnnotationIndex.deactivate();
     }
   }
 
-  private TreeConverter(CompilationUnitTree javacUnit, JavacEnvironment javacEnv) {
+  private TreeConverter(CompilationUnitTree javacUnit, JavacEnvironment javacEnv,
+      CodeReferenceMap deadCodeMap) {
     unit = javacUnit;
     env = javacEnv;
     trees = javacEnv.treeUtilities();
     sourcePositions = trees.getSourcePositions();
+    this.deadCodeMap = deadCodeMap;
+  }
+
+  // The following match the members the DeadCodeEliminator removes.
+
+  private boolean isDeadClass(TypeElement type) {
+    return deadCodeMap != null
+        && !ElementUtil.isAnnotationType(type)
+        && deadCodeMap.containsClass(newUnit.getEnv().elementUtil().getBinaryName(type));
+  }
+
+  private boolean isDeadMethod(ExecutableElement method) {
+    TypeElement type = ElementUtil.getDeclaringClass(method);
+    if (deadCodeMap == null || ElementUtil.isAnnotationType(type)) {
+      return false;
+    }
+    String clazz = newUnit.getEnv().elementUtil().getBinaryName(type);
+    TypeUtil typeUtil = newUnit.getEnv().typeUtil();
+    return deadCodeMap.containsClass(clazz)
+        || deadCodeMap.containsMethod(
+            clazz, typeUtil.getReferenceName(method), typeUtil.getReferenceSignature(method));
+  }
+
+  private boolean isDeadField(VariableElement field) {
+    TypeElement type = ElementUtil.getDeclaringClass(field);
+    // Constants are never removed.
+    if (deadCodeMap == null || field.getConstantValue() != null
+        || ElementUtil.isAnnotationType(type)) {
+      return false;
+    }
+    String clazz = newUnit.getEnv().elementUtil().getBinaryName(type);
+    return deadCodeMap.containsClass(clazz)
+        || deadCodeMap.containsField(clazz, ElementUtil.getName(field));
+  }
+
+  private void countSkippedDeadCode() {
+    newUnit.getEnv().options().statistics().increment("TreeConverter: dead bodies skipped");
   }
 
   private @Nullable TreeNode convert(Tree node, TreePath parent) {
@@ -737,7 +792,13 @@ public class TreeConverter {
     TypeElement element = (TypeElement) getElement(path);
     convertBodyDeclaration(node, parent, node.getModifiers(), newNode);
     List<BodyDeclaration> bodyDeclarations = newNode.getBodyDeclarations();
+    boolean isDeadClass = isDeadClass(element);
     for (Tree bodyDecl : node.getMembers()) {
+      if (isDeadClass && bodyDecl.getKind().name().equals("BLOCK")) {
+        // A dead class's initializers are removed.
+        countSkippedDeadCode();
+        continue;
+      }
       Object member = convert(bodyDecl, path);
       if (member instanceof BodyDeclaration) { // Not true for enum constants.
         bodyDeclarations.add((BodyDeclaration) member);
@@ -799,7 +860,13 @@ public class TreeConverter {
     newNode
         .setName(convertSimpleName(element, getTypeMirror(path), getNamePosition(node)))
         .setTypeElement(element);
+    boolean isDeadClass = isDeadClass(element);
     for (Tree bodyDecl : node.getMembers()) {
+      if (isDeadClass && bodyDecl.getKind().name().equals("BLOCK")) {
+        // A dead class's initializers are removed.
+        countSkippedDeadCode();
+        continue;
+      }
       if (bodyDecl.getKind().name().equals("VARIABLE")) {
         TreeNode var = convertVariableDeclaration((VariableTree) bodyDecl, path);
         if (var.getKind() == TreeNode.Kind.ENUM_CONSTANT_DECLARATION) {
@@ -1091,10 +1158,16 @@ public class TreeConverter {
     for (VariableTree param : node.getParameters()) {
       newNode.addParameter((SingleVariableDeclaration) convert(param, path));
     }
+    BlockTree body = node.getBody();
+    if (body != null && isDeadMethod(element)) {
+      // The declaration is kept until the DeadCodeEliminator removes it.
+      countSkippedDeadCode();
+      body = null;
+    }
     return newNode
         .setIsConstructor(ElementUtil.isConstructor(element))
         .setExecutableElement(element)
-        .setBody((Block) convert(node.getBody(), path))
+        .setBody((Block) convert(body, path))
         .setName(name);
   }
 
@@ -1466,8 +1539,13 @@ public class TreeConverter {
     TreePath path = getTreePath(parent, node);
     VariableElement element = (VariableElement) getElement(path);
     if (element.getKind().name().equals("FIELD")) {
+      ExpressionTree initializer = node.getInitializer();
+      if (initializer != null && isDeadField(element)) {
+        countSkippedDeadCode();
+        initializer = null;
+      }
       FieldDeclaration newNode =
-          new FieldDeclaration(element, (Expression) convert(node.getInitializer(), path));
+          new FieldDeclaration(element, (Expression) convert(initializer, path));
       convertBodyDeclaration(node, parent, node.getModifiers(), newNode);
       return newNode;
     }
@@ -15,17 +15,31 @@
 package com.google.devtools.j2objc.pipeline;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.devtools.j2objc.Options;
 import com.google.devtools.j2objc.file.InputFile;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
  * Looks up and queues dependencies for --build-closure.
+ *
+ * <p>The closure is expanded in waves. Each queued name is looked up on the
+ * source and class paths by a pool of threads as soon as it's added, so the
+ * dependencies found while one wave is translated are resolved while the rest
+ * of it is still being translated. {@link #getNextWave} then returns all the
+ * sources found, to be parsed as one batch.
  */
 public class BuildClosureQueue {
 
@@ -34,37 +48,51 @@ public class BuildClosureQueue {
 
   private final Set<String> processedNames = Sets.newHashSet();
 
-  private final Set<String> queuedNames = Sets.newLinkedHashSet();
+  // The lookups of queued names, in the order the names were added.
+  private final Map<String, Future<InputFile>> queuedNames = new LinkedHashMap<>();
+
+  private ExecutorService executor;
 
   public BuildClosureQueue(Options options) {
     this.options = options;
-    queuedNames.addAll(options.entryClasses());
+    for (String name : options.entryClasses()) {
+      addName(name);
+    }
   }
 
   /**
-   * Returns the next Java source file to be processed. Returns null if the
-   * queue is empty.
+   * Returns the Java source files for all the queued names, which are then
+   * considered processed. Returns an empty list if the queue is empty.
    */
-  public InputFile getNextFile() {
-    for (Iterator<String> iter = queuedNames.iterator(); iter.hasNext(); ) {
-      String name = iter.next();
-      iter.remove();
-      processedNames.add(name);
-      InputFile file = getFileForName(name);
+  public List<InputFile> getNextWave() {
+    List<Map.Entry<String, Future<InputFile>>> wave = new ArrayList<>(queuedNames.entrySet());
+    queuedNames.clear();
+    List<InputFile> files = new ArrayList<>();
+    for (Map.Entry<String, Future<InputFile>> entry : wave) {
+      processedNames.add(entry.getKey());
+      InputFile file = getLookupResult(entry.getValue());
       if (file != null) {
-        return file;
+        files.add(file);
       }
     }
-    return null;
+    if (!files.isEmpty()) {
+      options.statistics().increment("BuildClosureQueue: waves");
+      options.statistics().add("BuildClosureQueue: files found", files.size());
+    }
+    return files;
   }
 
   /**
-   * Adds a name to the queue. The name must be the fully qualified type name
-   * to search for (dot separated).
+   * Adds a name to the queue and starts looking up its source. The name must
+   * be the fully qualified type name to search for (dot separated).
    */
   public void addName(String name) {
-    if (!processedNames.contains(name)) {
-      queuedNames.add(name);
+    if (!processedNames.contains(name) && !queuedNames.containsKey(name)) {
+      if (executor == null) {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("build-closure-%d").setDaemon(true).build());
+      }
+      queuedNames.put(name, executor.submit(() -> getFileForName(name)));
     }
   }
 
@@ -74,16 +102,39 @@ public class BuildClosureQueue {
    */
   public void addProcessedName(String name) {
     processedNames.add(name);
-    queuedNames.remove(name);
+    Future<InputFile> lookup = queuedNames.remove(name);
+    if (lookup != null) {
+      lookup.cancel(false);
+    }
+  }
+
+  /** Stops the lookup threads, once the closure is complete. */
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
   }
 
-  private InputFile getFileForName(String name) {
-    InputFile inputFile = null;
+  private InputFile getLookupResult(Future<InputFile> lookup) {
     try {
-      inputFile = options.fileUtil().findTypeOnSourcePath(name);
-    } catch (IOException e) {
-      ErrorUtil.warning(e.getMessage());
+      return lookup.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        ErrorUtil.warning(e.getCause().getMessage());
+      } else {
+        ErrorUtil.fatalError(e.getCause(), "build closure");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ErrorUtil.fatalError(e, "build closure");
     }
+    return null;
+  }
+
+  // Runs on a lookup thread, so IOExceptions are reported by getLookupResult.
+  private InputFile getFileForName(String name) throws IOException {
+    InputFile inputFile = options.fileUtil().findTypeOnSourcePath(name);
 
     if (inputFile == null) {
       // Check if class exists on classpath.
@@ -104,14 +155,8 @@ public class BuildClosureQueue {
     return inputFile;
   }
 
-  private boolean findClassFile(String name) {
-    InputFile f = null;
-    try {
-      f = options.fileUtil().findTypeOnClassPath(name);
-    } catch (IOException e) {
-      ErrorUtil.warning(e.getMessage());
-    }
-    if (f != null) {
+  private boolean findClassFile(String name) throws IOException {
+    if (options.fileUtil().findTypeOnClassPath(name) != null) {
       return true;
     }
     // See if it's a JRE class.
@@ -14,20 +14,32 @@
 
 package com.google.devtools.j2objc.pipeline;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.devtools.j2objc.Options;
+import com.google.devtools.j2objc.Options.TimingLevel;
 import com.google.devtools.j2objc.ast.CompilationUnit;
 import com.google.devtools.j2objc.file.InputFile;
+import com.google.devtools.j2objc.file.RegularInputFile;
+import com.google.devtools.j2objc.util.AnnotationIndex;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.Parser;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -40,6 +52,17 @@ abstract class FileProcessor {
 
   private static final Logger logger = Logger.getLogger(FileProcessor.class.getName());
 
+  /**
+   * A rough estimate of the heap needed per byte of source while a batch is
+   * parsed and translated: javac's trees and symbols plus j2objc's AST. The
+   * peak heap of each batch is reported with --timing-info, so that
+   * -Xbatch-heap-budget can be tuned from real numbers.
+   */
+  private static final long HEAP_BYTES_PER_SOURCE_BYTE = 200;
+
+  /** The source size assumed for inputs whose size isn't known. */
+  private static final long DEFAULT_SOURCE_SIZE = 8 * 1024;
+
   private final Parser parser;
   protected final BuildClosureQueue closureQueue;
   protected final Options options;
@@ -71,16 +94,18 @@ abstract class FileProcessor {
 
   private void processBuildClosureDependencies() {
     if (closureQueue != null) {
-      while (true) {
-        InputFile file = closureQueue.getNextFile();
-        if (file == null) {
+      try {
+        // Each wave holds the sources of the names found while translating the
+        // previous one, and is parsed as one batch.
+        for (List<InputFile> wave = closureQueue.getNextWave(); !wave.isEmpty();
+            wave = closureQueue.getNextWave()) {
+          for (InputFile file : wave) {
+            processInput(ProcessingContext.fromFile(file, options));
+          }
           processBatch();
-          file = closureQueue.getNextFile();
         }
-        if (file == null) {
-          break;
-        }
-        processInput(ProcessingContext.fromFile(file, options));
+      } finally {
+        closureQueue.close();
       }
     }
   }
@@ -117,9 +142,25 @@ abstract class FileProcessor {
       return;
     }
 
-    List<String> paths = Lists.newArrayListWithCapacity(batchInputs.size());
-    final Map<String, ProcessingContext> inputMap = new CanonicalPathMap(batchInputs.size());
-    for (ProcessingContext input : batchInputs) {
+    // Types in other batches are only found on the sourcepath, so inputs are
+    // only split with an explicit heap budget; --batch-translate-max alone
+    // is ignored, as it always was. Annotation processors that run while
+    // parsing see all the sources at once.
+    List<List<ProcessingContext>> batches =
+        options.batchHeapBudget() <= 0 || parser.processesAnnotationsWhileParsing()
+        ? partition(batchInputs, 0, 0)
+        : partition(batchInputs, options.batchTranslateMax(), options.batchHeapBudget());
+    batchInputs.clear();
+    for (int i = 0; i < batches.size(); i++) {
+      processBatch(batches.get(i), i + 1, batches.size());
+    }
+  }
+
+  private void processBatch(List<ProcessingContext> batch, int batchNumber, int batchCount) {
+    List<String> paths = Lists.newArrayListWithCapacity(batch.size());
+    final Map<String, ProcessingContext> inputMap = new CanonicalPathMap(batch.size());
+    final Set<ProcessingContext> unprocessed = new HashSet<>(batch);
+    for (ProcessingContext input : batch) {
       String path = input.getFile().getAbsolutePath();
       paths.add(path);
       inputMap.put(path, input);
@@ -129,19 +170,126 @@ abstract class FileProcessor {
       @Override
       public void handleParsedUnit(String path, CompilationUnit unit) {
         ProcessingContext input = inputMap.get(path);
+        if (input == null) {
+          // A source generated by an annotation processor during the batch's javac task.
+          input = generatedInput(path, unit);
+        }
         processCompiledSource(input, unit);
-        batchInputs.remove(input);
+        unprocessed.remove(input);
       }
     };
-    logger.finest("Processing batch of size " + batchInputs.size());
+    logger.finest("Processing batch of size " + batch.size());
+    resetPeakHeapUsage();
+    long startTime = System.currentTimeMillis();
     parser.parseFiles(paths, handler, options.getSourceVersion());
+    options.statistics().increment("FileProcessor: javac batches");
+    String summary = String.format(Locale.ROOT,
+        "javac batch %d of %d: %d files, %d ms, peak heap %d MB",
+        batchNumber, batchCount, batch.size(), System.currentTimeMillis() - startTime,
+        peakHeapUsage() / (1024 * 1024));
+    logger.fine(summary);
+    if (options.timingLevel() == TimingLevel.ALL) {
+      System.out.println(summary);
+    }
 
-    // Any remaining files in batchFiles has some kind of error.
-    for (ProcessingContext input : batchInputs) {
+    // Any remaining files in the batch have some kind of error.
+    for (ProcessingContext input : unprocessed) {
       handleError(input);
     }
+  }
 
-    batchInputs.clear();
+  private ProcessingContext generatedInput(String path, CompilationUnit unit) {
+    String qualifiedName =
+        FileUtil.getQualifiedMainTypeName(new RegularInputFile(path, path), unit);
+    String relativePath = qualifiedName.replace('.', File.separatorChar) + ".java";
+    return ProcessingContext.fromFile(new RegularInputFile(path, relativePath), options);
+  }
+
+  /**
+   * Splits the inputs into batches of at most {@code maxFiles} files whose
+   * estimated heap use is at most {@code heapBudget} bytes, where 0 means no
+   * limit. Files in the same directory, usually the same package, tend to
+   * depend on each other, so a directory is only split between batches if it
+   * doesn't fit into one by itself. A file that exceeds the budget on its own
+   * is given a batch of its own.
+   */
+  @VisibleForTesting
+  static List<List<ProcessingContext>> partition(
+      Collection<ProcessingContext> inputs, int maxFiles, long heapBudget) {
+    List<List<ProcessingContext>> batches = new ArrayList<>();
+    if (maxFiles <= 0 && heapBudget <= 0) {
+      batches.add(new ArrayList<>(inputs));
+      return batches;
+    }
+    if (maxFiles <= 0) {
+      maxFiles = Integer.MAX_VALUE;
+    }
+    if (heapBudget <= 0) {
+      heapBudget = Long.MAX_VALUE;
+    }
+
+    List<ProcessingContext> sorted = new ArrayList<>(inputs);
+    sorted.sort(Comparator.comparing(input -> input.getFile().getAbsolutePath()));
+    List<ProcessingContext> batch = new ArrayList<>();
+    long batchHeap = 0;
+    int start = 0;
+    while (start < sorted.size()) {
+      // Find the files in the same directory as sorted[start].
+      String dir = new File(sorted.get(start).getFile().getAbsolutePath()).getParent();
+      int end = start;
+      long dirHeap = 0;
+      while (end < sorted.size() && Objects.equals(dir,
+          new File(sorted.get(end).getFile().getAbsolutePath()).getParent())) {
+        dirHeap += estimateHeap(sorted.get(end));
+        end++;
+      }
+
+      if (!batch.isEmpty()
+          && (batch.size() + end - start > maxFiles || batchHeap + dirHeap > heapBudget)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchHeap = 0;
+      }
+      for (int i = start; i < end; i++) {
+        ProcessingContext input = sorted.get(i);
+        long heap = estimateHeap(input);
+        if (!batch.isEmpty() && (batch.size() >= maxFiles || batchHeap + heap > heapBudget)) {
+          batches.add(batch);
+          batch = new ArrayList<>();
+          batchHeap = 0;
+        }
+        batch.add(input);
+        batchHeap += heap;
+      }
+      start = end;
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private static long estimateHeap(ProcessingContext input) {
+    long size = new File(input.getFile().getAbsolutePath()).length();
+    return (size > 0 ? size : DEFAULT_SOURCE_SIZE) * HEAP_BYTES_PER_SOURCE_BYTE;
+  }
+
+  private static void resetPeakHeapUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  private static long peakHeapUsage() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
   }
 
   private void processCompiledSource(ProcessingContext input,
@@ -150,12 +298,15 @@ abstract class FileProcessor {
     if (closureQueue != null) {
       closureQueue.addProcessedName(FileUtil.getQualifiedMainTypeName(file, unit));
     }
+    unit.getEnv().annotationIndex().activate();
     try {
       processConvertedTree(input, unit);
       outputs.add(input);
     } catch (Throwable t) {
       // Report any uncaught exceptions.
       ErrorUtil.fatalError(t, input.getOriginalSourcePath());
+    } finally {
+      AnnotationIndex.deactivate();
     }
   }
 
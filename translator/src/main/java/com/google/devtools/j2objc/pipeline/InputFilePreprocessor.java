@@ -14,25 +14,22 @@
 
 package com.google.devtools.j2objc.pipeline;
 
-import com.google.common.io.Files;
 import com.google.devtools.j2objc.Options;
 import com.google.devtools.j2objc.file.InputFile;
-import com.google.devtools.j2objc.file.RegularInputFile;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.Parser;
-import java.io.File;
 import java.io.IOException;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Preprocesses each Java file in the batch.
  */
 public class InputFilePreprocessor {
 
-  private static final Logger logger = Logger.getLogger(InputFilePreprocessor.class.getName());
+  private static final int PARSE_BATCH_SIZE = 1024;
 
   private final Parser parser;
-  private File strippedSourcesDir;
   private final Options options;
 
   public InputFilePreprocessor(Parser parser) {
@@ -41,62 +38,68 @@ public class InputFilePreprocessor {
   }
 
   public void processInputs(Iterable<ProcessingContext> inputs) {
+    boolean shouldMapHeaders = options.getHeaderMap().useSourceDirectories();
+    List<ProcessingContext> batch = new ArrayList<>();
+    List<String> sources = new ArrayList<>();
     for (ProcessingContext input : inputs) {
-      if (input.getFile().getUnitName().endsWith(".java")) {
-        processInput(input);
+      String unitName = input.getFile().getUnitName();
+      if (!unitName.endsWith(".java") || unitName.endsWith("package-info.java")) {
+        continue;
       }
-    }
-  }
-
-  private void processInput(ProcessingContext input) {
-    try {
-      if (!input.getFile().getUnitName().endsWith("package-info.java")) {
-        processRegularSource(input);
+      try {
+        String source = options.fileUtil().readFile(input.getFile());
+        if (!(shouldMapHeaders || source.contains("J2ObjCIncompatible"))) {
+          // No need to parse.
+          continue;
+        }
+        batch.add(input);
+        sources.add(source);
+        if (batch.size() == PARSE_BATCH_SIZE) {
+          processBatch(batch, sources, shouldMapHeaders);
+        }
+      } catch (IOException e) {
+        ErrorUtil.error(e.getMessage());
       }
-    } catch (IOException e) {
-      ErrorUtil.error(e.getMessage());
     }
+    processBatch(batch, sources, shouldMapHeaders);
   }
 
-  public File getStrippedSourcesDir() {
-    return strippedSourcesDir;
-  }
-
-  private File getCreatedStrippedSourcesDir() {
-    if (strippedSourcesDir == null) {
-      strippedSourcesDir = Files.createTempDir();
-      logger.finest("Created temp dir for stripped sources: " + strippedSourcesDir.getPath());
-    }
-    return strippedSourcesDir;
-  }
-
-  private void processRegularSource(ProcessingContext input) throws IOException {
-    InputFile file = input.getFile();
-    String source = options.fileUtil().readFile(file);
-    boolean shouldMapHeaders = options.getHeaderMap().useSourceDirectories();
-    boolean doIncompatibleStripping = source.contains("J2ObjCIncompatible");
-    if (!(shouldMapHeaders || doIncompatibleStripping)) {
-      // No need to parse.
+  // Sources are parsed in batches, so the parser can parse them in parallel
+  // without holding the trees of every source at once.
+  private void processBatch(
+      List<ProcessingContext> batch, List<String> sources, boolean shouldMapHeaders) {
+    if (batch.isEmpty()) {
       return;
     }
-    Parser.ParseResult parseResult = parser.parseWithoutBindings(file, source);
-    if (parseResult == null) {
-      // The parser found and reported one or more errors.
-      return;
+    List<InputFile> files = new ArrayList<>();
+    for (ProcessingContext input : batch) {
+      files.add(input.getFile());
     }
+    List<Parser.ParseResult> parseResults = parser.parseWithoutBindings(files, sources);
+    for (int i = 0; i < batch.size(); i++) {
+      Parser.ParseResult parseResult = parseResults.get(i);
+      if (parseResult == null) {
+        // The parser found and reported one or more errors.
+        continue;
+      }
+      processRegularSource(batch.get(i), parseResult, shouldMapHeaders);
+    }
+    batch.clear();
+    sources.clear();
+  }
+
+  private void processRegularSource(
+      ProcessingContext input, Parser.ParseResult parseResult, boolean shouldMapHeaders) {
     String qualifiedName = parseResult.mainTypeName();
     if (shouldMapHeaders) {
       options.getHeaderMap().put(qualifiedName, input.getGenerationUnit().getOutputPath() + ".h");
     }
-    if (doIncompatibleStripping) {
+    if (parseResult.getSource().contains("J2ObjCIncompatible")) {
       parseResult.stripIncompatibleSource();
-      File strippedDir = getCreatedStrippedSourcesDir();
-      String relativePath = qualifiedName.replace('.', File.separatorChar) + ".java";
-      File strippedFile = new File(strippedDir, relativePath);
-      Files.createParentDirs(strippedFile);
-      Files.asCharSink(strippedFile, options.fileUtil().getCharset())
-          .write(parseResult.getSource());
-      input.setFile(new RegularInputFile(strippedFile.getPath(), relativePath));
+      // The stripped source replaces the input in memory, both when it's
+      // translated and when other sources find it on the source path.
+      parser.replaceSource(
+          input.getFile().getAbsolutePath(), qualifiedName, parseResult.getSource());
     }
   }
 }
@@ -15,6 +15,7 @@
 package com.google.devtools.j2objc.pipeline;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.devtools.j2objc.Options.TimingLevel;
 import com.google.devtools.j2objc.ast.CompilationUnit;
 import com.google.devtools.j2objc.ast.DebugASTDump;
 import com.google.devtools.j2objc.gen.GenerationUnit;
@@ -22,6 +23,7 @@ import com.google.devtools.j2objc.gen.ObjectiveCHeaderGenerator;
 import com.google.devtools.j2objc.gen.ObjectiveCImplementationGenerator;
 import com.google.devtools.j2objc.gen.ObjectiveCMultiHeaderGenerator;
 import com.google.devtools.j2objc.gen.ObjectiveCSegmentedHeaderGenerator;
+import com.google.devtools.j2objc.gen.OutputFileWriter;
 import com.google.devtools.j2objc.translate.AbstractMethodRewriter;
 import com.google.devtools.j2objc.translate.AnnotationRewriter;
 import com.google.devtools.j2objc.translate.ArrayRewriter;
@@ -34,6 +36,7 @@ import com.google.devtools.j2objc.translate.DefaultMethodShimGenerator;
 import com.google.devtools.j2objc.translate.DestructorGenerator;
 import com.google.devtools.j2objc.translate.EnhancedForRewriter;
 import com.google.devtools.j2objc.translate.EnumRewriter;
+import com.google.devtools.j2objc.translate.EscapeAnalyzer;
 import com.google.devtools.j2objc.translate.ExternalAnnotationInjector;
 import com.google.devtools.j2objc.translate.Functionizer;
 import com.google.devtools.j2objc.translate.GwtConverter;
@@ -45,6 +48,7 @@ import com.google.devtools.j2objc.translate.LabelRewriter;
 import com.google.devtools.j2objc.translate.LambdaRewriter;
 import com.google.devtools.j2objc.translate.LambdaTypeElementAdder;
 import com.google.devtools.j2objc.translate.LogSiteInjector;
+import com.google.devtools.j2objc.translate.LoopInvariantHoister;
 import com.google.devtools.j2objc.translate.MetadataWriter;
 import com.google.devtools.j2objc.translate.NilCheckResolver;
 import com.google.devtools.j2objc.translate.NumberMethodRewriter;
@@ -68,6 +72,7 @@ import com.google.devtools.j2objc.translate.VariableRenamer;
 import com.google.devtools.j2objc.types.HeaderImportCollector;
 import com.google.devtools.j2objc.types.ImplementationImportCollector;
 import com.google.devtools.j2objc.types.Import;
+import com.google.devtools.j2objc.util.AnnotationIndex;
 import com.google.devtools.j2objc.util.CodeReferenceMap;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import com.google.devtools.j2objc.util.ExternalAnnotations;
@@ -111,6 +116,9 @@ public class TranslationProcessor extends FileProcessor {
     } else {
       applyMutations(unit, deadCodeMap, options.externalAnnotations(), ticker);
       ticker.tick("Tree mutations");
+      AnnotationIndex annotationIndex = unit.getEnv().annotationIndex();
+      options.statistics().add("AnnotationIndex: queries", annotationIndex.queries());
+      options.statistics().add("AnnotationIndex: mirror scans", annotationIndex.scans());
       ticker.printResults(System.out);
 
       GenerationUnit genUnit = input.getGenerationUnit();
@@ -127,8 +135,15 @@ public class TranslationProcessor extends FileProcessor {
 
   @Override
   protected void processOutputs(Iterable<ProcessingContext> outputs) {
-    for (ProcessingContext output : outputs) {
-      generateObjectiveCSource(output.getGenerationUnit());
+    // Write the generated files while the next units are generated.
+    OutputFileWriter writer = options.outputFileWriter();
+    writer.start();
+    try {
+      for (ProcessingContext output : outputs) {
+        generateObjectiveCSource(output.getGenerationUnit());
+      }
+    } finally {
+      writer.finish(options.timingLevel());
     }
   }
 
@@ -282,6 +297,26 @@ public class TranslationProcessor extends FileProcessor {
     new MetadataWriter(unit, deadCodeMap).run();
     ticker.tick("MetadataWriter");
 
+    // Before: Functionizer - Sets the hasRetainedResult flag on
+    //   ClassInstanceCreation nodes before they are functionized.
+    // After: InnerClassExtractor, LambdaRewriter - Captured variables must be
+    //   passed as constructor arguments.
+    EscapeAnalyzer escapeAnalyzer = new EscapeAnalyzer(unit);
+    if (escapeAnalyzer.isEnabled()) {
+      escapeAnalyzer.run();
+      ticker.tick("EscapeAnalyzer");
+    }
+
+    // Before: Functionizer - Recognizes field reads of "this" before it
+    //   becomes a function parameter.
+    // Before: StaticVarRewriter, ArrayRewriter - Hoists static and array
+    //   length reads before they are rewritten.
+    LoopInvariantHoister loopInvariantHoister = new LoopInvariantHoister(unit);
+    if (loopInvariantHoister.isEnabled()) {
+      loopInvariantHoister.run();
+      ticker.tick("LoopInvariantHoister");
+    }
+
     // Before: Functionizer - Needs to rewrite some ClassInstanceCreation nodes
     //   before Functionizer does.
     // Before: StaticVarRewriter, OperatorRewriter - Doesn't know how to handle
@@ -398,6 +433,10 @@ public class TranslationProcessor extends FileProcessor {
           nFiles, nFiles == 1 ? "file" : "files", ErrorUtil.errorCount(),
           ErrorUtil.warningCount()));
     }
+    TimingLevel timingLevel = options.timingLevel();
+    if (timingLevel == TimingLevel.TOTAL || timingLevel == TimingLevel.ALL) {
+      options.statistics().printResults(System.out);
+    }
   }
 
   private void checkDependencies(CompilationUnit unit) {
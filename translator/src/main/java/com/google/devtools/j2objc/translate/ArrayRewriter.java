@@ -18,29 +18,40 @@ import com.google.devtools.j2objc.ast.ArrayAccess;
 import com.google.devtools.j2objc.ast.ArrayCreation;
 import com.google.devtools.j2objc.ast.ArrayInitializer;
 import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
 import com.google.devtools.j2objc.ast.CompilationUnit;
 import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
 import com.google.devtools.j2objc.ast.FieldAccess;
 import com.google.devtools.j2objc.ast.FunctionInvocation;
 import com.google.devtools.j2objc.ast.InstanceofExpression;
 import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NativeStatement;
 import com.google.devtools.j2objc.ast.NumberLiteral;
 import com.google.devtools.j2objc.ast.PrefixExpression;
 import com.google.devtools.j2objc.ast.QualifiedName;
 import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.TreeNode;
 import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
 import com.google.devtools.j2objc.ast.TypeLiteral;
 import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.VariableDeclarationStatement;
 import com.google.devtools.j2objc.types.ExecutablePair;
 import com.google.devtools.j2objc.types.FunctionElement;
 import com.google.devtools.j2objc.types.GeneratedExecutableElement;
 import com.google.devtools.j2objc.types.GeneratedVariableElement;
 import com.google.devtools.j2objc.types.PointerType;
 import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TranslationUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
 import com.google.devtools.j2objc.util.UnicodeUtils;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -51,16 +62,190 @@ import javax.lang.model.type.TypeMirror;
 /**
  * Rewrites array creation into a method invocation on an IOSArray class.
  *
+ * <p>With -Xstack-array-max-bytes, a local primitive array of a constant size
+ * that is only indexed and has its length read is instead declared as a C
+ * array, so it is allocated on the stack rather than as a reference counted
+ * object. Its indexes are still checked, unless they are constants.
+ *
  * @author Keith Stanger
  */
 public class ArrayRewriter extends UnitTreeVisitor {
 
+  private static final String STACK_ARRAYS = "ArrayRewriter: stack-allocated arrays";
+
+  // The local arrays allocated on the stack, with their lengths.
+  private final Map<VariableElement, Integer> stackArrays = new HashMap<>();
+
   public ArrayRewriter(CompilationUnit unit) {
     super(unit);
   }
 
+  @Override
+  public boolean visit(VariableDeclarationStatement node) {
+    int length = getStackArrayLength(node);
+    if (length > 0) {
+      stackArrays.put(node.getFragments().get(0).getVariableElement(), length);
+    }
+    return true;
+  }
+
+  @Override
+  public void endVisit(VariableDeclarationStatement node) {
+    VariableDeclarationFragment frag = node.getFragments().get(0);
+    VariableElement var = frag.getVariableElement();
+    Integer length = stackArrays.get(var);
+    if (length == null) {
+      return;
+    }
+    ArrayCreation creation = (ArrayCreation) frag.getInitializer();
+    String type = NameTable.getPrimitiveObjCType(creation.getTypeMirror().getComponentType());
+    String name = nameTable.getVariableQualifiedName(var);
+    ArrayInitializer initializer = creation.getInitializer();
+    if (initializer == null) {
+      // Java arrays are zeroed.
+      node.replaceWith(new NativeStatement(
+          UnicodeUtils.format("%s %s[%d] = { 0 };", type, name, length)));
+    } else {
+      Statement last = new NativeStatement(UnicodeUtils.format("%s %s[%d];", type, name, length));
+      node.replaceWith(last);
+      List<Expression> values = initializer.getExpressions();
+      for (int i = 0; i < length; i++) {
+        ArrayAccess element = new ArrayAccess()
+            .setArray(new SimpleName(var))
+            .setIndex(NumberLiteral.newIntLiteral(i, typeUtil))
+            .setIsStackArrayAccess(true);
+        Statement assignment =
+            new ExpressionStatement(new Assignment(element, TreeUtil.remove(values.get(0))));
+        TreeUtil.insertAfter(last, assignment);
+        last = assignment;
+      }
+    }
+    options.statistics().increment(STACK_ARRAYS);
+  }
+
+  /**
+   * Returns the length of the array a declaration initializes, if the array
+   * can be allocated on the stack, else -1.
+   */
+  private int getStackArrayLength(VariableDeclarationStatement node) {
+    int maxBytes = options.stackArrayMaxBytes();
+    if (maxBytes <= 0 || node.getFragments().size() != 1
+        || !(node.getParent() instanceof Block)) {
+      return -1;
+    }
+    VariableDeclarationFragment frag = node.getFragments().get(0);
+    VariableElement var = frag.getVariableElement();
+    Expression init = frag.getInitializer();
+    if (!ElementUtil.isLocalVariable(var) || !(init instanceof ArrayCreation)
+        || !typeUtil.isSameType(var.asType(), init.getTypeMirror())) {
+      return -1;
+    }
+    ArrayCreation creation = (ArrayCreation) init;
+    TypeMirror componentType = creation.getTypeMirror().getComponentType();
+    if (!componentType.getKind().isPrimitive()) {
+      return -1;
+    }
+    int length = creation.getInitializer() != null
+        ? creation.getInitializer().getExpressions().size()
+        : getConstantLength(creation.getDimensions().get(0));
+    if (length <= 0 || (long) length * elementSize(componentType) > maxBytes
+        || !isOnlyAccessed(var, (Block) node.getParent())) {
+      return -1;
+    }
+    return length;
+  }
+
+  private static int getConstantLength(Expression dimension) {
+    Object value = null;
+    if (dimension instanceof NumberLiteral) {
+      value = ((NumberLiteral) dimension).getValue();
+    } else {
+      VariableElement var = TreeUtil.getVariableElement(dimension);
+      if (var != null) {
+        value = var.getConstantValue();
+      }
+    }
+    return value instanceof Integer ? (Integer) value : -1;
+  }
+
+  private static int elementSize(TypeMirror componentType) {
+    switch (componentType.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+        return 1;
+      case CHAR:
+      case SHORT:
+        return 2;
+      case INT:
+      case FLOAT:
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  /**
+   * Returns true if every use of an array variable in its scope is an element
+   * access or a read of its length.
+   */
+  private static boolean isOnlyAccessed(VariableElement var, Block scope) {
+    boolean[] escapes = new boolean[1];
+    scope.accept(new TreeVisitor() {
+      @Override
+      public boolean visit(SimpleName node) {
+        if (node.getElement() == var && getStackArrayUse(node) == null) {
+          escapes[0] = true;
+        }
+        return false;
+      }
+    });
+    return !escapes[0];
+  }
+
+  /**
+   * Returns the element access or length read that uses an array variable,
+   * which may be nil checked, or null if it's used any other way.
+   */
+  private static Expression getStackArrayUse(SimpleName name) {
+    Expression expr = name;
+    TreeNode parent = expr.getParent();
+    if (parent instanceof FunctionInvocation
+        && ((FunctionInvocation) parent).getFunctionElement().getName().equals("nil_chk")) {
+      expr = (Expression) parent;
+      parent = expr.getParent();
+    }
+    if ((parent instanceof ArrayAccess && ((ArrayAccess) parent).getArray() == expr)
+        || (parent instanceof FieldAccess && ((FieldAccess) parent).getExpression() == expr
+            && ((FieldAccess) parent).getName().getIdentifier().equals("length"))
+        || (parent instanceof QualifiedName && ((QualifiedName) parent).getQualifier() == expr
+            && ((QualifiedName) parent).getName().getIdentifier().equals("length"))) {
+      return (Expression) parent;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the stack-allocated array an expression refers to, or null.
+   */
+  private VariableElement getStackArray(Expression expr) {
+    if (expr instanceof FunctionInvocation
+        && ((FunctionInvocation) expr).getFunctionElement().getName().equals("nil_chk")) {
+      expr = ((FunctionInvocation) expr).getArguments().get(0);
+    }
+    if (!(expr instanceof SimpleName)) {
+      return null;
+    }
+    VariableElement var = TreeUtil.getVariableElement(expr);
+    return var != null && stackArrays.containsKey(var) ? var : null;
+  }
+
   @Override
   public void endVisit(ArrayCreation node) {
+    TreeNode parent = node.getParent();
+    if (parent instanceof VariableDeclarationFragment
+        && stackArrays.containsKey(((VariableDeclarationFragment) parent).getVariableElement())) {
+      return;
+    }
     node.replaceWith(createInvocation(node));
   }
 
@@ -247,6 +432,11 @@ public class ArrayRewriter extends UnitTreeVisitor {
 
   @Override
   public void endVisit(ArrayAccess node) {
+    VariableElement stackArray = getStackArray(node.getArray());
+    if (stackArray != null) {
+      rewriteStackArrayAccess(node, stackArray);
+      return;
+    }
     TypeMirror componentType = node.getTypeMirror();
     TypeElement iosArrayElement = typeUtil.getIosArray(componentType);
 
@@ -276,6 +466,28 @@ public class ArrayRewriter extends UnitTreeVisitor {
     return invocation;
   }
 
+  // The access is kept, and generated as a C array subscript.
+  private void rewriteStackArrayAccess(ArrayAccess node, VariableElement var) {
+    int length = stackArrays.get(var);
+    node.setArray(new SimpleName(var));
+    node.setIsStackArrayAccess(true);
+    Expression index = node.getIndex();
+    if (index instanceof NumberLiteral) {
+      long value = ((NumberLiteral) index).getValue().longValue();
+      if (value >= 0 && value < length) {
+        return;
+      }
+    }
+    TypeMirror intType = typeUtil.getInt();
+    FunctionElement element = new FunctionElement("IOSArray_checkedIndex", intType,
+        typeUtil.getIosArray(node.getTypeMirror()))
+        .addParameters(intType, intType);
+    FunctionInvocation checkedIndex = new FunctionInvocation(element, intType);
+    checkedIndex.addArgument(NumberLiteral.newIntLiteral(length, typeUtil));
+    checkedIndex.addArgument(TreeUtil.remove(index));
+    node.setIndex(checkedIndex);
+  }
+
   private FunctionInvocation newArrayAssignment(
       Assignment assignmentNode, ArrayAccess arrayAccessNode, TypeMirror componentType) {
     Assignment.Operator op = assignmentNode.getOperator();
@@ -314,6 +526,11 @@ public class ArrayRewriter extends UnitTreeVisitor {
   private void maybeRewriteArrayLength(Expression node, SimpleName name, Expression expr) {
     TypeMirror exprType = expr.getTypeMirror();
     if (name.getIdentifier().equals("length") && TypeUtil.isArray(exprType)) {
+      VariableElement stackArray = getStackArray(expr);
+      if (stackArray != null) {
+        node.replaceWith(NumberLiteral.newIntLiteral(stackArrays.get(stackArray), typeUtil));
+        return;
+      }
       VariableElement sizeField = GeneratedVariableElement.newField(
           "size", typeUtil.getInt(),
           typeUtil.getIosArray(((ArrayType) exprType).getComponentType()));
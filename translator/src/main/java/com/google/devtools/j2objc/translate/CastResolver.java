@@ -15,6 +15,7 @@
 package com.google.devtools.j2objc.translate;
 
 import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
 import com.google.devtools.j2objc.ast.CastExpression;
 import com.google.devtools.j2objc.ast.ClassInstanceCreation;
 import com.google.devtools.j2objc.ast.CompilationUnit;
@@ -32,12 +33,15 @@ import com.google.devtools.j2objc.ast.InstanceofExpression;
 import com.google.devtools.j2objc.ast.MethodDeclaration;
 import com.google.devtools.j2objc.ast.MethodInvocation;
 import com.google.devtools.j2objc.ast.ParenthesizedExpression;
+import com.google.devtools.j2objc.ast.PrefixExpression;
 import com.google.devtools.j2objc.ast.ReturnStatement;
 import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.Statement;
 import com.google.devtools.j2objc.ast.SuperConstructorInvocation;
 import com.google.devtools.j2objc.ast.SuperMethodInvocation;
 import com.google.devtools.j2objc.ast.TreeNode;
 import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
 import com.google.devtools.j2objc.ast.TypeLiteral;
 import com.google.devtools.j2objc.ast.UnitTreeVisitor;
 import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
@@ -45,11 +49,17 @@ import com.google.devtools.j2objc.types.ExecutablePair;
 import com.google.devtools.j2objc.types.FunctionElement;
 import com.google.devtools.j2objc.types.GeneratedExecutableElement;
 import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TranslationStatistics;
 import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
@@ -68,10 +78,36 @@ import javax.lang.model.type.TypeMirror;
  */
 public class CastResolver extends UnitTreeVisitor {
 
+  private static final String CAST_CHECKS = "CastResolver: cast checks";
+  private static final String CAST_CHECKS_REMOVED =
+      "CastResolver: cast checks removed after instanceof";
+
+  /** The types that variables are known to have in the current statement. */
   private final Map<VariableElement, TypeMirror> narrowingMap = new HashMap<>();
+  private final Deque<Map<VariableElement, TypeMirror>> narrowingStack = new ArrayDeque<>();
+
+  /** Variables that are assigned after their declaration, so can't be narrowed. */
+  private final Set<VariableElement> reassignedVars = new HashSet<>();
+
+  private final TranslationStatistics statistics;
 
   public CastResolver(CompilationUnit unit) {
     super(unit);
+    statistics = options.statistics();
+  }
+
+  @Override
+  public void run() {
+    unit.accept(new TreeVisitor() {
+      @Override
+      public void endVisit(Assignment node) {
+        VariableElement var = TreeUtil.getVariableElement(node.getLeftHandSide());
+        if (var != null) {
+          reassignedVars.add(var);
+        }
+      }
+    });
+    super.run();
   }
 
   @Override
@@ -133,6 +169,14 @@ public class CastResolver extends UnitTreeVisitor {
 
   private FunctionInvocation createCastCheck(TypeMirror type, Expression expr) {
     type = typeUtil.erasure(type);
+    if (!TypeUtil.isArray(type) && !TypeUtil.isDeclaredType(type)) {
+      return null;
+    }
+    if (!needsCastChk(expr, type)) {
+      statistics.increment(CAST_CHECKS_REMOVED);
+      return null;
+    }
+    statistics.increment(CAST_CHECKS);
     TypeMirror idType = TypeUtil.ID_TYPE;
     if (TypeUtil.isInterface(type) || isObjectArray(type)) {
       // Interfaces and object arrays require an isInstance call.
@@ -142,24 +186,21 @@ public class CastResolver extends UnitTreeVisitor {
       invocation.addArgument(TreeUtil.remove(expr));
       invocation.addArgument(new TypeLiteral(type, typeUtil));
       return invocation;
-    } else if (TypeUtil.isArray(type)
-        || (TypeUtil.isDeclaredType(type) && needsCastChk(expr, type))) {
-      // Primitive array and non-interface type casts are checked using Objective-C's
-      // isKindOfClass:.
-      TypeElement objcClass = typeUtil.getObjcClass(type);
-      FunctionElement checkFunction = new FunctionElement("cast_chk", idType, null)
-          .addParameters(idType, idType);
-      FunctionInvocation invocation = new FunctionInvocation(checkFunction, idType);
-      invocation.addArgument(TreeUtil.remove(expr));
-      ExecutableElement classElement =
-          GeneratedExecutableElement.newMethodWithSelector("class", idType, objcClass)
-          .addModifiers(Modifier.STATIC);
-      MethodInvocation classInvocation =
-          new MethodInvocation(new ExecutablePair(classElement), new SimpleName(objcClass));
-      invocation.addArgument(classInvocation);
-      return invocation;
     }
-    return null;
+    // Primitive array and non-interface type casts are checked using Objective-C's
+    // isKindOfClass:.
+    TypeElement objcClass = typeUtil.getObjcClass(type);
+    FunctionElement checkFunction = new FunctionElement("cast_chk", idType, null)
+        .addParameters(idType, idType);
+    FunctionInvocation invocation = new FunctionInvocation(checkFunction, idType);
+    invocation.addArgument(TreeUtil.remove(expr));
+    ExecutableElement classElement =
+        GeneratedExecutableElement.newMethodWithSelector("class", idType, objcClass)
+        .addModifiers(Modifier.STATIC);
+    MethodInvocation classInvocation =
+        new MethodInvocation(new ExecutablePair(classElement), new SimpleName(objcClass));
+    invocation.addArgument(classInvocation);
+    return invocation;
   }
 
   private void addCast(Expression expr) {
@@ -444,43 +485,173 @@ public class CastResolver extends UnitTreeVisitor {
         && !typeUtil.isObjcAssignable(aType, bType) && !typeUtil.isObjcAssignable(bType, aType);
   }
 
+  @Override
+  public boolean visit(Block node) {
+    narrowingStack.push(new HashMap<>(narrowingMap));
+    return true;
+  }
+
+  @Override
+  public void endVisit(Block node) {
+    restoreNarrowing(narrowingStack.pop());
+  }
+
   @Override
   public boolean visit(IfStatement node) {
-    // Adds a narrowed type to the narrowing map for a statement with
-    // an instanceof expression where the body would have a redundant
-    // cast check (since the instanceof test shows it's not necessary).
+    // Narrows the type of variables tested with instanceof in the branch that
+    // the test dominates, where a cast check would be redundant.
     Expression expr = node.getExpression();
-    VariableElement var = getInstanceofVar(expr);
-    if (var != null) {
-      TypeMirror instanceofType =
-          ((InstanceofExpression) expr).getRightOperand().getTypeMirror();
-      narrowingMap.put(var, instanceofType);
+    Map<VariableElement, TypeMirror> whenTrue = new HashMap<>();
+    Map<VariableElement, TypeMirror> whenFalse = new HashMap<>();
+    collectNarrowing(expr, true, whenTrue);
+    collectNarrowing(expr, false, whenFalse);
+    expr.accept(this);
+    Statement thenStmt = node.getThenStatement();
+    Statement elseStmt = node.getElseStatement();
+    acceptNarrowed(thenStmt, whenTrue);
+    if (elseStmt != null) {
+      acceptNarrowed(elseStmt, whenFalse);
     }
-    return true;
+
+    // If a branch can't complete normally, the statements following the if
+    // statement in its block are only reached through the other branch.
+    if (node.getParent() instanceof Block) {
+      if (!canCompleteNormally(thenStmt)) {
+        narrowingMap.putAll(whenFalse);
+      }
+      if (elseStmt != null && !canCompleteNormally(elseStmt)) {
+        narrowingMap.putAll(whenTrue);
+      }
+    }
+    return false;
   }
 
   @Override
-  public void endVisit(IfStatement node) {
-    VariableElement var = getInstanceofVar(node.getExpression());
-    if (var != null) {
-      narrowingMap.remove(var);
+  public boolean visit(InfixExpression node) {
+    // The right operands of conditional operators are only evaluated if the
+    // left operands have the right value.
+    Operator operator = node.getOperator();
+    boolean isAnd = operator == InfixExpression.Operator.CONDITIONAL_AND;
+    if (!isAnd && operator != InfixExpression.Operator.CONDITIONAL_OR) {
+      return true;
+    }
+    List<Expression> operands = node.getOperands();
+    List<Map<VariableElement, TypeMirror>> narrowings = new ArrayList<>();
+    Map<VariableElement, TypeMirror> narrowing = new HashMap<>();
+    for (Expression operand : operands) {
+      narrowings.add(new HashMap<>(narrowing));
+      collectNarrowing(operand, isAnd, narrowing);
     }
+    for (int i = 0; i < operands.size(); i++) {
+      acceptNarrowed(operands.get(i), narrowings.get(i));
+    }
+    return false;
+  }
+
+  @Override
+  public boolean visit(ConditionalExpression node) {
+    Expression expr = node.getExpression();
+    Map<VariableElement, TypeMirror> whenTrue = new HashMap<>();
+    Map<VariableElement, TypeMirror> whenFalse = new HashMap<>();
+    collectNarrowing(expr, true, whenTrue);
+    collectNarrowing(expr, false, whenFalse);
+    expr.accept(this);
+    acceptNarrowed(node.getThenExpression(), whenTrue);
+    acceptNarrowed(node.getElseExpression(), whenFalse);
+    return false;
+  }
+
+  private void acceptNarrowed(TreeNode node, Map<VariableElement, TypeMirror> narrowing) {
+    if (narrowing.isEmpty()) {
+      node.accept(this);
+      return;
+    }
+    Map<VariableElement, TypeMirror> saved = new HashMap<>(narrowingMap);
+    narrowingMap.putAll(narrowing);
+    node.accept(this);
+    restoreNarrowing(saved);
+  }
+
+  private void restoreNarrowing(Map<VariableElement, TypeMirror> saved) {
+    narrowingMap.clear();
+    narrowingMap.putAll(saved);
   }
 
-  private VariableElement getInstanceofVar(Expression expr) {
-    if (expr.getKind() == TreeNode.Kind.INSTANCEOF_EXPRESSION) {
-      InstanceofExpression ie = (InstanceofExpression) expr;
-      return TreeUtil.getVariableElement(ie.getLeftOperand());
+  /**
+   * Adds the types that variables are known to have when expr evaluates to
+   * value.
+   */
+  private void collectNarrowing(
+      Expression expr, boolean value, Map<VariableElement, TypeMirror> narrowing) {
+    switch (expr.getKind()) {
+      case PARENTHESIZED_EXPRESSION:
+        collectNarrowing(((ParenthesizedExpression) expr).getExpression(), value, narrowing);
+        break;
+      case PREFIX_EXPRESSION:
+        {
+          PrefixExpression prefix = (PrefixExpression) expr;
+          if (prefix.getOperator() == PrefixExpression.Operator.NOT) {
+            collectNarrowing(prefix.getOperand(), !value, narrowing);
+          }
+          break;
+        }
+      case INFIX_EXPRESSION:
+        {
+          InfixExpression infix = (InfixExpression) expr;
+          Operator operator = infix.getOperator();
+          if ((value && operator == InfixExpression.Operator.CONDITIONAL_AND)
+              || (!value && operator == InfixExpression.Operator.CONDITIONAL_OR)) {
+            for (Expression operand : infix.getOperands()) {
+              collectNarrowing(operand, value, narrowing);
+            }
+          }
+          break;
+        }
+      case INSTANCEOF_EXPRESSION:
+        if (value) {
+          InstanceofExpression ie = (InstanceofExpression) expr;
+          VariableElement var =
+              TreeUtil.getVariableElement(TreeUtil.trimParentheses(ie.getLeftOperand()));
+          if (var != null && !ElementUtil.isField(var) && !reassignedVars.contains(var)) {
+            narrowing.put(var, ie.getRightOperand().getTypeMirror());
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static boolean canCompleteNormally(Statement stmt) {
+    switch (stmt.getKind()) {
+      case RETURN_STATEMENT:
+      case THROW_STATEMENT:
+      case BREAK_STATEMENT:
+      case CONTINUE_STATEMENT:
+        return false;
+      case BLOCK:
+        {
+          List<Statement> stmts = ((Block) stmt).getStatements();
+          return stmts.isEmpty() || canCompleteNormally(stmts.get(stmts.size() - 1));
+        }
+      case IF_STATEMENT:
+        {
+          IfStatement ifStmt = (IfStatement) stmt;
+          return ifStmt.getElseStatement() == null
+              || canCompleteNormally(ifStmt.getThenStatement())
+              || canCompleteNormally(ifStmt.getElseStatement());
+        }
+      default:
+        return true;
     }
-    return null;
   }
 
   private boolean needsCastChk(Expression expr, TypeMirror type) {
     VariableElement var = TreeUtil.getVariableElement(expr);
     if (var != null) {
       TypeMirror narrowing = narrowingMap.get(var);
-      if (narrowing != null) {
-        return !typeUtil.isSubtype(narrowing, type);
+      if (narrowing != null && typeUtil.isSubtype(typeUtil.erasure(narrowing), type)) {
+        return false;
       }
     }
     return true;
@@ -16,20 +16,32 @@ package com.google.devtools.j2objc.translate;
 
 import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
 import com.google.devtools.j2objc.ast.AnnotationTypeDeclaration;
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
 import com.google.devtools.j2objc.ast.BodyDeclaration;
+import com.google.devtools.j2objc.ast.CommaExpression;
 import com.google.devtools.j2objc.ast.Comment;
 import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.EmptyStatement;
 import com.google.devtools.j2objc.ast.EnumDeclaration;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
+import com.google.devtools.j2objc.ast.FieldAccess;
 import com.google.devtools.j2objc.ast.FieldDeclaration;
+import com.google.devtools.j2objc.ast.ForStatement;
 import com.google.devtools.j2objc.ast.MethodDeclaration;
+import com.google.devtools.j2objc.ast.QualifiedName;
 import com.google.devtools.j2objc.ast.RecordDeclaration;
+import com.google.devtools.j2objc.ast.TreeNode;
 import com.google.devtools.j2objc.ast.TreeNode.Kind;
+import com.google.devtools.j2objc.ast.TreeUtil;
 import com.google.devtools.j2objc.ast.TypeDeclaration;
 import com.google.devtools.j2objc.ast.UnitTreeVisitor;
 import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
 import com.google.devtools.j2objc.types.GeneratedTypeElement;
 import com.google.devtools.j2objc.util.CodeReferenceMap;
 import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TranslationUtil;
 import java.lang.reflect.Modifier;
 import java.util.Iterator;
 import java.util.List;
@@ -38,7 +50,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 
 /**
- * Updates the Java AST to remove methods and classes reported as dead
+ * Updates the Java AST to remove methods, fields and classes reported as dead
  * by a ProGuard usage report.
  *
  * @author Daniel Connelly
@@ -73,6 +85,62 @@ public class DeadCodeEliminator extends UnitTreeVisitor {
     }
   }
 
+  /**
+   * Removes writes to dead fields, since the field declarations are deleted.
+   * The assigned value is kept if evaluating it has side effects.
+   */
+  @Override
+  public void endVisit(Assignment node) {
+    if (node.getOperator() != Assignment.Operator.ASSIGN) {
+      return;
+    }
+    Expression lhs = node.getLeftHandSide();
+    VariableElement var = TreeUtil.getVariableElement(lhs);
+    if (var == null || !isDeadField(var)) {
+      return;
+    }
+    Expression value = TreeUtil.remove(node.getRightHandSide());
+    Expression receiver = null;
+    if (lhs instanceof FieldAccess) {
+      receiver = ((FieldAccess) lhs).getExpression();
+    } else if (lhs instanceof QualifiedName) {
+      receiver = ((QualifiedName) lhs).getQualifier();
+    }
+    if (receiver != null && TranslationUtil.hasSideEffect(receiver)) {
+      value = new CommaExpression(TreeUtil.remove(receiver), value);
+    }
+    TreeNode parent = node.getParent();
+    if (parent instanceof ExpressionStatement && !TranslationUtil.hasSideEffect(value)) {
+      if (parent.getParent() instanceof Block) {
+        parent.remove();
+      } else {
+        parent.replaceWith(new EmptyStatement());
+      }
+    } else if (isForLoopExpression(node) && !TranslationUtil.hasSideEffect(value)) {
+      // A bare value as a for loop initializer or updater is an unused expression.
+      node.remove();
+    } else {
+      node.replaceWith(value);
+    }
+  }
+
+  private static boolean isForLoopExpression(Expression node) {
+    TreeNode parent = node.getParent();
+    if (!(parent instanceof ForStatement)) {
+      return false;
+    }
+    ForStatement loop = (ForStatement) parent;
+    return loop.getInitializers().contains(node) || loop.getUpdaters().contains(node);
+  }
+
+  private boolean isDeadField(VariableElement var) {
+    return ElementUtil.isField(var)
+        && var.getConstantValue() == null
+        && deadCodeMap.containsField(
+            elementUtil.getBinaryName(ElementUtil.getDeclaringClass(var)),
+            ElementUtil.getName(var));
+  }
+
   @Override
   public void endVisit(RecordDeclaration node) {
     TypeElement type = node.getTypeElement();
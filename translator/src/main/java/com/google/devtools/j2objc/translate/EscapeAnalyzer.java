@@ -0,0 +1,474 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.ArrayAccess;
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
+import com.google.devtools.j2objc.ast.BreakStatement;
+import com.google.devtools.j2objc.ast.ClassInstanceCreation;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.ContinueStatement;
+import com.google.devtools.j2objc.ast.DoStatement;
+import com.google.devtools.j2objc.ast.EnhancedForStatement;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
+import com.google.devtools.j2objc.ast.FieldAccess;
+import com.google.devtools.j2objc.ast.ForStatement;
+import com.google.devtools.j2objc.ast.FunctionInvocation;
+import com.google.devtools.j2objc.ast.InfixExpression;
+import com.google.devtools.j2objc.ast.LambdaExpression;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.QualifiedName;
+import com.google.devtools.j2objc.ast.ReturnStatement;
+import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.SwitchStatement;
+import com.google.devtools.j2objc.ast.ThisExpression;
+import com.google.devtools.j2objc.ast.ThrowStatement;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.TryStatement;
+import com.google.devtools.j2objc.ast.TypeDeclaration;
+import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.VariableDeclarationStatement;
+import com.google.devtools.j2objc.ast.WhileStatement;
+import com.google.devtools.j2objc.types.FunctionElement;
+import com.google.devtools.j2objc.types.GeneratedVariableElement;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TranslationStatistics;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Finds local variables that are initialized with a new object which never
+ * escapes the variable's scope, and creates those objects with a retained
+ * reference ("new_Foo_init()" instead of "create_Foo_init()") that is released
+ * at the end of the scope. This keeps temporary objects that are allocated in a
+ * loop from accumulating in the autorelease pool.
+ *
+ * <p>An object escapes if it, or any object reference read from it, is stored,
+ * returned, thrown or passed as an argument. Invoking its methods and reading
+ * its fields is allowed, as long as a resulting object reference is only used
+ * the same way. A scope qualifies only if it has no exits other than falling
+ * through its end or a final return statement. If the rest of the scope can
+ * throw, it's wrapped in a try statement that releases the object in its
+ * finally block, so an exception doesn't leak it. This pass only runs with
+ * -Xescape-analysis, and only with manual reference counting, since ARC
+ * already releases local variables.
+ */
+public class EscapeAnalyzer extends UnitTreeVisitor {
+
+  private static final String CANDIDATES = "EscapeAnalyzer: local allocations";
+  private static final String RELEASED = "EscapeAnalyzer: released at end of scope";
+  private static final String ESCAPING = "EscapeAnalyzer: skipped, escaping";
+  private static final String EARLY_EXIT = "EscapeAnalyzer: skipped, early scope exit";
+  private static final String RELEASED_IN_FINALLY = "EscapeAnalyzer: released in finally block";
+
+  private final TranslationStatistics statistics;
+  private int count = 1;
+
+  public EscapeAnalyzer(CompilationUnit unit) {
+    super(unit);
+    statistics = options.statistics();
+  }
+
+  public boolean isEnabled() {
+    return options.escapeAnalysis() && options.useReferenceCounting();
+  }
+
+  @Override
+  public void endVisit(Block node) {
+    List<Statement> stmts = node.getStatements();
+    List<VariableElement> released = new ArrayList<>();
+    List<VariableElement> releasedInFinally = new ArrayList<>();
+    List<Integer> declarationIndexes = new ArrayList<>();
+    for (int i = 0; i < stmts.size(); i++) {
+      if (!(stmts.get(i) instanceof VariableDeclarationStatement)) {
+        continue;
+      }
+      for (VariableDeclarationFragment frag :
+           ((VariableDeclarationStatement) stmts.get(i)).getFragments()) {
+        ClassInstanceCreation creation = getCreation(frag);
+        if (creation == null) {
+          continue;
+        }
+        statistics.increment(CANDIDATES);
+        VariableElement var = frag.getVariableElement();
+        if (!isLocalToScope(var, node)) {
+          statistics.increment(ESCAPING);
+        } else if (hasEarlyExit(node, i + 1)) {
+          statistics.increment(EARLY_EXIT);
+        } else if (canThrow(node, i + 1)) {
+          creation.setHasRetainedResult(true);
+          releasedInFinally.add(var);
+          declarationIndexes.add(i);
+          statistics.increment(RELEASED_IN_FINALLY);
+        } else {
+          creation.setHasRetainedResult(true);
+          released.add(var);
+          statistics.increment(RELEASED);
+        }
+      }
+    }
+    // The statements that follow a declaration include those that follow any
+    // later declaration, so the variables released at the end of the block
+    // are declared after those released in finally blocks.
+    if (!released.isEmpty()) {
+      addReleases(node, released);
+    }
+    for (int i = releasedInFinally.size() - 1; i >= 0; i--) {
+      addFinallyRelease(node, declarationIndexes.get(i), releasedInFinally.get(i));
+    }
+  }
+
+  /**
+   * Returns the object creation that initializes a local variable, or null.
+   */
+  private ClassInstanceCreation getCreation(VariableDeclarationFragment frag) {
+    Expression init = frag.getInitializer();
+    if (init == null || frag.getVariableElement().getKind() != ElementKind.LOCAL_VARIABLE) {
+      return null;
+    }
+    init = TreeUtil.trimParentheses(init);
+    if (!(init instanceof ClassInstanceCreation)) {
+      return null;
+    }
+    ClassInstanceCreation creation = (ClassInstanceCreation) init;
+    // Strings are created by mapped methods, not constructor functions.
+    if (creation.getAnonymousClassDeclaration() != null || creation.hasRetainedResult()
+        || typeUtil.isString(creation.getTypeMirror())) {
+      return null;
+    }
+    return creation;
+  }
+
+  private boolean isLocalToScope(VariableElement var, Block block) {
+    boolean[] escapes = new boolean[1];
+    block.accept(new TreeVisitor() {
+      @Override
+      public boolean visit(SimpleName node) {
+        if (node.getElement() == var && !isLocalUse(node)) {
+          escapes[0] = true;
+        }
+        return false;
+      }
+    });
+    return !escapes[0];
+  }
+
+  /**
+   * Returns true if the value of expr, which is either the variable or an
+   * object reference read from it, is not kept beyond the expression.
+   */
+  private boolean isLocalUse(Expression expr) {
+    if (!(expr instanceof SimpleName) && expr.getTypeMirror().getKind().isPrimitive()) {
+      return true;
+    }
+    TreeNode parent = expr.getParent();
+    switch (parent.getKind()) {
+      case PARENTHESIZED_EXPRESSION:
+      case CAST_EXPRESSION:
+        return isLocalUse((Expression) parent);
+      case EXPRESSION_STATEMENT:
+      case INSTANCEOF_EXPRESSION:
+      case SYNCHRONIZED_STATEMENT:
+        return true;
+      case INFIX_EXPRESSION:
+        {
+          InfixExpression infix = (InfixExpression) parent;
+          InfixExpression.Operator op = infix.getOperator();
+          return op == InfixExpression.Operator.EQUALS
+              || op == InfixExpression.Operator.NOT_EQUALS
+              || (op == InfixExpression.Operator.PLUS
+                  && typeUtil.isString(infix.getTypeMirror()));
+        }
+      case FUNCTION_INVOCATION:
+        return ((FunctionInvocation) parent).getFunctionElement().getName().equals("nil_chk")
+            && isLocalUse((Expression) parent);
+      case METHOD_INVOCATION:
+        {
+          MethodInvocation invocation = (MethodInvocation) parent;
+          if (invocation.getExpression() != expr) {
+            return false;
+          }
+          return hasNewResult(invocation.getExecutableElement()) || isLocalUse(invocation);
+        }
+      case FIELD_ACCESS:
+        return ((FieldAccess) parent).getExpression() == expr && isLocalUse((Expression) parent);
+      case QUALIFIED_NAME:
+        return ((QualifiedName) parent).getQualifier() == expr && isLocalUse((Expression) parent);
+      case ARRAY_ACCESS:
+        return ((ArrayAccess) parent).getArray() == expr && isLocalUse((Expression) parent);
+      case ASSIGNMENT:
+        // Storing into a field or element of the object is fine, reassigning
+        // the variable is not.
+        return ((Assignment) parent).getLeftHandSide() == expr && !(expr instanceof SimpleName);
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns true if the method is known to return a new object, rather than
+   * one that its receiver may own.
+   */
+  private static boolean hasNewResult(ExecutableElement method) {
+    if (!ElementUtil.getName(method).equals("toString") || !method.getParameters().isEmpty()) {
+      return false;
+    }
+    String className = ElementUtil.getQualifiedName(ElementUtil.getDeclaringClass(method));
+    return className.equals("java.lang.StringBuilder")
+        || className.equals("java.lang.StringBuffer")
+        || className.equals("java.lang.AbstractStringBuilder");
+  }
+
+  /**
+   * Returns true if a statement of the block at or after index start can leave
+   * the block early, skipping the releases. A return statement that ends the
+   * block is not an early exit.
+   */
+  private static boolean hasEarlyExit(Block block, int start) {
+    List<Statement> stmts = block.getStatements();
+    int end = stmts.size();
+    if (end > start && stmts.get(end - 1) instanceof ReturnStatement) {
+      end--;
+    }
+    boolean[] exits = new boolean[1];
+    TreeVisitor visitor = new TreeVisitor() {
+      @Override
+      public boolean visit(ReturnStatement node) {
+        exits[0] = true;
+        return false;
+      }
+
+      @Override
+      public boolean visit(ThrowStatement node) {
+        exits[0] = true;
+        return false;
+      }
+
+      @Override
+      public boolean visit(BreakStatement node) {
+        if (node.getLabel() != null || !hasEnclosingTarget(node, block, true)) {
+          exits[0] = true;
+        }
+        return false;
+      }
+
+      @Override
+      public boolean visit(ContinueStatement node) {
+        if (node.getLabel() != null || !hasEnclosingTarget(node, block, false)) {
+          exits[0] = true;
+        }
+        return false;
+      }
+
+      @Override
+      public boolean visit(TypeDeclaration node) {
+        return false;
+      }
+
+      @Override
+      public boolean visit(LambdaExpression node) {
+        return false;
+      }
+    };
+    for (int i = start; i < end && !exits[0]; i++) {
+      stmts.get(i).accept(visitor);
+    }
+    return exits[0];
+  }
+
+  /**
+   * Returns true if a statement of the block at or after index start may
+   * throw an exception. Anything that invokes code, dereferences an object,
+   * indexes an array, casts or divides integers is assumed to throw.
+   */
+  private boolean canThrow(Block block, int start) {
+    boolean[] throwing = new boolean[1];
+    TreeVisitor visitor = new TreeVisitor() {
+      private boolean found() {
+        throwing[0] = true;
+        return false;
+      }
+
+      @Override
+      public boolean preVisit(TreeNode node) {
+        switch (node.getKind()) {
+          case ARRAY_ACCESS:
+          case ARRAY_CREATION:
+          case ASSERT_STATEMENT:
+          case CAST_EXPRESSION:
+          case CLASS_INSTANCE_CREATION:
+          case FUNCTION_INVOCATION:
+          case METHOD_INVOCATION:
+          case NATIVE_EXPRESSION:
+          case NATIVE_STATEMENT:
+          case SUPER_METHOD_INVOCATION:
+          case SYNCHRONIZED_STATEMENT:
+          case THROW_STATEMENT:
+            return found();
+          default:
+            return !throwing[0];
+        }
+      }
+
+      @Override
+      public boolean visit(FieldAccess node) {
+        return node.getExpression() instanceof ThisExpression || found();
+      }
+
+      @Override
+      public boolean visit(QualifiedName node) {
+        Element qualifier = node.getQualifier().getElement();
+        return (qualifier != null && ElementUtil.isTypeElement(qualifier)) || found();
+      }
+
+      @Override
+      public boolean visit(InfixExpression node) {
+        InfixExpression.Operator op = node.getOperator();
+        if ((op == InfixExpression.Operator.DIVIDE || op == InfixExpression.Operator.REMAINDER)
+            && !isFloatingPoint(node.getTypeMirror())) {
+          return found();
+        }
+        // String concatenation invokes toString().
+        return op != InfixExpression.Operator.PLUS || !typeUtil.isString(node.getTypeMirror())
+            || found();
+      }
+
+      @Override
+      public boolean visit(Assignment node) {
+        Assignment.Operator op = node.getOperator();
+        if ((op == Assignment.Operator.DIVIDE_ASSIGN || op == Assignment.Operator.REMAINDER_ASSIGN)
+            && !isFloatingPoint(node.getTypeMirror())) {
+          return found();
+        }
+        return op != Assignment.Operator.PLUS_ASSIGN || !typeUtil.isString(node.getTypeMirror())
+            || found();
+      }
+
+      @Override
+      public boolean visit(SwitchStatement node) {
+        return node.getExpression().getTypeMirror().getKind().isPrimitive() || found();
+      }
+
+      @Override
+      public boolean visit(TypeDeclaration node) {
+        return false;
+      }
+
+      @Override
+      public boolean visit(LambdaExpression node) {
+        return false;
+      }
+    };
+    List<Statement> stmts = block.getStatements();
+    for (int i = start; i < stmts.size() && !throwing[0]; i++) {
+      stmts.get(i).accept(visitor);
+    }
+    return throwing[0];
+  }
+
+  private static boolean isFloatingPoint(TypeMirror type) {
+    TypeKind kind = type.getKind();
+    return kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE;
+  }
+
+  /**
+   * Returns true if the target of an unlabeled break or continue statement is
+   * inside the block.
+   */
+  private static boolean hasEnclosingTarget(Statement jump, Block block, boolean isBreak) {
+    for (TreeNode node = jump.getParent(); node != block; node = node.getParent()) {
+      if (node instanceof ForStatement || node instanceof EnhancedForStatement
+          || node instanceof WhileStatement || node instanceof DoStatement
+          || (isBreak && node instanceof SwitchStatement)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Releases the variables at the end of the block, or before its final
+   * return statement. A returned expression is evaluated before the releases.
+   */
+  private void addReleases(Block block, List<VariableElement> vars) {
+    List<Statement> stmts = block.getStatements();
+    int insertIndex = stmts.size();
+    Statement last = stmts.get(insertIndex - 1);
+    if (last instanceof ReturnStatement) {
+      insertIndex--;
+      ReturnStatement returnStmt = (ReturnStatement) last;
+      Expression result = returnStmt.getExpression();
+      if (result != null && !isConstant(result)) {
+        TypeMirror type = TreeUtil.getOwningReturnType(returnStmt);
+        VariableElement resultVar = GeneratedVariableElement.newLocalVar(
+            "escape$" + count++, type, TreeUtil.getEnclosingElement(block));
+        stmts.add(insertIndex++, new VariableDeclarationStatement(resultVar, result.copy()));
+        returnStmt.setExpression(new SimpleName(resultVar));
+      }
+    }
+    for (int i = vars.size() - 1; i >= 0; i--) {
+      stmts.add(insertIndex++, createRelease(vars.get(i)));
+    }
+  }
+
+  /**
+   * Moves the statements that follow a variable's declaration into a try
+   * statement, which releases the variable in its finally block. A returned
+   * expression is evaluated before the finally block runs.
+   */
+  private void addFinallyRelease(Block block, int declarationIndex, VariableElement var) {
+    List<Statement> stmts = block.getStatements();
+    Block body = new Block();
+    TreeUtil.moveList(stmts.subList(declarationIndex + 1, stmts.size()), body.getStatements());
+    Block finallyBlock = new Block();
+    finallyBlock.addStatement(createRelease(var));
+    stmts.add(new TryStatement().setBody(body).setFinally(finallyBlock));
+  }
+
+  private static boolean isConstant(Expression expr) {
+    switch (expr.getKind()) {
+      case BOOLEAN_LITERAL:
+      case CHARACTER_LITERAL:
+      case NULL_LITERAL:
+      case NUMBER_LITERAL:
+      case STRING_LITERAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private Statement createRelease(VariableElement var) {
+    TypeMirror voidType = typeUtil.getVoid();
+    FunctionElement element = new FunctionElement("RELEASE_", voidType, null)
+        .addParameters(TypeUtil.ID_TYPE);
+    FunctionInvocation invocation = new FunctionInvocation(element, voidType);
+    invocation.addArgument(new SimpleName(var));
+    return new ExpressionStatement(invocation);
+  }
+}
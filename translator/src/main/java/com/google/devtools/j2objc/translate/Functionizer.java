@@ -20,14 +20,17 @@ import com.google.devtools.j2objc.ast.Block;
 import com.google.devtools.j2objc.ast.BodyDeclaration;
 import com.google.devtools.j2objc.ast.ClassInstanceCreation;
 import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.ConditionalExpression;
 import com.google.devtools.j2objc.ast.ConstructorInvocation;
 import com.google.devtools.j2objc.ast.Expression;
 import com.google.devtools.j2objc.ast.ExpressionStatement;
 import com.google.devtools.j2objc.ast.FieldAccess;
 import com.google.devtools.j2objc.ast.FunctionDeclaration;
 import com.google.devtools.j2objc.ast.FunctionInvocation;
+import com.google.devtools.j2objc.ast.IfStatement;
 import com.google.devtools.j2objc.ast.MethodDeclaration;
 import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NativeExpression;
 import com.google.devtools.j2objc.ast.NativeStatement;
 import com.google.devtools.j2objc.ast.NormalAnnotation;
 import com.google.devtools.j2objc.ast.QualifiedName;
@@ -45,10 +48,12 @@ import com.google.devtools.j2objc.ast.TreeUtil;
 import com.google.devtools.j2objc.ast.TreeVisitor;
 import com.google.devtools.j2objc.ast.TypeDeclaration;
 import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.types.ExecutablePair;
 import com.google.devtools.j2objc.types.FunctionElement;
 import com.google.devtools.j2objc.types.GeneratedExecutableElement;
 import com.google.devtools.j2objc.types.GeneratedVariableElement;
 import com.google.devtools.j2objc.util.CaptureInfo;
+import com.google.devtools.j2objc.util.CodeReferenceMap;
 import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TypeUtil;
@@ -60,6 +65,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -76,16 +82,18 @@ import javax.lang.model.type.TypeMirror;
 public class Functionizer extends UnitTreeVisitor {
 
   private final CaptureInfo captureInfo;
+  private final CodeReferenceMap monomorphicMethods;
   private Set<ExecutableElement> functionizableMethods;
 
   public Functionizer(CompilationUnit unit) {
     super(unit);
     captureInfo = unit.getEnv().captureInfo();
+    monomorphicMethods = options.monomorphicMethods();
   }
 
   @Override
   public boolean visit(CompilationUnit node) {
-    FunctionizableFinder finder = new FunctionizableFinder();
+    FunctionizableFinder finder = new FunctionizableFinder(this::isMonomorphic);
     node.accept(finder);
     functionizableMethods = finder.getFunctionizableMethods();
     return true;
@@ -120,11 +128,16 @@ public class Functionizer extends UnitTreeVisitor {
 
   private static class FunctionizableFinder extends TreeVisitor {
 
+    private final Predicate<ExecutableElement> isMonomorphic;
     // Don't need a stack here because local types have already been extracted.
     private MethodInfo currentMethod = null;
     private Map<ExecutableElement, MethodInfo> infoMap = new HashMap<>();
     private Set<ExecutableElement> invocations = new HashSet<>();
 
+    private FunctionizableFinder(Predicate<ExecutableElement> isMonomorphic) {
+      this.isMonomorphic = isMonomorphic;
+    }
+
     @Override
     public boolean visit(MethodDeclaration node) {
       if (isFunctionizingCandidate(node)) {
@@ -143,8 +156,9 @@ public class Functionizer extends UnitTreeVisitor {
       ExecutableElement method = node.getExecutableElement();
       // Regular invocations can only be functionized if the target is private or final, otherwise
       // the target method might be overridden by a subclass. Private methods are always
-      // functionized so we only check for final methods here.
-      if (ElementUtil.isFinal(method)) {
+      // functionized so we only check for final methods here, and for methods that a whole
+      // program analysis found no overrides of.
+      if (ElementUtil.isFinal(method) || isMonomorphic.test(method)) {
         invocations.add(method);
       }
     }
@@ -194,6 +208,20 @@ public class Functionizer extends UnitTreeVisitor {
     return true;
   }
 
+  /**
+   * Returns true if the class hierarchy report lists the method as having no overrides, so
+   * that its invocations can be devirtualized. Final methods are already functionized.
+   */
+  private boolean isMonomorphic(ExecutableElement method) {
+    return monomorphicMethods != null
+        && ElementUtil.isInstanceMethod(method)
+        && !ElementUtil.isFinal(method)
+        && !ElementUtil.isPrivate(method)
+        && !ElementUtil.isDefault(method)
+        && !ElementUtil.isAbstract(method)
+        && monomorphicMethods.containsMethod(method, typeUtil);
+  }
+
   private FunctionElement newFunctionElement(ExecutableElement method) {
     TypeElement declaringClass = ElementUtil.getDeclaringClass(method);
     FunctionElement element = new FunctionElement(
@@ -251,9 +279,37 @@ public class Functionizer extends UnitTreeVisitor {
     if (ElementUtil.isStatic(method) || ElementUtil.isPrivate(method)
         || (functionizableMethods.contains(method) && ElementUtil.isFinal(method))) {
       functionizeInvocation(node, method, node.getExpression(), node.getArguments());
+    } else if (functionizableMethods.contains(method) && isMonomorphic(method)) {
+      devirtualizeInvocation(node, method);
     }
   }
 
+  /**
+   * Replaces an invocation of a method that has a single implementation in the program with a
+   * call to its guarded dispatch function, see makeDevirtualizedFunction().
+   */
+  private void devirtualizeInvocation(MethodInvocation node, ExecutableElement method) {
+    TypeElement declaringClass = ElementUtil.getDeclaringClass(method);
+    FunctionElement element = new FunctionElement(
+        getDevirtualizedFunctionName(method), method.getReturnType(), declaringClass)
+        .addParameters(declaringClass.asType())
+        .addParameters(ElementUtil.asTypes(method.getParameters()));
+    FunctionInvocation invocation = new FunctionInvocation(element, node.getTypeMirror());
+    List<Expression> args = invocation.getArguments();
+    Expression receiver = node.getExpression();
+    args.add(receiver != null ? TreeUtil.remove(receiver)
+        : new ThisExpression(TreeUtil.getEnclosingTypeElement(node).asType()));
+    TreeUtil.moveList(node.getArguments(), args);
+    node.replaceWith(invocation);
+    options.statistics().increment("Functionizer: devirtualized invocations");
+  }
+
+  private String getDevirtualizedFunctionName(ExecutableElement method) {
+    return UnicodeUtils.format("%s_devirtualized$_%s",
+        nameTable.getFullName(ElementUtil.getDeclaringClass(method)),
+        nameTable.getFunctionName(method));
+  }
+
   @Override
   public void endVisit(SuperMethodInvocation node) {
     ExecutableElement method = node.getExecutableElement();
@@ -351,6 +407,9 @@ public class Functionizer extends UnitTreeVisitor {
       }
       FunctionDeclaration function = makeFunction(node);
       declarationList.add(function);
+      if (isInstanceMethod && isMonomorphic(element)) {
+        declarationList.add(makeDevirtualizedFunction(function, element));
+      }
       if (isConstructor && !ElementUtil.isAbstract(declaringClass) && !isEnumConstructor) {
         declarationList.add(makeAllocatingConstructor(node, false));
         declarationList.add(makeAllocatingConstructor(node, true));
@@ -457,6 +516,65 @@ public class Functionizer extends UnitTreeVisitor {
     return function;
   }
 
+  /**
+   * Create the function that devirtualized invocations call. The method has no overrides in the
+   * analyzed program, but a subclass that wasn't analyzed (loaded by reflection, for example)
+   * may still override it, so the function only calls the implementation directly if the
+   * receiver doesn't, and otherwise falls back to a message send.
+   */
+  private FunctionDeclaration makeDevirtualizedFunction(
+      FunctionDeclaration function, ExecutableElement method) {
+    TypeElement declaringClass = ElementUtil.getDeclaringClass(method);
+    TypeMirror returnType = method.getReturnType();
+    FunctionDeclaration guard =
+        new FunctionDeclaration(getDevirtualizedFunctionName(method), returnType, method);
+    guard.setLineNumber(function.getLineNumber());
+    guard.addModifiers(Modifier.PRIVATE);
+    TreeUtil.copyList(function.getParameters(), guard.getParameters());
+    List<SingleVariableDeclaration> params = guard.getParameters();
+    VariableElement self = params.get(0).getVariableElement();
+
+    FunctionElement checkElement =
+        new FunctionElement("JreUsesImplementation", typeUtil.getBoolean(), null)
+        .addParameters(TypeUtil.ID_TYPE, TypeUtil.ID_TYPE, TypeUtil.ID_TYPE);
+    FunctionInvocation check = new FunctionInvocation(checkElement, typeUtil.getBoolean());
+    check.addArgument(new SimpleName(self));
+    check.addArgument(new NativeExpression(
+        UnicodeUtils.format("[%s class]", nameTable.getFullName(declaringClass)),
+        TypeUtil.ID_TYPE));
+    check.addArgument(new NativeExpression(
+        UnicodeUtils.format("@selector(%s)", nameTable.getMethodSelector(method)),
+        TypeUtil.ID_TYPE));
+
+    FunctionInvocation direct =
+        new FunctionInvocation(newFunctionElement(method), returnType);
+    MethodInvocation dispatch =
+        new MethodInvocation(new ExecutablePair(method), returnType, new SimpleName(self));
+    for (SingleVariableDeclaration param : params) {
+      direct.addArgument(new SimpleName(param.getVariableElement()));
+    }
+    for (SingleVariableDeclaration param : params.subList(1, params.size())) {
+      dispatch.addArgument(new SimpleName(param.getVariableElement()));
+    }
+
+    Block body = new Block();
+    if (TypeUtil.isVoid(returnType)) {
+      Block thenBlock = new Block()
+          .addStatement(new ExpressionStatement(direct))
+          .addStatement(new ReturnStatement());
+      body.addStatement(new IfStatement().setExpression(check).setThenStatement(thenBlock));
+      body.addStatement(new ExpressionStatement(dispatch));
+    } else {
+      body.addStatement(new ReturnStatement(new ConditionalExpression()
+          .setTypeMirror(returnType)
+          .setExpression(check)
+          .setThenExpression(direct)
+          .setElseExpression(dispatch)));
+    }
+    guard.setBody(body);
+    return guard;
+  }
+
   /**
    * Create a wrapper for a constructor that does the object allocation.
    */
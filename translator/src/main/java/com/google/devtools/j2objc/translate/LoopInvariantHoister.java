@@ -0,0 +1,548 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.AssertStatement;
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.ClassInstanceCreation;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.ConstructorInvocation;
+import com.google.devtools.j2objc.ast.DoStatement;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.FieldAccess;
+import com.google.devtools.j2objc.ast.ForStatement;
+import com.google.devtools.j2objc.ast.FunctionInvocation;
+import com.google.devtools.j2objc.ast.InfixExpression;
+import com.google.devtools.j2objc.ast.LabeledStatement;
+import com.google.devtools.j2objc.ast.LambdaExpression;
+import com.google.devtools.j2objc.ast.MethodDeclaration;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NativeExpression;
+import com.google.devtools.j2objc.ast.NativeStatement;
+import com.google.devtools.j2objc.ast.PostfixExpression;
+import com.google.devtools.j2objc.ast.PrefixExpression;
+import com.google.devtools.j2objc.ast.QualifiedName;
+import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.SingleVariableDeclaration;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.SuperConstructorInvocation;
+import com.google.devtools.j2objc.ast.SuperMethodInvocation;
+import com.google.devtools.j2objc.ast.SynchronizedStatement;
+import com.google.devtools.j2objc.ast.ThisExpression;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationExpression;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.VariableDeclarationStatement;
+import com.google.devtools.j2objc.ast.WhileStatement;
+import com.google.devtools.j2objc.types.GeneratedVariableElement;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TranslationStatistics;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Loads loop-invariant fields, statics and array lengths into local variables
+ * before the loop, so tight loops don't reload "self->field_" or repeat the
+ * static initialization check on every iteration.
+ *
+ * <p>Only loops without invocations, object creations, synchronization,
+ * native code or volatile field accesses are considered, so a value can only
+ * change if the loop assigns it. Primitive and array fields of "this" and
+ * statics of the enclosing type are hoisted from anywhere in such a loop,
+ * since reading them can't throw or run any code. Array lengths and statics
+ * of other classes are only hoisted when they are compared in a for or while
+ * condition, the first thing the loop evaluates, so that a null array or a
+ * class initialization still happens at the same point. This pass only runs
+ * with -Xhoist-loop-invariants.
+ */
+public class LoopInvariantHoister extends UnitTreeVisitor {
+
+  private static final String HOISTED = "LoopInvariantHoister: hoisted loads";
+
+  private final TranslationStatistics statistics;
+  private int count = 1;
+
+  public LoopInvariantHoister(CompilationUnit unit) {
+    super(unit);
+    statistics = options.statistics();
+  }
+
+  public boolean isEnabled() {
+    return options.hoistLoopInvariants();
+  }
+
+  // Loops are hoisted after their inner loops, so that an inner loop's
+  // hoisted values can move further out.
+
+  @Override
+  public void endVisit(ForStatement node) {
+    hoist(node, node.getExpression(), node.getInitializers());
+  }
+
+  @Override
+  public void endVisit(WhileStatement node) {
+    hoist(node, node.getExpression(), null);
+  }
+
+  @Override
+  public void endVisit(DoStatement node) {
+    // The body runs before the condition, so only safe reads are hoisted.
+    hoist(node, null, null);
+  }
+
+  private void hoist(Statement loop, Expression condition, List<Expression> initializers) {
+    MethodDeclaration method = TreeUtil.getEnclosingMethod(loop);
+    if (method == null || loop.getParent() instanceof LabeledStatement) {
+      return;
+    }
+    LoopScanner scanner = new LoopScanner(loop, method);
+    loop.accept(scanner);
+    if (scanner.hasBarrier) {
+      return;
+    }
+
+    Map<VariableElement, List<Expression>> safeReads = new LinkedHashMap<>();
+    loop.accept(new TreeVisitor() {
+      @Override
+      public boolean preVisit(TreeNode node) {
+        if (node instanceof Expression) {
+          VariableElement var = scanner.getSafeRead((Expression) node);
+          if (var != null) {
+            safeReads.computeIfAbsent(var, k -> new ArrayList<>()).add((Expression) node);
+            return false;
+          }
+        }
+        return true;
+      }
+    });
+
+    Expression conditionRead =
+        condition != null ? getConditionRead(condition, initializers, scanner) : null;
+    // Any other class that's initialized in the loop could run code that
+    // changes the hoisted values.
+    VariableElement conditionStatic =
+        conditionRead != null ? scanner.getForeignStaticRead(conditionRead) : null;
+    TypeElement conditionType =
+        conditionStatic != null ? ElementUtil.getDeclaringClass(conditionStatic) : null;
+    for (TypeElement type : scanner.foreignStaticTypes) {
+      if (type != conditionType) {
+        return;
+      }
+    }
+
+    List<Expression> conditionReads = new ArrayList<>();
+    if (conditionRead != null) {
+      Expression read = conditionRead;
+      loop.accept(new TreeVisitor() {
+        @Override
+        public boolean preVisit(TreeNode node) {
+          if (node instanceof Expression && scanner.isSameUnsafeRead((Expression) node, read)) {
+            conditionReads.add((Expression) node);
+            return false;
+          }
+          return true;
+        }
+      });
+    }
+
+    // A foreign static is loaded first, since its class initializer may
+    // change the other values. An array length is loaded last, since its
+    // array may be one of the other values.
+    if (conditionStatic != null) {
+      hoistRead(loop, conditionRead, conditionReads);
+    }
+    for (List<Expression> reads : safeReads.values()) {
+      hoistRead(loop, reads.get(0), reads);
+    }
+    if (conditionRead != null && conditionStatic == null) {
+      hoistRead(loop, conditionRead, conditionReads);
+    }
+  }
+
+  /**
+   * Declares a local variable before the loop that is initialized with a
+   * copy of source, and replaces the loop's reads of the same value with it.
+   */
+  private void hoistRead(Statement loop, Expression source, List<Expression> reads) {
+    VariableElement local = GeneratedVariableElement.newLocalVar(
+        "hoisted$" + count++, source.getTypeMirror(), TreeUtil.getEnclosingElement(loop));
+    TreeUtil.insertBefore(loop, new VariableDeclarationStatement(local, source.copy()));
+    for (Expression read : reads) {
+      read.replaceWith(new SimpleName(local));
+    }
+    statistics.increment(HOISTED);
+  }
+
+  /**
+   * Returns the array length or foreign static read that a loop condition
+   * compares with a trivial operand, or null. A foreign static's class is
+   * initialized before the hoisted fields are read, so the operand and any
+   * for statement initializers may not read fields either.
+   */
+  private static Expression getConditionRead(
+      Expression condition, List<Expression> initializers, LoopScanner scanner) {
+    condition = TreeUtil.trimParentheses(condition);
+    if (!(condition instanceof InfixExpression)) {
+      return null;
+    }
+    InfixExpression infix = (InfixExpression) condition;
+    List<Expression> operands = infix.getOperands();
+    if (!isComparison(infix.getOperator()) || operands.size() != 2) {
+      return null;
+    }
+    for (int i = 0; i < 2; i++) {
+      Expression operand = TreeUtil.trimParentheses(operands.get(i));
+      Expression other = operands.get(1 - i);
+      if (scanner.getLengthReceiver(operand) != null) {
+        if (isTrivial(other, scanner) && areTrivial(initializers, scanner)) {
+          return operand;
+        }
+      } else if (scanner.getForeignStaticRead(operand) != null) {
+        if (isTrivial(other, null) && areTrivial(initializers, null)) {
+          return operand;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isComparison(InfixExpression.Operator op) {
+    switch (op) {
+      case LESS:
+      case GREATER:
+      case LESS_EQUALS:
+      case GREATER_EQUALS:
+      case EQUALS:
+      case NOT_EQUALS:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns true if for statement initializers only assign trivial values,
+   * so a read that's moved before them is still the first thing evaluated.
+   * A while loop has no initializers, so they're null.
+   */
+  private static boolean areTrivial(List<Expression> initializers, LoopScanner scanner) {
+    if (initializers == null) {
+      return true;
+    }
+    for (Expression init : initializers) {
+      if (init instanceof VariableDeclarationExpression) {
+        for (VariableDeclarationFragment frag :
+             ((VariableDeclarationExpression) init).getFragments()) {
+          if (frag.getInitializer() != null && !isTrivial(frag.getInitializer(), scanner)) {
+            return false;
+          }
+        }
+      } else if (!(init instanceof Assignment)
+          || ((Assignment) init).getOperator() != Assignment.Operator.ASSIGN
+          || !isLocal(((Assignment) init).getLeftHandSide())
+          || !isTrivial(((Assignment) init).getRightHandSide(), scanner)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if evaluating expr can't throw or have side effects. Field
+   * reads that can be hoisted are only trivial if a scanner is specified.
+   */
+  private static boolean isTrivial(Expression expr, LoopScanner scanner) {
+    expr = TreeUtil.trimParentheses(expr);
+    switch (expr.getKind()) {
+      case BOOLEAN_LITERAL:
+      case CHARACTER_LITERAL:
+      case NULL_LITERAL:
+      case NUMBER_LITERAL:
+        return true;
+      default:
+        return isLocal(expr) || (scanner != null && scanner.getSafeRead(expr) != null);
+    }
+  }
+
+  private static boolean isLocal(Expression expr) {
+    if (!(expr instanceof SimpleName)) {
+      return false;
+    }
+    Element element = ((SimpleName) expr).getElement();
+    return element != null
+        && (ElementUtil.isLocalVariable(element) || ElementUtil.isParameter(element));
+  }
+
+  private static boolean isNilCheck(Expression expr) {
+    return expr instanceof FunctionInvocation
+        && ((FunctionInvocation) expr).getFunctionElement().getName().equals("nil_chk");
+  }
+
+  /**
+   * Finds what a loop may change and whether it has code that could change
+   * values other than through its own assignments.
+   */
+  private class LoopScanner extends TreeVisitor {
+
+    private final TypeElement enclosingType;
+    private final boolean isStaticMethod;
+    private boolean hasBarrier = false;
+    private final Set<VariableElement> written = new HashSet<>();
+    private final Set<VariableElement> declared = new HashSet<>();
+    private final Set<TypeElement> foreignStaticTypes = new HashSet<>();
+
+    private LoopScanner(Statement loop, MethodDeclaration method) {
+      enclosingType = TreeUtil.getEnclosingTypeElement(loop);
+      isStaticMethod = ElementUtil.isStatic(method.getExecutableElement());
+    }
+
+    private boolean barrier() {
+      hasBarrier = true;
+      return false;
+    }
+
+    @Override
+    public boolean visit(AssertStatement node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(ConstructorInvocation node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(FunctionInvocation node) {
+      return isNilCheck(node) || barrier();
+    }
+
+    @Override
+    public boolean visit(LambdaExpression node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(MethodInvocation node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(NativeExpression node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(NativeStatement node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(SuperConstructorInvocation node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(SuperMethodInvocation node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(SynchronizedStatement node) {
+      return barrier();
+    }
+
+    @Override
+    public boolean visit(InfixExpression node) {
+      // String concatenation invokes toString().
+      return node.getOperator() != InfixExpression.Operator.PLUS
+          || !typeUtil.isString(node.getTypeMirror()) || barrier();
+    }
+
+    @Override
+    public boolean visit(Assignment node) {
+      if (node.getOperator() == Assignment.Operator.PLUS_ASSIGN
+          && typeUtil.isString(node.getTypeMirror())) {
+        return barrier();
+      }
+      addWritten(node.getLeftHandSide());
+      return true;
+    }
+
+    @Override
+    public boolean visit(PrefixExpression node) {
+      PrefixExpression.Operator op = node.getOperator();
+      if (op == PrefixExpression.Operator.INCREMENT || op == PrefixExpression.Operator.DECREMENT) {
+        addWritten(node.getOperand());
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(PostfixExpression node) {
+      addWritten(node.getOperand());
+      return true;
+    }
+
+    private void addWritten(Expression expr) {
+      VariableElement var = TreeUtil.getVariableElement(expr);
+      if (var != null) {
+        written.add(var);
+      }
+    }
+
+    @Override
+    public boolean visit(VariableDeclarationFragment node) {
+      declared.add(node.getVariableElement());
+      return true;
+    }
+
+    @Override
+    public boolean visit(SingleVariableDeclaration node) {
+      declared.add(node.getVariableElement());
+      return true;
+    }
+
+    @Override
+    public boolean visit(SimpleName node) {
+      Element element = node.getElement();
+      if (element == null || !ElementUtil.isField(element)) {
+        return false;
+      }
+      VariableElement var = (VariableElement) element;
+      if (ElementUtil.isVolatile(var)) {
+        return barrier();
+      }
+      if (ElementUtil.isStatic(var) && var.getConstantValue() == null
+          && ElementUtil.getDeclaringClass(var) != enclosingType) {
+        foreignStaticTypes.add(ElementUtil.getDeclaringClass(var));
+      }
+      return false;
+    }
+
+    /**
+     * Returns the field that expr reads if it's a field of "this" or a static
+     * of the enclosing type that can be hoisted, or null.
+     */
+    private VariableElement getSafeRead(Expression expr) {
+      VariableElement var = null;
+      if (expr instanceof FieldAccess) {
+        Expression receiver = TreeUtil.trimParentheses(((FieldAccess) expr).getExpression());
+        if (receiver instanceof ThisExpression
+            && ((ThisExpression) receiver).getQualifier() == null) {
+          var = ((FieldAccess) expr).getVariableElement();
+        }
+      } else if (expr instanceof SimpleName && !isNamePart((SimpleName) expr)) {
+        var = TreeUtil.getVariableElement(expr);
+      } else if (expr instanceof QualifiedName) {
+        Element qualifier = ((QualifiedName) expr).getQualifier().getElement();
+        var = qualifier != null && ElementUtil.isTypeElement(qualifier)
+            ? TreeUtil.getVariableElement(expr) : null;
+      }
+      if (var == null || !ElementUtil.isField(var) || !isHoistable(var)) {
+        return null;
+      }
+      if (ElementUtil.isStatic(var)) {
+        return ElementUtil.getDeclaringClass(var) == enclosingType ? var : null;
+      }
+      return !isStaticMethod && !(expr instanceof QualifiedName) ? var : null;
+    }
+
+    /**
+     * Returns the static field of another class that expr reads, or null.
+     */
+    private VariableElement getForeignStaticRead(Expression expr) {
+      if (!(expr instanceof QualifiedName
+            || (expr instanceof SimpleName && !isNamePart((SimpleName) expr)))) {
+        return null;
+      }
+      VariableElement var = TreeUtil.getVariableElement(expr);
+      return var != null && ElementUtil.isField(var) && ElementUtil.isStatic(var)
+          && ElementUtil.getDeclaringClass(var) != enclosingType && isHoistable(var)
+          ? var : null;
+    }
+
+    /**
+     * Returns the array variable whose length expr reads, if that variable
+     * isn't changed by the loop, or null.
+     */
+    private VariableElement getLengthReceiver(Expression expr) {
+      Expression receiver;
+      if (expr instanceof FieldAccess
+          && ((FieldAccess) expr).getName().getIdentifier().equals("length")) {
+        receiver = ((FieldAccess) expr).getExpression();
+      } else if (expr instanceof QualifiedName
+          && ((QualifiedName) expr).getName().getIdentifier().equals("length")) {
+        receiver = ((QualifiedName) expr).getQualifier();
+      } else {
+        return null;
+      }
+      receiver = TreeUtil.trimParentheses(receiver);
+      if (isNilCheck(receiver)) {
+        receiver = TreeUtil.trimParentheses(((FunctionInvocation) receiver).getArguments().get(0));
+      }
+      if (!TypeUtil.isArray(receiver.getTypeMirror())) {
+        return null;
+      }
+      if (isLocal(receiver)) {
+        VariableElement var = TreeUtil.getVariableElement(receiver);
+        return written.contains(var) || declared.contains(var) ? null : var;
+      }
+      return getSafeRead(receiver);
+    }
+
+    private boolean isSameUnsafeRead(Expression expr, Expression read) {
+      VariableElement lengthReceiver = getLengthReceiver(read);
+      if (lengthReceiver != null) {
+        return getLengthReceiver(expr) == lengthReceiver;
+      }
+      VariableElement var = getForeignStaticRead(expr);
+      return var != null && var == getForeignStaticRead(read);
+    }
+
+    private boolean isHoistable(VariableElement var) {
+      TypeMirror type = var.asType();
+      return (type.getKind().isPrimitive() || TypeUtil.isArray(type))
+          && !ElementUtil.isVolatile(var) && !ElementUtil.isWeakReference(var)
+          && var.getConstantValue() == null && !written.contains(var);
+    }
+  }
+
+  /**
+   * Returns true if name is the name of a field access or qualified name,
+   * rather than a variable read of its own.
+   */
+  private static boolean isNamePart(SimpleName name) {
+    TreeNode parent = name.getParent();
+    return (parent instanceof FieldAccess && ((FieldAccess) parent).getName() == name)
+        || (parent instanceof QualifiedName && ((QualifiedName) parent).getName() == name);
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.j2objc.types.GeneratedElement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.AnnotatedConstruct;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Caches the annotations of elements, so that the annotation queries of
+ * {@link ElementUtil} scan an element's annotation mirrors once per
+ * translation environment, rather than once per query.
+ *
+ * <p>Each element's entry holds a bit set of the j2objc annotations it has,
+ * so most queries for them are a bit test, and maps by qualified and simple
+ * name that are built on first use. Generated elements aren't cached, since
+ * annotations can be added to them.
+ *
+ * <p>The static ElementUtil queries use the index of the translation
+ * environment most recently created on the current thread. Units are
+ * converted and translated on the thread that created their environment.
+ */
+public final class AnnotationIndex {
+
+  private static final String J2OBJC_ANNOTATIONS = "com.google.j2objc.annotations.";
+
+  private static final ImmutableMap<String, Integer> KNOWN_ANNOTATIONS = knownAnnotations(
+      "AutoreleasePool",
+      "GenerateObjectiveCGenerics",
+      "J2ObjCIncompatible",
+      "LoopTranslation",
+      "ObjectiveCAdapterMethod",
+      "ObjectiveCAdapterProtocol",
+      "ObjectiveCName",
+      "ObjectiveCNativeEnumName",
+      "ObjectiveCNativeProtocol",
+      "ObjectiveCNativeProtocols",
+      "OnDealloc",
+      "Property",
+      "ReflectionSupport",
+      "RetainedLocalRef",
+      "RetainedWith",
+      "SwiftName",
+      "UsedByNative",
+      "UsedByReflection",
+      "Weak",
+      "WeakOuter");
+
+  private static final ThreadLocal<AnnotationIndex> current = new ThreadLocal<>();
+
+  private static boolean enabled = true;
+
+  private final Map<Element, Entry> entries = new IdentityHashMap<>();
+  private long queries = 0;
+  private long scans = 0;
+
+  /** Makes this the index used by ElementUtil's queries on the current thread. */
+  public void activate() {
+    current.set(this);
+  }
+
+  /**
+   * Removes the current thread's index, so that the thread doesn't keep its
+   * environment reachable once the unit using it is finished.
+   */
+  public static void deactivate() {
+    current.remove();
+  }
+
+  /** Returns the current thread's index, or null if there isn't one. */
+  static AnnotationIndex current() {
+    return current.get();
+  }
+
+  /** Disables caching, so that each query scans the annotation mirrors. */
+  @VisibleForTesting
+  static void setEnabled(boolean b) {
+    enabled = b;
+  }
+
+  /** The number of annotation queries answered by this index. */
+  public long queries() {
+    return queries;
+  }
+
+  /** The number of times this index scanned an element's annotation mirrors. */
+  public long scans() {
+    return scans;
+  }
+
+  AnnotationMirror getQualifiedNamedAnnotation(Element element, String name) {
+    queries++;
+    if (!isCacheable(element)) {
+      scans++;
+      return ElementUtil.scanQualifiedNamedAnnotation(element, name);
+    }
+    Entry entry = getEntry(element);
+    Integer bit = KNOWN_ANNOTATIONS.get(name);
+    if (bit != null && (entry.knownAnnotations & (1L << bit)) == 0) {
+      return null;
+    }
+    return entry.getByQualifiedName().get(name);
+  }
+
+  boolean hasNamedAnnotation(Element element, String name) {
+    queries++;
+    if (!isCacheable(element)) {
+      scans++;
+      return ElementUtil.scanNamedAnnotation(element, name);
+    }
+    Entry entry = getEntry(element);
+    return !entry.mirrors.isEmpty() && entry.getSimpleNames().contains(name);
+  }
+
+  /** Drops the entry of a construct whose external annotations changed. */
+  void invalidate(AnnotatedConstruct construct) {
+    entries.remove(construct);
+  }
+
+  private static boolean isCacheable(Element element) {
+    return enabled && !(element instanceof GeneratedElement);
+  }
+
+  private Entry getEntry(Element element) {
+    Entry entry = entries.get(element);
+    if (entry == null) {
+      scans++;
+      entry = new Entry(ImmutableList.copyOf(ElementUtil.getAllAnnotations(element)));
+      entries.put(element, entry);
+    }
+    return entry;
+  }
+
+  private static ImmutableMap<String, Integer> knownAnnotations(String... names) {
+    ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < names.length; i++) {
+      builder.put(J2OBJC_ANNOTATIONS + names[i], i);
+    }
+    return builder.build();
+  }
+
+  private static String qualifiedName(AnnotationMirror mirror) {
+    return ElementUtil.getQualifiedName((TypeElement) mirror.getAnnotationType().asElement());
+  }
+
+  private static class Entry {
+    private final List<AnnotationMirror> mirrors;
+    private final long knownAnnotations;
+    private Map<String, AnnotationMirror> byQualifiedName;
+    private Set<String> simpleNames;
+
+    Entry(List<AnnotationMirror> mirrors) {
+      this.mirrors = mirrors;
+      long bits = 0;
+      for (AnnotationMirror mirror : mirrors) {
+        Integer bit = KNOWN_ANNOTATIONS.get(qualifiedName(mirror));
+        if (bit != null) {
+          bits |= 1L << bit;
+        }
+      }
+      knownAnnotations = bits;
+    }
+
+    Map<String, AnnotationMirror> getByQualifiedName() {
+      if (byQualifiedName == null) {
+        byQualifiedName = new HashMap<>();
+        for (AnnotationMirror mirror : mirrors) {
+          // Like a scan, return the first of any repeated annotations.
+          byQualifiedName.putIfAbsent(qualifiedName(mirror), mirror);
+        }
+      }
+      return byQualifiedName;
+    }
+
+    Set<String> getSimpleNames() {
+      if (simpleNames == null) {
+        simpleNames = new HashSet<>();
+        for (AnnotationMirror mirror : mirrors) {
+          simpleNames.add(ElementUtil.getName(mirror.getAnnotationType().asElement()));
+        }
+      }
+      return simpleNames;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.JavaFileObject;
+
+/**
+ * Memoizes the names and signatures of classpath elements over a j2objc run.
+ *
+ * <p>Each compilation unit gets its own NameTable and SignatureGenerator, whose
+ * caches are keyed by the javac elements of the unit's batch, so the same JDK
+ * and library types are otherwise renamed by every unit that refers to them.
+ * Types loaded from class files can't change during a run, so their names are
+ * shared here by binary name, which is the same in every javac task. Types
+ * compiled from source, generated elements and elements with external
+ * annotations are never memoized.
+ */
+public final class ClasspathNameMemo {
+
+  /** The kinds of memoized values, each with its own key space and counters. */
+  public enum Kind {
+    FULL_NAME("full names"),
+    METHOD_SELECTOR("method selectors"),
+    FUNCTION_NAME("function names"),
+    CLASS_SIGNATURE("class signatures"),
+    FIELD_SIGNATURE("field signatures"),
+    METHOD_SIGNATURE("method signatures");
+
+    private final String hitsCounter;
+    private final String missesCounter;
+
+    Kind(String description) {
+      hitsCounter = "ClasspathNameMemo: " + description + " hits";
+      missesCounter = "ClasspathNameMemo: " + description + " misses";
+    }
+  }
+
+  private final Map<String, Optional<String>> values = new ConcurrentHashMap<>();
+  private final TranslationStatistics statistics;
+  private volatile boolean enabled = true;
+
+  public ClasspathNameMemo(TranslationStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /** Disables memoization for this run, so that every value is computed. */
+  @VisibleForTesting
+  public void setEnabled(boolean b) {
+    enabled = b;
+  }
+
+  /**
+   * Returns the memoized value for a type, computing it if the type can't be
+   * memoized or if this is the first request for it.
+   */
+  public String get(Kind kind, TypeElement type, Supplier<String> compute) {
+    return isClasspathType(type) ? get(kind, binaryName(type), compute) : compute.get();
+  }
+
+  /**
+   * Returns the memoized value for a method or constructor, which is keyed by
+   * its erased signature.
+   */
+  public String get(
+      Kind kind, ExecutableElement method, TypeUtil typeUtil, Supplier<String> compute) {
+    if (!(method instanceof MethodSymbol) || !isClasspathMember(method)) {
+      return compute.get();
+    }
+    return get(kind, memberKey(method) + typeUtil.getReferenceSignature(method), compute);
+  }
+
+  /** Returns the memoized value for a field. */
+  public String get(Kind kind, VariableElement field, Supplier<String> compute) {
+    return field instanceof VarSymbol && ElementUtil.isField(field) && isClasspathMember(field)
+        ? get(kind, memberKey(field), compute) : compute.get();
+  }
+
+  private String get(Kind kind, String key, Supplier<String> compute) {
+    key = kind.ordinal() + key;
+    // Optional, since ConcurrentHashMap can't hold the null signatures.
+    Optional<String> value = values.get(key);
+    if (value != null) {
+      statistics.increment(kind.hitsCounter);
+      return value.orElse(null);
+    }
+    statistics.increment(kind.missesCounter);
+    String computed = compute.get();
+    values.putIfAbsent(key, Optional.ofNullable(computed));
+    return computed;
+  }
+
+  private boolean isClasspathType(TypeElement type) {
+    if (!enabled || !(type instanceof ClassSymbol)
+        || !ExternalAnnotations.get(type).isEmpty()) {
+      return false;
+    }
+    JavaFileObject classfile = ((ClassSymbol) type).classfile;
+    return classfile != null && classfile.getKind() == JavaFileObject.Kind.CLASS;
+  }
+
+  private boolean isClasspathMember(Element member) {
+    return isClasspathType(ElementUtil.getDeclaringClass(member))
+        && ExternalAnnotations.get(member).isEmpty();
+  }
+
+  private static String binaryName(TypeElement type) {
+    return ((ClassSymbol) type).flatName().toString();
+  }
+
+  private static String memberKey(Element member) {
+    return binaryName(ElementUtil.getDeclaringClass(member)) + '.' + ElementUtil.getName(member);
+  }
+}
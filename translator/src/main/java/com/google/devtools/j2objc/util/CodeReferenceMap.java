@@ -17,6 +17,7 @@
 package com.google.devtools.j2objc.util;
 
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableTable;
@@ -24,6 +25,8 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Table;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
@@ -79,9 +82,110 @@ public class CodeReferenceMap {
     return new Builder();
   }
 
-  private final ImmutableSet<String> referencedClasses;
-  private final ImmutableTable<String, String, ImmutableSet<String>> referencedMethods;
-  private final ImmutableMultimap<String, String> referencedFields;
+  /**
+   * Answers queries from an encoded map without building its tables, such as a
+   * memory-mapped {@link CodeReferenceMapFile}.
+   */
+  interface Lookup {
+    boolean containsClass(String clazz);
+
+    // Only checks the method table, not whether the class is dead.
+    boolean containsMethodEntry(String clazz, String name, String signature);
+
+    // Only checks the field table, not whether the class is dead.
+    boolean containsFieldEntry(String clazz, String field);
+
+    boolean isEmpty();
+
+    void addAllTo(Builder builder);
+  }
+
+  static CodeReferenceMap fromLookup(Lookup lookup) {
+    return new CodeReferenceMap(lookup);
+  }
+
+  /**
+   * Returns a map that contains everything in any of the maps. The maps are
+   * queried in place, so memory-mapped maps aren't decoded.
+   */
+  public static CodeReferenceMap union(List<CodeReferenceMap> maps) {
+    if (maps.size() == 1) {
+      return maps.get(0);
+    }
+    return new CodeReferenceMap(new UnionLookup(ImmutableList.copyOf(maps)));
+  }
+
+  private static final class UnionLookup implements Lookup {
+    private final ImmutableList<CodeReferenceMap> maps;
+
+    UnionLookup(ImmutableList<CodeReferenceMap> maps) {
+      this.maps = maps;
+    }
+
+    @Override
+    public boolean containsClass(String clazz) {
+      for (CodeReferenceMap map : maps) {
+        if (map.containsClass(clazz)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean containsMethodEntry(String clazz, String name, String signature) {
+      for (CodeReferenceMap map : maps) {
+        if (map.containsMethod(clazz, name, signature)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean containsFieldEntry(String clazz, String field) {
+      for (CodeReferenceMap map : maps) {
+        if (map.containsField(clazz, field)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      for (CodeReferenceMap map : maps) {
+        if (!map.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void addAllTo(Builder builder) {
+      for (CodeReferenceMap map : maps) {
+        for (String clazz : map.getReferencedClasses()) {
+          builder.addClass(clazz);
+        }
+        for (Table.Cell<String, String, ImmutableSet<String>> cell
+            : map.getReferencedMethods().cellSet()) {
+          for (String signature : cell.getValue()) {
+            builder.addMethod(cell.getRowKey(), cell.getColumnKey(), signature);
+          }
+        }
+        for (Map.Entry<String, String> entry : map.getReferencedFields().entries()) {
+          builder.addField(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
+  // Null if the tables are built from a lookup when first requested.
+  private ImmutableSet<String> referencedClasses;
+  private ImmutableTable<String, String, ImmutableSet<String>> referencedMethods;
+  private ImmutableMultimap<String, String> referencedFields;
+  private final Lookup lookup;
   private final Set<String> hasConstructorRemovedClasses = new HashSet<>();
 
   private CodeReferenceMap(
@@ -91,21 +195,43 @@ public class CodeReferenceMap {
     this.referencedClasses = referencedClasses;
     this.referencedMethods = referencedMethods;
     this.referencedFields = referencedFields;
+    this.lookup = null;
+  }
+
+  private CodeReferenceMap(Lookup lookup) {
+    this.lookup = lookup;
+  }
+
+  private synchronized void buildTables() {
+    if (referencedClasses == null) {
+      Builder builder = builder();
+      lookup.addAllTo(builder);
+      CodeReferenceMap map = builder.build();
+      referencedMethods = map.referencedMethods;
+      referencedFields = map.referencedFields;
+      referencedClasses = map.referencedClasses;
+    }
   }
 
   public ImmutableSet<String> getReferencedClasses() {
+    buildTables();
     return referencedClasses;
   }
 
   public ImmutableTable<String, String, ImmutableSet<String>> getReferencedMethods() {
+    buildTables();
     return referencedMethods;
   }
 
   public ImmutableMultimap<String, String> getReferencedFields() {
+    buildTables();
     return referencedFields;
   }
 
   public boolean containsClass(String clazz) {
+    if (lookup != null) {
+      return lookup.containsClass(clazz);
+    }
     return referencedClasses.contains(clazz);
   }
 
@@ -114,6 +240,9 @@ public class CodeReferenceMap {
   }
 
   public boolean containsMethod(String clazz, String name, String signature) {
+    if (lookup != null) {
+      return lookup.containsClass(clazz) || lookup.containsMethodEntry(clazz, name, signature);
+    }
     return referencedClasses.contains(clazz)
         || (referencedMethods.contains(clazz, name)
            && referencedMethods.get(clazz, name).contains(signature));
@@ -127,10 +256,16 @@ public class CodeReferenceMap {
   }
 
   public boolean containsField(String clazz, String field) {
+    if (lookup != null) {
+      return lookup.containsClass(clazz) || lookup.containsFieldEntry(clazz, field);
+    }
     return referencedClasses.contains(clazz) || referencedFields.containsEntry(clazz, field);
   }
 
   public boolean isEmpty() {
+    if (lookup != null) {
+      return lookup.isEmpty();
+    }
     return referencedClasses.isEmpty() && referencedMethods.isEmpty() && referencedFields.isEmpty();
   }
 
@@ -146,9 +281,9 @@ public class CodeReferenceMap {
   public String toString() {
     StringBuilder builder = new StringBuilder();
 
-    builder.append(referencedClasses.asList().toString() + "\n");
-    builder.append(referencedFields.toString() + "\n");
-    builder.append(referencedMethods.toString());
+    builder.append(getReferencedClasses().asList().toString() + "\n");
+    builder.append(getReferencedFields().toString() + "\n");
+    builder.append(getReferencedMethods().toString());
 
     return builder.toString();
   }
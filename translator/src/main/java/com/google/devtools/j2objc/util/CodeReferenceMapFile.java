@@ -0,0 +1,326 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Reads and writes a binary encoding of a {@link CodeReferenceMap}, which the
+ * translator memory-maps instead of parsing a ProGuard usage listing. The file
+ * is queried in place, so large dead code reports cost almost nothing to load
+ * and are shared by the page cache between translator processes.
+ *
+ * <p>All strings are stored once, sorted by their UTF-8 bytes, and referred
+ * to by index. The classes, methods and fields are sorted tables of string
+ * indexes, so each query is a few binary searches. Layout, as big-endian ints:
+ *
+ * <pre>
+ *   magic, version
+ *   string count n, n + 1 offsets into the string data, the string data
+ *   class count, class string indexes
+ *   method count, (class, name, signature) string indexes
+ *   field count, (class, field) string indexes
+ * </pre>
+ */
+public final class CodeReferenceMapFile {
+
+  private static final int MAGIC = 0x4a324f44;  // "J2OD"
+  private static final int VERSION = 1;
+
+  private CodeReferenceMapFile() {
+    // Don't instantiate.
+  }
+
+  /** Returns true if the file starts with the binary format's header. */
+  public static boolean isBinary(File file) throws IOException {
+    if (file.length() < 8) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readInt() == MAGIC;
+    }
+  }
+
+  public static void write(CodeReferenceMap map, File file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      write(map, out);
+    }
+  }
+
+  public static void write(CodeReferenceMap map, OutputStream out) throws IOException {
+    TreeSet<byte[]> sortedStrings = new TreeSet<>(UnsignedBytes.lexicographicalComparator());
+    for (String clazz : map.getReferencedClasses()) {
+      sortedStrings.add(utf8(clazz));
+    }
+    for (Table.Cell<String, String, ImmutableSet<String>> cell
+        : map.getReferencedMethods().cellSet()) {
+      sortedStrings.add(utf8(cell.getRowKey()));
+      sortedStrings.add(utf8(cell.getColumnKey()));
+      for (String signature : cell.getValue()) {
+        sortedStrings.add(utf8(signature));
+      }
+    }
+    for (Map.Entry<String, String> entry : map.getReferencedFields().entries()) {
+      sortedStrings.add(utf8(entry.getKey()));
+      sortedStrings.add(utf8(entry.getValue()));
+    }
+    Map<String, Integer> indexes = new HashMap<>();
+    for (byte[] s : sortedStrings) {
+      indexes.put(new String(s, StandardCharsets.UTF_8), indexes.size());
+    }
+
+    List<int[]> classes = new ArrayList<>();
+    for (String clazz : map.getReferencedClasses()) {
+      classes.add(new int[] { indexes.get(clazz) });
+    }
+    List<int[]> methods = new ArrayList<>();
+    for (Table.Cell<String, String, ImmutableSet<String>> cell
+        : map.getReferencedMethods().cellSet()) {
+      for (String signature : cell.getValue()) {
+        methods.add(new int[] {
+            indexes.get(cell.getRowKey()), indexes.get(cell.getColumnKey()),
+            indexes.get(signature) });
+      }
+    }
+    List<int[]> fields = new ArrayList<>();
+    for (Map.Entry<String, String> entry : map.getReferencedFields().entries()) {
+      fields.add(new int[] { indexes.get(entry.getKey()), indexes.get(entry.getValue()) });
+    }
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(sortedStrings.size());
+    int offset = 0;
+    for (byte[] s : sortedStrings) {
+      data.writeInt(offset);
+      offset += s.length;
+    }
+    data.writeInt(offset);
+    for (byte[] s : sortedStrings) {
+      data.write(s);
+    }
+    writeTable(data, classes);
+    writeTable(data, methods);
+    writeTable(data, fields);
+    data.flush();
+  }
+
+  private static void writeTable(DataOutputStream data, List<int[]> rows) throws IOException {
+    Comparator<int[]> order = Ints.lexicographicalComparator();
+    rows.sort(order);
+    int count = 0;
+    for (int i = 0; i < rows.size(); i++) {
+      if (i == 0 || order.compare(rows.get(i - 1), rows.get(i)) != 0) {
+        count++;
+      }
+    }
+    data.writeInt(count);
+    for (int i = 0; i < rows.size(); i++) {
+      if (i == 0 || order.compare(rows.get(i - 1), rows.get(i)) != 0) {
+        for (int value : rows.get(i)) {
+          data.writeInt(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Memory-maps a file written by {@link #write}. The returned map answers
+   * contains queries from the file; its table getters decode the whole file.
+   */
+  public static CodeReferenceMap map(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      // The mapping stays valid after the channel is closed.
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return CodeReferenceMap.fromLookup(new MappedLookup(buffer, file));
+    }
+  }
+
+  private static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Queries the encoded tables with absolute reads only, so one instance can
+   * be shared by translation threads.
+   */
+  private static final class MappedLookup implements CodeReferenceMap.Lookup {
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int offsetsStart;
+    private final int stringDataStart;
+    private final int classCount;
+    private final int classesStart;
+    private final int methodCount;
+    private final int methodsStart;
+    private final int fieldCount;
+    private final int fieldsStart;
+
+    MappedLookup(ByteBuffer buffer, File file) throws IOException {
+      this.buffer = buffer;
+      if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        throw new IOException("Unsupported dead code file: " + file);
+      }
+      stringCount = buffer.getInt(8);
+      offsetsStart = 12;
+      stringDataStart = offsetsStart + (stringCount + 1) * 4;
+      int pos = stringDataStart + buffer.getInt(offsetsStart + stringCount * 4);
+      classCount = buffer.getInt(pos);
+      classesStart = pos + 4;
+      pos = classesStart + classCount * 4;
+      methodCount = buffer.getInt(pos);
+      methodsStart = pos + 4;
+      pos = methodsStart + methodCount * 12;
+      fieldCount = buffer.getInt(pos);
+      fieldsStart = pos + 4;
+      if (fieldsStart + fieldCount * 8 != buffer.limit()) {
+        throw new IOException("Truncated dead code file: " + file);
+      }
+    }
+
+    @Override
+    public boolean containsClass(String clazz) {
+      int classIndex = indexOf(clazz);
+      return classIndex >= 0 && findRow(classesStart, classCount, 1, classIndex) >= 0;
+    }
+
+    @Override
+    public boolean containsMethodEntry(String clazz, String name, String signature) {
+      int classIndex = indexOf(clazz);
+      int nameIndex = classIndex >= 0 ? indexOf(name) : -1;
+      int signatureIndex = nameIndex >= 0 ? indexOf(signature) : -1;
+      return signatureIndex >= 0
+          && findRow(methodsStart, methodCount, 3, classIndex, nameIndex, signatureIndex) >= 0;
+    }
+
+    @Override
+    public boolean containsFieldEntry(String clazz, String field) {
+      int classIndex = indexOf(clazz);
+      int fieldIndex = classIndex >= 0 ? indexOf(field) : -1;
+      return fieldIndex >= 0 && findRow(fieldsStart, fieldCount, 2, classIndex, fieldIndex) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return classCount == 0 && methodCount == 0 && fieldCount == 0;
+    }
+
+    @Override
+    public void addAllTo(CodeReferenceMap.Builder builder) {
+      for (int i = 0; i < classCount; i++) {
+        builder.addClass(getString(buffer.getInt(classesStart + i * 4)));
+      }
+      for (int i = 0; i < methodCount; i++) {
+        int row = methodsStart + i * 12;
+        builder.addMethod(
+            getString(buffer.getInt(row)),
+            getString(buffer.getInt(row + 4)),
+            getString(buffer.getInt(row + 8)));
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        int row = fieldsStart + i * 8;
+        builder.addField(getString(buffer.getInt(row)), getString(buffer.getInt(row + 4)));
+      }
+    }
+
+    private String getString(int index) {
+      int start = buffer.getInt(offsetsStart + index * 4);
+      int end = buffer.getInt(offsetsStart + (index + 1) * 4);
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = buffer.get(stringDataStart + start + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Binary search of the sorted string table; returns -1 if s isn't in it.
+    private int indexOf(String s) {
+      byte[] key = utf8(s);
+      int low = 0;
+      int high = stringCount - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compareString(mid, key);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+
+    private int compareString(int index, byte[] key) {
+      int start = stringDataStart + buffer.getInt(offsetsStart + index * 4);
+      int length = stringDataStart + buffer.getInt(offsetsStart + (index + 1) * 4) - start;
+      int n = Math.min(length, key.length);
+      for (int i = 0; i < n; i++) {
+        int cmp = Integer.compare(buffer.get(start + i) & 0xff, key[i] & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return Integer.compare(length, key.length);
+    }
+
+    // Binary search of a sorted table of rows of string indexes.
+    private int findRow(int tableStart, int rowCount, int width, int... key) {
+      int low = 0;
+      int high = rowCount - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int row = tableStart + mid * width * 4;
+        int cmp = 0;
+        for (int i = 0; i < width && cmp == 0; i++) {
+          cmp = Integer.compare(buffer.getInt(row + i * 4), key[i]);
+        }
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+  }
+}
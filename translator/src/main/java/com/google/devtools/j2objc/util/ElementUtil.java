@@ -750,6 +750,14 @@ public final class ElementUtil {
    * Less strict version of the above where we don't care about the annotation's package.
    */
   public static boolean hasNamedAnnotation(AnnotatedConstruct ac, String name) {
+    AnnotationIndex index = AnnotationIndex.current();
+    if (index != null && ac instanceof Element) {
+      return index.hasNamedAnnotation((Element) ac, name);
+    }
+    return scanNamedAnnotation(ac, name);
+  }
+
+  static boolean scanNamedAnnotation(AnnotatedConstruct ac, String name) {
     for (AnnotationMirror annotation : getAllAnnotations(ac)) {
       if (getName(annotation.getAnnotationType().asElement()).equals(name)) {
         return true;
@@ -773,6 +781,14 @@ public final class ElementUtil {
   }
 
   public static AnnotationMirror getQualifiedNamedAnnotation(Element element, String name) {
+    AnnotationIndex index = AnnotationIndex.current();
+    if (index != null) {
+      return index.getQualifiedNamedAnnotation(element, name);
+    }
+    return scanQualifiedNamedAnnotation(element, name);
+  }
+
+  static AnnotationMirror scanQualifiedNamedAnnotation(Element element, String name) {
     for (AnnotationMirror annotation : getAllAnnotations(element)) {
       if (getQualifiedName((TypeElement) annotation.getAnnotationType().asElement()).equals(name)) {
         return annotation;
@@ -781,7 +797,7 @@ public final class ElementUtil {
     return null;
   }
 
-  private static Iterable<? extends AnnotationMirror> getAllAnnotations(AnnotatedConstruct ac) {
+  static Iterable<? extends AnnotationMirror> getAllAnnotations(AnnotatedConstruct ac) {
     return Iterables.concat(ac.getAnnotationMirrors(), ExternalAnnotations.get(ac));
   }
 
@@ -42,6 +42,10 @@ public final class ExternalAnnotations {
 
   public static void add(AnnotatedConstruct construct, GeneratedAnnotationMirror annotation) {
     annotations.computeIfAbsent(construct, k -> new ArrayList<>()).add(annotation);
+    AnnotationIndex index = AnnotationIndex.current();
+    if (index != null) {
+      index.invalidate(construct);
+    }
   }
 
   public static List<GeneratedAnnotationMirror> get(AnnotatedConstruct construct) {
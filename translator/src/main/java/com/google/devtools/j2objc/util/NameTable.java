@@ -78,6 +78,7 @@ public class NameTable {
   private final Map<VariableElement, String> variableNames = new HashMap<>();
   private final Map<ExecutableElement, String> methodSelectorCache = new HashMap<>();
   private final Map<TypeElement, String> fullNameCache = new HashMap<>();
+  private final ClasspathNameMemo memo;
 
   public static final String INIT_NAME = "init";
   public static final String RETAIN_METHOD = "retain";
@@ -187,6 +188,7 @@ public class NameTable {
     prefixMap = options.getPackagePrefixes();
     classMappings = options.getMappings().getClassMappings();
     methodMappings = options.getMappings().getMethodMappings();
+    memo = options.classpathNameMemo();
   }
 
   public void setVariableName(VariableElement var, String name) {
@@ -482,7 +484,8 @@ public class NameTable {
     if (selector != null) {
       return selector;
     }
-    selector = getMethodSelectorInner(method);
+    selector = memo.get(ClasspathNameMemo.Kind.METHOD_SELECTOR, method, typeUtil,
+        () -> getMethodSelectorInner(method));
     methodSelectorCache.put(method, selector);
     return selector;
   }
@@ -558,6 +561,11 @@ public class NameTable {
    * prefix to avoid collisions with methods from other classes.
    */
   public String getFunctionName(ExecutableElement method) {
+    return memo.get(ClasspathNameMemo.Kind.FUNCTION_NAME, method, typeUtil,
+        () -> getFunctionNameInner(method));
+  }
+
+  private String getFunctionNameInner(ExecutableElement method) {
     String name = ElementUtil.getSelector(method);
     if (name == null) {
       name = getRenamedMethodName(method);
@@ -1041,11 +1049,12 @@ public class NameTable {
    * name is "JavaUtilArrayList_ListItr".
    */
   public String getFullName(TypeElement element) {
-    element = typeUtil.getObjcClass(element);
-    String fullName = fullNameCache.get(element);
+    TypeElement objcClass = typeUtil.getObjcClass(element);
+    String fullName = fullNameCache.get(objcClass);
     if (fullName == null) {
-      fullName = getFullNameImpl(element);
-      fullNameCache.put(element, fullName);
+      fullName = memo.get(ClasspathNameMemo.Kind.FULL_NAME, objcClass,
+          () -> getFullNameImpl(objcClass));
+      fullNameCache.put(objcClass, fullName);
     }
     return fullName;
   }
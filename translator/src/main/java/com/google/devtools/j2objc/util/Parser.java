@@ -35,6 +35,7 @@ public abstract class Parser implements Closeable {
   protected final List<String> classpathEntries = Lists.newArrayList();
   protected final List<String> sourcepathEntries = Lists.newArrayList();
   protected final Options options;
+  protected CodeReferenceMap deadCodeMap = null;
 
   protected static final Splitter PATH_SPLITTER = Splitter.on(":").omitEmptyStrings();
 
@@ -112,6 +113,15 @@ public abstract class Parser implements Closeable {
     sourcepathEntries.add(0, entry);
   }
 
+  /**
+   * Sets the dead code report of the translation, so the bodies and
+   * initializers of dead code aren't converted. A DeadCodeEliminator must be
+   * run on the parsed units with the same report, to remove the dead code.
+   */
+  public void setDeadCodeMap(CodeReferenceMap deadCodeMap) {
+    this.deadCodeMap = deadCodeMap;
+  }
+
   public Options options() {
     return options;
   }
@@ -153,6 +163,28 @@ public abstract class Parser implements Closeable {
    */
   public abstract ParseResult parseWithoutBindings(InputFile file, String source);
 
+  /**
+   * Parses sources without bindings, like {@link #parseWithoutBindings(InputFile, String)}.
+   * Implementations may parse the sources in parallel.
+   *
+   * @return the parse results in the same order as the files, with a null
+   *     result for each source that had parse errors.
+   */
+  public List<ParseResult> parseWithoutBindings(List<InputFile> files, List<String> sources) {
+    List<ParseResult> results = Lists.newArrayList();
+    for (int i = 0; i < files.size(); i++) {
+      results.add(parseWithoutBindings(files.get(i), sources.get(i)));
+    }
+    return results;
+  }
+
+  /**
+   * Replaces a source file's content in later compilations, without writing
+   * it to disk. The replacement is used both when the file is compiled and
+   * when its main type is found on the source path.
+   */
+  public abstract void replaceSource(String path, String mainTypeName, String source);
+
   /**
    * Runs annotation processing on a source set.
    *
@@ -161,6 +193,15 @@ public abstract class Parser implements Closeable {
   public abstract ProcessingResult processAnnotations(Iterable<String> fileArgs,
       List<ProcessingContext> inputs);
 
+  /**
+   * Returns true if processAnnotations() found processors that run while files
+   * are parsed for translation, so the processors need to see all files in one
+   * parse.
+   */
+  public boolean processesAnnotationsWhileParsing() {
+    return false;
+  }
+
   /**
    * Release any system resources used by this parser instance.
    */
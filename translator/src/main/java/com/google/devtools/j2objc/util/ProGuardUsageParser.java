@@ -114,9 +114,16 @@ public class ProGuardUsageParser {
     return signature.toString();
   }
 
+  /**
+   * Reads a dead code file, which is either a ProGuard usage listing or a
+   * {@link CodeReferenceMapFile}. Binary files are memory-mapped rather than parsed.
+   */
   public static CodeReferenceMap parseDeadCodeFile(File file) {
     if (file != null) {
       try {
+        if (CodeReferenceMapFile.isBinary(file)) {
+          return CodeReferenceMapFile.map(file);
+        }
         return ProGuardUsageParser.parse(Files.asCharSource(file, Charset.defaultCharset()));
       } catch (IOException e) {
         throw new AssertionError(e);
@@ -29,13 +29,14 @@ public class TranslationEnvironment {
   private final SignatureGenerator signatureGenerator;
   private final TranslationUtil translationUtil;
   private final Options options;
+  private final AnnotationIndex annotationIndex = new AnnotationIndex();
 
   public TranslationEnvironment(Options options, ParserEnvironment parserEnv) {
     elementUtil = new ElementUtil(parserEnv.elementUtilities());
     typeUtil = new TypeUtil(parserEnv, elementUtil);
     captureInfo = new CaptureInfo(typeUtil);
     nameTable = new NameTable(typeUtil, captureInfo, options);
-    signatureGenerator = new SignatureGenerator(typeUtil);
+    signatureGenerator = new SignatureGenerator(typeUtil, options.classpathNameMemo());
     translationUtil = new TranslationUtil(typeUtil, nameTable, options, elementUtil);
     this.options = options;
   }
@@ -67,4 +68,8 @@ public class TranslationEnvironment {
   public TranslationUtil translationUtil() {
     return translationUtil;
   }
+
+  public AnnotationIndex annotationIndex() {
+    return annotationIndex;
+  }
 }
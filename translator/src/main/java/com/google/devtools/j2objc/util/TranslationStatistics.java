@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Named counters that translation passes update over a whole j2objc run, such
+ * as how many nodes an optimization rewrote. The totals are printed with the
+ * timing information.
+ */
+public class TranslationStatistics {
+
+  private final Map<String, Long> counters = new TreeMap<>();
+
+  public void increment(String name) {
+    add(name, 1);
+  }
+
+  public synchronized void add(String name, long delta) {
+    counters.merge(name, delta, Long::sum);
+  }
+
+  public synchronized long get(String name) {
+    Long value = counters.get(name);
+    return value != null ? value : 0;
+  }
+
+  public synchronized boolean isEmpty() {
+    return counters.isEmpty();
+  }
+
+  public synchronized void printResults(PrintStream out) {
+    if (counters.isEmpty()) {
+      return;
+    }
+    out.println("Translation statistics:");
+    for (Map.Entry<String, Long> entry : counters.entrySet()) {
+      out.println(String.format("%8d - %s", entry.getValue(), entry.getKey()));
+    }
+  }
+}
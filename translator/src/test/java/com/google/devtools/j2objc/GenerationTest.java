@@ -142,6 +142,7 @@ public abstract class GenerationTest extends TestCase {
 
   protected void setDeadCodeMap(CodeReferenceMap deadCodeMap) {
     this.deadCodeMap = deadCodeMap;
+    parser.setDeadCodeMap(deadCodeMap);
   }
 
   protected void addSourcesToSourcepaths() throws IOException {
@@ -14,6 +14,8 @@
 
 package com.google.devtools.j2objc;
 
+import com.google.devtools.j2objc.util.CodeReferenceMap;
+import com.google.devtools.j2objc.util.CodeReferenceMapFile;
 import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.HeaderMap;
 import com.google.devtools.j2objc.util.SourceVersion;
@@ -239,6 +241,19 @@ public class J2ObjCTest extends GenerationTest {
     assertServiceAnnotationProcessorOutput();
   }
 
+  // Test running the processor in the same javac task as the translation.
+  public void testSinglePassAnnotationProcessing() throws Exception {
+    String processorPath = getResourceAsFile("annotations/Processor.jar");
+    options.fileUtil().getClassPathEntries().add(processorPath);
+    options.setSinglePassProcessing(true);
+
+    String examplePath = addSourceFile(EXAMPLE_JAVA_SOURCE, "annotations/Example.java");
+    J2ObjC.run(Collections.singletonList(examplePath), options);
+    assertNoErrors();
+
+    assertServiceAnnotationProcessorOutput();
+  }
+
   // Test a specified annotation processor.
   public void testSpecifiedAnnotationProcessing() throws Exception {
     String processorPath = getResourceAsFile("annotations/ExplicitProcessor.jar");
@@ -355,6 +370,26 @@ public class J2ObjCTest extends GenerationTest {
     assertTrue(new File(tempDir, "foo/bar/Test.java").exists());
   }
 
+  // Verify stripped sources are translated without being written to disk.
+  public void testStripIncompatibleSourcesInMemory() throws IOException {
+    String aPath = addSourceFile(
+        "package foo; import com.google.j2objc.annotations.J2ObjCIncompatible;"
+        + "public class A { public int ok() { return 1; }"
+        + "  @J2ObjCIncompatible public Missing bad() { return null; } }",
+        "foo/A.java");
+    String bPath = addSourceFile(
+        "package foo; class B { int test(A a) { return a.ok(); } }", "foo/B.java");
+    J2ObjC.run(Arrays.asList(aPath, bPath), options);
+    assertNoErrors();
+
+    String translation = getTranslatedFile("foo/A.m");
+    assertTranslation(translation, "- (jint)ok");
+    assertNotInTranslation(translation, "bad");
+    assertTranslation(getTranslatedFile("foo/B.m"), "[((FooA *) nil_chk(a)) ok]");
+    // The input file is unchanged.
+    assertTrue(getTranslatedFile("foo/A.java").contains("J2ObjCIncompatible"));
+  }
+
   public void testJavacVersionString() {
     assertTrue(Version.jarVersion(Options.class).contains("(javac "));
   }
@@ -374,4 +409,29 @@ public class J2ObjCTest extends GenerationTest {
     String translation = getTranslatedFile("com/google/test/packageInfoLookupTest/A.m");
     assertTranslation(translation, "__metadata");
   }
+
+  // Binary dead code reports are mapped by path and merged with text reports.
+  public void testBinaryDeadCodeReport() throws Exception {
+    File binaryReport = new File(tempDir, "dead.bin");
+    CodeReferenceMapFile.write(CodeReferenceMap.builder()
+        .addMethod("foo.A", "dead", "()V")
+        .addField("foo.A", "deadField")
+        .build(), binaryReport);
+    String textReport = addSourceFile("foo.A:\n    public void alsoDead()\n", "dead.cfg");
+    options.load(new String[] {
+        "--dead-code-report", binaryReport.getPath(), "--dead-code-report", textReport});
+    assertEquals(Collections.singletonList(binaryReport), options.getBinaryDeadCodeReports());
+
+    String srcPath = addSourceFile("package foo; public class A { int deadField; int liveField;"
+        + " public void dead() {} public void alsoDead() {} public void live() {} }",
+        "foo/A.java");
+    J2ObjC.run(Collections.singletonList(srcPath), options);
+    assertNoErrors();
+    String translation = getTranslatedFile("foo/A.h");
+    assertTranslation(translation, "- (void)live;");
+    assertTranslation(translation, "liveField");
+    assertNotInTranslation(translation, "- (void)dead;");
+    assertNotInTranslation(translation, "alsoDead");
+    assertNotInTranslation(translation, "deadField");
+  }
 }
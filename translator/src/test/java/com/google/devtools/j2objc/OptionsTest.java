@@ -17,9 +17,12 @@ package com.google.devtools.j2objc;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.io.Files;
+import com.google.devtools.j2objc.util.CodeReferenceMap;
+import com.google.devtools.j2objc.util.CodeReferenceMapFile;
 import com.google.devtools.j2objc.util.SourceVersion;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -111,4 +114,29 @@ public class OptionsTest extends GenerationTest {
     String result = Files.asCharSource(options.getProGuardUsageFile(), UTF_8).read();
     assertEquals("first line\nsecond line\nthird line\n", result);
   }
+
+  public void testBinaryDeadCodeReportKeptByPath() throws IOException {
+    File text = new File(getTempDir(), "text.cfg");
+    Files.write("com.foo.Bar\n", text, UTF_8);
+    options.addDeadCodeReport(text.getPath());
+
+    File binary = new File(getTempDir(), "dead.bin");
+    CodeReferenceMapFile.write(CodeReferenceMap.builder().addClass("com.foo.Baz").build(), binary);
+    options.addDeadCodeReport(binary.getPath());
+
+    assertEquals(Collections.singletonList(binary), options.getBinaryDeadCodeReports());
+    String result = Files.asCharSource(options.getProGuardUsageFile(), UTF_8).read();
+    assertEquals("com.foo.Bar\n", result);
+  }
+
+  public void testBatchFlags() throws IOException {
+    options = new Options();
+    options.load(new String[] {});
+    assertEquals(0, options.batchTranslateMax());
+    assertEquals(0, options.batchHeapBudget());
+
+    options.load(new String[] { "--batch-translate-max=300", "-Xbatch-heap-budget=512" });
+    assertEquals(300, options.batchTranslateMax());
+    assertEquals(512L * 1024 * 1024, options.batchHeapBudget());
+  }
 }
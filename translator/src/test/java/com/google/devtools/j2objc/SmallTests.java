@@ -33,6 +33,7 @@ import com.google.devtools.j2objc.gen.ObjectiveCSegmentedHeaderGeneratorTest;
 import com.google.devtools.j2objc.gen.ObjectiveCSourceFileGeneratorTest;
 import com.google.devtools.j2objc.gen.PrimitiveArrayTest;
 import com.google.devtools.j2objc.gen.SignatureGeneratorTest;
+import com.google.devtools.j2objc.gen.SourceBuilderTest;
 import com.google.devtools.j2objc.gen.StatementGeneratorTest;
 import com.google.devtools.j2objc.gen.TypeDeclarationGeneratorTest;
 import com.google.devtools.j2objc.gen.TypeImplementationGeneratorTest;
@@ -54,6 +55,7 @@ import com.google.devtools.j2objc.translate.DefaultMethodsTest;
 import com.google.devtools.j2objc.translate.DestructorGeneratorTest;
 import com.google.devtools.j2objc.translate.EnhancedForRewriterTest;
 import com.google.devtools.j2objc.translate.EnumRewriterTest;
+import com.google.devtools.j2objc.translate.EscapeAnalyzerTest;
 import com.google.devtools.j2objc.translate.ExternalAnnotationInjectorTest;
 import com.google.devtools.j2objc.translate.FunctionizerTest;
 import com.google.devtools.j2objc.translate.GwtConverterTest;
@@ -63,6 +65,7 @@ import com.google.devtools.j2objc.translate.JavaCloneWriterTest;
 import com.google.devtools.j2objc.translate.JavaToIOSMethodTranslatorTest;
 import com.google.devtools.j2objc.translate.LambdaTypeElementAdderTest;
 import com.google.devtools.j2objc.translate.LogSiteInjectorTest;
+import com.google.devtools.j2objc.translate.LoopInvariantHoisterTest;
 import com.google.devtools.j2objc.translate.MetadataWriterTest;
 import com.google.devtools.j2objc.translate.NilCheckResolverTest;
 import com.google.devtools.j2objc.translate.NumberMethodRewriterTest;
@@ -89,7 +92,9 @@ import com.google.devtools.j2objc.translate.VariableRenamerTest;
 import com.google.devtools.j2objc.types.CompoundTypeTest;
 import com.google.devtools.j2objc.types.HeaderImportCollectorTest;
 import com.google.devtools.j2objc.types.ImplementationImportCollectorTest;
+import com.google.devtools.j2objc.util.AnnotationIndexTest;
 import com.google.devtools.j2objc.util.ClassFileTest;
+import com.google.devtools.j2objc.util.CodeReferenceMapFileTest;
 import com.google.devtools.j2objc.util.CodeReferenceMapTest;
 import com.google.devtools.j2objc.util.ElementUtilTest;
 import com.google.devtools.j2objc.util.ErrorUtilTest;
@@ -109,6 +114,7 @@ public class SmallTests {
   private static final Class<?>[] smallTestClasses =
       new Class<?>[] {
         AbstractMethodRewriterTest.class,
+        AnnotationIndexTest.class,
         AnnotationRewriterTest.class,
         AnnotationTest.class,
         AnonymousClassConverterTest.class,
@@ -120,6 +126,7 @@ public class SmallTests {
         CastResolverTest.class,
         ClassFileConverterTest.class,
         ClassFileTest.class,
+        CodeReferenceMapFileTest.class,
         CodeReferenceMapTest.class,
         ComplexExpressionExtractorTest.class,
         CompoundTypeTest.class,
@@ -130,6 +137,7 @@ public class SmallTests {
         ElementUtilTest.class,
         EnhancedForRewriterTest.class,
         EnumRewriterTest.class,
+        EscapeAnalyzerTest.class,
         ErrorUtilTest.class,
         ExternalAnnotationInjectorTest.class,
         FileUtilTest.class,
@@ -153,6 +161,7 @@ public class SmallTests {
         LineDirectivesTest.class,
         LiteralGeneratorTest.class,
         LogSiteInjectorTest.class,
+        LoopInvariantHoisterTest.class,
         MetadataWriterTest.class,
         MethodReferenceTest.class,
         NameTableTest.class,
@@ -181,6 +190,7 @@ public class SmallTests {
         RewriterTest.class,
         SerializationStripperTest.class,
         SignatureGeneratorTest.class,
+        SourceBuilderTest.class,
         StatementGeneratorTest.class,
         StaticVarRewriterTest.class,
         SuperMethodInvocationRewriterTest.class,
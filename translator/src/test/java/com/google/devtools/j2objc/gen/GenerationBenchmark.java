@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.gen;
+
+import com.google.devtools.j2objc.J2ObjC;
+import com.google.devtools.j2objc.Options;
+import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.pipeline.TranslationProcessor;
+import com.google.devtools.j2objc.util.ErrorUtil;
+import com.google.devtools.j2objc.util.Parser;
+import com.google.devtools.j2objc.util.TimeTracker;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times Objective-C code generation alone, without parsing or translation,
+ * by generating the same translated units repeatedly. This isn't part of the
+ * test suite; run it with the translator's test classpath and the usual
+ * j2objc flags and sources, for example over jre_emul:
+ *
+ * <pre>
+ * java com.google.devtools.j2objc.gen.GenerationBenchmark --iterations 20 \
+ *     -sourcepath jre_emul/Classes:jre_emul/android/... jre_emul/Classes/java/lang/*.java
+ * </pre>
+ */
+public class GenerationBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 3;
+
+  public static void main(String[] args) throws IOException {
+    int iterations = 10;
+    if (args.length > 1 && args[0].equals("--iterations")) {
+      iterations = Integer.parseInt(args[1]);
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+    Options options = new Options();
+    List<String> files = options.load(args);
+    if (files.isEmpty()) {
+      System.err.println("no source files");
+      System.exit(1);
+    }
+
+    List<CompilationUnit> units = new ArrayList<>();
+    Parser parser = J2ObjC.createParser(options);
+    parser.parseFiles(files, (path, unit) -> {
+      TranslationProcessor.applyMutations(
+          unit, null, options.externalAnnotations(), TimeTracker.noop());
+      units.add(unit);
+    }, options.getSourceVersion());
+    if (ErrorUtil.errorCount() > 0) {
+      System.exit(ErrorUtil.errorCount());
+    }
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      generate(units);
+    }
+    long chars = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      chars += generate(units);
+    }
+    long elapsed = System.nanoTime() - start;
+    parser.close();
+
+    double millisPerIteration = elapsed / 1e6 / iterations;
+    System.out.printf("%d units, %d iterations: %.1f ms per iteration, %.1f MB/s generated\n",
+        units.size(), iterations, millisPerIteration, chars / (elapsed / 1e9) / 1e6);
+  }
+
+  private static long generate(List<CompilationUnit> units) {
+    long chars = 0;
+    for (CompilationUnit unit : units) {
+      for (AbstractTypeDeclaration type : unit.getTypes()) {
+        GeneratedType generatedType = GeneratedType.fromTypeDeclaration(type);
+        chars += generatedType.getPublicDeclarationCode().length()
+            + generatedType.getPrivateDeclarationCode().length()
+            + generatedType.getImplementationCode().length();
+      }
+    }
+    return chars;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.gen;
+
+import com.google.devtools.j2objc.gen.SourceBuilder.Template;
+import com.google.devtools.j2objc.util.UnicodeUtils;
+import java.util.IllegalFormatConversionException;
+import java.util.MissingFormatArgumentException;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SourceBuilder}.
+ */
+public class SourceBuilderTest extends TestCase {
+
+  public void testTemplateMatchesFormat() {
+    assertTemplate("%s_Enum_%s", "Color", "RED");
+    assertTemplate("#define %s_%s %d\n", "Foo", "BAR", 42);
+    assertTemplate("%c (%s%s%s)", '-', "id", "", null);
+    assertTemplate("100%% of %d%n", -9000000000L);
+    assertTemplate("no arguments");
+  }
+
+  public void testUnsupportedConversionFallsBackToFormat() {
+    assertTemplate("_%05x", 0x4e2d);
+    assertTemplate("%-8s|", "pad");
+  }
+
+  public void testTemplateArgumentErrors() {
+    try {
+      Template.of("%s and %s").format("one");
+      fail("expected MissingFormatArgumentException");
+    } catch (MissingFormatArgumentException e) {
+      // Expected.
+    }
+    try {
+      Template.of("%d").format("one");
+      fail("expected IllegalFormatConversionException");
+    } catch (IllegalFormatConversionException e) {
+      // Expected.
+    }
+  }
+
+  public void testPrintfCountsLines() {
+    SourceBuilder builder = new SourceBuilder(false, 1);
+    builder.printf("%s\n%s\n", "first", "second");
+    builder.printf("%d\n", 3);
+    assertEquals("first\nsecond\n3\n", builder.toString());
+    assertEquals(4, builder.getCurrentLine());
+  }
+
+  private static void assertTemplate(String format, Object... args) {
+    assertEquals(UnicodeUtils.format(format, args), Template.compile(format).format(args));
+    assertEquals(UnicodeUtils.format(format, args), SourceBuilder.format(format, args));
+  }
+}
@@ -1715,4 +1715,110 @@ public class StatementGeneratorTest extends GenerationTest {
     assertTranslation(translation,
         "@interface Test_$Lambda$1 : NSObject < JavaUtilFunctionFunction >");
   }
+
+  public void testLightweightMonitorWithoutTry() throws IOException {
+    options.setLightweightMonitors(true);
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  int count;",
+        "  synchronized void increment() { count++; }",
+        "  synchronized int get() { return count; }",
+        "}"), "Test", "Test.m");
+    assertNotInTranslation(translation, "@synchronized");
+    assertNotInTranslation(translation, "@try");
+    assertTranslatedLines(translation,
+        "- (void)increment {",
+        "  {",
+        "    JreMonitorEnter(self);",
+        "    count_++;",
+        "    JreMonitorExit(self);",
+        "  }",
+        "}");
+    assertTranslatedLines(translation,
+        "JreMonitorEnter(self);",
+        "jint syncResult$1 = count_;",
+        "JreMonitorExit(self);",
+        "return syncResult$1;");
+  }
+
+  public void testLightweightMonitorExceptionPaths() throws IOException {
+    options.setLightweightMonitors(true);
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  int count;",
+        "  void test(Runnable r) {",
+        "    synchronized (r) {",
+        "      r.run();",
+        "    }",
+        "  }",
+        "  void test(boolean b) {",
+        "    synchronized (this) {",
+        "      if (b) {",
+        "        throw new IllegalStateException();",
+        "      }",
+        "      count++;",
+        "    }",
+        "  }",
+        "}"), "Test", "Test.m");
+    assertNotInTranslation(translation, "@synchronized");
+    assertTranslatedLines(translation,
+        "id sync$1 = r;",
+        "JreMonitorEnter(sync$1);",
+        "@try {");
+    assertTranslatedLines(translation,
+        "@finally {",
+        "JreMonitorExit(sync$1);",
+        "}");
+    assertTranslatedLines(translation,
+        "JreMonitorEnter(self);",
+        "@try {",
+        "if (b) {",
+        "@throw create_JavaLangIllegalStateException_init();",
+        "}",
+        "count_++;",
+        "}",
+        "@finally {",
+        "JreMonitorExit(self);",
+        "}");
+  }
+
+  public void testNestedLightweightMonitors() throws IOException {
+    options.setLightweightMonitors(true);
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  int count;",
+        "  static synchronized void test(Test t) {",
+        "    synchronized (t) {",
+        "      synchronized (t) {",
+        "        t.count++;",
+        "      }",
+        "    }",
+        "  }",
+        "}"), "Test", "Test.m");
+    // Entering a monitor can throw, so the outer blocks need a try statement.
+    assertTranslatedLines(translation,
+        "id sync$1 = Test_class_();",
+        "JreMonitorEnter(sync$1);",
+        "@try {",
+        "{",
+        "id sync$2 = t;",
+        "JreMonitorEnter(sync$2);",
+        "@try {",
+        "{",
+        "id sync$3 = t;",
+        "JreMonitorEnter(sync$3);");
+    assertTranslatedLines(translation,
+        "JreMonitorExit(sync$3);",
+        "}",
+        "}",
+        "}",
+        "@finally {",
+        "JreMonitorExit(sync$2);",
+        "}",
+        "}",
+        "}",
+        "@finally {",
+        "JreMonitorExit(sync$1);",
+        "}");
+  }
 }
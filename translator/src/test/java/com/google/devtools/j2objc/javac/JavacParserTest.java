@@ -15,6 +15,12 @@
 package com.google.devtools.j2objc.javac;
 
 import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.file.InputFile;
+import com.google.devtools.j2objc.file.RegularInputFile;
+import com.google.devtools.j2objc.util.ErrorUtil;
+import com.google.devtools.j2objc.util.Parser;
+import java.util.ArrayList;
+import java.util.List;
 
 /** Tests for {@link JavacParser}. */
 public class JavacParserTest extends GenerationTest {
@@ -35,4 +41,24 @@ public class JavacParserTest extends GenerationTest {
     String source = "package foo$bar.all_mumbles;";
     assertEquals("foo$bar.all_mumbles", JavacParser.packageName(source));
   }
+
+  public void testParseWithoutBindingsInParallel() {
+    List<InputFile> files = new ArrayList<>();
+    List<String> sources = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      files.add(new RegularInputFile("p" + i + "/Test.java", "p" + i + "/Test.java"));
+      sources.add("package p" + i + "; class Test { int f() { return " + i + "; } }");
+    }
+    files.add(new RegularInputFile("Bad.java", "Bad.java"));
+    sources.add("class Bad { void f( }");
+
+    List<Parser.ParseResult> results = parser.parseWithoutBindings(files, sources);
+    assertEquals(51, results.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals("p" + i + ".Test", results.get(i).mainTypeName());
+    }
+    assertNull(results.get(50));
+    assertEquals(1, ErrorUtil.errorCount());
+    ErrorUtil.reset();
+  }
 }
@@ -17,8 +17,10 @@ package com.google.devtools.j2objc.pipeline;
 import com.google.devtools.j2objc.GenerationTest;
 import com.google.devtools.j2objc.J2ObjC;
 import com.google.devtools.j2objc.file.RegularInputFile;
+import com.google.devtools.j2objc.util.Parser;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Tests for {@link TranslationProcessor}.
@@ -88,4 +90,124 @@ public class TranslationProcessorTest extends GenerationTest {
     // Verify A.java wasn't compiled; it has a B reference, but B doesn't depend on it.
     assertFalse(new File(tempDir, "A.m").exists());
   }
+
+  public void testOutputsWrittenInBackground() throws IOException {
+    addSourceFile("package p; class A {}", "p/A.java");
+    addSourceFile("package q; class B {}", "q/B.java");
+
+    GenerationBatch batch = new GenerationBatch(options);
+    batch.addSource(new RegularInputFile(getTempDir() + "/p/A.java", "p/A.java"));
+    batch.addSource(new RegularInputFile(getTempDir() + "/q/B.java", "q/B.java"));
+    TranslationProcessor processor = new TranslationProcessor(J2ObjC.createParser(options), null);
+    processor.processInputs(batch.getInputs());
+    assertNoErrors();
+
+    // All files are written, into new directories, by the time processInputs returns.
+    assertEquals(4, options.statistics().get("OutputFileWriter: files written"));
+    assertTranslation(getTranslatedFile("p/A.h"), "@interface PA");
+    assertTranslation(getTranslatedFile("q/B.m"), "@implementation QB");
+  }
+
+  public void testBuildClosureWaves() throws IOException {
+    addSourceFile("class A { B b; C c; }", "A.java");
+    addSourceFile("class B { D d; }", "B.java");
+    addSourceFile("class C { D d; }", "C.java");
+    addSourceFile("class D {}", "D.java");
+
+    options.load(new String[] {
+        "--build-closure",
+        "A"
+    });
+    GenerationBatch batch = new GenerationBatch(options);
+    TranslationProcessor processor = new TranslationProcessor(J2ObjC.createParser(options), null);
+    processor.processInputs(batch.getInputs());
+    assertNoErrors();
+
+    // A is the first wave, B and C the second and D, found twice, the third.
+    assertEquals(3, options.statistics().get("BuildClosureQueue: waves"));
+    assertEquals(4, options.statistics().get("BuildClosureQueue: files found"));
+    for (String name : new String[] { "A", "B", "C", "D" }) {
+      assertTrue(new File(tempDir, name + ".m").exists());
+    }
+  }
+
+  public void testBatchTranslateMax() throws IOException {
+    addSourceFile("package p; public class A { q.C c; }", "p/A.java");
+    addSourceFile("package p; class B extends A {}", "p/B.java");
+    addSourceFile("package q; public class C { p.A a; }", "q/C.java");
+    options.setBatchTranslateMax(2);
+    options.setBatchHeapBudget(Long.MAX_VALUE);
+
+    GenerationBatch batch = new GenerationBatch(options);
+    batch.addSource(new RegularInputFile(getTempDir() + "/p/A.java", "p/A.java"));
+    batch.addSource(new RegularInputFile(getTempDir() + "/p/B.java", "p/B.java"));
+    batch.addSource(new RegularInputFile(getTempDir() + "/q/C.java", "q/C.java"));
+
+    // Both files in p fit into one batch, so they aren't split up.
+    List<List<ProcessingContext>> batches = FileProcessor.partition(batch.getInputs(), 2, 0);
+    assertEquals(2, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertEquals("q/C.java", batches.get(1).get(0).getFile().getUnitName());
+
+    TranslationProcessor processor = new TranslationProcessor(J2ObjC.createParser(options), null);
+    processor.processInputs(batch.getInputs());
+    assertNoErrors();
+    assertTrue(new File(tempDir, "p/A.m").exists());
+    assertTrue(new File(tempDir, "p/B.m").exists());
+    assertTrue(new File(tempDir, "q/C.m").exists());
+    assertEquals(2, options.statistics().get("FileProcessor: javac batches"));
+  }
+
+  public void testBatchTranslateMaxIgnoredWithoutHeapBudget() throws IOException {
+    addSourceFile("package p; public class A { q.C c; }", "p/A.java");
+    addSourceFile("package q; public class C { p.A a; }", "q/C.java");
+    options.setBatchTranslateMax(1);
+
+    GenerationBatch batch = new GenerationBatch(options);
+    batch.addSource(new RegularInputFile(getTempDir() + "/p/A.java", "p/A.java"));
+    batch.addSource(new RegularInputFile(getTempDir() + "/q/C.java", "q/C.java"));
+    TranslationProcessor processor = new TranslationProcessor(J2ObjC.createParser(options), null);
+    processor.processInputs(batch.getInputs());
+    assertNoErrors();
+    assertEquals(1, options.statistics().get("FileProcessor: javac batches"));
+  }
+
+  public void testSinglePassProcessingWithoutProcessorsSplitsBatches() throws IOException {
+    addSourceFile("package p; public class A { q.C c; }", "p/A.java");
+    addSourceFile("package q; public class C { p.A a; }", "q/C.java");
+    options.setSinglePassProcessing(true);
+    options.setBatchTranslateMax(1);
+    options.setBatchHeapBudget(Long.MAX_VALUE);
+
+    GenerationBatch batch = new GenerationBatch(options);
+    batch.addSource(new RegularInputFile(getTempDir() + "/p/A.java", "p/A.java"));
+    batch.addSource(new RegularInputFile(getTempDir() + "/q/C.java", "q/C.java"));
+    // The flag alone doesn't keep all inputs in one batch; no processors were found.
+    Parser parser = J2ObjC.createParser(options);
+    assertFalse(parser.processesAnnotationsWhileParsing());
+    TranslationProcessor processor = new TranslationProcessor(parser, null);
+    processor.processInputs(batch.getInputs());
+    assertNoErrors();
+    assertEquals(2, options.statistics().get("FileProcessor: javac batches"));
+  }
+
+  public void testBatchHeapBudgetSplitsLargeDirectories() throws IOException {
+    GenerationBatch batch = new GenerationBatch(options);
+    for (int i = 0; i < 5; i++) {
+      String name = "p/A" + i + ".java";
+      addSourceFile("package p; class A" + i + " {}", name);
+      batch.addSource(new RegularInputFile(getTempDir() + "/" + name, name));
+    }
+    // Each file is estimated at 200 bytes of heap per source byte.
+    long fileHeap = new File(tempDir, "p/A0.java").length() * 200;
+    List<List<ProcessingContext>> batches =
+        FileProcessor.partition(batch.getInputs(), 0, fileHeap * 2);
+    assertEquals(3, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertEquals(2, batches.get(1).size());
+    assertEquals(1, batches.get(2).size());
+
+    // Without limits, all inputs are parsed together.
+    assertEquals(1, FileProcessor.partition(batch.getInputs(), 0, 0).size());
+  }
 }
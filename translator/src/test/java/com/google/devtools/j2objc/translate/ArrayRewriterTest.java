@@ -17,6 +17,9 @@
 package com.google.devtools.j2objc.translate;
 
 import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.ast.ArrayAccess;
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
 import com.google.devtools.j2objc.ast.Statement;
 
 import java.io.IOException;
@@ -120,4 +123,47 @@ public class ArrayRewriterTest extends GenerationTest {
         "[((JavaUtilBase64_Decoder *) nil_chk(val$decoder_)) "
             + "decodeWithByteArray:(IOSByteArray *) nil];");
   }
+
+  public void testStackAllocatedArrays() throws IOException {
+    options.setStackArrayMaxBytes(64);
+    String translation = translateSourceFile(
+        "class Test { "
+            + "  int test(int n) { int[] a = new int[4]; a[n] = n; a[0] += a[n]; "
+            + "    return a.length + a[0]; } "
+            + "  int init(int n) { int[] a = new int[] { n, 2 }; return a[1]; } "
+            + "  byte[] escapes() { byte[] b = new byte[4]; return b; } "
+            + "  long tooLarge() { long[] l = new long[16]; return l[0]; } }",
+        "Test", "Test.m");
+    assertTranslatedLines(translation,
+        "jint a[4] = { 0 };",
+        "a[IOSArray_checkedIndex(4, n)] = n;",
+        "a[0] += a[IOSArray_checkedIndex(4, n)];",
+        "return 4 + a[0];");
+    assertTranslatedLines(translation,
+        "jint a[2];",
+        "a[0] = n;",
+        "a[1] = 2;",
+        "return a[1];");
+    assertTranslation(translation, "IOSByteArray *b = [IOSByteArray arrayWithLength:4];");
+    assertTranslation(translation, "IOSLongArray *l = [IOSLongArray arrayWithLength:16];");
+    assertEquals(2, options.statistics().get("ArrayRewriter: stack-allocated arrays"));
+  }
+
+  // Only the accesses of stack-allocated arrays may reach the generator.
+  public void testOnlyStackArrayAccessesGenerated() throws IOException {
+    options.setStackArrayMaxBytes(64);
+    List<Statement> stmts = translateStatements("int[] a = new int[2]; a[1] = 3;");
+    ExpressionStatement stmt = (ExpressionStatement) stmts.get(stmts.size() - 1);
+    assertEquals("a[1] = 3;", generateStatement(stmt.copy()));
+
+    ArrayAccess access = (ArrayAccess) ((Assignment) stmt.getExpression()).getLeftHandSide();
+    access.setIsStackArrayAccess(false);
+    boolean rejected = false;
+    try {
+      generateStatement(stmt);
+    } catch (AssertionError e) {
+      rejected = true;
+    }
+    assertTrue("ArrayAccess of a heap array was generated", rejected);
+  }
 }
@@ -313,4 +313,63 @@ public class CastResolverTest extends GenerationTest {
     assertTranslation(translation, "return (JavaLangNullPointerException *) "
         + "cast_chk(o, [JavaLangNullPointerException class]);");
   }
+
+  public void testConditionalAndCastChkOptimization() throws IOException {
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  int i;",
+        "  public boolean equals(Object o) {",
+        "    return o instanceof Test && ((Test) o).i == i;",
+        "  }",
+        "  int test(Object o) {",
+        "    return !(o instanceof Integer) || ((Integer) o).intValue() == 0 ? 0 : 1;",
+        "  }",
+        "}"), "Test", "Test.m");
+    assertNotInTranslation(translation, "cast_chk");
+  }
+
+  public void testEarlyExitCastChkOptimization() throws IOException {
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  int test(Object o) {",
+        "    if (!(o instanceof Integer)) {",
+        "      return -1;",
+        "    }",
+        "    return ((Integer) o).intValue();",
+        "  }",
+        "  void test(Object o, Object p) {",
+        "    if (o instanceof Runnable) {",
+        "      ((Runnable) o).run();",
+        "    }",
+        "    String s = o instanceof String ? (String) o : null;",
+        "  }",
+        "}"), "Test", "Test.m");
+    assertNotInTranslation(translation, "cast_chk");
+    assertNotInTranslation(translation, "cast_check");
+    assertEquals(3, options.statistics().get("CastResolver: cast checks removed after instanceof"));
+  }
+
+  public void testCastChkNotRemovedWithoutDominatingInstanceof() throws IOException {
+    String translation = translateSourceFile(String.join("\n",
+        "class Test {",
+        "  Object f;",
+        "  int test(Object o, boolean b) {",
+        "    if (o instanceof Integer) {",
+        "      o = \"\";",
+        "      return ((Integer) o).intValue();",
+        "    } else if (b) {",
+        "      return ((Integer) o).intValue();",
+        "    }",
+        "    if (f instanceof Integer) {",
+        "      return ((Integer) f).intValue();",
+        "    }",
+        "    if (o instanceof Integer || b) {",
+        "      return ((Integer) o).intValue();",
+        "    }",
+        "    return 0;",
+        "  }",
+        "}"), "Test", "Test.m");
+    assertOccurrences(translation, "cast_chk(", 4);
+    assertEquals(0, options.statistics().get("CastResolver: cast checks removed after instanceof"));
+  }
 }
@@ -17,8 +17,16 @@
 package com.google.devtools.j2objc.translate;
 
 import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.FieldDeclaration;
+import com.google.devtools.j2objc.ast.Initializer;
+import com.google.devtools.j2objc.ast.MethodDeclaration;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
 import com.google.devtools.j2objc.util.CodeReferenceMap;
+import com.google.devtools.j2objc.util.ElementUtil;
 import java.io.IOException;
+import javax.lang.model.element.ExecutableElement;
 
 /**
  * Unit tests for DeadCodeEliminator.
@@ -103,6 +111,53 @@ public class DeadCodeEliminatorTest extends GenerationTest {
     assertNotInTranslation(translation, "baz");
   }
 
+  public void testDeadFieldWrites() throws IOException {
+    String source = "class A {\n"
+        + "  private int count;\n"
+        + "  private Object last;\n"
+        + "  private static String name;\n"
+        + "  A(int n) {\n"
+        + "    count = n;\n"
+        + "    this.last = next();\n"
+        + "    A.name = \"a\";\n"
+        + "    if (n > 0) count = 1;\n"
+        + "  }\n"
+        + "  Object next() { return null; }\n"
+        + "}\n";
+    CodeReferenceMap map = CodeReferenceMap.builder()
+        .addField("A", "count")
+        .addField("A", "last")
+        .addField("A", "name")
+        .build();
+    setDeadCodeMap(map);
+    String translation = translateSourceFile(source, "A", "A.m");
+    assertNotInTranslation(translation, "count");
+    assertNotInTranslation(translation, "last");
+    assertNotInTranslation(translation, "A_name");
+    assertTranslation(translation, "[self next];");
+  }
+
+  public void testDeadFieldWritesInForLoop() throws IOException {
+    String source = "class A {\n"
+        + "  private int last;\n"
+        + "  int sum(int n) {\n"
+        + "    int s = 0;\n"
+        + "    for (last = 0; s < n; s++, last = s) {}\n"
+        + "    for (int i = 0; i < n; last = next(i++)) {}\n"
+        + "    return s;\n"
+        + "  }\n"
+        + "  int next(int i) { return i; }\n"
+        + "}\n";
+    CodeReferenceMap map = CodeReferenceMap.builder()
+        .addField("A", "last")
+        .build();
+    setDeadCodeMap(map);
+    String translation = translateSourceFile(source, "A", "A.m");
+    assertNotInTranslation(translation, "last");
+    assertTranslation(translation, "for (; s < n; s++) {");
+    assertTranslation(translation, "for (jint i = 0; i < n; [self nextWithInt:i++]) {");
+  }
+
   public void testDeadInitializer() throws IOException {
     CodeReferenceMap map = CodeReferenceMap.builder()
         .addClass("A").build();
@@ -664,4 +719,49 @@ public class DeadCodeEliminatorTest extends GenerationTest {
     assertTranslation(translation, "J2OBJC_INTERFACE_TYPE_LITERAL_SOURCE(Foo_Inner)");
     assertNotInTranslation(translation, "J2OBJC_INTERFACE_TYPE_LITERAL_SOURCE(Foo_Inner2)");
   }
+
+  // Verify the tree converter skips the bodies of dead code, which is removed later.
+  public void testDeadBodiesNotConverted() throws IOException {
+    CodeReferenceMap map = CodeReferenceMap.builder()
+        .addClass("Test$Dead")
+        .addMethod("Test", "dead", "()I")
+        .addField("Test", "deadField")
+        .build();
+    setDeadCodeMap(map);
+    String source =
+        "class Test { Object deadField = new Object(); Object liveField = new Object(); "
+        + "int dead() { return 1; } int live() { return 2; } "
+        + "static class Dead { static { System.out.println(); } Object f = new Object(); "
+        + "  static final int CONSTANT = 3; void foo() { System.out.println(); } } }";
+    CompilationUnit unit = compileType("Test", source);
+    unit.accept(new TreeVisitor() {
+      @Override
+      public void endVisit(MethodDeclaration node) {
+        ExecutableElement method = node.getExecutableElement();
+        String name = ElementUtil.getName(method);
+        boolean isLive = name.equals("live") || (node.isConstructor()
+            && ElementUtil.getName(ElementUtil.getDeclaringClass(method)).equals("Test"));
+        assertEquals(name, isLive, node.getBody() != null);
+      }
+
+      @Override
+      public void endVisit(FieldDeclaration node) {
+        VariableDeclarationFragment fragment = node.getFragment();
+        String name = ElementUtil.getName(fragment.getVariableElement());
+        assertEquals(name, name.equals("liveField") || name.equals("CONSTANT"),
+            fragment.getInitializer() != null);
+      }
+
+      @Override
+      public void endVisit(Initializer node) {
+        fail("dead initializer converted");
+      }
+    });
+
+    // The dead code is removed, and the live code translated.
+    String translation = translateSourceFile(source, "Test", "Test.m");
+    assertTranslation(translation, "- (jint)live {\n  return 2;\n}");
+    assertNotInTranslation(translation, "dead");
+    assertNotInTranslation(translation, "foo");
+  }
 }
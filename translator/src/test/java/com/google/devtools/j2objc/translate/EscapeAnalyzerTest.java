@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.Options.MemoryManagementOption;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link EscapeAnalyzer}.
+ */
+public class EscapeAnalyzerTest extends GenerationTest {
+
+  @Override
+  protected void setUp() throws IOException {
+    super.setUp();
+    options.setEscapeAnalysis(true);
+  }
+
+  public void testLocalObjectReleasedAtEndOfLoopBody() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int test(int n) { int total = 0;"
+        + " for (int i = 0; i < n; i++) { Object o = new Object(); total += o.hashCode(); }"
+        + " return total; } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "id o = new_NSObject_init();");
+    assertTranslation(translation, "RELEASE_(o);");
+    assertNotInTranslation(translation, "create_NSObject_init");
+    assertEquals(1, options.statistics().get("EscapeAnalyzer: released in finally block"));
+  }
+
+  public void testReleasedBeforeFinalReturn() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int test(int n) { Object o = new Object(); int m = n * 2; return m; } }",
+        "Test", "Test.m");
+    assertTranslatedLines(translation,
+        "id o = new_NSObject_init();",
+        "jint m = n * 2;",
+        "jint escape$1 = m;",
+        "RELEASE_(o);",
+        "return escape$1;");
+    assertNotInTranslation(translation, "@try");
+    assertEquals(1, options.statistics().get("EscapeAnalyzer: released at end of scope"));
+  }
+
+  public void testReleasedInFinallyWhenScopeCanThrow() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String s) { StringBuilder sb = new StringBuilder();"
+        + " sb.append(s).append('!'); return sb.toString(); } }",
+        "Test", "Test.m");
+    assertTranslation(translation,
+        "JavaLangStringBuilder *sb = new_JavaLangStringBuilder_init();");
+    assertTranslation(translation, "@try {");
+    assertTranslation(translation, "return [sb description];");
+    assertTranslation(translation, "@finally {");
+    assertTranslation(translation, "RELEASE_(sb);");
+    assertNotInTranslation(translation, "escape$");
+    assertEquals(1, options.statistics().get("EscapeAnalyzer: released in finally block"));
+  }
+
+  public void testNestedFinallyReleases() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int test(int[] a) { Object o = new Object(); a[0] = o.hashCode();"
+        + " Object p = new Object(); return a[0] + p.hashCode(); } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "id o = new_NSObject_init();");
+    assertTranslation(translation, "id p = new_NSObject_init();");
+    assertOccurrences(translation, "@finally {", 2);
+    assertTranslation(translation, "RELEASE_(o);");
+    assertTranslation(translation, "RELEASE_(p);");
+    assertEquals(2, options.statistics().get("EscapeAnalyzer: released in finally block"));
+  }
+
+  public void testEscapingObjectsAreAutoreleased() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.List;"
+        + " class Test { Object f; List<Object> list;"
+        + " void storeField() { Object o = new Object(); f = o; }"
+        + " void passArgument() { Object o = new Object(); list.add(o); }"
+        + " Object returnIt() { Object o = new Object(); return o; }"
+        + " Object returnOwned() { Test t = new Test(); return t.f; } }",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "new_NSObject_init");
+    assertNotInTranslation(translation, "new_Test_init");
+    assertNotInTranslation(translation, "RELEASE_");
+    assertEquals(4, options.statistics().get("EscapeAnalyzer: skipped, escaping"));
+  }
+
+  public void testEarlyExitSkipsRelease() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int test(boolean b) { Object o = new Object();"
+        + " if (b) { return 0; } return o.hashCode(); } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "create_NSObject_init()");
+    assertNotInTranslation(translation, "RELEASE_");
+    assertEquals(1, options.statistics().get("EscapeAnalyzer: skipped, early scope exit"));
+  }
+
+  public void testNestedLoopBreakIsNotAnEarlyExit() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { void test(int[] a) { Object o = new Object();"
+        + " for (int i : a) { if (i == 0) { break; } o.notify(); } } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "new_NSObject_init()");
+    assertTranslation(translation, "RELEASE_(o);");
+  }
+
+  public void testDisabledByDefault() throws IOException {
+    options.setEscapeAnalysis(false);
+    String translation = translateSourceFile(
+        "class Test { void test() { Object o = new Object(); o.notify(); } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "create_NSObject_init()");
+    assertNotInTranslation(translation, "RELEASE_");
+  }
+
+  public void testNotAppliedWithARC() throws IOException {
+    options.setMemoryManagementOption(MemoryManagementOption.ARC);
+    String translation = translateSourceFile(
+        "class Test { void test() { Object o = new Object(); o.notify(); } }",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "RELEASE_");
+  }
+}
@@ -16,6 +16,7 @@ package com.google.devtools.j2objc.translate;
 
 import com.google.devtools.j2objc.GenerationTest;
 import com.google.devtools.j2objc.Options.MemoryManagementOption;
+import com.google.devtools.j2objc.util.CodeReferenceMap;
 import java.io.IOException;
 
 /**
@@ -668,4 +669,53 @@ public class FunctionizerTest extends GenerationTest {
         "Test", "Test.m");
     assertTranslation(translation, "+ (IOSObjectArray *)values {");
   }
+
+  public void testMonomorphicMethodInvocationIsDevirtualized() throws IOException {
+    options.setMonomorphicMethods(
+        CodeReferenceMap.builder().addMethod("A", "size", "()I").build());
+    String translation = translateSourceFile(
+        "class A { int n; int size() { return n; } int twice() { return size() * 2; } }",
+        "A", "A.m");
+    assertTranslation(translation, "static jint A_devirtualized$_size(A *self);");
+    assertTranslatedLines(translation,
+        "- (jint)twice {",
+        "return A_devirtualized$_size(self) * 2;");
+    assertTranslatedLines(translation,
+        "- (jint)size {",
+        "return A_size(self);");
+    assertTranslatedLines(translation,
+        "jint A_devirtualized$_size(A *self) {",
+        "return JreUsesImplementation(self, [A class], @selector(size)) ? A_size(self) "
+        + ": [self size];",
+        "}");
+    assertEquals(1, options.statistics().get("Functionizer: devirtualized invocations"));
+  }
+
+  public void testMonomorphicVoidMethodFallsBackToMessage() throws IOException {
+    options.setMonomorphicMethods(
+        CodeReferenceMap.builder().addMethod("A", "set", "(I)V").build());
+    String translation = translateSourceFile(
+        "class A { int n; void set(int v) { n = v; } void reset(A a) { a.set(0); } }",
+        "A", "A.m");
+    assertTranslation(translation, "A_devirtualized$_setWithInt_(");
+    assertTranslatedLines(translation,
+        "void A_devirtualized$_setWithInt_(A *self, jint v) {",
+        "if (JreUsesImplementation(self, [A class], @selector(setWithInt:))) {",
+        "A_setWithInt_(self, v);",
+        "return;",
+        "}",
+        "[self setWithInt:v];",
+        "}");
+  }
+
+  public void testMethodsNotInReportAreNotDevirtualized() throws IOException {
+    options.setMonomorphicMethods(
+        CodeReferenceMap.builder().addMethod("A", "size", "()I").build());
+    String translation = translateSourceFile(
+        "class A { int size() { return 0; } int twice() { return size() * 2; } }"
+        + " class B { int size() { return 1; } int twice() { return size() * 2; } }",
+        "A", "A.m");
+    assertTranslation(translation, "return [self size] * 2;");
+    assertNotInTranslation(translation, "B_devirtualized$_size");
+  }
 }
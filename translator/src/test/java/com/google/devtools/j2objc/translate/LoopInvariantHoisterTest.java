@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.GenerationTest;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link LoopInvariantHoister}.
+ */
+public class LoopInvariantHoisterTest extends GenerationTest {
+
+  @Override
+  protected void setUp() throws IOException {
+    super.setUp();
+    options.setHoistLoopInvariants(true);
+  }
+
+  public void testFieldsAndLengthHoisted() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { double scale; double[] values;"
+        + " double sum() { double total = 0;"
+        + " for (int i = 0; i < values.length; i++) { total += values[i] * scale; }"
+        + " return total; } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "IOSDoubleArray *hoisted$1 = values_;");
+    assertTranslation(translation, "jdouble hoisted$2 = scale_;");
+    assertTranslation(translation,
+        "jint hoisted$3 = ((IOSDoubleArray *) nil_chk(hoisted$1))->size_;");
+    assertTranslation(translation, "for (jint i = 0; i < hoisted$3; i++) {");
+    assertEquals(3, options.statistics().get("LoopInvariantHoister: hoisted loads"));
+  }
+
+  public void testWrittenFieldNotHoisted() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int limit; int total;"
+        + " void add(int[] a) { int i = 0; while (i < limit) { total += a[i]; i++; } } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "jint hoisted$1 = limit_;");
+    assertTranslation(translation, "while (i < hoisted$1) {");
+    assertNotInTranslation(translation, "= total_;");
+    assertEquals(1, options.statistics().get("LoopInvariantHoister: hoisted loads"));
+  }
+
+  public void testLoopWithInvocationNotHoisted() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int n; int count;"
+        + " void run() { for (int i = 0; i < n; i++) { tick(); } }"
+        + " void tick() { count++; } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "for (jint i = 0; i < n_; i++) {");
+    assertNotInTranslation(translation, "hoisted$");
+  }
+
+  public void testForeignStaticHoistedFromCondition() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { static class Config { static int limit = 4; }"
+        + " int sum(int[] v) { int s = 0;"
+        + " for (int i = 0; i < Config.limit; i++) { s += v[i]; } return s; } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "jint hoisted$1 = JreLoadStatic(Test_Config, limit);");
+    assertTranslation(translation, "for (jint i = 0; i < hoisted$1; i++) {");
+  }
+
+  public void testForeignStaticHoistedBeforeFields() throws IOException {
+    // Config's initializer may assign scale, so it must be initialized first.
+    String translation = translateSourceFile(
+        "class Test { double scale;"
+        + " static class Config { static int limit = 4; }"
+        + " double sum() { double s = 0;"
+        + " for (int i = 0; i < Config.limit; i++) { s += scale; } return s; } }",
+        "Test", "Test.m");
+    assertTranslatedLines(translation,
+        "jint hoisted$1 = JreLoadStatic(Test_Config, limit);",
+        "jdouble hoisted$2 = scale_;",
+        "for (jint i = 0; i < hoisted$1; i++) {");
+  }
+
+  public void testForeignStaticNotHoistedAfterFieldRead() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int start;"
+        + " static class Config { static int limit = 4; }"
+        + " int count() { int n = 0;"
+        + " for (int i = start; i < Config.limit; i++) { n++; } return n; } }",
+        "Test", "Test.m");
+    assertTranslation(translation,
+        "for (jint i = start_; i < JreLoadStatic(Test_Config, limit); i++) {");
+    assertNotInTranslation(translation, "hoisted$");
+  }
+
+  public void testUnsafeReadsOnlyHoistedFromCondition() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { static class Config { static int limit = 4; }"
+        + " int sum(int[] a, int n) { int s = 0;"
+        + " for (int i = 0; i < n && i < a.length; i++) { s += a[i]; }"
+        + " for (int i = 0; i < n; i++) { s += Config.limit; } return s; }"
+        + " int count(int[] a) { int j = 0; int s = 0;"
+        + " while (j < a.length) { s += a[j++]; } return s; } }",
+        "Test", "Test.m");
+    assertTranslation(translation, "s += JreLoadStatic(Test_Config, limit);");
+    assertTranslation(translation, "jint hoisted$1 = ((IOSIntArray *) nil_chk(a))->size_;");
+    assertTranslation(translation, "while (j < hoisted$1) {");
+    assertEquals(1, options.statistics().get("LoopInvariantHoister: hoisted loads"));
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.devtools.j2objc.J2ObjC;
+import com.google.devtools.j2objc.Options;
+import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
+import com.google.devtools.j2objc.gen.GeneratedType;
+import com.google.devtools.j2objc.pipeline.TranslationProcessor;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares annotation mirror scans with and without {@link AnnotationIndex},
+ * by translating and generating the same sources with the index disabled and
+ * then enabled. This isn't part of the test suite; run it with the
+ * translator's test classpath and the usual j2objc flags and sources:
+ *
+ * <pre>
+ * java com.google.devtools.j2objc.util.AnnotationIndexBenchmark \
+ *     -sourcepath jre_emul/Classes:jre_emul/android/... jre_emul/Classes/java/lang/*.java
+ * </pre>
+ */
+public class AnnotationIndexBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    Options options = new Options();
+    List<String> files = options.load(args);
+    if (files.isEmpty()) {
+      System.err.println("no source files");
+      System.exit(1);
+    }
+    // Run each configuration twice, so the second runs are warmed up.
+    run(options, files, false);
+    run(options, files, true);
+    System.out.println("without index: " + run(options, files, false));
+    System.out.println("with index:    " + run(options, files, true));
+  }
+
+  private static String run(Options options, List<String> files, boolean enabled)
+      throws IOException {
+    AnnotationIndex.setEnabled(enabled);
+    long[] counts = new long[2];
+    long start = System.nanoTime();
+    try (Parser parser = J2ObjC.createParser(options)) {
+      parser.parseFiles(files, (path, unit) -> {
+        AnnotationIndex index = unit.getEnv().annotationIndex();
+        index.activate();
+        try {
+          TranslationProcessor.applyMutations(
+              unit, null, options.externalAnnotations(), TimeTracker.noop());
+          for (AbstractTypeDeclaration type : unit.getTypes()) {
+            GeneratedType.fromTypeDeclaration(type);
+          }
+        } finally {
+          AnnotationIndex.deactivate();
+        }
+        counts[0] += index.queries();
+        counts[1] += index.scans();
+      }, options.getSourceVersion());
+    }
+    if (ErrorUtil.errorCount() > 0) {
+      System.exit(ErrorUtil.errorCount());
+    }
+    long millis = (System.nanoTime() - start) / 1000000;
+    return String.format("%d queries, %d mirror scans, %d ms", counts[0], counts[1], millis);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.FieldDeclaration;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.j2objc.annotations.RetainedWith;
+import com.google.j2objc.annotations.Weak;
+import java.io.IOException;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Unit tests for {@link AnnotationIndex}.
+ */
+public class AnnotationIndexTest extends GenerationTest {
+
+  private static final String SOURCE = String.join("\n",
+      "import com.google.j2objc.annotations.*;",
+      "class Test {",
+      "  @Weak Object weak;",
+      "  @Deprecated @RetainedWith Object retained;",
+      "  Object plain;",
+      "}");
+
+  @Override
+  protected void tearDown() throws Exception {
+    AnnotationIndex.deactivate();
+    super.tearDown();
+  }
+
+  public void testIndexNotKeptAfterConversion() throws IOException {
+    CompilationUnit unit = compileType("Test", SOURCE);
+    assertNotNull(unit);
+    assertNull(AnnotationIndex.current());
+  }
+
+  public void testQueriesMatchScans() throws IOException {
+    CompilationUnit unit = compileType("Test", SOURCE);
+    AbstractTypeDeclaration type = unit.getTypes().get(0);
+    unit.getEnv().annotationIndex().activate();
+    for (FieldDeclaration field : TreeUtil.getFieldDeclarations(type)) {
+      VariableElement var = field.getFragment().getVariableElement();
+      assertSame(ElementUtil.scanQualifiedNamedAnnotation(var, Weak.class.getCanonicalName()),
+          ElementUtil.getAnnotation(var, Weak.class));
+      assertSame(ElementUtil.scanQualifiedNamedAnnotation(var, RetainedWith.class.getName()),
+          ElementUtil.getAnnotation(var, RetainedWith.class));
+      assertSame(ElementUtil.scanQualifiedNamedAnnotation(var, "java.lang.Deprecated"),
+          ElementUtil.getQualifiedNamedAnnotation(var, "java.lang.Deprecated"));
+      assertEquals(ElementUtil.scanNamedAnnotation(var, "Weak"),
+          ElementUtil.hasNamedAnnotation(var, "Weak"));
+      assertEquals(ElementUtil.scanNamedAnnotation(var, "Deprecated"),
+          ElementUtil.hasNamedAnnotation(var, "Deprecated"));
+    }
+  }
+
+  public void testEachElementIsScannedOnce() throws IOException {
+    CompilationUnit unit = compileType("Test", SOURCE);
+    AbstractTypeDeclaration type = unit.getTypes().get(0);
+    AnnotationIndex index = new AnnotationIndex();
+    index.activate();
+    for (int i = 0; i < 10; i++) {
+      for (FieldDeclaration field : TreeUtil.getFieldDeclarations(type)) {
+        VariableElement var = field.getFragment().getVariableElement();
+        ElementUtil.hasAnnotation(var, Weak.class);
+        ElementUtil.hasNamedAnnotation(var, "Weak");
+      }
+    }
+    assertEquals(60, index.queries());
+    assertEquals(3, index.scans());
+  }
+
+  public void testDisabledIndexScansEveryQuery() throws IOException {
+    CompilationUnit unit = compileType("Test", SOURCE);
+    AbstractTypeDeclaration type = unit.getTypes().get(0);
+    AnnotationIndex index = new AnnotationIndex();
+    index.activate();
+    AnnotationIndex.setEnabled(false);
+    try {
+      for (int i = 0; i < 10; i++) {
+        for (FieldDeclaration field : TreeUtil.getFieldDeclarations(type)) {
+          VariableElement var = field.getFragment().getVariableElement();
+          assertEquals(ElementUtil.getName(var).equals("weak"),
+              ElementUtil.hasAnnotation(var, Weak.class));
+        }
+      }
+    } finally {
+      AnnotationIndex.setEnabled(true);
+    }
+    assertEquals(30, index.scans());
+  }
+}
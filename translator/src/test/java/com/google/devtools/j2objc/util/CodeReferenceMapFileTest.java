@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link CodeReferenceMapFile}.
+ */
+public class CodeReferenceMapFileTest extends TestCase {
+
+  private File tempDir;
+
+  @Override
+  protected void setUp() throws IOException {
+    tempDir = Files.createTempDir();
+  }
+
+  @Override
+  protected void tearDown() {
+    FileUtil.deleteTempDir(tempDir);
+  }
+
+  public void testRoundTrip() throws IOException {
+    CodeReferenceMap original = CodeReferenceMap.builder()
+        .addClass("com.foo.Dead")
+        .addClass("com.foo.Dead$Inner")
+        .addMethod("com.foo.Bar", "baz", "()V")
+        .addMethod("com.foo.Bar", "baz", "(I)V")
+        .addMethod("com.foo.Bar", "qux", "(Ljava/lang/String;)Lcom/foo/Bar;")
+        .addMethod("com.foo.\u00e9t\u00e9", "m", "()V")
+        .addField("com.foo.Bar", "count")
+        .addField("com.foo.Bar", "name")
+        .build();
+    File file = new File(tempDir, "dead.bin");
+    CodeReferenceMapFile.write(original, file);
+    assertTrue(CodeReferenceMapFile.isBinary(file));
+
+    CodeReferenceMap mapped = ProGuardUsageParser.parseDeadCodeFile(file);
+    assertFalse(mapped.isEmpty());
+    assertTrue(mapped.containsClass("com.foo.Dead"));
+    assertTrue(mapped.containsClass("com.foo.Dead$Inner"));
+    assertFalse(mapped.containsClass("com.foo.Bar"));
+    assertFalse(mapped.containsClass("com.foo.Unknown"));
+    assertTrue(mapped.containsMethod("com.foo.Bar", "baz", "()V"));
+    assertTrue(mapped.containsMethod("com.foo.Bar", "baz", "(I)V"));
+    assertFalse(mapped.containsMethod("com.foo.Bar", "baz", "(J)V"));
+    assertFalse(mapped.containsMethod("com.foo.Bar", "qux", "()V"));
+    assertTrue(mapped.containsMethod("com.foo.\u00e9t\u00e9", "m", "()V"));
+    // Members of dead classes are dead.
+    assertTrue(mapped.containsMethod("com.foo.Dead", "anything", "()V"));
+    assertTrue(mapped.containsField("com.foo.Bar", "count"));
+    assertFalse(mapped.containsField("com.foo.Bar", "baz"));
+    assertTrue(mapped.containsField("com.foo.Dead", "x"));
+
+    assertEquals(original.getReferencedClasses(), mapped.getReferencedClasses());
+    assertEquals(original.getReferencedMethods(), mapped.getReferencedMethods());
+    assertEquals(
+        ImmutableSet.copyOf(original.getReferencedFields().entries()),
+        ImmutableSet.copyOf(mapped.getReferencedFields().entries()));
+  }
+
+  public void testEmptyMap() throws IOException {
+    File file = new File(tempDir, "empty.bin");
+    CodeReferenceMapFile.write(CodeReferenceMap.builder().build(), file);
+    CodeReferenceMap mapped = ProGuardUsageParser.parseDeadCodeFile(file);
+    assertTrue(mapped.isEmpty());
+    assertFalse(mapped.containsClass("com.foo.Bar"));
+  }
+
+  public void testTextListingIsStillParsed() throws IOException {
+    File file = new File(tempDir, "usage.txt");
+    Files.asCharSink(file, StandardCharsets.UTF_8).write("com.foo.Dead\n");
+    assertFalse(CodeReferenceMapFile.isBinary(file));
+    assertTrue(ProGuardUsageParser.parseDeadCodeFile(file).containsClass("com.foo.Dead"));
+  }
+}
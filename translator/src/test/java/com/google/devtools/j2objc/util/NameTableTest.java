@@ -350,4 +350,41 @@ public class NameTableTest extends GenerationTest {
     assertEquals("true_", NameTable.camelCaseName("true", false));
     assertEquals("True", NameTable.camelCaseName("true", true)); // Not reserved name
   }
+
+  public void testClasspathNamesMemoizedAcrossUnits() throws IOException {
+    String source = "import java.util.ArrayList; class %s { "
+        + "String test(ArrayList<String> l) { l.add(\"a\"); return l.get(0); } }";
+    String first = translateSourceFile(String.format(source, "A"), "A", "A.m");
+    assertTranslation(first, "[((JavaUtilArrayList *) nil_chk(l)) addWithId:@\"a\"];");
+    long selectorHits =
+        options.statistics().get("ClasspathNameMemo: method selectors hits");
+    long fullNameHits = options.statistics().get("ClasspathNameMemo: full names hits");
+
+    // The second unit has its own name table, but reuses the first unit's names.
+    String second = translateSourceFile(String.format(source, "B"), "B", "B.m");
+    assertTranslation(second, "[((JavaUtilArrayList *) nil_chk(l)) addWithId:@\"a\"];");
+    assertTrue(options.statistics().get("ClasspathNameMemo: method selectors hits")
+        > selectorHits);
+    assertTrue(options.statistics().get("ClasspathNameMemo: full names hits") > fullNameHits);
+  }
+
+  public void testMemoizedNamesMatchComputedNames() throws IOException {
+    String source = "import java.util.*; class %s { "
+        + "Map<String, List<Integer>> m = new HashMap<>(); "
+        + "int test(ArrayList<String> l, Iterator<String> it) { "
+        + "l.add(it.next()); m.put(\"a\", Collections.emptyList()); "
+        + "return l.size() + Integer.parseInt(\"1\", 10) + Math.max(1, 2); } }";
+    options.classpathNameMemo().setEnabled(false);
+    String computedHeader = translateSourceFile(String.format(source, "A"), "A", "A.h");
+    String computed = getTranslatedFile("A.m");
+    assertEquals(0, options.statistics().get("ClasspathNameMemo: method selectors misses"));
+
+    options.classpathNameMemo().setEnabled(true);
+    // Translated twice, so the second translation uses the memoized names.
+    translateSourceFile(String.format(source, "A"), "A", "A.h");
+    String memoizedHeader = translateSourceFile(String.format(source, "A"), "A", "A.h");
+    assertTrue(options.statistics().get("ClasspathNameMemo: method selectors hits") > 0);
+    assertEquals(computedHeader, memoizedHeader);
+    assertEquals(computed, getTranslatedFile("A.m"));
+  }
 }
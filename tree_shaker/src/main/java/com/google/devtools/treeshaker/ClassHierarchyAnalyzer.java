@@ -55,6 +55,9 @@ final class ClassHierarchyAnalyzer {
             unusedBuilder.addMethod(type.getName(), name, sig);
           }
         }
+        for (String field : type.getUnusedFields()) {
+          unusedBuilder.addField(type.getName(), field);
+        }
       } else {
         unusedBuilder.addClass(type.getName());
       }
@@ -62,6 +65,47 @@ final class ClassHierarchyAnalyzer {
     return unusedBuilder.build();
   }
 
+  /**
+   * Returns the live instance methods that aren't overridden by any subtype, after one of the
+   * analyzers marked the live code. The translator calls these methods directly instead of
+   * sending a message (see the --monomorphic-methods translator flag).
+   */
+  static CodeReferenceMap findMonomorphicMethods(Collection<Type> types) {
+    CodeReferenceMap.Builder builder = CodeReferenceMap.builder();
+    for (Type type : types) {
+      if (!type.isLive()) {
+        continue;
+      }
+      for (Member member : type.getMembers()) {
+        String method = member.getName();
+        if (!member.isLive()
+            || !member.isPolymorphic()
+            || method.equals(INITIALIZER_NAME)
+            || method.startsWith(PSEUDO_CONSTRUCTOR_PREFIX)
+            || isOverridden(type, member.getSignature())) {
+          continue;
+        }
+        List<String> components =
+            Splitter.onPattern(SIGNATURE_PREFIX).splitToList(method);
+        if (components.size() != 2) {
+          continue;
+        }
+        builder.addMethod(type.getName(), components.get(0), components.get(1));
+      }
+    }
+    return builder.build();
+  }
+
+  // Compares signatures without the return type, so that covariant overrides are found.
+  private static boolean isOverridden(Type type, String signature) {
+    for (Type subtype : type.getImmediateSubtypes()) {
+      if (subtype.getMemberBySignature(signature) != null || isOverridden(subtype, signature)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static void onMemberReference(Member member) {
     if (member.isPolymorphic()) {
       traversePolymorphicReference(member.getDeclaringType(), member.getName());
@@ -79,6 +123,7 @@ final class ClassHierarchyAnalyzer {
     member.markLive();
     member.getReferencedMembers().forEach(ClassHierarchyAnalyzer::onMemberReference);
     member.getReferencedTypes().forEach(ClassHierarchyAnalyzer::markTypeLive);
+    member.getReferencedFields().forEach(Type::markFieldLive);
   }
 
   private static void traversePolymorphicReference(Type type, String memberName) {
@@ -13,6 +13,8 @@
  */
 package com.google.devtools.treeshaker;
 
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +40,7 @@ final class Member {
   private boolean live;
   private final List<Type> referencedTypes = new ArrayList<>();
   private final List<Member> referencedMembers = new ArrayList<>();
+  private final SetMultimap<Type, String> referencedFields = LinkedHashMultimap.create();
   private Member originalMember;
   private final Annotations annotations;
 
@@ -108,6 +111,14 @@ final class Member {
     referencedMembers.add(referencedMember);
   }
 
+  SetMultimap<Type, String> getReferencedFields() {
+    return referencedFields;
+  }
+
+  void addReferencedField(Type declaringType, String field) {
+    referencedFields.put(declaringType, field);
+  }
+
   Member getOriginalMember() {
     return originalMember;
   }
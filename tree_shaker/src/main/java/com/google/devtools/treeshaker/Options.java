@@ -71,8 +71,11 @@ class Options {
   private boolean stripReflection = false;
   private File treeShakerRoots;
   private File outputFile = new File("tree-shaker-report.txt");
+  private File monomorphicMethodsFile;
+  private boolean binaryOutput = false;
   private LibraryInfo summary;
   private String summaryOutputFile;
+  private File summaryCacheDir;
   private List<LibraryInfo> summaries = Lists.newArrayList();
 
   // The default source version number if not passed with -source is determined from the system
@@ -129,6 +132,14 @@ class Options {
     this.useClassHierarchyAnalyzer = useClassHierarchyAnalyzer;
   }
 
+  public boolean binaryOutput() {
+    return binaryOutput;
+  }
+
+  public void setBinaryOutput(boolean binaryOutput) {
+    this.binaryOutput = binaryOutput;
+  }
+
   public File getTreeShakerRoots() {
     return treeShakerRoots;
   }
@@ -141,6 +152,10 @@ class Options {
     return outputFile;
   }
 
+  public File getMonomorphicMethodsFile() {
+    return monomorphicMethodsFile;
+  }
+
   public LibraryInfo getSummary() {
     return summary;
   }
@@ -169,6 +184,14 @@ class Options {
     this.summaryOutputFile = summaryOutputFile;
   }
 
+  public File getSummaryCacheDir() {
+    return summaryCacheDir;
+  }
+
+  public void setSummaryCacheDir(File summaryCacheDir) {
+    this.summaryCacheDir = summaryCacheDir;
+  }
+
   private void addManifest(String manifestFile) throws IOException {
     BufferedReader in = new BufferedReader(new FileReader(new File(manifestFile)));
     try {
@@ -267,7 +290,7 @@ class Options {
           usage("-classpath requires an argument");
         }
         options.classpath = args[nArg];
-      } else if (arg.equals("-summaries")) {
+      } else if (arg.equals("-summaries") || arg.equals("--summaries")) {
         if (++nArg == args.length) {
           usage("--summaries requires an argument");
         }
@@ -295,11 +318,32 @@ class Options {
           usage("--output-file");
         }
         options.outputFile = new File(args[nArg]);
+      } else if (arg.equals("--output-monomorphic-methods")) {
+        if (++nArg == args.length) {
+          usage("--output-monomorphic-methods");
+        }
+        options.monomorphicMethodsFile = new File(args[nArg]);
+      } else if (arg.equals("--output-format")) {
+        if (++nArg == args.length) {
+          usage("--output-format");
+        }
+        if (args[nArg].equals("binary")) {
+          options.binaryOutput = true;
+        } else if (args[nArg].equals("text")) {
+          options.binaryOutput = false;
+        } else {
+          usage("invalid output format: " + args[nArg]);
+        }
       } else if (arg.equals("--output-summary")) {
         if (++nArg == args.length) {
           usage("--output-summary");
         }
         options.summaryOutputFile = args[nArg];
+      } else if (arg.equals("--summary-cache")) {
+        if (++nArg == args.length) {
+          usage("--summary-cache");
+        }
+        options.summaryCacheDir = new File(args[nArg]);
       } else if (arg.startsWith(XBOOTCLASSPATH)) {
         // TODO(malvania): Enable the bootclasspath option when we have a class file AST
         //                 parser that can use class jars.
@@ -66,6 +66,9 @@ final class RapidTypeAnalyser {
             unusedBuilder.addMethod(type.getName(), name, sig);
           }
         }
+        for (String field : type.getUnusedFields()) {
+          unusedBuilder.addField(type.getName(), field);
+        }
         if (!type.isInstantiated()) {
           for (Member member : type.getPotentiallyLiveMembers()) {
             if (member.getName().equals(INITIALIZER_NAME)) {
@@ -104,6 +107,7 @@ final class RapidTypeAnalyser {
     }
     member.getReferencedMembers().forEach(RapidTypeAnalyser::onMemberReference);
     member.getReferencedTypes().forEach(RapidTypeAnalyser::markTypeLive);
+    member.getReferencedFields().forEach(Type::markFieldLive);
   }
 
   private static void markInstantiated(Type type) {
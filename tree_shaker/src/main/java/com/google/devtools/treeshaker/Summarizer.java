@@ -13,27 +13,180 @@
  */
 package com.google.devtools.treeshaker;
 
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.google.devtools.j2objc.util.ErrorUtil;
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
-/** A tool for creating type information summaries of a Java program. */
+/**
+ * A tool for creating type information summaries of a Java program.
+ *
+ * <p>Each library can be summarized by its own Summarizer run, so the runs can be done in
+ * parallel, and the tree shaker merges the summaries with --summaries. With --summary-cache,
+ * summaries are stored by a hash of the sources, classpath and flags, so unchanged libraries
+ * aren't parsed again.
+ */
 public class Summarizer {
 
+  /**
+   * The version of the summary format, which is part of the cache key. Increment it whenever
+   * library_info.proto or the contents of a summary change.
+   */
+  @VisibleForTesting static final int SUMMARY_FORMAT_VERSION = 2;
+
   private Summarizer() {}
 
   public static void main(String[] args) {
     try {
       Options options = Options.parse(args);
       TreeShaker treeShaker = new TreeShaker(options);
-      LibraryInfo summary = treeShaker.createLibraryInfo();
       File summaryFile = new File(options.getSummaryOutputFile());
+      File cachedSummary = null;
+      if (options.getSummaryCacheDir() != null) {
+        cachedSummary =
+            new File(
+                options.getSummaryCacheDir(),
+                cacheKey(options, treeShaker.getSourceFiles()) + ".summary");
+        if (cachedSummary.exists()) {
+          Files.copy(cachedSummary, summaryFile);
+          return;
+        }
+      }
+      LibraryInfo summary = treeShaker.createLibraryInfo();
+      if (summary == null) {
+        return;
+      }
       summaryFile.createNewFile();
       Files.write(summary.toByteArray(), summaryFile);
+      if (cachedSummary != null) {
+        addToCache(summaryFile, cachedSummary);
+      }
     } catch (IOException e) {
       ErrorUtil.error(e.getMessage());
     }
   }
 
+  /**
+   * Returns a hash of everything the summary depends on: the summary format and the tool that
+   * writes it, the contents of the source files and of the classpath entries, and the flags that
+   * change how sources are parsed. Source file paths aren't included, so summaries can be shared
+   * between build directories.
+   */
+  @VisibleForTesting
+  static String cacheKey(Options options, List<String> sourceFiles) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(SUMMARY_FORMAT_VERSION);
+    hasher.putString(toolHash().toString(), StandardCharsets.UTF_8);
+    List<String> sourceHashes = new ArrayList<>();
+    for (String path : sourceFiles) {
+      sourceHashes.add(hashFile(path).toString());
+    }
+    // The order of the sources doesn't change the summary.
+    sourceHashes.sort(null);
+    putStrings(hasher, sourceHashes);
+    for (String path : classpathEntries(options)) {
+      hasher.putString(hashFile(path).toString(), StandardCharsets.UTF_8);
+    }
+    if (options.getTreeShakerRoots() != null) {
+      hasher.putString(
+          hashFile(options.getTreeShakerRoots().getPath()).toString(), StandardCharsets.UTF_8);
+    }
+    hasher.putString(options.fileEncoding(), StandardCharsets.UTF_8);
+    hasher.putString(options.sourceVersion().flag(), StandardCharsets.UTF_8);
+    hasher.putBoolean(options.stripReflection());
+    putStrings(hasher, options.getPlatformModuleSystemOptions());
+    return hasher.hash().toString();
+  }
+
+  private static List<String> classpathEntries(Options options) {
+    List<String> entries = new ArrayList<>();
+    Splitter splitter = Splitter.on(File.pathSeparatorChar).omitEmptyStrings();
+    entries.addAll(splitter.splitToList(Strings.nullToEmpty(options.getBootclasspath())));
+    entries.addAll(splitter.splitToList(Strings.nullToEmpty(options.getClasspath())));
+    entries.addAll(splitter.splitToList(Strings.nullToEmpty(options.getSourcepath())));
+    return entries;
+  }
+
+  // A directory is hashed by the relative paths and contents of all its files, so a summary
+  // isn't reused after any class or source in it changes. A missing entry is hashed by path.
+  @VisibleForTesting
+  static HashCode hashFile(String path) throws IOException {
+    File file = new File(path);
+    if (file.isFile()) {
+      return Files.asByteSource(file).hash(Hashing.sha256());
+    }
+    if (!file.isDirectory()) {
+      return Hashing.sha256().hashString(path, StandardCharsets.UTF_8);
+    }
+    Path root = file.toPath();
+    List<Path> files;
+    try (Stream<Path> paths = java.nio.file.Files.walk(root)) {
+      files = paths.filter(java.nio.file.Files::isRegularFile).sorted().collect(toList());
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(files.size());
+    for (Path p : files) {
+      hasher.putString(root.relativize(p).toString(), StandardCharsets.UTF_8).putChar('\0');
+      hasher.putString(
+          Files.asByteSource(p.toFile()).hash(Hashing.sha256()).toString(),
+          StandardCharsets.UTF_8);
+    }
+    return hasher.hash();
+  }
+
+  // Summaries written by an older build of the tool may differ even when the format version
+  // wasn't incremented, so the jar that contains this class is part of the key.
+  private static HashCode toolHash() throws IOException {
+    CodeSource codeSource = Summarizer.class.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return HashCode.fromInt(0);
+    }
+    try {
+      return hashFile(new File(codeSource.getLocation().toURI()).getPath());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return Hashing.sha256()
+          .hashString(codeSource.getLocation().toString(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static void putStrings(Hasher hasher, List<String> strings) {
+    hasher.putInt(strings.size());
+    for (String s : strings) {
+      hasher.putString(s, StandardCharsets.UTF_8).putChar('\0');
+    }
+  }
+
+  // Parallel runs may summarize the same library, so write a temporary file and rename it
+  // into place, rather than let a reader see a partial summary.
+  private static void addToCache(File summaryFile, File cachedSummary) throws IOException {
+    File cacheDir = cachedSummary.getParentFile();
+    cacheDir.mkdirs();
+    File tempFile = File.createTempFile("summary", ".tmp", cacheDir);
+    try {
+      Files.copy(summaryFile, tempFile);
+      java.nio.file.Files.move(
+          tempFile.toPath(),
+          cachedSummary.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      tempFile.delete();
+    }
+  }
 }
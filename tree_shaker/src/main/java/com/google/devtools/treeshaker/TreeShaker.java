@@ -25,11 +25,12 @@ import com.google.common.collect.Table.Cell;
 import com.google.common.flogger.GoogleLogger;
 import com.google.common.io.Files;
 import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.file.InputFile;
 import com.google.devtools.j2objc.file.RegularInputFile;
 import com.google.devtools.j2objc.pipeline.GenerationBatch;
 import com.google.devtools.j2objc.util.CodeReferenceMap;
+import com.google.devtools.j2objc.util.CodeReferenceMapFile;
 import com.google.devtools.j2objc.util.ErrorUtil;
-import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.Parser;
 import com.google.devtools.j2objc.util.ProGuardUsageParser;
 import java.io.BufferedWriter;
@@ -50,6 +51,7 @@ public class TreeShaker {
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
   private final Options options;
   private final com.google.devtools.j2objc.Options j2objcOptions;
+  private Collection<Type> analyzedTypes;
 
   static {
     // Enable assertions in the tree shaker.
@@ -129,30 +131,31 @@ public class TreeShaker {
     }
   }
 
-  private File stripIncompatible(List<String> sourceFileNames, Parser parser) throws IOException {
-    File strippedDir = null;
-    for (int i = 0; i < sourceFileNames.size(); i++) {
-      String fileName = sourceFileNames.get(i);
-      RegularInputFile file = new RegularInputFile(fileName);
+  private void stripIncompatible(List<String> sourceFileNames, Parser parser) throws IOException {
+    List<InputFile> files = new ArrayList<>();
+    List<String> sources = new ArrayList<>();
+    for (String sourceFileName : sourceFileNames) {
+      RegularInputFile file = new RegularInputFile(sourceFileName);
       String source = j2objcOptions.fileUtil().readFile(file);
-      if (!source.contains("J2ObjCIncompatible")) {
-        continue;
+      if (source.contains("J2ObjCIncompatible")) {
+        files.add(file);
+        sources.add(source);
       }
-      if (strippedDir == null) {
-        strippedDir = Files.createTempDir();
-        parser.prependSourcepathEntry(strippedDir.getPath());
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    List<Parser.ParseResult> parseResults = parser.parseWithoutBindings(files, sources);
+    for (int i = 0; i < files.size(); i++) {
+      Parser.ParseResult parseResult = parseResults.get(i);
+      if (parseResult == null) {
+        // Parse errors were reported.
+        continue;
       }
-      Parser.ParseResult parseResult = parser.parseWithoutBindings(file, source);
       String qualifiedName = parseResult.mainTypeName();
       parseResult.stripIncompatibleSource();
-      String relativePath = qualifiedName.replace('.', File.separatorChar) + ".java";
-      File strippedFile = new File(strippedDir, relativePath);
-      Files.createParentDirs(strippedFile);
-      Files.asCharSink(strippedFile, j2objcOptions.fileUtil().getCharset())
-          .write(parseResult.getSource());
-      sourceFileNames.set(i, strippedFile.getPath());
+      parser.replaceSource(files.get(i).getAbsolutePath(), qualifiedName, parseResult.getSource());
     }
-    return strippedDir;
   }
 
   @VisibleForTesting
@@ -168,13 +171,20 @@ public class TreeShaker {
     if (!unknownMethodReferences.isEmpty()) {
       logger.atWarning().log("Unknown Methods: %s", String.join(", ", unknownMethodReferences));
     }
+    analyzedTypes = tgb.getTypes();
     if (options.useClassHierarchyAnalyzer()) {
-      return ClassHierarchyAnalyzer.analyze(tgb.getTypes());
+      return ClassHierarchyAnalyzer.analyze(analyzedTypes);
     } else {
-      return RapidTypeAnalyser.analyse(tgb.getTypes());
+      return RapidTypeAnalyser.analyse(analyzedTypes);
     }
   }
 
+  /** Returns the live methods that have no overrides. Only valid after findUnusedCode(). */
+  @VisibleForTesting
+  CodeReferenceMap findMonomorphicMethods() {
+    return ClassHierarchyAnalyzer.findMonomorphicMethods(analyzedTypes);
+  }
+
   private TypeGraphBuilder createTypeGraphBuilder() throws IOException {
     if (options.getSummary() != null) {
       LibraryInfo info = options.getSummary();
@@ -203,7 +213,7 @@ public class TreeShaker {
     if (ErrorUtil.errorCount() > 0) {
       return null;
     }
-    File strippedDir = stripIncompatible(sourceFiles, parser);
+    stripIncompatible(sourceFiles, parser);
     Parser.Handler handler =
         new Parser.Handler() {
           @Override
@@ -213,7 +223,6 @@ public class TreeShaker {
         };
 
     parser.parseFiles(sourceFiles, handler, options.sourceVersion());
-    FileUtil.deleteTempDir(strippedDir);
     parser.close();
     if (ErrorUtil.errorCount() > 0) {
       return null;
@@ -221,7 +230,7 @@ public class TreeShaker {
     return context.getLibraryInfo();
   }
 
-  private List<String> getSourceFiles() {
+  List<String> getSourceFiles() {
     GenerationBatch batch = new GenerationBatch(j2objcOptions);
     batch.processFileArgs(options.getSourceFiles());
     return batch.getInputs().stream()
@@ -229,9 +238,16 @@ public class TreeShaker {
         .collect(Collectors.toList());
   }
 
-  private static void writeToFile(Options options, CodeReferenceMap unused) {
-    try (BufferedWriter writer =
-        Files.newWriter(options.getOutputFile(), Charset.defaultCharset())) {
+  private static void writeToFile(Options options, File outputFile, CodeReferenceMap unused) {
+    if (options.binaryOutput()) {
+      try {
+        CodeReferenceMapFile.write(unused, outputFile);
+      } catch (IOException e) {
+        ErrorUtil.error(e.getMessage());
+      }
+      return;
+    }
+    try (BufferedWriter writer = Files.newWriter(outputFile, Charset.defaultCharset())) {
       writeUnused(
           unused,
           s -> {
@@ -289,6 +305,14 @@ public class TreeShaker {
                         writer.accept("\n");
                       });
             });
+    ImmutableSortedSet<String> typesWithFields =
+        ImmutableSortedSet.copyOf(unused.getReferencedFields().keySet());
+    for (String type : typesWithFields) {
+      writer.accept(type + ":\n");
+      for (String field : ImmutableSortedSet.copyOf(unused.getReferencedFields().get(type))) {
+        writer.accept("    " + field + "\n");
+      }
+    }
   }
 
   private static int getArgTypes(String type, int offset, StringBuilder result) {
@@ -371,7 +395,11 @@ public class TreeShaker {
       exitOnErrorsOrWarnings(treatWarningsAsErrors);
       CodeReferenceMap unusedCode = shaker.findUnusedCode();
       if (unusedCode != null) {
-        writeToFile(options, unusedCode);
+        writeToFile(options, options.getOutputFile(), unusedCode);
+        if (options.getMonomorphicMethodsFile() != null) {
+          writeToFile(
+              options, options.getMonomorphicMethodsFile(), shaker.findMonomorphicMethods());
+        }
       }
     } catch (IOException e) {
       ErrorUtil.error(e.getMessage());
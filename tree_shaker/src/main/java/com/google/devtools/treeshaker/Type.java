@@ -25,13 +25,17 @@ import java.util.Set;
 
 final class Type {
   static Type buildFrom(TypeInfo typeInfo, String name) {
-    return new Type(name, typeInfo.getExported(), typeInfo.getMemberList());
+    return new Type(
+        name, typeInfo.getExported(), typeInfo.getMemberList(), typeInfo.getFieldsList());
   }
 
   private final String name;
   private final boolean isExported;
   private final Map<String, Member> membersByName = new LinkedHashMap<>();
   private final Map<String, Member> membersBySignature = new LinkedHashMap<>();
+  // Fields that can be removed if no live member reads them.
+  private final List<String> fields;
+  private final Set<String> liveFields = new HashSet<>();
 
   private Type superClass;
   private final List<Type> superInterfaces = new ArrayList<>();
@@ -40,9 +44,11 @@ final class Type {
   private boolean instantiated;
   private final Set<Member> potentiallyLiveMembers = new HashSet<>();
 
-  private Type(String name, boolean isExported, Collection<MemberInfo> members) {
+  private Type(
+      String name, boolean isExported, Collection<MemberInfo> members, List<String> fields) {
     this.name = name;
     this.isExported = isExported;
+    this.fields = fields;
     members.forEach(memberInfo -> {
       Member member = Member.buildFrom(memberInfo, this);
       Member previous = membersByName.put(member.getName(), member);
@@ -72,6 +78,24 @@ final class Type {
     return membersByName.values();
   }
 
+  void markFieldLive(String field) {
+    liveFields.add(field);
+  }
+
+  // Returns the fields that no live member reads. Exported types keep all their fields.
+  List<String> getUnusedFields() {
+    List<String> unused = new ArrayList<>();
+    if (isExported) {
+      return unused;
+    }
+    for (String field : fields) {
+      if (!liveFields.contains(field)) {
+        unused.add(field);
+      }
+    }
+    return unused;
+  }
+
   Type getSuperClass() {
     return superClass;
   }
@@ -15,7 +15,9 @@ package com.google.devtools.treeshaker;
 
 import com.google.common.collect.ImmutableList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +27,8 @@ class TypeGraphBuilder {
   private final Collection<Type> types;
   private final Set<String> externalTypeReferences;
   private final Set<String> unknownMethodReferences;
+  // Types that are defined by more than one library summary, and are only built from the first.
+  private final Set<TypeInfo> duplicateTypes = Collections.newSetFromMap(new IdentityHashMap<>());
 
   TypeGraphBuilder(ImmutableList<LibraryInfo> libraryInfos) {
     Map<String, Type> typesByName = new LinkedHashMap<>();
@@ -32,9 +36,14 @@ class TypeGraphBuilder {
     unknownMethodReferences = new HashSet<>();
     for (LibraryInfo libraryInfo : libraryInfos) {
       for (TypeInfo typeInfo : libraryInfo.getTypeList()) {
-        Type type = Type.buildFrom(typeInfo, libraryInfo.getTypeMap(typeInfo.getTypeId()));
-        typesByName.put(
-            type.getName(), type); // Type names are fully qualified, no risk of overriding.
+        String name = libraryInfo.getTypeMap(typeInfo.getTypeId());
+        // Type names are fully qualified, so the same name in another summary is the same type,
+        // summarized again by a library that includes its sources.
+        if (typesByName.containsKey(name)) {
+          duplicateTypes.add(typeInfo);
+          continue;
+        }
+        typesByName.put(name, Type.buildFrom(typeInfo, name));
       }
     }
 
@@ -60,6 +69,9 @@ class TypeGraphBuilder {
 
   private void buildCrossReferences(LibraryInfo libraryInfo, Map<String, Type> typesByName) {
     for (TypeInfo typeInfo : libraryInfo.getTypeList()) {
+      if (duplicateTypes.contains(typeInfo)) {
+        continue;
+      }
       Type type = typesByName.get(libraryInfo.getTypeMap(typeInfo.getTypeId()));
       String superClassName = libraryInfo.getTypeMap(typeInfo.getExtendsType());
       Type superClass = typesByName.get(superClassName);
@@ -99,6 +111,16 @@ class TypeGraphBuilder {
           member.addReferencedType(referencedType);
         }
 
+        for (FieldReference fieldReference : memberInfo.getReferencedFieldsList()) {
+          Type declaringType =
+              typesByName.get(libraryInfo.getTypeMap(fieldReference.getEnclosingType()));
+          if (declaringType == null) {
+            externalTypeReferences.add(libraryInfo.getTypeMap(fieldReference.getEnclosingType()));
+            continue;
+          }
+          member.addReferencedField(declaringType, fieldReference.getField());
+        }
+
         for (MethodInvocation methodInvocation : memberInfo.getInvokedMethodsList()) {
           Type enclosingType =
               typesByName.get(libraryInfo.getTypeMap(methodInvocation.getEnclosingType()));
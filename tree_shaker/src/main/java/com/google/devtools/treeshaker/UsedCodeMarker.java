@@ -20,8 +20,10 @@ import static java.lang.Math.max;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
 import com.google.devtools.j2objc.ast.Annotation;
 import com.google.devtools.j2objc.ast.AnnotationTypeDeclaration;
+import com.google.devtools.j2objc.ast.Assignment;
 import com.google.devtools.j2objc.ast.CastExpression;
 import com.google.devtools.j2objc.ast.ClassInstanceCreation;
 import com.google.devtools.j2objc.ast.CompilationUnit;
@@ -30,6 +32,7 @@ import com.google.devtools.j2objc.ast.CreationReference;
 import com.google.devtools.j2objc.ast.EnhancedForStatement;
 import com.google.devtools.j2objc.ast.EnumConstantDeclaration;
 import com.google.devtools.j2objc.ast.EnumDeclaration;
+import com.google.devtools.j2objc.ast.Expression;
 import com.google.devtools.j2objc.ast.ExpressionMethodReference;
 import com.google.devtools.j2objc.ast.FieldAccess;
 import com.google.devtools.j2objc.ast.FieldDeclaration;
@@ -47,8 +50,12 @@ import com.google.devtools.j2objc.ast.SimpleName;
 import com.google.devtools.j2objc.ast.SimpleType;
 import com.google.devtools.j2objc.ast.SingleMemberAnnotation;
 import com.google.devtools.j2objc.ast.SuperConstructorInvocation;
+import com.google.devtools.j2objc.ast.SuperFieldAccess;
 import com.google.devtools.j2objc.ast.SuperMethodInvocation;
+import com.google.devtools.j2objc.ast.ThisExpression;
+import com.google.devtools.j2objc.ast.TreeNode;
 import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
 import com.google.devtools.j2objc.ast.TryStatement;
 import com.google.devtools.j2objc.ast.Type;
 import com.google.devtools.j2objc.ast.TypeDeclaration;
@@ -59,6 +66,7 @@ import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
 import com.google.devtools.j2objc.util.CodeReferenceMap;
 import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.ProGuardUsageParser;
+import com.google.devtools.j2objc.util.TranslationUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
 import java.io.File;
 import java.lang.reflect.Modifier;
@@ -67,6 +75,7 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -92,6 +101,7 @@ final class UsedCodeMarker extends UnitTreeVisitor {
   private final Context context;
   private final boolean isEntryClass;
   private boolean needsReflection;
+  private Boolean unitHasNativeCode;
 
   UsedCodeMarker(CompilationUnit unit, Context context) {
     super(unit);
@@ -178,6 +188,14 @@ final class UsedCodeMarker extends UnitTreeVisitor {
 
   @Override
   public boolean visit(FieldDeclaration node) {
+    VariableDeclarationFragment fragment = node.getFragment();
+    AbstractTypeDeclaration type = TreeUtil.getEnclosingType(node);
+    // Only track fields of the type in scope; records, for example, aren't scoped.
+    if (elementUtil.getBinaryName(type.getTypeElement()).equals(context.currentTypeNameScope.peek())
+        && isRemovableField(fragment, type)) {
+      context.currentTypeInfoScope.peek().addFields(
+          ElementUtil.getName(fragment.getVariableElement()));
+    }
     if (Modifier.isStatic(node.getModifiers())) {
       pushClinit();
     }
@@ -345,10 +363,18 @@ final class UsedCodeMarker extends UnitTreeVisitor {
     if (var != null) {
       TypeElement declaringClass = ElementUtil.getDeclaringClass(var);
       addReferencedType(declaringClass.asType());
+      if (ElementUtil.isField(var) && !isFieldWrite(node)) {
+        addReferencedField(var);
+      }
     }
     return true;
   }
 
+  @Override
+  public void endVisit(SuperFieldAccess node) {
+    addReferencedField(node.getVariableElement());
+  }
+
   @Override
   public boolean visit(SimpleType node) {
     addReferencedType(node.getTypeMirror());
@@ -360,6 +386,93 @@ final class UsedCodeMarker extends UnitTreeVisitor {
     addReferencedType(node.getVariableElement().asType());
   }
 
+  /**
+   * Returns true if the field can be removed when no live code reads it. Fields used by native
+   * code, by reflection, or with initializers that have side effects are always kept, and so are
+   * constants since the compiler inlines them. Like ProGuard, this keeps the serialized fields of
+   * Serializable classes, so that their serialized form doesn't change.
+   */
+  private boolean isRemovableField(
+      VariableDeclarationFragment fragment, AbstractTypeDeclaration type) {
+    VariableElement var = fragment.getVariableElement();
+    Expression initializer = fragment.getInitializer();
+    return var.getConstantValue() == null
+        && !ElementUtil.isInterface(type.getTypeElement())
+        && !ElementUtil.hasNamedAnnotation(var, USED_BY_NATIVE)
+        && !ElementUtil.hasNamedAnnotation(var, USED_BY_REFLECTION)
+        && (initializer == null || !TranslationUtil.hasSideEffect(initializer))
+        && !isSerializedField(var, type)
+        && !hasNativeCode();
+  }
+
+  private boolean isSerializedField(VariableElement var, AbstractTypeDeclaration type) {
+    if (typeUtil.findSupertype(type.getTypeElement().asType(), "java.io.Serializable") == null) {
+      return false;
+    }
+    String name = ElementUtil.getName(var);
+    return name.equals("serialVersionUID")
+        || name.equals("serialPersistentFields")
+        || (!ElementUtil.isStatic(var)
+            && !var.getModifiers().contains(javax.lang.model.element.Modifier.TRANSIENT));
+  }
+
+  /**
+   * Returns true if the compilation unit has native methods or OCNI comments. Native code isn't
+   * analyzed, and may use the fields of any type in the unit, such as those of an outer class or
+   * a superclass declared in the same file.
+   */
+  private boolean hasNativeCode() {
+    if (unitHasNativeCode == null) {
+      boolean[] hasNative = {unit.getSource().contains("/*-[")};
+      unit.accept(
+          new TreeVisitor() {
+            @Override
+            public boolean visit(MethodDeclaration node) {
+              if (Modifier.isNative(node.getModifiers())) {
+                hasNative[0] = true;
+              }
+              return false;
+            }
+
+            @Override
+            public boolean preVisit(TreeNode node) {
+              return !hasNative[0];
+            }
+          });
+      unitHasNativeCode = hasNative[0];
+    }
+    return unitHasNativeCode;
+  }
+
+  /**
+   * Returns true if the name is the target of a plain assignment, like "f = 1" or "this.f = 1",
+   * which the translator can remove along with the field. Other writes, like compound
+   * assignments or assignments through another object, count as reads.
+   */
+  private static boolean isFieldWrite(SimpleName node) {
+    Expression target = node;
+    TreeNode parent = node.getParent();
+    if (parent instanceof FieldAccess) {
+      FieldAccess fieldAccess = (FieldAccess) parent;
+      if (fieldAccess.getName() != node
+          || !(fieldAccess.getExpression() instanceof ThisExpression)) {
+        return false;
+      }
+      target = fieldAccess;
+    } else if (parent instanceof QualifiedName) {
+      QualifiedName qualifiedName = (QualifiedName) parent;
+      if (qualifiedName.getName() != node
+          || TreeUtil.getVariableElement(qualifiedName.getQualifier()) != null) {
+        return false;
+      }
+      target = qualifiedName;
+    }
+    parent = target.getParent();
+    return parent instanceof Assignment
+        && ((Assignment) parent).getOperator() == Assignment.Operator.ASSIGN
+        && ((Assignment) parent).getLeftHandSide() == target;
+  }
+
   private String getDeclaringClassName(ExecutableElement method) {
     return elementUtil.getBinaryName(ElementUtil.getDeclaringClass(method));
   }
@@ -528,6 +641,7 @@ final class UsedCodeMarker extends UnitTreeVisitor {
             .setStatic(true)
             .setExported(isExported));
     context.clinitReferencedTypesScope.push(new HashSet<>());
+    context.clinitReferencedFieldsScope.push(new LinkedHashSet<>());
   }
 
   private void endTypeScope() {
@@ -538,6 +652,7 @@ final class UsedCodeMarker extends UnitTreeVisitor {
     for (Integer typeId : context.clinitReferencedTypesScope.pop()) {
       clinit.addReferencedTypes(typeId);
     }
+    clinit.addAllReferencedFields(context.clinitReferencedFieldsScope.pop());
     context.currentTypeInfoScope.peek().addMember(clinit.build());
     TypeInfo ti = context.currentTypeInfoScope.pop().build();
     context.currentTypeNameScope.pop();
@@ -548,6 +663,7 @@ final class UsedCodeMarker extends UnitTreeVisitor {
   private void startMethodScope(MemberInfo.Builder member) {
     context.memberScope.push(member);
     context.referencedTypesScope.push(new HashSet<>());
+    context.referencedFieldsScope.push(new LinkedHashSet<>());
   }
 
   private void startMethodDeclaration(
@@ -622,22 +738,34 @@ final class UsedCodeMarker extends UnitTreeVisitor {
     context.referencedTypesScope.peek().add(typeId);
   }
 
+  private void addReferencedField(VariableElement field) {
+    String declTypeName = elementUtil.getBinaryName(ElementUtil.getDeclaringClass(field));
+    context.referencedFieldsScope.peek().add(
+        FieldReference.newBuilder()
+            .setField(ElementUtil.getName(field))
+            .setEnclosingType(getTypeId(declTypeName))
+            .build());
+  }
+
   private void endMethodDeclaration() {
     MemberInfo.Builder member = context.memberScope.pop();
     for (Integer typeId : context.referencedTypesScope.pop()) {
       member.addReferencedTypes(typeId);
     }
+    member.addAllReferencedFields(context.referencedFieldsScope.pop());
     context.currentTypeInfoScope.peek().addMember(member.build());
   }
 
   private void pushClinit() {
     context.memberScope.push(context.clinitMemberScope.peek());
     context.referencedTypesScope.push(context.clinitReferencedTypesScope.peek());
+    context.referencedFieldsScope.push(context.clinitReferencedFieldsScope.peek());
   }
 
   private void popClinit() {
     context.memberScope.pop();
     context.referencedTypesScope.pop();
+    context.referencedFieldsScope.pop();
   }
 
   private static ImmutableSet<String> getExportedClasses(CodeReferenceMap rootSet) {
@@ -759,10 +887,12 @@ final class UsedCodeMarker extends UnitTreeVisitor {
     // Scope containing data for the current method being processed.
     private final Deque<MemberInfo.Builder> memberScope = new ArrayDeque<>();
     private final Deque<Set<Integer>> referencedTypesScope = new ArrayDeque<>();
+    private final Deque<Set<FieldReference>> referencedFieldsScope = new ArrayDeque<>();
 
     // Scope containing data for the current class initializer.
     private final Deque<MemberInfo.Builder> clinitMemberScope = new ArrayDeque<>();
     private final Deque<Set<Integer>> clinitReferencedTypesScope = new ArrayDeque<>();
+    private final Deque<Set<FieldReference>> clinitReferencedFieldsScope = new ArrayDeque<>();
 
     Context(CodeReferenceMap rootSet) {
       exportedMethods = getExportedMethods(rootSet);
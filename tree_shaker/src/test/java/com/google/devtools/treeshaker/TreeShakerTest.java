@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
@@ -64,12 +65,7 @@ public class TreeShakerTest extends TestCase {
   }
 
   private CodeReferenceMap findUnusedCode(boolean stripReflection) throws IOException {
-    Options options = new Options();
-    options.setClasspath(System.getProperty(JAVA_CLASS_PATH.value()));
-    options.setTreeShakerRoots(treeShakerRoots);
-    options.setSourceFiles(inputFiles);
-    options.setStripReflection(stripReflection);
-    TreeShaker shaker = new TreeShaker(options);
+    TreeShaker shaker = createTreeShaker(stripReflection);
     CodeReferenceMap unused = shaker.findUnusedCode();
     if (ErrorUtil.errorCount() > 0) {
       fail("TreeShaker failed with errors:\n" + Joiner.on("\n").join(ErrorUtil.getErrorMessages()));
@@ -77,6 +73,19 @@ public class TreeShakerTest extends TestCase {
     return unused;
   }
 
+  private TreeShaker createTreeShaker() throws IOException {
+    return createTreeShaker(false);
+  }
+
+  private TreeShaker createTreeShaker(boolean stripReflection) throws IOException {
+    Options options = new Options();
+    options.setClasspath(System.getProperty(JAVA_CLASS_PATH.value()));
+    options.setTreeShakerRoots(treeShakerRoots);
+    options.setSourceFiles(inputFiles);
+    options.setStripReflection(stripReflection);
+    return new TreeShaker(options);
+  }
+
   // Verify that an @file can be used without failing due to missing arguments later declared.
   // b/226587676
   public void testIncompleteAtFile() throws IOException {
@@ -118,6 +127,53 @@ public class TreeShakerTest extends TestCase {
     assertThat(getUnusedMethods(unused)).containsExactly(getMethodName("p.A", "A", "()V"));
   }
 
+  public void testMergedSummariesWithDuplicateTypes() throws IOException {
+    addSourceFile("A.java", "package p; class A { static void main() { new B().b(\"\"); } }");
+    addSourceFile("B.java", "package p; class B { void b(String s) {} }");
+    LibraryInfo first = createTreeShaker().createLibraryInfo();
+    String sourceB = inputFiles.get(1);
+    inputFiles.clear();
+    inputFiles.add(sourceB);
+    addSourceFile("C.java", "package p; class C { void c(String s) {} }");
+    LibraryInfo second = createTreeShaker().createLibraryInfo();
+
+    addTreeShakerRootsFile("p.A:\n    main()");
+    Options options = new Options();
+    options.setTreeShakerRoots(treeShakerRoots);
+    options.setSummaries(ImmutableList.of(first, second));
+    CodeReferenceMap unused = new TreeShaker(options).findUnusedCode();
+
+    assertThat(getUnusedClasses(unused)).containsExactly("p.C");
+    assertThat(getUnusedMethods(unused)).containsExactly(getMethodName("p.A", "A", "()V"));
+  }
+
+  public void testSummaryCacheKey() throws IOException {
+    addSourceFile("one/A.java", "package p; class A {}");
+    addSourceFile("one/B.java", "package p; class B {}");
+    addSourceFile("two/B.java", "package p; class B {}");
+    addSourceFile("two/A.java", "package p; class A {}");
+    addSourceFile("three/A.java", "package p; class A { void a() {} }");
+    Options options = new Options();
+    String key = Summarizer.cacheKey(options, inputFiles.subList(0, 2));
+
+    // The same sources in another directory and order have the same key.
+    assertEquals(key, Summarizer.cacheKey(options, inputFiles.subList(2, 4)));
+    assertFalse(
+        key.equals(
+            Summarizer.cacheKey(options, ImmutableList.of(inputFiles.get(2), inputFiles.get(4)))));
+  }
+
+  public void testSummaryCacheKeyHashesClasspathDirectoryContents() throws IOException {
+    addSourceFile("lib/p/A.java", "package p; public class A {}");
+    Options options = new Options();
+    options.setClasspath(new File(tempDir, "lib").getPath());
+    String key = Summarizer.cacheKey(options, ImmutableList.of());
+
+    assertEquals(key, Summarizer.cacheKey(options, ImmutableList.of()));
+    addSourceFile("lib/p/A.java", "package p; public class A { int a; }");
+    assertFalse(key.equals(Summarizer.cacheKey(options, ImmutableList.of())));
+  }
+
   public void testExportedMethod() throws IOException {
     addTreeShakerRootsFile("p.A:\n    A()\n    main()");
     addSourceFile("A.java", "package p; class A { void main() {} }");
@@ -1248,6 +1304,34 @@ public class TreeShakerTest extends TestCase {
     assertThat(output).isEqualTo("p.B\np.A:\n    boolean a(int)\n");
   }
 
+  public void testMonomorphicMethods() throws IOException {
+    addTreeShakerRootsFile("p.A:\n    main()");
+    addSourceFile(
+        "A.java", "package p; class A { static void main() { B b = new C(); b.b(); b.c(); }}");
+    addSourceFile("B.java", "package p; class B { void b() {} void c() {} }");
+    addSourceFile("C.java", "package p; class C extends B { void c() {} }");
+    TreeShaker shaker = createTreeShaker();
+    shaker.findUnusedCode();
+    CodeReferenceMap monomorphic = shaker.findMonomorphicMethods();
+
+    assertThat(getUnusedClasses(monomorphic)).isEmpty();
+    assertThat(getUnusedMethods(monomorphic))
+        .containsExactly(getMethodName("p.B", "b", "()V"), getMethodName("p.C", "c", "()V"));
+  }
+
+  public void testCovariantOverrideIsNotMonomorphic() throws IOException {
+    addTreeShakerRootsFile("p.A:\n    main()");
+    addSourceFile(
+        "A.java", "package p; class A { static void main() { B b = new C(); b.get(); }}");
+    addSourceFile("B.java", "package p; class B { Object get() { return null; } }");
+    addSourceFile("C.java", "package p; class C extends B { String get() { return \"\"; } }");
+    TreeShaker shaker = createTreeShaker();
+    shaker.findUnusedCode();
+
+    assertThat(getUnusedMethods(shaker.findMonomorphicMethods()))
+        .containsExactly(getMethodName("p.C", "get", "()Ljava/lang/String;"));
+  }
+
   public void testGetType() throws IOException {
     assertThat(getType("V")).isEqualTo("void");
     assertThat(getType("Z")).isEqualTo("boolean");
@@ -1300,9 +1384,9 @@ public class TreeShakerTest extends TestCase {
   }
 
   // Regression test for b/224994241
-  // Note: this verifies that dead field types can be compiled. Once dead fields
-  // are removed (b/225384453), though, this test should be changed to reflect
-  // that the Boiler type is removed and not just its constructor.
+  // Note: this verifies that dead field types can be compiled. The dead field
+  // is now reported, but Boiler is still referenced by the field's declaration
+  // in the constructor, so only its constructor is removed.
   public void testFieldReference() throws IOException {
     addTreeShakerRootsFile("EntryClass\n");
     addSourceFile(
@@ -1329,7 +1413,105 @@ public class TreeShakerTest extends TestCase {
                 + "CoffeeMaker:\n"
                 + "    CoffeeMaker()\n"
                 + "CoffeeMaker:\n"
-                + "    instanceMethod()\n");
+                + "    instanceMethod()\n"
+                + "CoffeeMaker:\n"
+                + "    boiler\n");
+  }
+
+  public void testDeadFields() throws IOException {
+    addTreeShakerRootsFile("EntryClass\n");
+    addSourceFile(
+        "UsedByReflection.java",
+        "package com.google.j2objc.annotations;\n"
+            + "import static java.lang.annotation.ElementType.*;\n"
+            + "import java.lang.annotation.Target;\n"
+            + "@Target({TYPE, METHOD, CONSTRUCTOR, FIELD})\n"
+            + "public @interface UsedByReflection {}");
+    addSourceFile(
+        "EntryClass.java",
+        "public class EntryClass {\n"
+            + "  public void exportedMethod() {\n"
+            + "    new CoffeeMaker(2).brew();\n"
+            + "  }\n"
+            + "}");
+    addSourceFile(
+        "CoffeeMaker.java",
+        "import com.google.j2objc.annotations.UsedByReflection;\n"
+            + "class CoffeeMaker {\n"
+            + "  private int cups;\n"
+            + "  private int writtenOnly;\n"
+            + "  private int readByDeadMethod;\n"
+            + "  @UsedByReflection private int reflected;\n"
+            + "  private static final int SIZE = 4;\n"
+            + "  CoffeeMaker(int cups) {\n"
+            + "    this.cups = cups;\n"
+            + "    writtenOnly = cups;\n"
+            + "  }\n"
+            + "  void brew() {\n"
+            + "    System.out.println(cups * SIZE);\n"
+            + "  }\n"
+            + "  int unused() {\n"
+            + "    return readByDeadMethod;\n"
+            + "  }\n"
+            + "}");
+    CodeReferenceMap unused = findUnusedCode();
+    assertThat(unused.getReferencedFields().get("CoffeeMaker"))
+        .containsExactly("writtenOnly", "readByDeadMethod");
+  }
+
+  public void testSerializedFieldsKept() throws IOException {
+    addTreeShakerRootsFile("EntryClass\n");
+    addSourceFile(
+        "EntryClass.java",
+        "public class EntryClass {\n"
+            + "  public void exportedMethod() {\n"
+            + "    new Point(1, 2).print();\n"
+            + "  }\n"
+            + "}");
+    addSourceFile(
+        "Point.java",
+        "class Point implements java.io.Serializable {\n"
+            + "  private static final long serialVersionUID = 1L;\n"
+            + "  private int x;\n"
+            + "  private int y;\n"
+            + "  private transient int hash;\n"
+            + "  Point(int x, int y) {\n"
+            + "    this.x = x;\n"
+            + "    this.y = y;\n"
+            + "    hash = x ^ y;\n"
+            + "  }\n"
+            + "  void print() {\n"
+            + "    System.out.println(x);\n"
+            + "  }\n"
+            + "}");
+    CodeReferenceMap unused = findUnusedCode();
+    assertThat(unused.getReferencedFields().get("Point")).containsExactly("hash");
+  }
+
+  public void testFieldsKeptForNativeCodeOfNestedClass() throws IOException {
+    addTreeShakerRootsFile("EntryClass\n");
+    addSourceFile(
+        "EntryClass.java",
+        "public class EntryClass {\n"
+            + "  public void exportedMethod() {\n"
+            + "    new Outer(1).new Inner().print();\n"
+            + "  }\n"
+            + "}");
+    addSourceFile(
+        "Outer.java",
+        "class Outer {\n"
+            + "  private int count;\n"
+            + "  Outer(int count) {\n"
+            + "    this.count = count;\n"
+            + "  }\n"
+            + "  class Inner {\n"
+            + "    native void print() /*-[\n"
+            + "      printf(\"%d\", this$0_->count_);\n"
+            + "    ]-*/;\n"
+            + "  }\n"
+            + "}");
+    CodeReferenceMap unused = findUnusedCode();
+    assertThat(unused.getReferencedFields().get("Outer")).isEmpty();
   }
 
   // Regression test for b/224994241
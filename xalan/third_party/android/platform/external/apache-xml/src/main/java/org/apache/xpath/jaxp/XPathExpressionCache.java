@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xpath.jaxp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import org.apache.xpath.XPath;
+
+/**
+ * A bounded cache of the expressions compiled by
+ * {@link XPathImpl#evaluate(String, Object, javax.xml.namespace.QName)} and
+ * its overloads, so that evaluating the same expression string again skips
+ * the lexer and compiler.
+ *
+ * <p>Each {@link XPathImpl} has its own cache, so the cache and the resolvers
+ * in its keys become unreachable along with the <code>XPath</code> object,
+ * rather than being kept alive for the life of the process. Entries are keyed
+ * by the expression text and by the identity of the prefix, function and
+ * variable resolvers that were in effect, since those can be changed between
+ * evaluations, and the least recently used entry is dropped once the cache is
+ * full.</p>
+ *
+ * <p>The default size is 256 expressions, and can be changed with the
+ * <code>org.apache.xpath.jaxp.expressionCacheSize</code> system property or
+ * {@link #setMaxSize(int)}. A size of 0 disables the cache.</p>
+ */
+public final class XPathExpressionCache {
+
+    /** The name of the system property that sets the default size. */
+    public static final String SIZE_PROPERTY =
+            "org.apache.xpath.jaxp.expressionCacheSize";
+
+    private static final int DEFAULT_SIZE = 256;
+
+    private int maxSize = readDefaultSize();
+
+    private final Map cache = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            if (size() > maxSize) {
+                evictionCount++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    XPathExpressionCache() {
+    }
+
+    private static int readDefaultSize() {
+        try {
+            return Math.max(0, Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE).intValue());
+        } catch (SecurityException e) {
+            return DEFAULT_SIZE;
+        }
+    }
+
+    /**
+     * Returns the compiled form of <code>expression</code>, compiling it
+     * with the given resolvers if it isn't cached.
+     *
+     * @throws TransformerException if the expression cannot be compiled.
+     *     Expressions that fail to compile are not cached.
+     */
+    synchronized XPath getXPath(String expression, JAXPPrefixResolver prefixResolver,
+            XPathFunctionResolver functionResolver,
+            XPathVariableResolver variableResolver) throws TransformerException {
+        Key key = new Key(expression, prefixResolver, functionResolver, variableResolver);
+        if (maxSize > 0) {
+            XPath xpath = (XPath) cache.get(key);
+            if (xpath != null) {
+                hitCount++;
+                return xpath;
+            }
+        }
+        missCount++;
+        XPath xpath = new XPath(expression, null, prefixResolver, XPath.SELECT);
+        if (maxSize > 0) {
+            cache.put(key, xpath);
+        }
+        return xpath;
+    }
+
+    /**
+     * Sets the maximum number of cached expressions, dropping the least
+     * recently used ones if there are more. A size of 0 disables the cache.
+     */
+    public synchronized void setMaxSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size < 0");
+        }
+        maxSize = size;
+        if (cache.size() > size) {
+            Iterator entries = cache.entrySet().iterator();
+            for (int i = cache.size() - size; i > 0; i--) {
+                entries.next();
+                entries.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /** Returns the maximum number of cached expressions. */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Returns the number of cached expressions. */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /** Removes all cached expressions. The statistics are not reset. */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /** Returns the number of evaluations that reused a compiled expression. */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /** Returns the number of evaluations that had to compile their expression. */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /** Returns the number of compiled expressions dropped to stay within the maximum size. */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * The expression text and the identities of the resolvers it was
+     * compiled with.
+     */
+    private static final class Key {
+        private final String expression;
+        private final Object prefixResolver;
+        private final Object functionResolver;
+        private final Object variableResolver;
+        private final int hashCode;
+
+        Key(String expression, Object prefixResolver, Object functionResolver,
+                Object variableResolver) {
+            this.expression = expression;
+            this.prefixResolver = prefixResolver;
+            this.functionResolver = functionResolver;
+            this.variableResolver = variableResolver;
+            int hash = expression.hashCode();
+            hash = hash * 31 + System.identityHashCode(prefixResolver);
+            hash = hash * 31 + System.identityHashCode(functionResolver);
+            hash = hash * 31 + System.identityHashCode(variableResolver);
+            this.hashCode = hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return expression.equals(other.expression)
+                    && prefixResolver == other.prefixResolver
+                    && functionResolver == other.functionResolver
+                    && variableResolver == other.variableResolver;
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -67,6 +67,9 @@ public class XPathImpl implements javax.xml.xpath.XPath {
     // Secure Processing Feature is set on XPathFactory then the invocation of
     // extensions function need to throw XPathFunctionException
     private boolean featureSecureProcessing = false; 
+    // The expressions compiled by evaluate(), which are only reachable from
+    // this XPath, along with the resolvers they were compiled with.
+    private final XPathExpressionCache expressionCache = new XPathExpressionCache();
 
     XPathImpl( XPathVariableResolver vr, XPathFunctionResolver fr ) {
         this.origVariableResolver = this.variableResolver = vr;
@@ -192,8 +195,10 @@ public class XPathImpl implements javax.xml.xpath.XPath {
     
     private XObject eval(String expression, Object contextItem)
         throws javax.xml.transform.TransformerException {
-        org.apache.xpath.XPath xpath = new org.apache.xpath.XPath( expression,
-            null, prefixResolver, org.apache.xpath.XPath.SELECT ); 
+        // Reuse the compiled expression if this one was evaluated before with
+        // the same resolvers.
+        org.apache.xpath.XPath xpath = expressionCache.getXPath( expression,
+            prefixResolver, functionResolver, variableResolver );
         org.apache.xpath.XPathContext xpathSupport = null;
 
         // Create an XPathContext that doesn't support pushing and popping of
@@ -540,6 +545,17 @@ public class XPathImpl implements javax.xml.xpath.XPath {
         this.variableResolver = this.origVariableResolver;
         this.functionResolver = this.origFunctionResolver;
         this.namespaceContext = null;
+        expressionCache.clear();
+    }
+
+    /**
+     * <p>Returns the cache of the expressions compiled by
+     * <code>evaluate()</code>.</p>
+     *
+     * @return This <code>XPath</code>'s expression cache
+     */
+    public XPathExpressionCache getExpressionCache() {
+        return expressionCache;
     }
  
 }